@@ -0,0 +1,65 @@
+package Benchmarks;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import Tools.SiteStepper;
+
+
+/**
+ * <p>
+ * Class DeathAndMigrationBenchmark measures the death and migration pass of all sites including the arrival of the migrants.
+ * The population is not changed, every invocation draws from the random streams of the next step.
+ * </p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class DeathAndMigrationBenchmark extends SimulationState {
+
+	private SiteStepper[] steppers;
+	private int step;
+
+	/**
+	 * <p>
+	 * Creates the population and the steppers of all sites.
+	 * </p>
+	 * @throws IOException Not thrown, the population is not read from a file.
+	 */
+	@Setup(Level.Trial)
+	public void setUp() throws IOException {
+		createPopulation();
+		this.steppers = createSteppers();
+	}
+
+	/**
+	 * <p>
+	 * Death and migration of all cells of all sites.
+	 * </p>
+	 * @return The number of migrations, so the pass is not eliminated.
+	 */
+	@Benchmark
+	public int deathAndMigration() {
+		deathAndMigration(this.steppers, this.step++);
+		int migrations = 0;
+		for (SiteStepper stepper : this.steppers) {
+			migrations += stepper.getCounterMigrations();
+		}
+		return migrations;
+	}
+}
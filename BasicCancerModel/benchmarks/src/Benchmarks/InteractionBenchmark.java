@@ -0,0 +1,110 @@
+package Benchmarks;
+
+import java.io.IOException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import Tools.SiteStepper;
+
+
+/**
+ * <p>
+ * Class InteractionBenchmark measures the interaction phase of all sites: shuffling the surviving cells, building the grid, the
+ * density check, the selection of the mating partner and the placement of the offspring. The surviving cells are those of one death
+ * and migration pass, the newborn field is reset to the migrants before every invocation.
+ * </p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class InteractionBenchmark extends SimulationState {
+
+	private static final int STEP = 0;
+
+	private SiteStepper[] steppers;
+	private ForkJoinPool pool;
+
+	/**
+	 * <p>
+	 * Creates the population and runs the death and migration pass once.
+	 * </p>
+	 * @throws IOException Not thrown, the population is not read from a file.
+	 */
+	@Setup(Level.Trial)
+	public void setUp() throws IOException {
+		createPopulation();
+		this.steppers = createSteppers();
+		deathAndMigration(this.steppers, STEP);
+		this.pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * <p>
+	 * Removes the offspring of the last invocation from the newborn fields.
+	 * </p>
+	 */
+	@Setup(Level.Invocation)
+	public void resetNewborns() {
+		for (SiteStepper stepper : this.steppers) {
+			stepper.receiveMigrants();
+		}
+	}
+
+	/**
+	 * <p>
+	 * Shuts the pool of the tiled interaction down.
+	 * </p>
+	 */
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		this.pool.shutdown();
+	}
+
+	/**
+	 * <p>
+	 * Interaction of all sites on the calling thread.
+	 * </p>
+	 * @return The number of offspring, so the phase is not eliminated.
+	 */
+	@Benchmark
+	public int interact() {
+		int offspring = 0;
+		for (SiteStepper stepper : this.steppers) {
+			stepper.interact(STEP);
+			offspring += stepper.getCounterOffspring();
+		}
+		return offspring;
+	}
+
+	/**
+	 * <p>
+	 * Interaction of all sites with every site split into tiles that are processed on all processors.
+	 * </p>
+	 * @return The number of offspring, so the phase is not eliminated.
+	 */
+	@Benchmark
+	public int interactTiled() {
+		int offspring = 0;
+		for (SiteStepper stepper : this.steppers) {
+			stepper.interactTiled(STEP, this.pool);
+			offspring += stepper.getCounterOffspring();
+		}
+		return offspring;
+	}
+}
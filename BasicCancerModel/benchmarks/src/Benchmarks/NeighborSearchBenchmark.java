@@ -0,0 +1,109 @@
+package Benchmarks;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import Tools.CellStore;
+import Tools.SpatialGrid;
+
+
+/**
+ * <p>
+ * Class NeighborSearchBenchmark measures the neighbor and density search of the interaction phase on the cells of the solid tumor:
+ * building the bucket grid and looking up the neighbors within the interaction radius of every cell, as SiteStepper does per step.
+ * </p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class NeighborSearchBenchmark extends SimulationState {
+
+	private CellStore cells;
+	private SpatialGrid grid;
+	private SpatialGrid builtGrid;		//built once, for the lookups alone
+	private int[] neighbors;
+
+	/**
+	 * <p>
+	 * Creates the population and a grid over the solid tumor.
+	 * </p>
+	 * @throws IOException Not thrown, the population is not read from a file.
+	 */
+	@Setup(Level.Trial)
+	public void setUp() throws IOException {
+		createPopulation();
+		this.cells = this.ps.getCells(0);
+		this.grid = new SpatialGrid(this.interactionRadius);
+		this.builtGrid = new SpatialGrid(this.interactionRadius);
+		this.builtGrid.build(cells.getXArray(), cells.getYArray(), cells.size());
+		this.neighbors = new int[this.builtGrid.getNeighborCapacity()];
+	}
+
+	/**
+	 * <p>
+	 * Sorts the cells of the solid tumor into the buckets.
+	 * </p>
+	 * @return The neighbor capacity of the grid, so the build is not eliminated.
+	 */
+	@Benchmark
+	public int build() {
+		this.grid.build(cells.getXArray(), cells.getYArray(), cells.size());
+		return this.grid.getNeighborCapacity();
+	}
+
+	/**
+	 * <p>
+	 * Collects the neighbors of every cell of the solid tumor in the prebuilt grid.
+	 * </p>
+	 * @return The number of neighbors found over all cells.
+	 */
+	@Benchmark
+	public long collectNeighbors() {
+		long found = 0;
+		for (int i = 0; i < cells.size(); i++) {
+			found += this.builtGrid.collectNeighbors(cells.getX(i), cells.getY(i), this.interactionRadius, this.neighbors);
+		}
+		return found;
+	}
+
+	/**
+	 * <p>
+	 * Counts the cells around every cell of the solid tumor after inserting every tenth cell as a newborn, i.e. the full density
+	 * check of the interaction phase.
+	 * </p>
+	 * @return The summed density over all cells.
+	 */
+	@Benchmark
+	public long density() {
+		this.grid.build(cells.getXArray(), cells.getYArray(), cells.size());
+		for (int i = 0; i < cells.size(); i += 10) {
+			this.grid.insert(cells.getX(i), cells.getY(i));
+		}
+		if (this.neighbors.length < this.grid.getNeighborCapacity()) {
+			this.neighbors = new int[this.grid.getNeighborCapacity()];
+		}
+		long density = 0;
+		for (int i = 0; i < cells.size(); i++) {
+			double x = cells.getX(i);
+			double y = cells.getY(i);
+			density += this.grid.collectNeighbors(x, y, this.interactionRadius, this.neighbors)
+					+ this.grid.countInserted(x, y, this.interactionRadius);
+		}
+		return density;
+	}
+}
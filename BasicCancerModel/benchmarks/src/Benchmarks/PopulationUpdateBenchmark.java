@@ -0,0 +1,82 @@
+package Benchmarks;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import Tools.CellStore;
+import Tools.SiteStepper;
+
+
+/**
+ * <p>
+ * Class PopulationUpdateBenchmark measures the end of a step: merging the newborn and surviving cells of one step into the population
+ * with PopulationStatus.updatePopulation, and the recount of the distribution alone.
+ * </p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class PopulationUpdateBenchmark extends SimulationState {
+
+	private CellStore[] newField;
+	private CellStore[] survivingCells;
+
+	/**
+	 * <p>
+	 * Creates the population and computes one step of all sites without updating the population.
+	 * </p>
+	 * @throws IOException Not thrown, the population is not read from a file.
+	 */
+	@Setup(Level.Trial)
+	public void setUp() throws IOException {
+		createPopulation();
+		SiteStepper[] steppers = createSteppers();
+		deathAndMigration(steppers, 0);
+		this.newField = new CellStore[steppers.length];
+		this.survivingCells = new CellStore[steppers.length];
+		for (int site = 0; site < steppers.length; site++) {
+			steppers[site].interact(0);
+			this.newField[site] = steppers[site].getNewField();
+			this.survivingCells[site] = steppers[site].getSurvivingCells();
+		}
+	}
+
+	/**
+	 * <p>
+	 * Replaces the population with the cells of the step, assigns the IDs of the newborns and recounts the distribution.
+	 * </p>
+	 * @return The population size, so the update is not eliminated.
+	 */
+	@Benchmark
+	public int updatePopulation() {
+		this.ps.updatePopulation(this.newField, this.survivingCells);
+		return this.ps.getCurrentPopulationSize();
+	}
+
+	/**
+	 * <p>
+	 * Recounts the number of cells per type at every site.
+	 * </p>
+	 * @return The distribution, so the recount is not eliminated.
+	 */
+	@Benchmark
+	public double[][] updateDistribution() {
+		this.ps.updateDistribution();
+		return this.ps.getDistribution();
+	}
+}
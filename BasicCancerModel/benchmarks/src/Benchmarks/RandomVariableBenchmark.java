@@ -0,0 +1,113 @@
+package Benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import Tools.RandomVariable;
+
+
+/**
+ * <p>
+ * Class RandomVariableBenchmark measures the draws of RandomVariable. One invocation draws once per cell of the population, as the
+ * death pass does, or derives the random streams of one step of all sites. The draws do not depend on the interaction radius,
+ * so it is no parameter here.
+ * </p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class RandomVariableBenchmark {
+
+	private static final int STREAMS_PER_SITE = 3;	//death, interaction and the first tile stream
+
+	/**
+	 * Number of draws per invocation.
+	 */
+	@Param({"10000", "100000", "1000000"})
+	public int populationSize;
+
+	/**
+	 * Number of migration sites besides the solid tumor.
+	 */
+	@Param({"0", "8"})
+	public int numberMigrationSites;
+
+	private RandomVariable random;
+	private long runSeed;
+	private int step;
+
+	/**
+	 * <p>
+	 * Creates the random stream of the first step.
+	 * </p>
+	 */
+	@Setup(Level.Trial)
+	public void setUp() {
+		this.runSeed = RandomVariable.runSeed(SimulationState.SEED, 0);
+		this.random = RandomVariable.stream(this.runSeed, 0, 0, 0);
+	}
+
+	/**
+	 * <p>
+	 * Draws one double per cell.
+	 * </p>
+	 * @return The sum of the draws, so they are not eliminated.
+	 */
+	@Benchmark
+	public double getDouble() {
+		double sum = 0;
+		for (int i = 0; i < this.populationSize; i++) {
+			sum += this.random.getDouble();
+		}
+		return sum;
+	}
+
+	/**
+	 * <p>
+	 * Draws one index of a destination site per cell, as a migrating cell does.
+	 * </p>
+	 * @return The sum of the draws, so they are not eliminated.
+	 */
+	@Benchmark
+	public long getInt() {
+		long sum = 0;
+		int upperLimit = this.numberMigrationSites + 1;
+		for (int i = 0; i < this.populationSize; i++) {
+			sum += this.random.getInt(upperLimit);
+		}
+		return sum;
+	}
+
+	/**
+	 * <p>
+	 * Derives the random streams of the next step for all sites and draws once from each.
+	 * </p>
+	 * @return The sum of the draws, so the streams are not eliminated.
+	 */
+	@Benchmark
+	public double stream() {
+		int step = this.step++;
+		double sum = 0;
+		for (int site = 0; site <= this.numberMigrationSites; site++) {
+			for (int part = 0; part < STREAMS_PER_SITE; part++) {
+				sum += RandomVariable.stream(this.runSeed, step, site, part).getDouble();
+			}
+		}
+		return sum;
+	}
+}
@@ -0,0 +1,178 @@
+package Benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import Tools.CellStore;
+import Tools.Compression;
+import Tools.DensityGrid;
+import Tools.SiteStepper;
+import Tools.SnapshotFormat;
+import UI.DeltaSnapshotWriter;
+import UI.Save;
+
+
+/**
+ * <p>
+ * Class SaveBenchmark measures the output paths of Save for every snapshot format and compression. The snapshots alternate between
+ * the population and the population one step later, so the delta format sees the births and deaths of a real step.
+ * Save hands the bytes to the writer thread of its output pipeline, so the time is that of the simulation thread; every iteration
+ * writes into a new directory and waits for the pipeline in its teardown.
+ * </p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class SaveBenchmark extends SimulationState {
+
+	private static final int DENSITY_BINS = 64;
+
+	/**
+	 * Format of the locations.
+	 */
+	@Param({"text", "binary", "delta"})
+	public String format;
+
+	/**
+	 * Compression of the text outputs.
+	 */
+	@Param({"none", "gzip", "lz"})
+	public String compression;
+
+	private CellStore[][] populations;	//the population and the population one step later
+	private DensityGrid densityGrid;
+	private File directory;
+	private Save save;
+	private int step;
+
+	/**
+	 * <p>
+	 * Creates the population and computes one step of it.
+	 * </p>
+	 * @throws IOException Not thrown, the population is not read from a file.
+	 */
+	@Setup(Level.Trial)
+	public void setUp() throws IOException {
+		createPopulation();
+		CellStore[] first = copy(this.ps.getCells());
+		SiteStepper[] steppers = createSteppers();
+		deathAndMigration(steppers, 0);
+		CellStore[] newField = new CellStore[steppers.length];
+		CellStore[] survivingCells = new CellStore[steppers.length];
+		for (int site = 0; site < steppers.length; site++) {
+			steppers[site].interact(0);
+			newField[site] = steppers[site].getNewField();
+			survivingCells[site] = steppers[site].getSurvivingCells();
+		}
+		this.ps.updatePopulation(newField, survivingCells);
+		this.populations = new CellStore[][] {first, copy(this.ps.getCells())};
+		this.densityGrid = new DensityGrid(DENSITY_BINS, 0, this.rs, this.ps.getinitTumorSize());
+	}
+
+	/**
+	 * <p>
+	 * Opens the files of the iteration in a new directory.
+	 * </p>
+	 * @throws IOException When the files cannot be created.
+	 */
+	@Setup(Level.Iteration)
+	public void open() throws IOException {
+		this.directory = Files.createTempDirectory("SaveBenchmark").toFile();
+		this.save = new Save(this.directory.getPath(), "Benchmark", false, 0, SnapshotFormat.parse(this.format),
+				DeltaSnapshotWriter.DEFAULT_KEYFRAME_INTERVAL, Compression.parse(this.compression));
+		this.save.setDensityGrid(this.densityGrid, false);
+		this.step = 0;
+	}
+
+	/**
+	 * <p>
+	 * Waits until all output of the iteration is written and removes the files.
+	 * </p>
+	 * @throws IOException When the files cannot be written.
+	 */
+	@TearDown(Level.Iteration)
+	public void close() throws IOException {
+		this.save.finish();
+		File[] files = this.directory.listFiles();
+		if (files != null) {
+			for (File file : files) {
+				file.delete();
+			}
+		}
+		this.directory.delete();
+	}
+
+	/**
+	 * <p>
+	 * Stores the locations of all cells of one step.
+	 * </p>
+	 * @throws IOException When the file cannot be written.
+	 */
+	@Benchmark
+	public void saveSnapshot() throws IOException {
+		int step = this.step++;
+		this.save.saveSnapshot(this.populations[step & 1], step, true);
+	}
+
+	/**
+	 * <p>
+	 * Stores the distribution of one step.
+	 * </p>
+	 * @throws IOException When the file cannot be written.
+	 */
+	@Benchmark
+	public void saveDistri() throws IOException {
+		this.save.saveDistri(this.ps.getDistribution(), this.ps.getCurrentPopulationSize());
+	}
+
+	/**
+	 * <p>
+	 * Counts the cells of one step in the density grid and stores the counts as text.
+	 * </p>
+	 * @throws IOException When the file cannot be written.
+	 */
+	@Benchmark
+	public void saveDensity() throws IOException {
+		int step = this.step++;
+		this.save.saveDensity(this.populations[step & 1], step);
+	}
+
+	/**
+	 * <p>
+	 * Stores the statistics of one step.
+	 * </p>
+	 * @throws IOException When the file cannot be written.
+	 */
+	@Benchmark
+	public void saveStatistics() throws IOException {
+		this.save.saveStatistics(this.step, this.step++, false);
+	}
+
+	private static CellStore[] copy(CellStore[] cellsAllSites) {
+		CellStore[] copy = new CellStore[cellsAllSites.length];
+		for (int site = 0; site < cellsAllSites.length; site++) {
+			copy[site] = new CellStore(cellsAllSites[site].size());
+			copy[site].addAll(cellsAllSites[site]);
+		}
+		return copy;
+	}
+}
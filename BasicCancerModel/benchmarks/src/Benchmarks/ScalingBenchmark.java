@@ -0,0 +1,360 @@
+package Benchmarks;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.ThreadMXBean;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+
+import Tools.Compression;
+import Tools.Controller;
+import Tools.RunOptions;
+import Tools.SimulationConfig;
+import Tools.SnapshotFormat;
+
+
+/**
+ * <p>
+ * Class ScalingBenchmark runs full simulations with Controller.run for a grid of scenarios (initial population, number of migration
+ * sites and treatment schedule) and writes one line per scenario to a tab separated report: steps per second, peak heap, allocated
+ * bytes per step and per second, bytes written and the final population. All runs use the same seed, so the populations and the
+ * output bytes of a scenario are the same on every machine.
+ * Given a baseline report, every scenario is compared with the baseline and the program exits with 1 if a metric got worse by more
+ * than the tolerance.
+ * </p>
+ * <p>
+ * Usage: ScalingBenchmark [key=value ...] with the keys<br>
+ * sizes (initial populations, 1000,10000,100000,1000000 by default), sites (numbers of migration sites, 0,8 by default),
+ * treatments (none, mtd or adaptive, all three by default), steps (20), gap (5), parallelism (threads per run, 1),
+ * snapshotFormat (text), compression (none), repeats (runs per scenario of which the one with the median steps per second is
+ * reported, 3), warmup (number of unreported runs of the first scenario that warm up the JIT, 1),
+ * report (file of the report, scaling.tsv), baseline (report to compare with, none by default) and tolerance (allowed relative
+ * change, 0.1).
+ * The MTD treatment starts in the middle of the run, the adaptive treatment after a quarter of the steps.
+ * </p>
+ */
+public class ScalingBenchmark {
+
+	/**
+	 * Columns of the report, the first four identify the scenario.
+	 */
+	public static final String[] COLUMNS = {"scenario", "cells", "sites", "treatment", "steps", "stepsPerSecond", "peakHeapBytes",
+			"allocatedBytesPerStep", "allocatedBytesPerSecond", "outputBytes", "finalPopulation"};
+
+	private static final int DEFAULT_POPULATION = 2000;	//population and radius of the default initial tumor, used for the density
+	private static final double DEFAULT_TUMORSIZE = 10;
+	private static final long HEAP_NOISE_BYTES = 16L << 20;	//smaller changes of the peak heap are young generation noise
+	private static final long SEED = 1234567L;		//seed of all runs, the same as that of the JMH benchmarks
+
+	private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+	private final Map<Long, Long> allocatedAtStart = new HashMap<Long, Long>();
+	private final Map<Long, Long> allocatedLast = new HashMap<Long, Long>();
+	private long firstStepFinished;
+	private long lastStepFinished;
+	private int stepsFinished;
+	private int finalPopulation;
+
+	/**
+	 * Main function of the benchmark.
+	 * @param args The key=value arguments.
+	 */
+	public static void main(String[] args) {
+		System.setProperty("java.awt.headless", "true");
+		Properties p = new Properties();
+		for (String arg : args) {
+			int eq = arg.indexOf('=');
+			if (eq <= 0) {
+				System.out.println("Usage: ScalingBenchmark [key=value ...]");
+				return;
+			}
+			p.setProperty(arg.substring(0, eq).trim(), arg.substring(eq + 1).trim());
+		}
+		try {
+			String[] sizes = p.getProperty("sizes", "1000,10000,100000,1000000").split(",");
+			String[] sitesList = p.getProperty("sites", "0,8").split(",");
+			String[] treatments = p.getProperty("treatments", "none,mtd,adaptive").split(",");
+			for (int i = Integer.parseInt(p.getProperty("warmup", "1")); i > 0; i--) {
+				new ScalingBenchmark().run(p, Integer.parseInt(sizes[0].trim()), Integer.parseInt(sitesList[0].trim()), treatments[0].trim());
+			}
+			List<Map<String, String>> results = new ArrayList<Map<String, String>>();
+			for (String size : sizes) {
+				for (String sites : sitesList) {
+					for (String treatment : treatments) {
+						Map<String, String> result = median(p, Integer.parseInt(size.trim()), Integer.parseInt(sites.trim()),
+								treatment.trim());
+						System.out.println(format(result));
+						results.add(result);
+					}
+				}
+			}
+			writeReport(new File(p.getProperty("report", "scaling.tsv")), results);
+			if (p.containsKey("baseline")) {
+				int regressions = compare(readReport(new File(p.getProperty("baseline"))), results,
+						Double.parseDouble(p.getProperty("tolerance", "0.1")));
+				if (regressions > 0) {
+					System.out.println(regressions + " regressions against " + p.getProperty("baseline"));
+					System.exit(1);
+				}
+				System.out.println("No regressions against " + p.getProperty("baseline"));
+			}
+		} catch (IOException | IllegalArgumentException e) {
+			System.err.println("Error: " + e.getMessage());
+			System.exit(1);
+		}
+	}
+
+	// the run with the median steps per second of the repeated runs of a scenario
+	private static Map<String, String> median(Properties p, int cells, int sites, String treatment) throws IOException {
+		List<Map<String, String>> runs = new ArrayList<Map<String, String>>();
+		for (int i = Math.max(1, Integer.parseInt(p.getProperty("repeats", "3"))); i > 0; i--) {
+			runs.add(new ScalingBenchmark().run(p, cells, sites, treatment));
+		}
+		runs.sort((a, b) -> Double.compare(Double.parseDouble(a.get("stepsPerSecond")), Double.parseDouble(b.get("stepsPerSecond"))));
+		return runs.get(runs.size() / 2);
+	}
+
+	// one scenario in a directory of its own, which is removed afterwards
+	private Map<String, String> run(Properties p, int cells, int sites, String treatment) throws IOException {
+		int steps = Integer.parseInt(p.getProperty("steps", "20"));
+		File directory = Files.createTempDirectory("ScalingBenchmark").toFile();
+		Properties config = new Properties();
+		config.setProperty("initPopulationSize", Integer.toString(cells));
+		config.setProperty("initTumorsize",
+				Integer.toString((int) Math.ceil(DEFAULT_TUMORSIZE * Math.sqrt((double) cells / DEFAULT_POPULATION))));
+		config.setProperty("numberMigrationSites", Integer.toString(sites));
+		if (sites == 0) {
+			// a migrating cell needs a destination
+			config.setProperty("probToMigrate", "0");
+		}
+		config.setProperty("steps", Integer.toString(steps));
+		config.setProperty("gap", p.getProperty("gap", "5"));
+		config.setProperty("savePath", directory.getPath());
+		config.setProperty("cancerTreatmentStep", "-1");
+		config.setProperty("ATadaptiveStep", "-1");
+		if (treatment.equals("mtd")) {
+			config.setProperty("cancerTreatmentStep", Integer.toString(steps / 2));
+		} else if (treatment.equals("adaptive")) {
+			config.setProperty("ATadaptiveStep", Integer.toString(steps / 4));
+		} else if (!treatment.equals("none")) {
+			throw new IllegalArgumentException("Invalid treatment: " + treatment);
+		}
+
+		Controller c = new Controller();
+		c.setSeed(SEED);
+		c.setParallelism(Integer.parseInt(p.getProperty("parallelism", "1")));
+		RunOptions options = new RunOptions();
+		options.setSnapshotFormat(SnapshotFormat.parse(p.getProperty("snapshotFormat", "text")));
+		options.setCompression(Compression.parse(p.getProperty("compression", "none")));
+		options.setProgressListener((run, step, totalSteps, populationSize) -> stepFinished(populationSize));
+		c.setOptions(options);
+
+		System.gc();
+		List<MemoryPoolMXBean> heap = new ArrayList<MemoryPoolMXBean>();
+		for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+			if (pool.getType() == MemoryType.HEAP) {
+				pool.resetPeakUsage();
+				heap.add(pool);
+			}
+		}
+		sampleAllocation(this.allocatedAtStart);
+		PrintStream out = System.out;
+		long start = System.nanoTime();
+		try {
+			// the progress of the Controller would dominate the small scenarios
+			System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+			c.run(SimulationConfig.fromProperties(config));
+		} finally {
+			System.setOut(out);
+		}
+		long end = System.nanoTime();
+		long peakHeap = 0;
+		for (MemoryPoolMXBean pool : heap) {
+			peakHeap += pool.getPeakUsage().getUsed();
+		}
+		long allocated = 0;
+		for (Map.Entry<Long, Long> thread : this.allocatedLast.entrySet()) {
+			allocated += thread.getValue() - this.allocatedAtStart.getOrDefault(thread.getKey(), 0L);
+		}
+		long outputBytes = 0;
+		File[] files = directory.listFiles();
+		if (files != null) {
+			for (File file : files) {
+				outputBytes += file.length();
+				file.delete();
+			}
+		}
+		directory.delete();
+
+		// steps per second from the first to the last finished step, without the initialization of the run
+		double stepsPerSecond = this.stepsFinished > 1
+				? (this.stepsFinished - 1) / ((this.lastStepFinished - this.firstStepFinished) / 1e9)
+				: this.stepsFinished / ((end - start) / 1e9);
+		Map<String, String> result = new LinkedHashMap<String, String>();
+		result.put("scenario", cells + "/" + sites + "/" + treatment);
+		result.put("cells", Integer.toString(cells));
+		result.put("sites", Integer.toString(sites));
+		result.put("treatment", treatment);
+		result.put("steps", Integer.toString(this.stepsFinished));
+		result.put("stepsPerSecond", String.format(Locale.ROOT, "%.3f", stepsPerSecond));
+		result.put("peakHeapBytes", Long.toString(peakHeap));
+		result.put("allocatedBytesPerStep", Long.toString(allocated / Math.max(1, this.stepsFinished)));
+		result.put("allocatedBytesPerSecond", Long.toString((long) (allocated / ((end - start) / 1e9))));
+		result.put("outputBytes", Long.toString(outputBytes));
+		result.put("finalPopulation", Integer.toString(this.finalPopulation));
+		return result;
+	}
+
+	private void stepFinished(int populationSize) {
+		long now = System.nanoTime();
+		if (this.stepsFinished == 0) {
+			this.firstStepFinished = now;
+		}
+		this.lastStepFinished = now;
+		this.stepsFinished++;
+		this.finalPopulation = populationSize;
+		sampleAllocation(this.allocatedLast);
+	}
+
+	// the allocated bytes of every live thread; sampled after every step, so the workers of a run are counted until their last step
+	private void sampleAllocation(Map<Long, Long> allocated) {
+		if (!(this.threads instanceof com.sun.management.ThreadMXBean)) {
+			return;
+		}
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) this.threads;
+		long[] ids = threads.getAllThreadIds();
+		long[] bytes = threads.getThreadAllocatedBytes(ids);
+		for (int i = 0; i < ids.length; i++) {
+			if (bytes[i] >= 0) {
+				allocated.put(ids[i], bytes[i]);
+			}
+		}
+	}
+
+	/**
+	 * <p>
+	 * Writes a report, headed by a comment with the machine it was measured on.
+	 * </p>
+	 * @param file The file of the report.
+	 * @param results The results of the scenarios.
+	 * @throws IOException When the file cannot be written.
+	 */
+	public static void writeReport(File file, List<Map<String, String>> results) throws IOException {
+		try (PrintWriter w = new PrintWriter(new FileWriter(file))) {
+			Runtime runtime = Runtime.getRuntime();
+			w.println("# java " + System.getProperty("java.version") + ", " + System.getProperty("os.name") + " "
+					+ System.getProperty("os.arch") + ", " + runtime.availableProcessors() + " processors, max heap "
+					+ runtime.maxMemory() / (1024 * 1024) + " MB");
+			w.println(String.join("\t", COLUMNS));
+			for (Map<String, String> result : results) {
+				w.println(format(result));
+			}
+		}
+	}
+
+	/**
+	 * <p>
+	 * Reads a report written by writeReport.
+	 * </p>
+	 * @param file The file of the report.
+	 * @return The results by scenario.
+	 * @throws IOException When the file cannot be read or has no header line.
+	 */
+	public static Map<String, Map<String, String>> readReport(File file) throws IOException {
+		Map<String, Map<String, String>> results = new LinkedHashMap<String, Map<String, String>>();
+		try (BufferedReader r = new BufferedReader(new FileReader(file))) {
+			String[] header = null;
+			String line;
+			while ((line = r.readLine()) != null) {
+				if (line.startsWith("#") || line.trim().isEmpty()) {
+					continue;
+				}
+				String[] fields = line.split("\t");
+				if (header == null) {
+					header = fields;
+					continue;
+				}
+				Map<String, String> result = new LinkedHashMap<String, String>();
+				for (int i = 0; i < header.length && i < fields.length; i++) {
+					result.put(header[i], fields[i]);
+				}
+				results.put(result.get("scenario"), result);
+			}
+			if (header == null) {
+				throw new IOException("No header line in " + file);
+			}
+		}
+		return results;
+	}
+
+	/**
+	 * <p>
+	 * Compares the results with a baseline and prints every metric that changed by more than the tolerance. Steps per second
+	 * regress when they drop, the peak heap, the allocated bytes per step and the output bytes when they grow. Changes of the peak heap
+	 * below 16 MB are ignored. Scenarios without baseline are skipped.
+	 * </p>
+	 * @param baseline The baseline results by scenario.
+	 * @param results The results of the scenarios.
+	 * @param tolerance The allowed relative change, e.g. 0.1 for 10%.
+	 * @return The number of regressions.
+	 */
+	public static int compare(Map<String, Map<String, String>> baseline, List<Map<String, String>> results, double tolerance) {
+		int regressions = 0;
+		for (Map<String, String> result : results) {
+			Map<String, String> base = baseline.get(result.get("scenario"));
+			if (base == null) {
+				System.out.println(result.get("scenario") + "\tno baseline");
+				continue;
+			}
+			regressions += compare(result, base, "stepsPerSecond", -1, tolerance);
+			regressions += compare(result, base, "peakHeapBytes", 1, tolerance);
+			regressions += compare(result, base, "allocatedBytesPerStep", 1, tolerance);
+			regressions += compare(result, base, "outputBytes", 1, tolerance);
+		}
+		return regressions;
+	}
+
+	// direction 1 if larger values are worse, -1 if smaller values are worse
+	private static int compare(Map<String, String> result, Map<String, String> base, String column, int direction, double tolerance) {
+		if (!base.containsKey(column)) {
+			return 0;
+		}
+		double before = Double.parseDouble(base.get(column));
+		double after = Double.parseDouble(result.get(column));
+		double change = before != 0 ? (after - before) / before : 0;
+		if (column.equals("peakHeapBytes") && Math.abs(after - before) < HEAP_NOISE_BYTES) {
+			change = 0;
+		}
+		boolean regression = direction * change > tolerance;
+		if (regression || direction * change < -tolerance) {
+			System.out.println(String.format(Locale.ROOT, "%s\t%s\t%s\t%s -> %s (%+.1f%%)", result.get("scenario"), column,
+					regression ? "REGRESSION" : "improvement", base.get(column), result.get(column), 100 * change));
+		}
+		return regression ? 1 : 0;
+	}
+
+	private static String format(Map<String, String> result) {
+		StringBuilder line = new StringBuilder();
+		for (String column : COLUMNS) {
+			if (line.length() > 0) {
+				line.append('\t');
+			}
+			line.append(result.get(column));
+		}
+		return line.toString();
+	}
+}
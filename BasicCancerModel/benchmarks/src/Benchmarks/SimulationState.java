@@ -0,0 +1,137 @@
+package Benchmarks;
+
+import java.io.IOException;
+import java.util.Properties;
+
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import Tools.CellStore;
+import Tools.PopulationStatus;
+import Tools.RandomVariable;
+import Tools.RuleSet;
+import Tools.SimulationConfig;
+import Tools.SiteStepper;
+
+
+/**
+ * <p>
+ * Class SimulationState is the common state of the kernel benchmarks: a ruleset and a population built from a fixed seed, so every
+ * benchmark sees the same cells in every fork. The population is split evenly between the solid tumor and the migration sites, every
+ * site holds a disc of cells with the density of the default initial tumor (2000 cells in a radius of 10).
+ * The benchmarks extend this class and call createPopulation from their own setup.
+ * </p>
+ */
+@State(Scope.Thread)
+public class SimulationState {
+
+	/**
+	 * Seed of all benchmarks.
+	 */
+	public static final long SEED = 1234567L;
+
+	private static final int DEFAULT_POPULATION = 2000;	//population and radius of the default initial tumor, used for the density
+	private static final double DEFAULT_TUMORSIZE = 10;
+
+	/**
+	 * Total number of cells over all sites.
+	 */
+	@Param({"10000", "100000", "1000000"})
+	public int populationSize;
+
+	/**
+	 * Interaction radius of the ruleset, also the width of the buckets of the neighbor search.
+	 */
+	@Param({"1", "2"})
+	public double interactionRadius;
+
+	/**
+	 * Number of migration sites besides the solid tumor.
+	 */
+	@Param({"0", "8"})
+	public int numberMigrationSites;
+
+	protected SimulationConfig config;
+	protected RuleSet rs;
+	protected PopulationStatus ps;
+	protected long runSeed;
+
+	/**
+	 * <p>
+	 * Builds the configuration, the ruleset and the population from the parameters.
+	 * </p>
+	 * @throws IOException Not thrown, the population is not read from a file.
+	 */
+	protected void createPopulation() throws IOException {
+		int numberSites = this.numberMigrationSites + 1;
+		int cellsPerSite = this.populationSize / numberSites;
+		int tumorsize = (int) Math.ceil(DEFAULT_TUMORSIZE * Math.sqrt((double) cellsPerSite / DEFAULT_POPULATION));
+		Properties p = new Properties();
+		p.setProperty("initPopulationSize", Integer.toString(cellsPerSite * numberSites));
+		p.setProperty("initTumorsize", Integer.toString(tumorsize));
+		p.setProperty("interactionRadius", Double.toString(this.interactionRadius));
+		p.setProperty("numberMigrationSites", Integer.toString(this.numberMigrationSites));
+		if (this.numberMigrationSites == 0) {
+			// a migrating cell needs a destination
+			p.setProperty("probToMigrate", "0");
+		}
+		this.config = SimulationConfig.fromProperties(p);
+		this.runSeed = RandomVariable.runSeed(SEED, 0);
+		this.rs = new RuleSet(config.getNumberTypes(), config.getPayoffMatrix(), config.getDeathProbability(),
+				config.getInteractionRadius(), config.getOffspringRadius(),
+				config.getCarryingCapacity(), numberMigrationSites, config.getProbToMigrate(), config.getSurvivalDestination(),
+				config.getFractionInvasiveCells(), config.getInitTumorsize(), config.getCancerTreatmentStep(),
+				config.getKillingSensitive(), config.getMigrastaticsStep(), config.getProbToMigrateDuringTreatment(),
+				config.getATadaptiveStep(), config.getATstartTreatment(), config.getATstopTreatment());
+
+		// all cells are placed in one disc of the size of a site, then every site gets its share moved to its center
+		PopulationStatus tumor = new PopulationStatus(config.getInitPopulationSize(), "", config.getInitDistribution(), rs,
+				config.getInitPlaceInds(), tumorsize, config.getFractionInvasiveCells(), RandomVariable.stream(this.runSeed, -1, 0, 0));
+		CellStore placed = tumor.getCells(0);
+		CellStore[] cellsAllSites = new CellStore[numberSites];
+		for (int site = 0; site < numberSites; site++) {
+			cellsAllSites[site] = new CellStore(cellsPerSite);
+		}
+		for (int i = 0; i < placed.size(); i++) {
+			int site = i % numberSites;
+			double[] center = rs.getSiteLocation(site);
+			cellsAllSites[site].add(placed.getType(i), placed.isInvasive(i), center[0] + placed.getX(i), center[1] + placed.getY(i),
+					placed.getId(i));
+		}
+		this.ps = new PopulationStatus(config.getInitPopulationSize(), rs, config.getInitPlaceInds(), tumorsize,
+				config.getFractionInvasiveCells(), cellsAllSites, tumor.getNextCellId());
+	}
+
+	/**
+	 * <p>
+	 * Creates one SiteStepper per site, as the Controller does for a run.
+	 * </p>
+	 * @return The steppers, indexed by site.
+	 */
+	protected SiteStepper[] createSteppers() {
+		SiteStepper[] steppers = new SiteStepper[this.numberMigrationSites + 1];
+		for (int site = 0; site < steppers.length; site++) {
+			steppers[site] = new SiteStepper(site, this.rs, this.runSeed);
+		}
+		return steppers;
+	}
+
+	/**
+	 * <p>
+	 * Death and migration of the current population at all sites, followed by the arrival of the migrants. Uses the same
+	 * probabilities as Controller.performStep without treatment.
+	 * </p>
+	 * @param steppers The steppers of all sites.
+	 * @param step The step, selects the random streams.
+	 */
+	protected void deathAndMigration(SiteStepper[] steppers, int step) {
+		for (int site = 0; site < steppers.length; site++) {
+			steppers[site].deathAndMigration(step, this.ps.getCells(site), steppers, this.rs.getDeathProbability(), false,
+					this.rs.getKillingSensitive(), this.rs.getProbToMigrate(), this.rs.getSurvivalDestination());
+		}
+		for (int site = 0; site < steppers.length; site++) {
+			steppers[site].receiveMigrants();
+		}
+	}
+}
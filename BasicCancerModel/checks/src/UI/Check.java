@@ -0,0 +1,68 @@
+package UI;
+
+
+/**
+ * <p>
+ * Class Check counts the failed comparisons of a check program and ends it with the exit code 1 if any failed. The first failures
+ * are printed, the rest is only counted.
+ * </p>
+ */
+final class Check {
+
+	private static final int MAX_PRINTED = 20;
+
+	private final String name;
+	private int checked;
+	private int failed;
+
+	/**
+	 * <p>
+	 * Constructor for the Check class.
+	 * </p>
+	 * @param name The name of the check program, printed with the result.
+	 */
+	Check(String name) {
+		this.name = name;
+	}
+
+	/**
+	 * <p>
+	 * Compares two values.
+	 * </p>
+	 * @param what The checked case, printed if it failed.
+	 * @param expected The expected value.
+	 * @param actual The value of the checked code.
+	 */
+	void equal(String what, Object expected, Object actual) {
+		that(what + ": expected " + expected + " but got " + actual, expected == null ? actual == null : expected.equals(actual));
+	}
+
+	/**
+	 * <p>
+	 * Checks a condition.
+	 * </p>
+	 * @param what The checked case, printed if it failed.
+	 * @param ok Whether the case passed.
+	 */
+	void that(String what, boolean ok) {
+		checked++;
+		if (!ok) {
+			failed++;
+			if (failed <= MAX_PRINTED) {
+				System.out.println("FAILED " + what);
+			}
+		}
+	}
+
+	/**
+	 * <p>
+	 * Prints the result and exits with 1 if any comparison failed.
+	 * </p>
+	 */
+	void finish() {
+		System.out.println(name + ": " + checked + " checks, " + failed + " failed");
+		if (failed > 0) {
+			System.exit(1);
+		}
+	}
+}
@@ -0,0 +1,130 @@
+package UI;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Properties;
+
+import Tools.Checkpoint;
+import Tools.Compression;
+import Tools.Controller;
+import Tools.RunOptions;
+import Tools.SimulationConfig;
+import Tools.SimulationListener;
+import Tools.SnapshotFormat;
+
+
+/**
+ * <p>
+ * Class CheckpointCheck continues a run from a checkpoint that was requested at a step which is not stored, as through JMX, and
+ * compares its files with those of the same run computed without interruption. The run has 60 steps with a gap of 5 and no
+ * scheduled checkpoints, the checkpoint is requested during step 12, so it is taken after step 13, and the run is cancelled after
+ * step 14. The resumed run must write the same uncompressed bytes in every format and mark its checkpoint as complete.
+ * </p>
+ */
+public class CheckpointCheck {
+
+	private static final int STEPS = 60;
+	private static final int REQUEST_STEP = 12;
+	private static final int CANCEL_STEP = 14;
+
+	private final Check check = new Check("CheckpointCheck");
+
+	/**
+	 * Main function to run the check
+	 * @param args Not used
+	 * @throws IOException Exception thrown if a run fails.
+	 */
+	public static void main(String[] args) throws IOException {
+		new CheckpointCheck().run();
+	}
+
+	private void run() throws IOException {
+		for (SnapshotFormat format : new SnapshotFormat[] {SnapshotFormat.DELTA, SnapshotFormat.BINARY, SnapshotFormat.TEXT}) {
+			for (Compression compression : new Compression[] {Compression.NONE, Compression.GZIP}) {
+				checkResume(format, compression);
+			}
+		}
+		check.finish();
+	}
+
+	private void checkResume(SnapshotFormat format, Compression compression) throws IOException {
+		String what = format + " " + compression;
+		File full = Files.createTempDirectory("CheckpointCheck").toFile();
+		File resumed = Files.createTempDirectory("CheckpointCheck").toFile();
+		simulate(full, format, compression, false, false);
+		simulate(resumed, format, compression, true, false);
+
+		File checkpointFile = new File(resumed, "Checkpoint0.ckpt");
+		check.that(what + ": requested checkpoint was written", checkpointFile.isFile());
+		if (checkpointFile.isFile()) {
+			Checkpoint checkpoint = Checkpoint.read(checkpointFile);
+			check.equal(what + ": step of the checkpoint", REQUEST_STEP + 1, checkpoint.getStep());
+			check.that(what + ": checkpoint of the cancelled run is complete", !checkpoint.isComplete());
+		}
+		simulate(resumed, format, compression, false, true);
+		if (checkpointFile.isFile()) {
+			check.that(what + ": checkpoint of the finished run is not complete", Checkpoint.read(checkpointFile).isComplete());
+		}
+
+		String[] names = full.list();
+		Arrays.sort(names);
+		for (String name : names) {
+			File resumedFile = new File(resumed, name);
+			check.that(what + ": " + name + " is missing after the resume", resumedFile.isFile());
+			if (resumedFile.isFile()) {
+				check.that(what + ": " + name + " differs after the resume",
+						Arrays.equals(content(new File(full, name)), content(resumedFile)));
+			}
+		}
+		delete(full);
+		delete(resumed);
+	}
+
+	// one run of 60 steps, optionally with a checkpoint requested during step 12 and cancelled after step 14, or resumed
+	private void simulate(File dir, SnapshotFormat format, Compression compression, boolean interrupt, boolean resume)
+			throws IOException {
+		Properties p = new Properties();
+		p.setProperty("savePath", dir.getPath() + File.separator);
+		p.setProperty("steps", String.valueOf(STEPS));
+		p.setProperty("gap", "5");
+		p.setProperty("simulationRuns", "1");
+		p.setProperty("initPopulationSize", "3000");
+		RunOptions options = new RunOptions();
+		options.setSnapshotFormat(format);
+		options.setCompression(compression);
+		options.setResume(resume);
+		options.setProgressListener(SimulationListener.NONE);
+		Controller c = new Controller();
+		c.setSeed(11L);
+		if (interrupt) {
+			options.setProgressListener((run, step, steps, populationSize) -> {
+				if (step == REQUEST_STEP) {
+					c.requestCheckpoint();
+				} else if (step == CANCEL_STEP) {
+					c.cancel();
+				}
+			});
+		}
+		c.setOptions(options);
+		c.run(SimulationConfig.fromProperties(p));
+	}
+
+	private static byte[] content(File file) throws IOException {
+		if (file.getName().endsWith(".ckpt")) {
+			return new byte[0];
+		}
+		try (InputStream in = CompressedFileReader.open(file.getPath(), 1)) {
+			return in.readAllBytes();
+		}
+	}
+
+	private static void delete(File dir) {
+		for (File f : dir.listFiles()) {
+			f.delete();
+		}
+		dir.delete();
+	}
+}
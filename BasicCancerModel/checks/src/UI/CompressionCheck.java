@@ -0,0 +1,215 @@
+package UI;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.zip.GZIPOutputStream;
+
+import Tools.Compression;
+
+
+/**
+ * <p>
+ * Class CompressionCheck round-trips blocks through LZCodec and BlockCodec and files through CompressedFileReader. The blocks are
+ * empty, shorter than the last literals, runs at the borders of the length encoding, matches at the largest offset, incompressible
+ * and location text. Files cut within a block must be rejected with an IOException, files cut at the border of a block are read up
+ * to that block, and gzip blocks with a wrong checksum are rejected.
+ * </p>
+ */
+public class CompressionCheck {
+
+	private final Check check = new Check("CompressionCheck");
+	private final SplittableRandom random = new SplittableRandom(17);
+
+	/**
+	 * Main function to run the check
+	 * @param args Not used
+	 * @throws IOException Exception thrown if the temporary files cannot be written.
+	 */
+	public static void main(String[] args) throws IOException {
+		new CompressionCheck().run();
+	}
+
+	private void run() throws IOException {
+		byte[][] blocks = blocks();
+		LZCodec lz = new LZCodec();
+		for (byte[] block : blocks) {
+			byte[] packed = new byte[LZCodec.maxCompressedLength(block.length)];
+			int n = lz.compress(block, block.length, packed, 0);
+			byte[] unpacked = new byte[block.length];
+			try {
+				LZCodec.decompress(packed, 0, n, unpacked, block.length);
+				check.that("LZCodec round trip of " + block.length + " bytes", Arrays.equals(block, unpacked));
+			} catch (IOException e) {
+				check.that("LZCodec round trip of " + block.length + " bytes: " + e.getMessage(), false);
+			}
+			for (int cut : new int[] {n - 1, n / 2, 1}) {
+				if (cut > 0 && cut < n) {
+					checkRejected("LZCodec block of " + block.length + " bytes cut to " + cut, () ->
+							LZCodec.decompress(packed, 0, cut, new byte[block.length], block.length));
+				}
+			}
+		}
+
+		for (Compression compression : new Compression[] {Compression.GZIP, Compression.LZ}) {
+			BlockCodec codec = new BlockCodec(compression);
+			for (byte[] block : blocks) {
+				byte[] packed = new byte[BlockCodec.maxPackedLength(block.length)];
+				int n = codec.pack(block, block.length, packed);
+				String what = compression + " block of " + block.length + " bytes";
+				check.equal(what + ": size in header", n, BlockCodec.blockSize(compression, packed));
+				check.equal(what + ": uncompressed size", block.length, BlockCodec.uncompressedSize(compression, packed, n));
+				byte[] unpacked = new byte[block.length];
+				try {
+					check.equal(what + ": unpacked size", block.length, codec.unpack(packed, n, unpacked));
+					check.that(what + ": round trip", Arrays.equals(block, unpacked));
+				} catch (IOException e) {
+					check.that(what + ": " + e.getMessage(), false);
+				}
+				if (compression == Compression.GZIP && block.length > 0) {
+					byte[] corrupt = Arrays.copyOf(packed, n);
+					corrupt[n - 8] ^= 0x10;		//checksum of the uncompressed bytes
+					checkRejected("corrupt " + what, () -> codec.unpack(corrupt, n, new byte[block.length]));
+				}
+			}
+			checkFiles(compression, blocks);
+		}
+		check.finish();
+	}
+
+	// blocks at the borders of the LZ sequence layout and of the compressibility
+	private byte[][] blocks() {
+		byte[] incompressible = new byte[70_000];
+		random.nextBytes(incompressible);
+		byte[] farMatch = new byte[2 * 65_536 + 100];
+		random.nextBytes(farMatch);
+		System.arraycopy(farMatch, 0, farMatch, 65_535, 64);		//match at the largest offset
+		System.arraycopy(farMatch, 200, farMatch, 200 + 65_536, 64);	//one byte too far for a match
+		StringBuilder text = new StringBuilder();
+		for (int i = 0; text.length() < 300_000; i++) {
+			text.append(random.nextInt(4)).append("  ").append(random.nextInt(2)).append("  ").append(i % 7).append("  ")
+					.append(random.nextDouble() * 100 - 50).append("  ").append(random.nextDouble() * 100 - 50).append('\n');
+		}
+		return new byte[][] {
+			new byte[0], new byte[1], new byte[5], new byte[12], new byte[13], run(14), run(15), run(16), run(19), run(270),
+			run(271), run(65_536), new byte[1 << 20], incompressible, farMatch, text.toString().getBytes(StandardCharsets.US_ASCII)
+		};
+	}
+
+	// bytes whose first literals and matches have the given length
+	private byte[] run(int length) {
+		byte[] b = new byte[3 * length + 16];
+		for (int i = 0; i < length; i++) {
+			b[i] = (byte) random.nextInt(256);
+		}
+		System.arraycopy(b, 0, b, length, length);
+		for (int i = 2 * length; i < b.length; i++) {
+			b[i] = (byte) random.nextInt(256);
+		}
+		return b;
+	}
+
+	// a file of the given blocks is read back whole, by block and with a parallel stream, and cut within a block it is rejected
+	private void checkFiles(Compression compression, byte[][] blocks) throws IOException {
+		File dir = Files.createTempDirectory("CompressionCheck").toFile();
+		File file = new File(dir, "Location0.m" + (compression == Compression.GZIP ? ".gz" : ".lzb"));
+		ByteArrayOutputStream all = new ByteArrayOutputStream();
+		long[] borders = new long[blocks.length + 1];
+		BlockCodec codec = new BlockCodec(compression);
+		try (OutputStream out = new FileOutputStream(file)) {
+			long position = 0;
+			if (compression == Compression.LZ) {
+				byte[] magic = new byte[8];
+				BlockCodec.writeInt(magic, 0, (int) BlockCodec.LZ_MAGIC);
+				BlockCodec.writeInt(magic, 4, (int) (BlockCodec.LZ_MAGIC >>> 32));
+				out.write(magic);
+				position = 8;
+			}
+			borders[0] = position;
+			for (int k = 0; k < blocks.length; k++) {
+				byte[] packed = new byte[BlockCodec.maxPackedLength(blocks[k].length)];
+				int n = codec.pack(blocks[k], blocks[k].length, packed);
+				out.write(packed, 0, n);
+				all.write(blocks[k]);
+				position += n;
+				borders[k + 1] = position;
+			}
+		}
+		byte[] expected = all.toByteArray();
+		byte[] bytes = Files.readAllBytes(file.toPath());
+		String what = compression + " file";
+
+		try (CompressedFileReader reader = new CompressedFileReader(file.getPath())) {
+			check.equal(what + ": compression", compression, reader.getCompression());
+			check.equal(what + ": blocks", blocks.length, reader.getBlockCount());
+			check.equal(what + ": uncompressed size", (long) expected.length, reader.getBlockStart(reader.getBlockCount()));
+			for (int k = 0; k < blocks.length; k++) {
+				check.that(what + ": block " + k, Arrays.equals(blocks[k], reader.readBlock(k)));
+			}
+			for (int parallelism : new int[] {1, 3}) {
+				try (InputStream in = reader.openStream(parallelism)) {
+					check.that(what + ": stream with " + parallelism + " threads", Arrays.equals(expected, in.readAllBytes()));
+				}
+			}
+		}
+		try (InputStream in = CompressedFileReader.open(file.getPath(), 2)) {
+			check.that(what + ": CompressedFileReader.open", Arrays.equals(expected, in.readAllBytes()));
+		}
+
+		File cut = new File(dir, file.getName());
+		for (int k = 1; k < blocks.length; k++) {
+			Files.write(cut.toPath(), Arrays.copyOf(bytes, (int) borders[k]));
+			try (CompressedFileReader reader = new CompressedFileReader(cut.getPath())) {
+				check.equal(what + " cut after block " + (k - 1) + ": blocks", k, reader.getBlockCount());
+			}
+			for (long at : new long[] {borders[k] - 1, borders[k] + 1, (borders[k - 1] + borders[k]) / 2}) {
+				if (at > borders[k - 1] && at < borders[blocks.length] && at != borders[k]) {
+					Files.write(cut.toPath(), Arrays.copyOf(bytes, (int) at));
+					checkRejected(what + " cut at " + at, () -> new CompressedFileReader(cut.getPath()).close());
+				}
+			}
+		}
+
+		// a plain gzip file, e.g. compressed by another program, and an uncompressed file are read as they are
+		File plain = new File(dir, "Location1.m");
+		Files.write(plain.toPath(), expected);
+		try (InputStream in = CompressedFileReader.open(plain.getPath(), 2)) {
+			check.that("uncompressed file: CompressedFileReader.open", Arrays.equals(expected, in.readAllBytes()));
+		}
+		File gzip = new File(dir, "Location2.m.gz");
+		try (OutputStream out = new GZIPOutputStream(new FileOutputStream(gzip))) {
+			out.write(expected);
+		}
+		try (InputStream in = CompressedFileReader.open(gzip.getPath(), 2)) {
+			check.that("plain gzip file: CompressedFileReader.open", Arrays.equals(expected, in.readAllBytes()));
+		}
+
+		for (File f : dir.listFiles()) {
+			f.delete();
+		}
+		dir.delete();
+	}
+
+	private interface Action {
+		void run() throws IOException;
+	}
+
+	// the action must fail with an IOException, not with another exception or not at all
+	private void checkRejected(String what, Action action) {
+		try {
+			action.run();
+			check.that(what + " was not rejected", false);
+		} catch (IOException e) {
+			check.that(what, true);
+		} catch (RuntimeException e) {
+			check.that(what + " failed with " + e, false);
+		}
+	}
+}
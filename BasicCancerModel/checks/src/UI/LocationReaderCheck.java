@@ -0,0 +1,107 @@
+package UI;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+
+
+/**
+ * <p>
+ * Class LocationReaderCheck reads a text location file cut at every position with LocationTextReader and LocationStream. Both must
+ * report the same steps: the steps up to the last complete separator line, or the complete lines as the only step of a file without a
+ * separator, and all steps of the file with its end line.
+ * </p>
+ */
+public class LocationReaderCheck {
+
+	private static final int[] CELLS = {40, 0, 25, 60};		//cells of every step, the second step is empty
+
+	private final Check check = new Check("LocationReaderCheck");
+
+	/**
+	 * Main function to run the check
+	 * @param args Not used
+	 * @throws IOException Exception thrown if the temporary files cannot be written.
+	 */
+	public static void main(String[] args) throws IOException {
+		new LocationReaderCheck().run();
+	}
+
+	private void run() throws IOException {
+		SplittableRandom random = new SplittableRandom(5);
+		StringBuilder text = new StringBuilder();
+		List<Integer> separatorEnds = new ArrayList<Integer>();		//position after every separator line
+		List<Integer> lineEnds = new ArrayList<Integer>();			//position after every cell line of the first step
+		for (int k = 0; k < CELLS.length; k++) {
+			for (int i = 0; i < CELLS[k]; i++) {
+				text.append(1 + random.nextInt(3)).append("  ").append(random.nextInt(2)).append("  ").append(k).append("  ")
+						.append(random.nextDouble() * 200 - 100).append("  ").append(random.nextDouble() * 200 - 100).append('\n');
+				if (k == 0) {
+					lineEnds.add(text.length());
+				}
+			}
+			if (k < CELLS.length - 1) {
+				text.append("0  0  0  0.0  0.0\n");
+				separatorEnds.add(text.length());
+			}
+		}
+		text.append("-10  -10  -10  -10.0  -10.0\n");
+		byte[] bytes = text.toString().getBytes(StandardCharsets.US_ASCII);
+
+		File dir = Files.createTempDirectory("LocationReaderCheck").toFile();
+		File file = new File(dir, "Location0.m");
+		for (int cut = 0; cut <= bytes.length; cut++) {
+			Files.write(file.toPath(), Arrays.copyOf(bytes, cut));
+			int[] expected;
+			if (cut == bytes.length) {
+				expected = CELLS;
+			} else {
+				int separators = 0;
+				while (separators < separatorEnds.size() && separatorEnds.get(separators) <= cut) {
+					separators++;
+				}
+				if (separators > 0) {
+					expected = Arrays.copyOf(CELLS, separators);
+				} else {
+					int lines = 0;
+					while (lines < lineEnds.size() && lineEnds.get(lines) <= cut) {
+						lines++;
+					}
+					expected = lines > 0 ? new int[] {lines} : new int[0];
+				}
+			}
+			String what = "file cut at " + cut + " of " + bytes.length;
+			check.equal(what + ": LocationTextReader", Arrays.toString(expected), Arrays.toString(textReaderSizes(file)));
+			check.equal(what + ": LocationStream", Arrays.toString(expected), Arrays.toString(streamSizes(file)));
+		}
+		file.delete();
+		dir.delete();
+		check.finish();
+	}
+
+	private int[] textReaderSizes(File file) throws IOException {
+		try (LocationTextReader reader = new LocationTextReader(file.getPath(), 2)) {
+			int[] sizes = new int[reader.getStepCount()];
+			for (int k = 0; k < sizes.length; k++) {
+				sizes[k] = reader.readStep(k).size();
+			}
+			return sizes;
+		}
+	}
+
+	private int[] streamSizes(File file) throws IOException {
+		try (LocationStream stream = new LocationStream(file.getPath(), 1)) {
+			List<Integer> sizes = new ArrayList<Integer>();
+			SnapshotStep step;
+			while ((step = stream.next()) != null) {
+				sizes.add(step.size());
+			}
+			return sizes.stream().mapToInt(Integer::intValue).toArray();
+		}
+	}
+}
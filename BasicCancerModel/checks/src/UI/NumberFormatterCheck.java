@@ -0,0 +1,119 @@
+package UI;
+
+import java.nio.charset.StandardCharsets;
+import java.util.SplittableRandom;
+
+
+/**
+ * <p>
+ * Class NumberFormatterCheck compares the output of NumberFormatter with Integer.toString and Double.toString. It covers the
+ * boundaries of the int range, every power of two and of ten, the borders 10^-3 and 10^7 of the fast range, values that lie halfway
+ * between two decimals of their last digit and a fixed sequence of random values. Every double must also parse back to itself.
+ * </p>
+ */
+public class NumberFormatterCheck {
+
+	private static final int RANDOM_VALUES = 300_000;
+
+	private final Check check = new Check("NumberFormatterCheck");
+	private final NumberFormatter formatter = new NumberFormatter();
+	private final byte[] buf = new byte[NumberFormatter.MAX_LENGTH + 8];
+
+	/**
+	 * Main function to run the check
+	 * @param args Not used
+	 */
+	public static void main(String[] args) {
+		new NumberFormatterCheck().run();
+	}
+
+	private void run() {
+		int[] ints = {0, 1, -1, 9, 10, -10, 99, 100, Integer.MAX_VALUE, Integer.MIN_VALUE, Integer.MAX_VALUE - 1, Integer.MIN_VALUE + 1};
+		for (int v : ints) {
+			checkInt(v);
+		}
+		for (int p = 1; p > 0 && p <= 1_000_000_000; p *= 10) {
+			checkInt(p - 1);
+			checkInt(p);
+			checkInt(-p);
+			checkInt(-p + 1);
+		}
+
+		checkDouble(0.0);
+		checkDouble(-0.0);
+		checkDouble(Double.MIN_VALUE);
+		checkDouble(Double.MAX_VALUE);
+		checkDouble(Double.MIN_NORMAL);
+		checkDouble(Double.NaN);
+		checkDouble(Double.POSITIVE_INFINITY);
+		checkDouble(Double.NEGATIVE_INFINITY);
+		for (int e = -1074; e <= 1023; e++) {
+			double v = Math.scalb(1.0, e);
+			checkDouble(v);
+			checkDouble(-v);
+			checkDouble(Math.nextUp(v));
+			checkDouble(Math.nextDown(v));
+		}
+		for (int e = -325; e <= 308; e++) {
+			double v = Double.parseDouble("1e" + e);
+			checkDouble(v);
+			checkDouble(Math.nextUp(v));
+			checkDouble(Math.nextDown(v));
+		}
+
+		// borders of the fast range
+		for (double border : new double[] {1e-3, 1e7}) {
+			double v = border;
+			for (int i = 0; i < 100; i++) {
+				v = Math.nextDown(v);
+			}
+			for (int i = 0; i < 200; i++) {
+				checkDouble(v);
+				checkDouble(-v);
+				v = Math.nextUp(v);
+			}
+		}
+
+		// exact binary fractions whose last decimal digit is a 5, halfway between the two shorter decimals
+		for (int digits = 1; digits <= 7; digits++) {
+			double scale = Math.pow(10, digits);
+			for (int m = 5; m < 10_000; m += 10) {
+				double v = m / scale;
+				checkDouble(v);
+				checkDouble(Math.nextUp(v));
+				checkDouble(Math.nextDown(v));
+			}
+		}
+		for (int e = 1; e <= 20; e++) {
+			double half = Math.scalb(1.0, -e);
+			for (int k = 1; k < 64; k += 2) {
+				checkDouble(k * half);
+				checkDouble(1e6 + k * half);
+			}
+		}
+
+		SplittableRandom random = new SplittableRandom(42);
+		for (int i = 0; i < RANDOM_VALUES; i++) {
+			checkDouble(Double.longBitsToDouble(random.nextLong()));
+			checkDouble(random.nextDouble() * 1e7);
+			checkDouble(random.nextDouble() * 2e-3);
+			checkInt(random.nextInt());
+		}
+		check.finish();
+	}
+
+	private void checkInt(int v) {
+		int end = formatter.appendInt(buf, 3, v);
+		check.equal("appendInt(" + v + ")", Integer.toString(v), new String(buf, 3, end - 3, StandardCharsets.US_ASCII));
+	}
+
+	private void checkDouble(double v) {
+		int end = formatter.appendDouble(buf, 5, v);
+		String text = new String(buf, 5, end - 5, StandardCharsets.US_ASCII);
+		String what = "appendDouble(" + Double.doubleToRawLongBits(v) + "L)";
+		check.that(what + " wrote " + (end - 5) + " bytes", end - 5 <= NumberFormatter.MAX_LENGTH);
+		check.equal(what, Double.toString(v), text);
+		check.that(what + ": " + text + " does not parse back", Double.isNaN(v)
+				|| Double.doubleToRawLongBits(Double.parseDouble(text)) == Double.doubleToRawLongBits(v));
+	}
+}
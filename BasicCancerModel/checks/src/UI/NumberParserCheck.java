@@ -0,0 +1,121 @@
+package UI;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.SplittableRandom;
+
+
+/**
+ * <p>
+ * Class NumberParserCheck compares NumberParser with Integer.parseInt and Double.parseDouble. The doubles are the texts of every
+ * power of two and of ten, the borders of the exact Clinger path and of the 19 digit limit, the decimals halfway between two
+ * neighbouring doubles and one digit above and below them, the smallest and largest exponents, special values and a fixed sequence
+ * of random values. Texts that are no number must fail with a NumberFormatException in both.
+ * </p>
+ */
+public class NumberParserCheck {
+
+	private static final int RANDOM_VALUES = 300_000;
+
+	private final Check check = new Check("NumberParserCheck");
+
+	/**
+	 * Main function to run the check
+	 * @param args Not used
+	 */
+	public static void main(String[] args) {
+		new NumberParserCheck().run();
+	}
+
+	private void run() {
+		for (String s : new String[] {"0", "-0", "+0", "1", "-1", "+7", "2147483647", "-2147483648", "2147483648", "-2147483649",
+				"0000000000012", "99999999999", "", "-", "+", "1a", " 1", "1.0", "--1"}) {
+			checkInt(s);
+		}
+
+		for (String s : new String[] {"0", "-0", "0.0", "-0.0", "1", "1.", ".5", "+1.5", "-.5", "1e5", "1E5", "1e+5", "1e-5", "1e",
+				"1e+", ".", "", "-", "e5", "1.5.5", "1x", "NaN", "-Infinity", "Infinity", "1d", "1f", "0x1p3", "4.9e-324",
+				"2.4703282292062327e-324", "2.4703282292062328e-324", "1e-342", "1e-343", "1e-400", "1.7976931348623157e308",
+				"1.7976931348623158e308", "1.7976931348623159e308", "1e308", "1e309", "1e100000", "1e-100000", "0e999999",
+				"9007199254740993", "9007199254740992.5", "1234567890123456789", "12345678901234567890", "0.1234567890123456789",
+				"1234567890123456789e-5", "000000000000000000000000001.5", "1.00000000000000000000000000001"}) {
+			checkDouble(s);
+		}
+		for (int e = -1074; e <= 1023; e++) {
+			double v = Math.scalb(1.0, e);
+			checkDouble(Double.toString(v));
+			checkDouble(new BigDecimal(v).toString());
+			checkHalfway(v);
+		}
+		for (int e = -343; e <= 309; e++) {
+			checkDouble("1e" + e);
+			checkDouble("9.999999999999999999e" + e);
+			checkDouble("-5e" + e);
+		}
+		// the borders of the exact path: up to 15 digits and 10^22
+		for (int e = 20; e <= 24; e++) {
+			checkDouble("123456789012345e" + e);
+			checkDouble("1234567890123456e" + e);
+			checkDouble("123456789012345e-" + e);
+		}
+
+		SplittableRandom random = new SplittableRandom(23);
+		for (int i = 0; i < RANDOM_VALUES; i++) {
+			double v = Double.longBitsToDouble(random.nextLong());
+			checkDouble(Double.toString(v));
+			checkDouble(Double.toString(random.nextDouble() * 200 - 100));
+			checkDouble(random.nextInt(1_000_000) + "." + random.nextInt(1_000_000) + "e" + (random.nextInt(640) - 320));
+			if (i % 100 == 0) {
+				checkHalfway(v);
+			}
+			checkInt(Integer.toString(random.nextInt()));
+		}
+		check.finish();
+	}
+
+	// the exact decimal halfway between v and the next double, which rounds to the even one, and its neighbours in the last digit
+	private void checkHalfway(double v) {
+		if (Double.isNaN(v) || Double.isInfinite(v) || Double.isInfinite(Math.nextUp(v))) {
+			return;
+		}
+		BigDecimal half = new BigDecimal(v).add(new BigDecimal(Math.nextUp(v))).divide(BigDecimal.valueOf(2));
+		BigDecimal last = BigDecimal.ONE.movePointLeft(half.scale());
+		checkDouble(half.toString());
+		checkDouble(half.add(last).toString());
+		checkDouble(half.subtract(last).toString());
+	}
+
+	private void checkInt(String s) {
+		byte[] buf = (" " + s + " ").getBytes(StandardCharsets.US_ASCII);
+		String expected;
+		try {
+			expected = Integer.toString(Integer.parseInt(s));
+		} catch (NumberFormatException e) {
+			expected = "NumberFormatException";
+		}
+		String actual;
+		try {
+			actual = Integer.toString(NumberParser.parseInt(buf, 1, buf.length - 1));
+		} catch (NumberFormatException e) {
+			actual = "NumberFormatException";
+		}
+		check.equal("parseInt(\"" + s + "\")", expected, actual);
+	}
+
+	private void checkDouble(String s) {
+		byte[] buf = ("x" + s + "y").getBytes(StandardCharsets.US_ASCII);
+		String expected;
+		try {
+			expected = Long.toHexString(Double.doubleToRawLongBits(Double.parseDouble(s)));
+		} catch (NumberFormatException e) {
+			expected = "NumberFormatException";
+		}
+		String actual;
+		try {
+			actual = Long.toHexString(Double.doubleToRawLongBits(NumberParser.parseDouble(buf, 1, buf.length - 1)));
+		} catch (NumberFormatException e) {
+			actual = "NumberFormatException";
+		}
+		check.equal("parseDouble(\"" + s + "\")", expected, actual);
+	}
+}
@@ -0,0 +1,277 @@
+package Tools;
+
+import java.util.Arrays;
+
+
+/**
+ * <p>
+ * Class CellStore holds the cells of one site as parallel primitive arrays (type, X and Y axis location, ID and a bitset for invasiveness)
+ * instead of one Individual object per cell. The arrays grow on demand and are reused, so adding, removing and iterating cells
+ * allocates nothing per cell.
+ * </p>
+ */
+public class CellStore {
+
+	/**
+	 * ID of a cell that has not been given an ID yet, e.g. a newborn.
+	 */
+	public static final long NO_ID = -1;
+
+	private double[] x;		//x-coordinates
+	private double[] y;		//y-coordinates
+	private short[] type;	//types of the cells
+	private long[] invasive;	//bit i is set if cell i is invasive
+	private long[] id;		//stable IDs of the cells, NO_ID until PopulationStatus assigns one
+	private int size;
+
+	/**
+	 * <p>
+	 * Constructor for an empty CellStore.
+	 * </p>
+	 * @param capacity The number of cells the store can hold before it has to grow.
+	 */
+	public CellStore(int capacity) {
+		capacity = Math.max(capacity, 16);
+		this.x = new double[capacity];
+		this.y = new double[capacity];
+		this.type = new short[capacity];
+		this.invasive = new long[(capacity + 63) >>> 6];
+		this.id = new long[capacity];
+	}
+
+	/**
+	 * <p>
+	 * Getter function to get the number of cells in the store.
+	 * </p>
+	 * @return The number of cells.
+	 */
+	public int size() {
+		return this.size;
+	}
+
+	/**
+	 * <p>
+	 * Getter function to get the type of a cell.
+	 * </p>
+	 * @param i The index of the cell.
+	 * @return The type of the cell.
+	 */
+	public short getType(int i) {
+		return this.type[i];
+	}
+
+	/**
+	 * <p>
+	 * Getter function to get the X axis location of a cell.
+	 * </p>
+	 * @param i The index of the cell.
+	 * @return The X axis location of the cell.
+	 */
+	public double getX(int i) {
+		return this.x[i];
+	}
+
+	/**
+	 * <p>
+	 * Getter function to get the Y axis location of a cell.
+	 * </p>
+	 * @param i The index of the cell.
+	 * @return The Y axis location of the cell.
+	 */
+	public double getY(int i) {
+		return this.y[i];
+	}
+
+	/**
+	 * <p>
+	 * Getter function to get if a cell is invasive.
+	 * </p>
+	 * @param i The index of the cell.
+	 * @return The value if the cell is invasive.
+	 */
+	public boolean isInvasive(int i) {
+		return (this.invasive[i >>> 6] & (1L << i)) != 0;
+	}
+
+	/**
+	 * <p>
+	 * Getter function to get the ID of a cell. A cell keeps its ID from its birth until its death, also when it migrates.
+	 * </p>
+	 * @param i The index of the cell.
+	 * @return The ID of the cell, NO_ID if none was assigned yet.
+	 */
+	public long getId(int i) {
+		return this.id[i];
+	}
+
+	/**
+	 * <p>
+	 * Getter function to get the backing array of the X axis locations. Only the first size() entries are valid.
+	 * </p>
+	 * @return The X axis locations of all cells.
+	 */
+	public double[] getXArray() {
+		return this.x;
+	}
+
+	/**
+	 * <p>
+	 * Getter function to get the backing array of the Y axis locations. Only the first size() entries are valid.
+	 * </p>
+	 * @return The Y axis locations of all cells.
+	 */
+	public double[] getYArray() {
+		return this.y;
+	}
+
+	/**
+	 * <p>
+	 * Adds a cell at the end of the store.
+	 * </p>
+	 * @param type The type of the cell.
+	 * @param invasive The value if the cell is invasive.
+	 * @param x The X axis location of the cell.
+	 * @param y The Y axis location of the cell.
+	 */
+	public void add(short type, boolean invasive, double x, double y) {
+		add(type, invasive, x, y, NO_ID);
+	}
+
+	/**
+	 * <p>
+	 * Adds a cell with a known ID at the end of the store.
+	 * </p>
+	 * @param type The type of the cell.
+	 * @param invasive The value if the cell is invasive.
+	 * @param x The X axis location of the cell.
+	 * @param y The Y axis location of the cell.
+	 * @param id The ID of the cell.
+	 */
+	public void add(short type, boolean invasive, double x, double y, long id) {
+		if (this.size == this.x.length) {
+			grow(this.size + 1);
+		}
+		int i = this.size++;
+		this.type[i] = type;
+		this.x[i] = x;
+		this.y[i] = y;
+		this.id[i] = id;
+		setInvasive(i, invasive);
+	}
+
+	/**
+	 * <p>
+	 * Adds a copy of a cell of another store at the end of this store.
+	 * </p>
+	 * @param other The store that holds the cell.
+	 * @param i The index of the cell in the other store.
+	 */
+	public void add(CellStore other, int i) {
+		add(other.type[i], other.isInvasive(i), other.x[i], other.y[i], other.id[i]);
+	}
+
+	/**
+	 * <p>
+	 * Adds copies of all cells of another store at the end of this store.
+	 * </p>
+	 * @param other The store whose cells are copied.
+	 */
+	public void addAll(CellStore other) {
+		int newSize = this.size + other.size;
+		if (newSize > this.x.length) {
+			grow(newSize);
+		}
+		System.arraycopy(other.x, 0, this.x, this.size, other.size);
+		System.arraycopy(other.y, 0, this.y, this.size, other.size);
+		System.arraycopy(other.type, 0, this.type, this.size, other.size);
+		System.arraycopy(other.id, 0, this.id, this.size, other.size);
+		if ((this.size & 63) == 0) {
+			System.arraycopy(other.invasive, 0, this.invasive, this.size >>> 6, (other.size + 63) >>> 6);
+		} else {
+			for (int i = 0; i < other.size; i++) {
+				setInvasive(this.size + i, other.isInvasive(i));
+			}
+		}
+		this.size = newSize;
+	}
+
+	/**
+	 * <p>
+	 * Gives every cell without an ID the next free ID, in the order of the store.
+	 * </p>
+	 * @param nextId The first free ID.
+	 * @return The first free ID after the assignment.
+	 */
+	public long assignIds(long nextId) {
+		for (int i = 0; i < this.size; i++) {
+			if (this.id[i] == NO_ID) {
+				this.id[i] = nextId++;
+			}
+		}
+		return nextId;
+	}
+
+	/**
+	 * <p>
+	 * Removes all cells. The capacity of the store is kept.
+	 * </p>
+	 */
+	public void clear() {
+		Arrays.fill(this.invasive, 0, (this.size + 63) >>> 6, 0L);
+		this.size = 0;
+	}
+
+	/**
+	 * <p>
+	 * Brings the cells into a random order (Fisher-Yates shuffle).
+	 * </p>
+	 * @param random The random stream used for the shuffle.
+	 */
+	public void shuffle(RandomVariable random) {
+		for (int i = this.size; i > 1; i--) {
+			swap(i - 1, random.getInt(i));
+		}
+	}
+
+	/**
+	 * <p>
+	 * Exchanges two cells in the store.
+	 * </p>
+	 * @param i The index of the first cell.
+	 * @param j The index of the second cell.
+	 */
+	public void swap(int i, int j) {
+		double tmp = this.x[i];
+		this.x[i] = this.x[j];
+		this.x[j] = tmp;
+		tmp = this.y[i];
+		this.y[i] = this.y[j];
+		this.y[j] = tmp;
+		short tmpType = this.type[i];
+		this.type[i] = this.type[j];
+		this.type[j] = tmpType;
+		long tmpId = this.id[i];
+		this.id[i] = this.id[j];
+		this.id[j] = tmpId;
+		boolean tmpInvasive = isInvasive(i);
+		setInvasive(i, isInvasive(j));
+		setInvasive(j, tmpInvasive);
+	}
+
+	private void setInvasive(int i, boolean invasive) {
+		if (invasive) {
+			this.invasive[i >>> 6] |= 1L << i;
+		} else {
+			this.invasive[i >>> 6] &= ~(1L << i);
+		}
+	}
+
+	private void grow(int minCapacity) {
+		int capacity = Math.max(minCapacity, this.x.length + (this.x.length >> 1));
+		this.x = Arrays.copyOf(this.x, capacity);
+		this.y = Arrays.copyOf(this.y, capacity);
+		this.type = Arrays.copyOf(this.type, capacity);
+		this.id = Arrays.copyOf(this.id, capacity);
+		this.invasive = Arrays.copyOf(this.invasive, (capacity + 63) >>> 6);
+	}
+}
@@ -0,0 +1,418 @@
+package Tools;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Properties;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import UI.SaveState;
+
+
+/**
+ * <p>
+ * Class Checkpoint holds everything a run needs to continue after a stored step exactly as if it had not been interrupted: the cells
+ * of every site in their order and with their IDs, the next free ID, the state of the treatment in the Controller, the adaptive
+ * treatment step of the RuleSet and the state of the output files. The random streams of a step are derived from the seed of the
+ * run only (see RandomVariable), so the seed is their whole state.
+ * </p>
+ * <p>
+ * The checkpoint of run r is Checkpoint&lt;r&gt;.ckpt in the save path. It is written to a temporary file first, which then replaces
+ * the previous checkpoint, so a crash while writing leaves the previous checkpoint intact. A run that finished writes a checkpoint
+ * marked as complete without cells, so a resumed ensemble skips it.
+ * </p>
+ */
+public class Checkpoint {
+
+	/**
+	 * First bytes of a checkpoint, "MIGCKPT1".
+	 */
+	public static final long MAGIC = 0x4d4947434b505431L;
+	/**
+	 * Version of the format.
+	 */
+	public static final int VERSION = 2;
+
+	private static ExecutorService writer;		//writes the checkpoints of all runs, created on first use
+
+	private int run;
+	private long seed;			//seed given for all runs
+	private int step;			//the step whose outputs are stored and which is performed next
+	private String configuration;	//parameters of the simulation, see configurationOf
+	private boolean complete;
+	private boolean treatmentCancerOn;
+	private boolean ATon;
+	private double killingSensitive;
+	private int ATadaptiveStep;
+	private long nextCellId;
+	private CellStore[] cells;
+	private SaveState output;
+
+	private Checkpoint() {
+	}
+
+	/**
+	 * <p>
+	 * Takes a checkpoint of a run. The cells are copied, the run can go on right away.
+	 * </p>
+	 * @param run The index of the simulation run.
+	 * @param seed The seed given for all runs.
+	 * @param step The step whose outputs are stored and which is performed next.
+	 * @param config The parameters of the simulation.
+	 * @param treatmentCancerOn Wether the treatment is on.
+	 * @param ATon Wether the adaptive treatment is on.
+	 * @param killingSensitive The probability that the treatment kills a sensitive cell.
+	 * @param rs The ruleset of the run.
+	 * @param ps The population of the run.
+	 * @param output The state of the output files, see Save.checkpoint.
+	 * @return The checkpoint.
+	 */
+	public static Checkpoint take(int run, long seed, int step, SimulationConfig config, boolean treatmentCancerOn, boolean ATon,
+			double killingSensitive, RuleSet rs, PopulationStatus ps, SaveState output) {
+		Checkpoint c = new Checkpoint();
+		c.run = run;
+		c.seed = seed;
+		c.step = step;
+		c.configuration = configurationOf(config);
+		c.treatmentCancerOn = treatmentCancerOn;
+		c.ATon = ATon;
+		c.killingSensitive = killingSensitive;
+		c.ATadaptiveStep = rs.getATadaptiveStep();
+		c.nextCellId = ps.getNextCellId();
+		CellStore[] all = ps.getCells();
+		c.cells = new CellStore[all.length];
+		for (int site = 0; site < all.length; site++) {
+			c.cells[site] = new CellStore(all[site].size());
+			c.cells[site].addAll(all[site]);
+		}
+		c.output = output;
+		return c;
+	}
+
+	/**
+	 * <p>
+	 * Function to get the checkpoint of a run that finished.
+	 * </p>
+	 * @param run The index of the simulation run.
+	 * @param seed The seed given for all runs.
+	 * @param steps The number of steps of the run.
+	 * @param config The parameters of the simulation.
+	 * @return The checkpoint.
+	 */
+	public static Checkpoint complete(int run, long seed, int steps, SimulationConfig config) {
+		Checkpoint c = new Checkpoint();
+		c.run = run;
+		c.seed = seed;
+		c.step = steps;
+		c.configuration = configurationOf(config);
+		c.complete = true;
+		return c;
+	}
+
+	/**
+	 * <p>
+	 * Function to get the file of the checkpoint of a run.
+	 * </p>
+	 * @param savePath The path the files of the run are stored to.
+	 * @param run The index of the simulation run.
+	 * @return The file.
+	 */
+	public static File file(String savePath, int run) {
+		return new File(savePath, "Checkpoint" + run + ".ckpt");
+	}
+
+	// the parameters as sorted key=value lines, without those that may change when a run is continued
+	private static String configurationOf(SimulationConfig config) {
+		Properties p = config.toProperties();
+		p.remove("steps");
+		p.remove("simulationRuns");
+		StringBuilder sb = new StringBuilder();
+		for (String key : new TreeSet<String>(p.stringPropertyNames())) {
+			sb.append(key).append('=').append(p.getProperty(key)).append('\n');
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * <p>
+	 * Checks that the checkpoint belongs to a run of the given configuration. The number of steps and runs may differ.
+	 * </p>
+	 * @param config The parameters of the simulation.
+	 * @param run The index of the simulation run.
+	 * @throws IOException Exception thrown if the checkpoint belongs to another run or configuration.
+	 */
+	public void verify(SimulationConfig config, int run) throws IOException {
+		if (this.run != run) {
+			throw new IOException("The checkpoint belongs to run " + this.run + ", not to run " + run);
+		}
+		if (!configuration.equals(configurationOf(config))) {
+			throw new IOException("The checkpoint of run " + run + " was written for other parameters");
+		}
+	}
+
+	/**
+	 * <p>
+	 * Writes the checkpoint on a background thread. The state of the output files is written once the writer thread of the Save has
+	 * written everything before the checkpoint.
+	 * </p>
+	 * @param file The file of the checkpoint.
+	 * @return The future of the writing.
+	 */
+	public Future<?> writeAsync(File file) {
+		return writer().submit(() -> {
+			write(file);
+			return null;
+		});
+	}
+
+	private static synchronized ExecutorService writer() {
+		if (writer == null) {
+			writer = Executors.newSingleThreadExecutor(r -> {
+				Thread t = new Thread(r, "Checkpoint writer");
+				t.setDaemon(true);
+				return t;
+			});
+		}
+		return writer;
+	}
+
+	/**
+	 * <p>
+	 * Writes the checkpoint to a temporary file, forces it to the disk and replaces the file with it.
+	 * </p>
+	 * @param file The file of the checkpoint.
+	 * @throws IOException Exception thrown if the checkpoint or the output before it cannot be written.
+	 */
+	public void write(File file) throws IOException {
+		if (output != null) {
+			output.await();
+		}
+		File tmp = new File(file.getPath() + ".tmp");
+		try (FileOutputStream fos = new FileOutputStream(tmp)) {
+			DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fos, 1 << 16));
+			out.writeLong(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(run);
+			out.writeLong(seed);
+			out.writeInt(step);
+			out.writeUTF(configuration);
+			out.writeBoolean(complete);
+			if (!complete) {
+				out.writeBoolean(treatmentCancerOn);
+				out.writeBoolean(ATon);
+				out.writeDouble(killingSensitive);
+				out.writeInt(ATadaptiveStep);
+				out.writeLong(nextCellId);
+				out.writeInt(cells.length);
+				for (CellStore store : cells) {
+					writeCells(out, store);
+				}
+				output.write(out);
+			}
+			out.flush();
+			fos.getFD().sync();
+		}
+		Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	// the columns of a store, the invasiveness as one bit per cell
+	private static void writeCells(DataOutputStream out, CellStore cells) throws IOException {
+		int n = cells.size();
+		out.writeInt(n);
+		for (int i = 0; i < n; i++) {
+			out.writeShort(cells.getType(i));
+		}
+		for (int i = 0; i < n; i += 64) {
+			long bits = 0;
+			for (int j = i; j < Math.min(n, i + 64); j++) {
+				if (cells.isInvasive(j)) {
+					bits |= 1L << j;
+				}
+			}
+			out.writeLong(bits);
+		}
+		for (int i = 0; i < n; i++) {
+			out.writeDouble(cells.getX(i));
+		}
+		for (int i = 0; i < n; i++) {
+			out.writeDouble(cells.getY(i));
+		}
+		for (int i = 0; i < n; i++) {
+			out.writeLong(cells.getId(i));
+		}
+	}
+
+	/**
+	 * <p>
+	 * Reads a checkpoint.
+	 * </p>
+	 * @param file The file of the checkpoint.
+	 * @return The checkpoint.
+	 * @throws IOException Exception thrown if the file cannot be read or is no checkpoint.
+	 */
+	public static Checkpoint read(File file) throws IOException {
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 1 << 16))) {
+			if (in.readLong() != MAGIC) {
+				throw new IOException(file + " is no checkpoint");
+			}
+			int version = in.readInt();
+			if (version != VERSION) {
+				throw new IOException("Unsupported checkpoint version " + version + " in " + file);
+			}
+			Checkpoint c = new Checkpoint();
+			c.run = in.readInt();
+			c.seed = in.readLong();
+			c.step = in.readInt();
+			c.configuration = in.readUTF();
+			c.complete = in.readBoolean();
+			if (!c.complete) {
+				c.treatmentCancerOn = in.readBoolean();
+				c.ATon = in.readBoolean();
+				c.killingSensitive = in.readDouble();
+				c.ATadaptiveStep = in.readInt();
+				c.nextCellId = in.readLong();
+				c.cells = new CellStore[in.readInt()];
+				for (int site = 0; site < c.cells.length; site++) {
+					c.cells[site] = readCells(in);
+				}
+				c.output = SaveState.read(in);
+			}
+			return c;
+		}
+	}
+
+	private static CellStore readCells(DataInputStream in) throws IOException {
+		int n = in.readInt();
+		short[] type = new short[n];
+		long[] invasive = new long[(n + 63) >>> 6];
+		for (int i = 0; i < n; i++) {
+			type[i] = in.readShort();
+		}
+		for (int k = 0; k < invasive.length; k++) {
+			invasive[k] = in.readLong();
+		}
+		double[] x = new double[n];
+		for (int i = 0; i < n; i++) {
+			x[i] = in.readDouble();
+		}
+		double[] y = new double[n];
+		for (int i = 0; i < n; i++) {
+			y[i] = in.readDouble();
+		}
+		CellStore cells = new CellStore(n);
+		for (int i = 0; i < n; i++) {
+			cells.add(type[i], (invasive[i >>> 6] & (1L << i)) != 0, x[i], y[i], in.readLong());
+		}
+		return cells;
+	}
+
+	/**
+	 * <p>
+	 * Getter function to get the seed given for all runs.
+	 * </p>
+	 * @return The seed.
+	 */
+	public long getSeed() {
+		return seed;
+	}
+
+	/**
+	 * <p>
+	 * Getter function to get the step the run continues with. Its outputs are already stored.
+	 * </p>
+	 * @return The step.
+	 */
+	public int getStep() {
+		return step;
+	}
+
+	/**
+	 * <p>
+	 * Getter function to get if the run finished.
+	 * </p>
+	 * @return True if the checkpoint was written at the end of the run.
+	 */
+	public boolean isComplete() {
+		return complete;
+	}
+
+	/**
+	 * <p>
+	 * Getter function to get if the treatment is on.
+	 * </p>
+	 * @return The value of treatmentCancerOn of the Controller.
+	 */
+	public boolean isTreatmentCancerOn() {
+		return treatmentCancerOn;
+	}
+
+	/**
+	 * <p>
+	 * Getter function to get if the adaptive treatment is on.
+	 * </p>
+	 * @return The value of ATon of the Controller.
+	 */
+	public boolean isATon() {
+		return ATon;
+	}
+
+	/**
+	 * <p>
+	 * Getter function to get the probability that the treatment kills a sensitive cell.
+	 * </p>
+	 * @return The value of killingSensitive of the Controller.
+	 */
+	public double getKillingSensitive() {
+		return killingSensitive;
+	}
+
+	/**
+	 * <p>
+	 * Getter function to get the step the adaptive treatment started last.
+	 * </p>
+	 * @return The value of ATadaptiveStep of the RuleSet.
+	 */
+	public int getATadaptiveStep() {
+		return ATadaptiveStep;
+	}
+
+	/**
+	 * <p>
+	 * Getter function to get the ID the next newborn cell gets.
+	 * </p>
+	 * @return The next free ID.
+	 */
+	public long getNextCellId() {
+		return nextCellId;
+	}
+
+	/**
+	 * <p>
+	 * Getter function to get the cells of every site.
+	 * </p>
+	 * @return The cell stores, indexed by site.
+	 */
+	public CellStore[] getCells() {
+		return cells;
+	}
+
+	/**
+	 * <p>
+	 * Getter function to get the state of the output files.
+	 * </p>
+	 * @return The state, see Save.resume.
+	 */
+	public SaveState getOutput() {
+		return output;
+	}
+}
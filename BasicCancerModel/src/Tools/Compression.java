@@ -0,0 +1,54 @@
+package Tools;
+
+
+/**
+ * <p>
+ * Enum Compression selects if and how the large text outputs (Location.m, Distribution.m and Density.m) are compressed.
+ * The files are compressed in independent blocks, so the blocks can be compressed and decompressed in parallel, see
+ * UI.OutputPipeline and UI.CompressedFileReader.
+ * </p>
+ */
+public enum Compression {
+
+	/**
+	 * The files are written uncompressed.
+	 */
+	NONE(""),
+	/**
+	 * Every block is a gzip member compressed at the fastest deflate level, the file can also be read with gunzip or any other gzip
+	 * reader.
+	 */
+	GZIP(".gz"),
+	/**
+	 * Every block is compressed with the LZ codec of UI.LZCodec, faster than GZIP at a lower ratio.
+	 */
+	LZ(".lzb");
+
+	private final String extension;
+
+	private Compression(String extension) {
+		this.extension = extension;
+	}
+
+	/**
+	 * <p>
+	 * Getter function to get the extension that is appended to the name of a compressed file.
+	 * </p>
+	 * @return The extension, empty for NONE.
+	 */
+	public String getExtension() {
+		return extension;
+	}
+
+	/**
+	 * <p>
+	 * Function to get a compression from its name, ignoring the case.
+	 * </p>
+	 * @param name The name of the compression, e.g. none, gzip or lz.
+	 * @return The compression.
+	 * @throws IllegalArgumentException If there is no compression with that name.
+	 */
+	public static Compression parse(String name) {
+		return valueOf(name.trim().toUpperCase());
+	}
+}
@@ -0,0 +1,138 @@
+package Tools;
+
+import java.io.PrintStream;
+import java.util.Locale;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+
+/**
+ * <p>
+ * Class ConsoleProgressLogger is a SimulationListener that prints the progress of simulation runs: the start and end of every run,
+ * every change of the treatment and a summary of the first and the last step of a run and of at most one step per interval in
+ * between. Of a ParameterSweep it prints every failed job and at most one progress line per interval. One logger may be shared by
+ * Controllers that run concurrently, also by those of different jobs whose runs have the same index: the interval is kept per
+ * thread, and every Controller calls the listener of a run on the one thread that computes the run.
+ * </p>
+ */
+public class ConsoleProgressLogger implements SimulationListener {
+
+	/**
+	 * Default time between two step summaries of a run in milliseconds.
+	 */
+	public static final long DEFAULT_INTERVAL = 1000;
+
+	private final PrintStream out;
+	private final long intervalNanos;
+	private final Map<Thread, Long> lastPrinted = new WeakHashMap<Thread, Long>();	//time of the last summary of the run of every thread
+	private long lastJobPrinted = Long.MIN_VALUE;	//time of the last progress line of a sweep
+
+	/**
+	 * <p>
+	 * Constructor for a logger that prints to System.out at most one step summary per second and run.
+	 * </p>
+	 */
+	public ConsoleProgressLogger() {
+		this(System.out, DEFAULT_INTERVAL);
+	}
+
+	/**
+	 * <p>
+	 * Constructor for the ConsoleProgressLogger class.
+	 * </p>
+	 * @param out The stream the progress is printed to.
+	 * @param intervalMillis The minimal time between two step summaries of a run in milliseconds, 0 to print every step.
+	 */
+	public ConsoleProgressLogger(PrintStream out, long intervalMillis) {
+		this.out = out;
+		this.intervalNanos = Math.max(0, intervalMillis) * 1000000L;
+	}
+
+	@Override
+	public synchronized void runStarted(int run, int firstStep, int steps, int populationSize) {
+		this.lastPrinted.remove(Thread.currentThread());
+		if (firstStep > 0) {
+			this.out.println("Run " + run + " continues at step " + firstStep + " of " + steps + " with " + populationSize + " cells");
+		} else {
+			this.out.println("Run " + run + " started with " + populationSize + " cells, " + steps + " steps");
+		}
+	}
+
+	@Override
+	public void stepFinished(int run, int step, int steps, int populationSize) {
+	}
+
+	@Override
+	public void stepSummary(StepSummary summary) {
+		long now = System.nanoTime();
+		synchronized (this) {
+			Long last = this.lastPrinted.get(Thread.currentThread());
+			if (last != null && now - last < this.intervalNanos && summary.getStep() != summary.getSteps() - 1) {
+				return;
+			}
+			this.lastPrinted.put(Thread.currentThread(), now);
+		}
+		int occupied = 0;
+		for (int site = 0; site < summary.getNumberSites(); site++) {
+			if (summary.getSitePopulation(site) > 0) {
+				occupied++;
+			}
+		}
+		StringBuilder line = new StringBuilder();
+		line.append("Run ").append(summary.getRun()).append(" step ").append(summary.getStep());
+		line.append(" (").append(summary.getElapsedNanos() / 1000000000L).append(" s): ");
+		line.append(summary.getPopulationSize()).append(" cells at ").append(occupied).append(occupied == 1 ? " site, " : " sites, ");
+		line.append(summary.getOffspring()).append(" offspring, ");
+		line.append(summary.getMigrations()).append(" migrations, ");
+		line.append(summary.getAboveCarryingCapacity()).append(" above carrying capacity");
+		if (summary.isTreatmentCancerOn()) {
+			line.append(summary.isATon() ? ", adaptive treatment on" : ", treatment on");
+		}
+		this.out.println(line);
+	}
+
+	@Override
+	public void treatmentChanged(int run, int step, boolean treatmentCancerOn, boolean adaptive) {
+		this.out.println("Run " + run + " step " + step + ": " + (adaptive ? "adaptive treatment " : "treatment ")
+				+ (treatmentCancerOn ? "started" : "stopped"));
+	}
+
+	@Override
+	public synchronized void runFinished(int run, int lastStep, long elapsedNanos, boolean cancelled) {
+		this.lastPrinted.remove(Thread.currentThread());
+		this.out.println("Run " + run + (cancelled ? " cancelled after step " : " finished after step ") + lastStep + " in "
+				+ elapsedNanos / 1000000000L + " s");
+	}
+
+	@Override
+	public void runSkipped(int run, int lastStep) {
+		this.out.println("Run " + run + " was finished before, its last step was " + lastStep);
+	}
+
+	@Override
+	public synchronized void jobFinished(int point, int run, int finished, int total, long elapsedNanos, Exception failure) {
+		if (failure != null) {
+			this.out.println("Sweep point " + point + " run " + run + " failed: " + failure);
+		}
+		long now = System.nanoTime();
+		if (this.lastJobPrinted != Long.MIN_VALUE && now - this.lastJobPrinted < this.intervalNanos && finished != total) {
+			return;
+		}
+		this.lastJobPrinted = now;
+		this.out.println("Sweep: " + finished + " of " + total + " jobs finished, " + elapsedNanos / 1000000000L + " s");
+	}
+
+	@Override
+	public synchronized void sweepFinished(int total, int failed, long elapsedNanos) {
+		this.lastJobPrinted = Long.MIN_VALUE;
+		this.out.println("Sweep of " + total + " jobs finished" + (failed > 0 ? ", " + failed + " failed" : "") + " in "
+				+ elapsedNanos / 1000000000L + " s");
+	}
+
+	@Override
+	public void ensembleFinished(int runs, int parallelism, long elapsedNanos) {
+		double hours = Math.max(1000000L, elapsedNanos) / 3.6e12;
+		this.out.println("Ensemble of " + runs + " runs finished, " + String.format(Locale.ROOT, "%.1f", runs / hours)
+				+ " replicates per hour with " + parallelism + " concurrent replicates");
+	}
+}
@@ -1,8 +1,15 @@
 package Tools;
 
+import java.io.File;
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.Collections;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.Future;
+import java.util.function.IntConsumer;
+
+import javax.management.ObjectName;
+
 import UI.Save;
 
 
@@ -18,14 +25,44 @@ public class Controller {
 
 	private long startingTime; 
 	private long endingTime;
+	private long startingNanos; //start of the current run for the elapsed time of the progress events
 
 
 	//public int interacting = 0;
 	//private int ATpopulationSizeReference = 100000000;
-	private boolean treatmentCancerOn = false;
-	private boolean ATon = false;
+	private volatile boolean treatmentCancerOn = false;
+	private volatile boolean ATon = false;
 	private double killingSensitive = 0;
 	
+	private SiteStepper[] siteSteppers; //executes the step for each site, reused from step to step
+	private CellStore[] survivingCells; //cells that survived the death process, per site
+	private CellStore[] newField; //newborns and migrated cells, per site
+	private int parallelism = Runtime.getRuntime().availableProcessors();
+	private ForkJoinPool pool; //steps the sites concurrently, null if the sites are stepped one after another
+	private Long seed; //seed given for all runs, null to draw a new one for every call of run
+	private long runSeed; //seed of the current run
+	private volatile int populationSize; //population size of the current run, may be read from other threads
+	private volatile boolean cancelled; //set to stop the simulation after the current step
+	private RunOptions options = new RunOptions(); //how the runs are stored, checkpointed and reported
+	private SimulationListener progress = SimulationListener.NONE; //progress listener of the options of the current run
+	private Future<?> pendingCheckpoint; //checkpoint being written in the background, null if there is none
+	private final SimulationMetrics metrics = new SimulationMetrics(); //time of the phases of every step
+	private int run; //index of the current run
+	private int counterOffspring; //counters of the last step
+	private int counterMigrations;
+	private int counterAboveCarryingCapacity;
+	private volatile int gap; //steps from one stored step to the next in the current run, may be changed from other threads
+	private volatile int steps; //number of steps of the current run
+	private volatile int step = -1; //index of the last finished step of the current run
+	private volatile int[] sitePopulations = new int[0]; //number of cells per site after the last finished step
+	private volatile double[][] distribution = new double[0][]; //copy of the distribution after the last finished step
+	private volatile double stepsPerSecond; //steps of the current run per second, not counting pauses
+	private volatile boolean paused; //set to wait before the next step until the simulation is resumed
+	private volatile boolean checkpointRequested; //set to write a checkpoint before the next step
+	private final Object pauseLock = new Object();
+	private long pausedNanos; //time the current run was paused
+	private boolean checkpointWritten; //a checkpoint of the current run was taken, so its end has to be marked in the file
+	
 	/**
 	 * <p>
 	 * The Run function is the starting point for the simulation. It uses all the available parameters to start the simulation. 
@@ -89,68 +126,274 @@ public class Controller {
 			double ATstopTreatment)
 					throws IOException{
 		
-		for (int run = 0; run < simulationRuns; run++) {
-			
-			//initialization
-			this.rs = new RuleSet(numberTypes,payoffMatrix, deathProbability,  
-					interactionRadius, offspringRadius, 
-					carryingCapacity, numberMigrationSites, probToMigrate, survivalDestination, fractionInvasiveCells, initTumorsize, cancerTreatmentStep, 
-					killingSensitive, migrastaticsStep, probToMigrateDuringTreatment, ATadaptiveStep, ATstartTreatment, ATstopTreatment);
-			this.ps = new PopulationStatus(initPopulationSize, filePath, initDistribution, rs, initPlaceInds, initTumorsize, fractionInvasiveCells);
-			this.s = new Save(savePath, fileName, false, run);
-			this.s.saveSettings(rs, ps);
-			System.out.println("Timer on");
-			this.startingTime = System.currentTimeMillis();
+		run(new SimulationConfig(filePath, initPopulationSize, initDistribution, initPlaceInds, initTumorsize, numberTypes, payoffMatrix,
+				interactionRadius, offspringRadius, deathProbability, carryingCapacity, numberMigrationSites, fractionInvasiveCells,
+				probToMigrate, survivalDestination, savePath, fileName, simulationRuns, gap, steps, cancerTreatmentStep, killingSensitive,
+				migrastaticsStep, probToMigrateDuringTreatment, ATadaptiveStep, ATstartTreatment, ATstopTreatment));
+	}
 	
-			System.out.println("Computation started");
+	/**
+	 * <p>
+	 * Runs all simulation runs of a configuration one after another. See EnsembleRunner to run them concurrently.
+	 * </p>
+	 * @param config The parameters of the simulation.
+	 * @throws IOException Exception thrown for any error.
+	 */
+	public void run(SimulationConfig config) throws IOException {
+		long seed = this.seed != null ? this.seed : RandomVariable.newSeed();
+		for (int run = 0; run < config.getSimulationRuns() && !this.cancelled; run++) {
+			runReplicate(config, run, seed);
+		}
+	}
+	
+	/**
+	 * <p>
+	 * Runs a single simulation run of a configuration and stores its results in the files of the run.
+	 * All state of the run is kept in this Controller, so replicates that run concurrently need a Controller each.
+	 * </p>
+	 * @param config The parameters of the simulation.
+	 * @param run The index of the simulation run.
+	 * @param seed The seed given for all runs, the seed of this run is derived from it and the index of the run.
+	 * @throws IOException Exception thrown for any error.
+	 */
+	public void runReplicate(SimulationConfig config, int run, long seed) throws IOException {
+		ObjectName name = SimulationControl.register(this, run);
+		try {
+			replicate(config, run, seed);
+		} finally {
+			SimulationControl.unregister(name);
+		}
+	}
 	
+	private void replicate(SimulationConfig config, int run, long seed) throws IOException {
+		int numberMigrationSites = config.getNumberMigrationSites();
+		this.gap = config.getGap();
+		int steps = config.getSteps();
+		this.steps = steps;
+		this.step = -1;
+		this.stepsPerSecond = 0;
+		this.pausedNanos = 0;
+		this.treatmentCancerOn = false;
+		this.ATon = false;
+		this.killingSensitive = 0;
+		
+		this.run = run;
+		this.progress = this.options.getProgressListener();
+		this.checkpointWritten = false;
+		int checkpointInterval = this.options.getCheckpointInterval();
+		File checkpointFile = Checkpoint.file(config.getSavePath(), run);
+		Checkpoint checkpoint = null;
+		if (this.options.isResume() && checkpointFile.isFile()) {
+			checkpoint = Checkpoint.read(checkpointFile);
+			checkpoint.verify(config, run);
+			if (checkpoint.isComplete() && checkpoint.getStep() >= steps) {
+				this.progress.runSkipped(run, checkpoint.getStep() - 1);
+				return;
+			}
+			if (checkpoint.isComplete()) {
+				throw new IOException("Run " + run + " was finished after " + checkpoint.getStep() + " steps and cannot be continued");
+			}
+			seed = checkpoint.getSeed();
+		}
+			
+		//initialization
+		this.runSeed = RandomVariable.runSeed(seed, run);
+		this.rs = new RuleSet(config.getNumberTypes(), config.getPayoffMatrix(), config.getDeathProbability(),
+				config.getInteractionRadius(), config.getOffspringRadius(),
+				config.getCarryingCapacity(), numberMigrationSites, config.getProbToMigrate(), config.getSurvivalDestination(),
+				config.getFractionInvasiveCells(), config.getInitTumorsize(), config.getCancerTreatmentStep(),
+				config.getKillingSensitive(), config.getMigrastaticsStep(), config.getProbToMigrateDuringTreatment(),
+				config.getATadaptiveStep(), config.getATstartTreatment(), config.getATstopTreatment());
+		if (checkpoint != null) {
+			this.rs.setATadaptiveStep(checkpoint.getATadaptiveStep());
+			this.treatmentCancerOn = checkpoint.isTreatmentCancerOn();
+			this.ATon = checkpoint.isATon();
+			this.killingSensitive = checkpoint.getKillingSensitive();
+			this.ps = new PopulationStatus(config.getInitPopulationSize(), rs, config.getInitPlaceInds(), config.getInitTumorsize(),
+					config.getFractionInvasiveCells(), checkpoint.getCells(), checkpoint.getNextCellId());
+			this.s = Save.resume(config.getSavePath(), run, this.options.getSnapshotFormat(), this.options.getKeyframeInterval(),
+					this.options.getCompression(), checkpoint.getOutput());
+		} else {
+			this.ps = new PopulationStatus(config.getInitPopulationSize(), config.getFilePath(), this.options.getInitialStep(), this.parallelism,
+					config.getInitDistribution(), rs, config.getInitPlaceInds(), config.getInitTumorsize(),
+					config.getFractionInvasiveCells(), RandomVariable.stream(this.runSeed, -1, 0, 0));
+			this.s = new Save(config.getSavePath(), config.getFileName(), false, run, this.options.getSnapshotFormat(),
+					this.options.getKeyframeInterval(), this.options.getCompression());
+		}
+		try {
+			this.populationSize = this.ps.getCurrentPopulationSize();
+			if (this.options.getDensityBins() > 0) {
+				this.s.setDensityGrid(new DensityGrid(this.options.getDensityBins(), this.options.getDensityExtent(), rs,
+						config.getInitTumorsize()), this.options.isDensityBinary());
+			}
+			this.siteSteppers = new SiteStepper[numberMigrationSites + 1];
+			this.survivingCells = new CellStore[numberMigrationSites + 1];
+			this.newField = new CellStore[numberMigrationSites + 1];
+			for (int site = 0; site <= numberMigrationSites; site++) {
+				this.siteSteppers[site] = new SiteStepper(site, rs, this.runSeed);
+			}
+			if (this.parallelism > 1 && this.options.isIntraSiteParallel()) {
+				this.pool = new ForkJoinPool(this.parallelism);
+			} else if (this.parallelism > 1 && numberMigrationSites > 0) {
+				this.pool = new ForkJoinPool(Math.min(this.parallelism, numberMigrationSites + 1));
+			}
+			if (checkpoint == null) {
+				this.s.saveSettings(rs, ps, seed);
+			}
+			int firstStep = checkpoint != null ? checkpoint.getStep() : 0;
+			this.startingTime = System.currentTimeMillis();
+			this.startingNanos = System.nanoTime();
+			this.progress.runStarted(run, firstStep, steps, this.populationSize);
+
 			//**************
 			// Simulation
 			//**************
-			
-			for (int i = 0; i < steps; i++){
-	
-				System.out.println();
-	
-				System.out.println("Step no. " + i + " Needed Time: " + ((System.currentTimeMillis() - startingTime)/1000) + " sec");
-	
+		
+			int lastStep = firstStep - 1;
+			for (int i = firstStep; i < steps; i++){
+
+				StepEvent stepEvent = new StepEvent(run, i);
+				int gap = this.gap;
+
 				//
-				// Save current individual list at each gap'th step
+				// Save current individual list at each gap'th step, the outputs of the step a run continues with are stored already
 				//
-				if (i % gap == 0){
-					ArrayList<Individual>[] cellsAllSites = ps.getIndividuals();
-					for (int site = 0; site < cellsAllSites.length; site++) {
-						ArrayList<Individual> indsCurrentSite = cellsAllSites[site];
-						for (int j = 0; j < indsCurrentSite.size(); j++){
-							s.save(new SaveObject(indsCurrentSite.get(j),i));
+				if (checkpoint == null || i != firstStep) {
+					PhaseEvent save = PhaseEvent.start(run, i, Phase.SAVE);
+					if (i % gap == 0){
+						s.saveSnapshot(ps.getCells(), i, i != steps - 1);
+						if (this.options.getDensityBins() > 0) {
+							s.saveDensity(ps.getCells(), i);
 						}
-						this.s.saveStepNo(i);
 					}
-					if (i != steps - 1){
-						s.save(new SaveObject((short)0,(short)0,(short)0,0,0));
+					s.saveDistri(this.ps.getDistribution(), this.ps.getCurrentPopulationSize());
+					this.metrics.add(Phase.SAVE, save.stop());
+					if (checkpointInterval > 0 && i > 0 && i % gap == 0 && (i / gap) % checkpointInterval == 0) {
+						takeCheckpoint(config, run, seed, i, checkpointFile);
 					}
 				}
-				s.saveDistri(this.ps.getDistribution(), this.ps.getCurrentPopulationSize());
+				checkpointOrPause(config, run, seed, i, checkpointFile);
 				//
 				// performStep: here the interactions take place
 				//
 				performStep(i, steps);
+				this.populationSize = this.ps.getCurrentPopulationSize();
+				this.metrics.stepFinished();
+				stepEvent.finish(this.metrics, this.populationSize, this.counterOffspring, this.counterMigrations,
+						this.counterAboveCarryingCapacity);
+				this.progress.stepFinished(run, i, steps, this.populationSize);
+				this.progress.stepSummary(summarizeStep(i, steps));
+				this.stepsPerSecond = (i + 1 - firstStep) / Math.max(1e-9, (System.nanoTime() - this.startingNanos - this.pausedNanos) / 1e9);
+				this.step = i;
+				lastStep = i;
+				if (this.cancelled) {
+					break;
+				}
 			}
 			//
 			// finish files (closing them)
 			//
-			try {
-				s.finish();
-			} catch (IOException e) {
-				throw e;
-			}			
+			s.finish();
+			// a cancelled run keeps its last checkpoint, a finished run is marked as such
+			if (!this.cancelled && (checkpointInterval > 0 || checkpoint != null || this.checkpointWritten)) {
+				writeCheckpoint(Checkpoint.complete(run, seed, steps, config), checkpointFile);
+			}
+			awaitCheckpoint();
 			this.endingTime = System.currentTimeMillis();
-			System.out.println("Needed time: " + ((endingTime - startingTime)/1000) + " sec");
+			this.progress.runFinished(run, lastStep, System.nanoTime() - this.startingNanos, lastStep < steps - 1);
+		} catch (Throwable e) {
+			// a failed run releases its files and the writer thread of its output, the files end where the failure happened
+			this.s.abort();
+			try {
+				awaitCheckpoint();
+			} catch (IOException checkpointError) {
+				e.addSuppressed(checkpointError);
+			}
+			throw e;
+		} finally {
+			if (this.pool != null) {
+				this.pool.shutdown();
+				this.pool = null;
+			}
+		}
+	}
+
+	// the population of every site and the counters of the step that is finished
+	private StepSummary summarizeStep(int step, int steps) {
+		int[] sitePopulations = new int[this.rs.getNumberMigrationSites() + 1];
+		double[][] distribution = new double[sitePopulations.length][];
+		for (int site = 0; site < sitePopulations.length; site++) {
+			sitePopulations[site] = this.ps.getCells(site).size();
+			distribution[site] = this.ps.getDistribution()[site].clone();
 		}
+		this.sitePopulations = sitePopulations;
+		this.distribution = distribution;
+		return new StepSummary(this.run, step, steps, sitePopulations, this.counterOffspring, this.counterMigrations,
+				this.counterAboveCarryingCapacity, this.treatmentCancerOn, this.ATon, System.nanoTime() - this.startingNanos);
 	}
 
 
 
+	// writes a checkpoint if one was requested and waits while the simulation is paused, called once the outputs of the step are stored
+	private void checkpointOrPause(SimulationConfig config, int run, long seed, int step, File checkpointFile) throws IOException {
+		long pauseStart = System.nanoTime();
+		long checkpointNanos = 0;
+		while (true) {
+			if (this.checkpointRequested) {
+				this.checkpointRequested = false;
+				checkpointNanos += takeCheckpoint(config, run, seed, step, checkpointFile);
+			}
+			synchronized (this.pauseLock) {
+				if (this.checkpointRequested) {
+					continue;
+				}
+				if (!this.paused || this.cancelled) {
+					break;
+				}
+				try {
+					this.pauseLock.wait();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new IOException("Interrupted while the simulation was paused", e);
+				}
+			}
+		}
+		this.pausedNanos += System.nanoTime() - pauseStart - checkpointNanos;
+	}
+
+	// takes a checkpoint of the state after the outputs of the step and hands it to the writer, returns the time it took
+	private long takeCheckpoint(SimulationConfig config, int run, long seed, int step, File file) throws IOException {
+		PhaseEvent phase = PhaseEvent.start(run, step, Phase.CHECKPOINT);
+		this.checkpointWritten = true;
+		writeCheckpoint(Checkpoint.take(run, seed, step, config, this.treatmentCancerOn, this.ATon, this.killingSensitive, this.rs,
+				this.ps, this.s.checkpoint()), file);
+		long nanos = phase.stop();
+		this.metrics.add(Phase.CHECKPOINT, nanos);
+		return nanos;
+	}
+
+	// writes the checkpoint in the background once the previous one is written
+	private void writeCheckpoint(Checkpoint checkpoint, File file) throws IOException {
+		awaitCheckpoint();
+		this.pendingCheckpoint = checkpoint.writeAsync(file);
+	}
+	
+	private void awaitCheckpoint() throws IOException {
+		if (this.pendingCheckpoint == null) {
+			return;
+		}
+		try {
+			this.pendingCheckpoint.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while writing the checkpoint", e);
+		} catch (ExecutionException e) {
+			throw new IOException("Writing the checkpoint failed: " + e.getCause().getMessage(), e.getCause());
+		} finally {
+			this.pendingCheckpoint = null;
+		}
+	}
+
 	//computation (steps)
 	/**
 	 * <p>
@@ -160,7 +403,6 @@ public class Controller {
 	 * @param steps The total number of steps to execute in this simulation.
 	 * @throws IOException Exceptiont thrown for any error.
 	 */
-	@SuppressWarnings("unchecked")
 	public void performStep(int currentStep, int steps) throws IOException{
 		//Counter for statistics
 		int counterAboveCarryingCapacity = 0;
@@ -175,6 +417,9 @@ public class Controller {
 
 		//if MTD treatment is on
 		if (currentStep >= this.rs.getCancerTreatmentStep() && this.rs.getCancerTreatmentStep() != -1) {
+			if (!treatmentCancerOn) {
+				this.progress.treatmentChanged(this.run, currentStep, true, false);
+			}
 			treatmentCancerOn = true;
 			killingSensitive = this.rs.getKillingSensitive();
 		} 
@@ -186,14 +431,14 @@ public class Controller {
 				treatmentCancerOn = true;
 				ATon = true;
 				killingSensitive = this.rs.getKillingSensitive();
-				System.out.println("Adaptive Treatment started at step " + currentStep);
+				this.progress.treatmentChanged(this.run, currentStep, true, true);
 			} else {
 				if (treatmentCancerOn) {
 					// check whether tumor size <= 50%
 					if (this.ps.getCurrentPopulationSize() <= this.ps.getInitialPopulationSize() *this.rs.getATstopTreatment()) {
 						treatmentCancerOn = false;
 						ATon = false;
-						System.out.println("Adaptive Treatment stopped at step " + currentStep);
+						this.progress.treatmentChanged(this.run, currentStep, false, true);
 					}
 				} else {
 					// check whether tumor size >= 100% of reference 
@@ -203,7 +448,7 @@ public class Controller {
 						killingSensitive = this.rs.getKillingSensitive();
 						//this.ATpopulationSizeReference = this.ps.getCurrentPopulationSize();
 						this.rs.setATadaptiveStep(currentStep);
-						System.out.println("Again Adaptive Treatment started at step " + currentStep);
+						this.progress.treatmentChanged(this.run, currentStep, true, true);
 					}
 				}
 			}
@@ -216,149 +461,308 @@ public class Controller {
 			probToMigrate = this.rs.getProbToMigrateDuringTreatment();
 		}
 		double survivalAtDestination = this.rs.getSurvivalDestination();
-		//we have an array of arraylists (array because we have 8 sites and tumor and arraylist because we have varying number of inds at these locations)
-		ArrayList<Individual>[] survivingIndsAllSites = (ArrayList<Individual>[]) new ArrayList[numberSites];
-		ArrayList<Individual>[] newFieldAllSites = (ArrayList<Individual>[]) new ArrayList[numberSites];
-		
-		for (int site = 0; site < numberSites;site++) {
-			newFieldAllSites[site] = new ArrayList<Individual>();
-			survivingIndsAllSites[site] = new ArrayList<Individual>();
-		}
-		
-		for (int site = 0; site < numberSites; site++) {
-			ArrayList<Individual> cellsCurrentSite = ps.getIndividuals(site);
-			System.out.println("site " + site + " size " + cellsCurrentSite.size());
-			for (int i = 0; i < cellsCurrentSite.size(); i++) {
-				//natural death probability
-				if (RandomVariable.getDouble() > deathProb) {
-					Individual ind = cellsCurrentSite.get(i);
-					//individual survives if no cancer treatment or resistant type or sensitive, but coins says it survives
-					if (!treatmentCancerOn || ind.getType() == 2 || RandomVariable.getDouble() > killingSensitive) { 
-						if (ind.getInvasive()) {
-							if (RandomVariable.getDouble() < probToMigrate) {
-								if (RandomVariable.getDouble() < survivalAtDestination) {
-									int newSite = RandomVariable.getInt(numberSites-1) + 1;
-									newFieldAllSites[newSite].add(ind);
-
-									// new position of migrating cell
-									double[] positionNewSite = this.rs.getSiteLocation(newSite);
-									double r2 = this.rs.getInteractionRadius() * Math.sqrt(RandomVariable.getDouble());
-									double theta2 = 2 * Math.PI * RandomVariable.getDouble();
-									ind.setPosition(positionNewSite[0] + r2 * Math.cos(theta2),
-											positionNewSite[1] + r2 * Math.sin(theta2));
-
-									counterMigrations += 1;
-								}
-							} else {
-								survivingIndsAllSites[site].add(ind);
-							}
-						} else {
-							survivingIndsAllSites[site].add(ind);
-						}
-					}
-				}
-			}
-		}
-		
+		// the sites evolve independently within a step: death/migration runs for all sites concurrently, migrants wait in the
+		// inboxes of their destination until all sites are done, then the interaction runs for all sites concurrently
+		final boolean treatmentOn = this.treatmentCancerOn;
+		final double killing = this.killingSensitive;
+		final double migrationProb = probToMigrate;
+		PhaseEvent phase = PhaseEvent.start(this.run, currentStep, Phase.DEATH_MIGRATION);
+		forEachSite(numberSites, site -> this.siteSteppers[site].deathAndMigration(currentStep, ps.getCells(site), this.siteSteppers,
+				deathProb, treatmentOn, killing, migrationProb, survivalAtDestination));
+		this.metrics.add(Phase.DEATH_MIGRATION, phase.stop());
 		
 		//**************
 		// Interaction
 		//**************
 		
-		// Individuals need to interact in random order:
+		phase = PhaseEvent.start(this.run, currentStep, Phase.INTERACTION);
+		forEachSite(numberSites, site -> {
+			this.siteSteppers[site].receiveMigrants();
+			if (this.options.isIntraSiteParallel()) {
+				this.siteSteppers[site].interactTiled(currentStep, this.pool);
+			} else {
+				this.siteSteppers[site].interact(currentStep);
+			}
+		});
+		this.metrics.add(Phase.INTERACTION, phase.stop());
+		
 		for (int i = 0; i < numberSites; i++) {
-			Collections.shuffle(survivingIndsAllSites[i]);
+			SiteStepper stepper = this.siteSteppers[i];
+			newField[i] = stepper.getNewField();
+			survivingCells[i] = stepper.getSurvivingCells();
+			counterAboveCarryingCapacity += stepper.getCounterAboveCarryingCapacity();
+			counterOffspring += stepper.getCounterOffspring();
+			counterMigrations += stepper.getCounterMigrations();
+			this.metrics.add(Phase.SHUFFLE, stepper.getShuffleNanos());
+			this.metrics.add(Phase.SITE_INTERACTION, stepper.getInteractionNanos());
 		}
-		
-		// surviving inds will not be touched anymore. From this list, we get the adults that interact
-		// newField contains the newborns only -> will be used for density check together with surviving inds list
-		
-		double interactionRadius = rs.getInteractionRadius();
-		
-		for (int site = 0; site < numberSites; site++) {
-			ArrayList<Individual> survivingIndsCurrentSite = survivingIndsAllSites[site];
-			for (Individual ind : survivingIndsCurrentSite) {
-				ArrayList<Individual> possibleNeighbors = new ArrayList<Individual>();
-				int density = 0;
-				double xInd = ind.getX();
-				double yInd = ind.getY();
-
-				for (Individual possibleNeighbor : survivingIndsCurrentSite) {
-					double xNei = possibleNeighbor.getX();
-					double yNei = possibleNeighbor.getY();
-					double distance = Math.sqrt((xInd - xNei) * (xInd - xNei) + (yInd - yNei) * (yInd - yNei));
-					if (distance < interactionRadius) {
-						possibleNeighbors.add(possibleNeighbor);
-						density++;
-					}
-				}
-				for (Individual newborn : newFieldAllSites[site]) {
-					double xNei = newborn.getX();
-					double yNei = newborn.getY();
-					double distance = Math.sqrt((xInd - xNei) * (xInd - xNei) + (yInd - yNei) * (yInd - yNei));
-					if (distance < interactionRadius) {
-						density++;
-					}
-				}
-
-				// check if density is smaller carrying capacity
-				double offspringRadius = this.rs.getOffspringRadius();
-				if (density / (Math.PI * offspringRadius * offspringRadius) < this.rs.getCarryingCapacity()) {
-					Individual matingPartner;
-					if (possibleNeighbors.size() > 1) {
-						// make sure that individual does not interact with itself
-						while (true) {
-							matingPartner = possibleNeighbors.get(RandomVariable.getInt(possibleNeighbors.size()));
-							if (matingPartner.getType() != ind.getType()
-									|| Math.abs(matingPartner.getX() - ind.getX()) > 0.000000001
-									|| Math.abs(matingPartner.getY() - ind.getY()) > 0.000000001) {
-								break;
-							}
-						}
-						if (rs.getPayoffMatrixEntry(ind.getType(), matingPartner.getType()) > RandomVariable.getDouble()) {
-							// place offspring in offspring radius
-							Individual offspring = new Individual();
-							offspring.setType(ind.getType());
-							if (RandomVariable.getDouble() < this.rs.getFractionInvasiveCells()) {
-								offspring.setInvasive(true);
-							} else {
-								offspring.setInvasive(false);
-							}
-							
-
-							double r2 = offspringRadius * Math.sqrt(RandomVariable.getDouble());
-							double theta2 = 2 * Math.PI * RandomVariable.getDouble();
-							offspring.setPosition(ind.getX() + r2 * Math.cos(theta2),
-									ind.getY() + r2 * Math.sin(theta2));
-
-							
-							//DEBUGGING:
-							// System.out.println("Payoff: " + rs.getPayoffMatrixEntry(ind.getType(),
-							// matingPartner.getType()) + " Individual of type " + ind.getType() + " at " +
-							// ind.getX() + "," + ind.getY() + " interacts with individual of type "+
-							// matingPartner.getType() + " at " + matingPartner.getX() + "," +
-							// matingPartner.getY() + " and produces offspring of type " +
-							// offspring.getType() + " at " + offspring.getX() + "," + offspring.getY());
-							
-							newFieldAllSites[site].add(offspring);
-							counterOffspring++;
-						}
-					}
-				} else {
-					counterAboveCarryingCapacity++;
-				}
+		this.counterOffspring = counterOffspring;
+		this.counterMigrations = counterMigrations;
+		this.counterAboveCarryingCapacity = counterAboveCarryingCapacity;
+		phase = PhaseEvent.start(this.run, currentStep, Phase.UPDATE_POPULATION);
+		ps.updatePopulation(newField, survivingCells);
+		this.metrics.add(Phase.UPDATE_POPULATION, phase.stop() - ps.getDistributionNanos());
+		this.metrics.add(Phase.UPDATE_DISTRIBUTION, ps.getDistributionNanos());
+		phase = PhaseEvent.start(this.run, currentStep, Phase.SAVE);
+		s.saveStatistics(counterAboveCarryingCapacity, counterOffspring, ATon);
+		this.metrics.add(Phase.SAVE, phase.stop());
+	}
+	
+	/**
+	 * <p>
+	 * Executes an action for every site. The sites are processed concurrently on the fork-join pool if there is one,
+	 * the function returns once all sites are done.
+	 * </p>
+	 * @param numberSites The number of sites including the solid tumor.
+	 * @param action The action to execute for a site.
+	 */
+	private void forEachSite(int numberSites, IntConsumer action) {
+		if (this.pool == null) {
+			for (int site = 0; site < numberSites; site++) {
+				action.accept(site);
 			}
+			return;
 		}
-		int populationSize = 0;
-		for (int i = 0; i < numberSites; i++) {
-			populationSize += newFieldAllSites[i].size();
-			populationSize += survivingIndsAllSites[i].size();
+		ForkJoinTask<?>[] tasks = new ForkJoinTask<?>[numberSites];
+		for (int site = 0; site < numberSites; site++) {
+			final int currentSite = site;
+			tasks[site] = this.pool.submit(() -> action.accept(currentSite));
 		}
-		System.out.println("Population size at the end of the step: " + populationSize);
-		System.out.println("Individuals that could not interact: " + counterAboveCarryingCapacity);
-		System.out.println("Successful migrations: " + counterMigrations);
-		ps.updatePopulation(newFieldAllSites, survivingIndsAllSites);
-		s.saveStatistics(counterAboveCarryingCapacity, counterOffspring, ATon);
+		for (ForkJoinTask<?> task : tasks) {
+			task.join();
+		}
+	}
+	
+	/**
+	 * <p>
+	 * Setter function to set how many sites are stepped concurrently. The default is the number of available processors.
+	 * </p>
+	 * @param parallelism The maximal number of threads, 1 steps all sites on the calling thread.
+	 */
+	public void setParallelism(int parallelism) {
+		this.parallelism = Math.max(1, parallelism);
+	}
+	
+	/**
+	 * <p>
+	 * Setter function to set the seed of the random number generator. The seed of every simulation run is derived from it and the
+	 * index of the run, so seeded runs are reproducible. The seed is stored in the Settings file of every run.
+	 * </p>
+	 * @param seed The seed, null to draw a new seed for every call of run.
+	 */
+	public void setSeed(Long seed) {
+		this.seed = seed;
+	}
+	
+	/**
+	 * <p>
+	 * Setter function for how the runs are stored, checkpointed and reported. The options are read when a run starts.
+	 * </p>
+	 * @param options The options, default options if null.
+	 */
+	public void setOptions(RunOptions options) {
+		this.options = options != null ? options : new RunOptions();
+	}
+	
+	/**
+	 * <p>
+	 * Getter function to get how the runs are stored, checkpointed and reported.
+	 * </p>
+	 * @return The options.
+	 */
+	public RunOptions getOptions() {
+		return this.options;
+	}
+	
+	/**
+	 * <p>
+	 * Getter function to get the time of the phases of all steps this Controller computed, see SimulationMetrics. The metrics may be
+	 * read while a simulation runs.
+	 * </p>
+	 * @return The metrics.
+	 */
+	public SimulationMetrics getMetrics() {
+		return this.metrics;
+	}
+	
+	/**
+	 * <p>
+	 * Stops the simulation after the current step. The files of the current run are finished, the remaining runs are not started.
+	 * Can be called from any thread.
+	 * </p>
+	 */
+	public void cancel() {
+		this.cancelled = true;
+		synchronized (this.pauseLock) {
+			this.pauseLock.notifyAll();
+		}
+	}
+	
+	/**
+	 * <p>
+	 * Pauses the simulation before the next step or resumes it. The outputs of the step the simulation waits at are stored already,
+	 * so a checkpoint requested while it is paused continues the run at that step. Can be called from any thread.
+	 * </p>
+	 * @param paused Whether the simulation waits before the next step.
+	 */
+	public void setPaused(boolean paused) {
+		synchronized (this.pauseLock) {
+			this.paused = paused;
+			this.pauseLock.notifyAll();
+		}
+	}
+	
+	/**
+	 * <p>
+	 * Getter function to get if the simulation is paused.
+	 * </p>
+	 * @return The value if the simulation waits before the next step.
+	 */
+	public boolean isPaused() {
+		return this.paused;
+	}
+	
+	/**
+	 * <p>
+	 * Writes a checkpoint of the run in progress before its next step, also while the simulation is paused, independent of the
+	 * checkpoint interval. Can be called from any thread.
+	 * </p>
+	 */
+	public void requestCheckpoint() {
+		synchronized (this.pauseLock) {
+			this.checkpointRequested = true;
+			this.pauseLock.notifyAll();
+		}
+	}
+	
+	/**
+	 * <p>
+	 * Setter function for the number of steps from one stored step to the next in the run in progress, e.g. to store the locations
+	 * more often from now on. The next run starts with the gap of its configuration again, and so does a run that resumes from a
+	 * checkpoint. Can be called from any thread.
+	 * </p>
+	 * @param gap The number of steps, at least 1.
+	 */
+	public void setGap(int gap) {
+		if (gap < 1) {
+			throw new IllegalArgumentException("The gap must be at least 1: " + gap);
+		}
+		this.gap = gap;
+	}
+	
+	/**
+	 * <p>
+	 * Getter function to get the number of steps from one stored step to the next in the run in progress.
+	 * </p>
+	 * @return The number of steps.
+	 */
+	public int getGap() {
+		return this.gap;
+	}
+	
+	/**
+	 * <p>
+	 * Getter function to get the index of the run in progress.
+	 * </p>
+	 * @return The index of the run.
+	 */
+	public int getRun() {
+		return this.run;
+	}
+	
+	/**
+	 * <p>
+	 * Getter function to get the index of the last finished step of the run in progress. Can be called from any thread.
+	 * </p>
+	 * @return The index of the step, -1 before the first step.
+	 */
+	public int getStep() {
+		return this.step;
+	}
+	
+	/**
+	 * <p>
+	 * Getter function to get the number of steps of the run in progress.
+	 * </p>
+	 * @return The number of steps.
+	 */
+	public int getSteps() {
+		return this.steps;
+	}
+	
+	/**
+	 * <p>
+	 * Getter function to get the number of cells at every site after the last finished step. Can be called from any thread.
+	 * </p>
+	 * @return The number of cells indexed by site, empty before the first step.
+	 */
+	public int[] getSitePopulations() {
+		return this.sitePopulations.clone();
+	}
+	
+	/**
+	 * <p>
+	 * Getter function to get the number of cells of every type at every site after the last finished step. Can be called from any
+	 * thread.
+	 * </p>
+	 * @return The number of cells indexed by site and type, empty before the first step.
+	 */
+	public double[][] getDistribution() {
+		double[][] distribution = this.distribution.clone();
+		for (int site = 0; site < distribution.length; site++) {
+			distribution[site] = distribution[site].clone();
+		}
+		return distribution;
+	}
+	
+	/**
+	 * <p>
+	 * Getter function to get the mean number of steps per second of the run in progress, not counting the time it was paused.
+	 * </p>
+	 * @return The steps per second, 0 before the first step.
+	 */
+	public double getStepsPerSecond() {
+		return this.stepsPerSecond;
+	}
+	
+	/**
+	 * <p>
+	 * Getter function to get if the cancer treatment is on.
+	 * </p>
+	 * @return The value if the treatment is on in the current step.
+	 */
+	public boolean isTreatmentCancerOn() {
+		return this.treatmentCancerOn;
+	}
+	
+	/**
+	 * <p>
+	 * Getter function to get if the adaptive treatment is on.
+	 * </p>
+	 * @return The value if the adaptive treatment is on in the current step.
+	 */
+	public boolean isATon() {
+		return this.ATon;
+	}
+	
+	/**
+	 * <p>
+	 * Getter function to get if the simulation was cancelled.
+	 * </p>
+	 * @return The value if cancel was called.
+	 */
+	public boolean isCancelled() {
+		return this.cancelled;
+	}
+	
+	/**
+	 * <p>
+	 * Getter function to get the current population size of the run in progress. Can be called from any thread.
+	 * </p>
+	 * @return The number of cells at all sites.
+	 */
+	public int getCurrentPopulationSize() {
+		return this.populationSize;
 	}
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,183 @@
+package Tools;
+
+import java.util.Arrays;
+
+
+/**
+ * <p>
+ * Class DensityGrid counts the cells of every site in a square grid of bins around the center of the site, per type and for the
+ * invasive cells. The counts of all sites are computed in one pass over the population and their number only depends on the grid,
+ * not on the number of cells. Cells outside of the grid are counted in the nearest border bin, so the counts of a site always add
+ * up to its population.
+ * </p>
+ * <p>
+ * The counts are stored as int[site][layer][row][column] in one flat array. Layer 0 holds the invasive cells, layer t the cells of
+ * type t (1 to numberTypes). Row 0 is the lowest Y axis location, column 0 the lowest X axis location.
+ * </p>
+ */
+public class DensityGrid {
+
+	private int bins;				//number of rows and columns
+	private double extent;			//half of the width of the grid
+	private int numberTypes;
+	private double[][] centers;		//X and Y axis location of the center of every site
+	private int[] counts;
+
+	/**
+	 * <p>
+	 * Constructor for the DensityGrid class.
+	 * </p>
+	 * @param bins The number of rows and columns of the grid of every site.
+	 * @param extent The distance from the center of a site to the border of its grid, the grid is 2*extent wide.
+	 * @param numberTypes The number of cell types.
+	 * @param centers The X and Y axis location of the center of every site.
+	 */
+	public DensityGrid(int bins, double extent, int numberTypes, double[][] centers) {
+		if (bins < 1 || !(extent > 0)) {
+			throw new IllegalArgumentException("The density grid needs at least one bin and a positive extent");
+		}
+		this.bins = bins;
+		this.extent = extent;
+		this.numberTypes = numberTypes;
+		this.centers = centers;
+		this.counts = new int[centers.length * getLayers() * bins * bins];
+	}
+
+	/**
+	 * <p>
+	 * Constructor for a DensityGrid around the sites of a rule set. Without a given extent, the grids of neighboring sites touch but
+	 * do not overlap, or for a single site the grid is twice the size of the initial tumor.
+	 * </p>
+	 * @param bins The number of rows and columns of the grid of every site.
+	 * @param extent The distance from the center of a site to the border of its grid, 0 to derive it from the sites.
+	 * @param rs The rule set of the simulation.
+	 * @param initTumorsize The radius of the initial tumor.
+	 */
+	public DensityGrid(int bins, double extent, RuleSet rs, double initTumorsize) {
+		this(bins, extent > 0 ? extent : defaultExtent(rs, initTumorsize), rs.getNumberTypes(), siteCenters(rs));
+	}
+
+	private static double defaultExtent(RuleSet rs, double initTumorsize) {
+		if (rs.getNumberMigrationSites() > 0) {
+			return rs.getSiteLocation(1)[1] / 2;
+		}
+		return 2 * Math.max(initTumorsize, 1);
+	}
+
+	private static double[][] siteCenters(RuleSet rs) {
+		double[][] centers = new double[rs.getNumberMigrationSites() + 1][];
+		for (int site = 0; site < centers.length; site++) {
+			centers[site] = rs.getSiteLocation(site).clone();
+		}
+		return centers;
+	}
+
+	/**
+	 * <p>
+	 * Counts the cells of all sites, the previous counts are replaced.
+	 * </p>
+	 * @param cellsAllSites The cells of every site.
+	 */
+	public void count(CellStore[] cellsAllSites) {
+		Arrays.fill(counts, 0);
+		int area = bins * bins;
+		double scale = bins / (2 * extent);
+		for (int site = 0; site < cellsAllSites.length; site++) {
+			CellStore cells = cellsAllSites[site];
+			int base = site * getLayers() * area;
+			double left = centers[site][0] - extent;
+			double bottom = centers[site][1] - extent;
+			for (int i = 0; i < cells.size(); i++) {
+				int column = clamp((int) Math.floor((cells.getX(i) - left) * scale));
+				int row = clamp((int) Math.floor((cells.getY(i) - bottom) * scale));
+				int bin = base + row * bins + column;
+				int type = cells.getType(i);
+				if (type >= 1 && type <= numberTypes) {
+					counts[bin + type * area]++;
+				}
+				if (cells.isInvasive(i)) {
+					counts[bin]++;
+				}
+			}
+		}
+	}
+
+	private int clamp(int bin) {
+		return bin < 0 ? 0 : (bin >= bins ? bins - 1 : bin);
+	}
+
+	/**
+	 * <p>
+	 * Getter function to get the count of one bin.
+	 * </p>
+	 * @param site The site.
+	 * @param layer 0 for the invasive cells, otherwise the type of the cells.
+	 * @param row The row of the bin.
+	 * @param column The column of the bin.
+	 * @return The number of cells in the bin.
+	 */
+	public int getCount(int site, int layer, int row, int column) {
+		return counts[((site * getLayers() + layer) * bins + row) * bins + column];
+	}
+
+	/**
+	 * <p>
+	 * Getter function to get the counts of all bins as int[site][layer][row][column] in one array.
+	 * </p>
+	 * @return The counts, owned by the grid and overwritten by the next count.
+	 */
+	public int[] getCounts() {
+		return counts;
+	}
+
+	/**
+	 * <p>
+	 * Getter function to get the number of rows and columns of the grid of a site.
+	 * </p>
+	 * @return The number of bins per side.
+	 */
+	public int getBins() {
+		return bins;
+	}
+
+	/**
+	 * <p>
+	 * Getter function to get the distance from the center of a site to the border of its grid.
+	 * </p>
+	 * @return The extent.
+	 */
+	public double getExtent() {
+		return extent;
+	}
+
+	/**
+	 * <p>
+	 * Getter function to get the number of layers, the number of types plus one for the invasive cells.
+	 * </p>
+	 * @return The number of layers.
+	 */
+	public int getLayers() {
+		return numberTypes + 1;
+	}
+
+	/**
+	 * <p>
+	 * Getter function to get the number of sites.
+	 * </p>
+	 * @return The number of sites, including the primary tumor.
+	 */
+	public int getSites() {
+		return centers.length;
+	}
+
+	/**
+	 * <p>
+	 * Getter function to get the center of the grid of a site.
+	 * </p>
+	 * @param site The site.
+	 * @return The X and Y axis location of the center.
+	 */
+	public double[] getCenter(int site) {
+		return centers[site];
+	}
+}
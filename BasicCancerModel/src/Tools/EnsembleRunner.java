@@ -0,0 +1,225 @@
+package Tools;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * <p>
+ * Class EnsembleRunner runs the simulation runs of a configuration concurrently instead of one after another.
+ * Every replicate gets its own Controller, so replicates share no state. A replicate is only started if the heap has room for it,
+ * which keeps large populations from running out of memory when many replicates run at once.
+ * The seed of every replicate is derived from the seed of the ensemble and the index of the run, so the files of every run are the same
+ * as if the runs were computed one after another.
+ * </p>
+ */
+public class EnsembleRunner {
+
+	private static final long BYTES_PER_CELL = 100;	//rough heap use of one cell, including the buffers of a step
+	private static final double MEMORY_HEADROOM = 2.0;
+
+	private int parallelism;		//number of replicates that run at the same time
+	private int intraReplicateParallelism;	//threads used within one replicate
+	private long memoryPerReplicate;	//heap needed to start a replicate in bytes, 0 to estimate it from the population size
+	private Long seed;
+	private RunOptions options = new RunOptions();
+	private final Object lock = new Object();
+	private int running;
+	private int largestPopulation;
+	private double replicatesPerHour;
+	private List<Controller> controllers = new ArrayList<Controller>();	//replicates that are running
+	private Throwable failure;		//first exception of a replicate of the running ensemble
+
+	/**
+	 * <p>
+	 * Constructor for the EnsembleRunner class. The available processors are split evenly between the replicates.
+	 * </p>
+	 * @param parallelism The number of replicates that run at the same time.
+	 */
+	public EnsembleRunner(int parallelism) {
+		this.parallelism = Math.max(1, parallelism);
+		this.intraReplicateParallelism = Math.max(1, Runtime.getRuntime().availableProcessors() / this.parallelism);
+	}
+
+	/**
+	 * <p>
+	 * Runs all simulation runs of the configuration and waits until all of them are finished. If a replicate fails, no further
+	 * replicate is started, the running ones are cancelled and the ensemble waits for them before it throws.
+	 * </p>
+	 * @param config The parameters of the simulation.
+	 * @throws IOException The first exception thrown by any of the replicates.
+	 */
+	public void run(final SimulationConfig config) throws IOException {
+		final long ensembleSeed = this.seed != null ? this.seed : RandomVariable.newSeed();
+		synchronized (lock) {
+			this.largestPopulation = config.getInitPopulationSize();
+			this.controllers.clear();
+			this.failure = null;
+		}
+		long startingTime = System.nanoTime();
+
+		ExecutorService executor = Executors.newFixedThreadPool(this.parallelism);
+		try {
+			for (int run = 0; run < config.getSimulationRuns(); run++) {
+				final int replicate = run;
+				final Controller c = new Controller();
+				c.setParallelism(this.intraReplicateParallelism);
+				c.setSeed(ensembleSeed);
+				c.setOptions(this.options);
+				if (!acquire(c)) {
+					break;
+				}
+				executor.submit(() -> {
+					try {
+						c.runReplicate(config, replicate, ensembleSeed);
+					} catch (IOException | RuntimeException | Error e) {
+						failed(e);
+						throw e;
+					} finally {
+						release(c);
+					}
+					return null;
+				});
+			}
+			executor.shutdown();
+			executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			cancelAll();
+			throw new IOException("Ensemble was interrupted", e);
+		} finally {
+			executor.shutdown();
+		}
+
+		Throwable failure;
+		synchronized (lock) {
+			failure = this.failure;
+			this.failure = null;
+		}
+		if (failure instanceof IOException) {
+			throw (IOException) failure;
+		} else if (failure instanceof Error) {
+			throw (Error) failure;
+		} else if (failure != null) {
+			throw new IOException(failure);
+		}
+
+		long elapsedNanos = System.nanoTime() - startingTime;
+		this.replicatesPerHour = config.getSimulationRuns() / (Math.max(1000000L, elapsedNanos) / 3.6e12);
+		this.options.getProgressListener().ensembleFinished(config.getSimulationRuns(), this.parallelism, elapsedNanos);
+	}
+
+	// waits until the heap has room for another replicate, one replicate is always allowed to run; false if a replicate failed
+	private boolean acquire(Controller c) throws InterruptedException {
+		synchronized (lock) {
+			while (failure == null && (running >= parallelism || (running > 0 && freeMemory() < requiredMemory()))) {
+				lock.wait(1000);
+			}
+			if (failure != null) {
+				return false;
+			}
+			running++;
+			controllers.add(c);
+			return true;
+		}
+	}
+
+	private void release(Controller c) {
+		synchronized (lock) {
+			largestPopulation = Math.max(largestPopulation, c.getCurrentPopulationSize());
+			controllers.remove(c);
+			running--;
+			lock.notifyAll();
+		}
+	}
+
+	// the first failure stops the ensemble: the running replicates are cancelled after their current step
+	private void failed(Throwable e) {
+		synchronized (lock) {
+			if (failure == null) {
+				failure = e;
+			}
+			lock.notifyAll();
+		}
+		cancelAll();
+	}
+
+	private void cancelAll() {
+		synchronized (lock) {
+			for (Controller c : controllers) {
+				c.cancel();
+			}
+		}
+	}
+
+	private long requiredMemory() {
+		if (this.memoryPerReplicate > 0) {
+			return this.memoryPerReplicate;
+		}
+		int population = largestPopulation;
+		for (Controller c : controllers) {
+			population = Math.max(population, c.getCurrentPopulationSize());
+		}
+		return (long) (BYTES_PER_CELL * population * MEMORY_HEADROOM);
+	}
+
+	private static long freeMemory() {
+		Runtime r = Runtime.getRuntime();
+		return r.maxMemory() - (r.totalMemory() - r.freeMemory());
+	}
+
+	/**
+	 * <p>
+	 * Setter function for the number of threads used within one replicate.
+	 * </p>
+	 * @param intraReplicateParallelism The number of threads, 1 to step every replicate on its own thread only.
+	 */
+	public void setIntraReplicateParallelism(int intraReplicateParallelism) {
+		this.intraReplicateParallelism = Math.max(1, intraReplicateParallelism);
+	}
+
+	/**
+	 * <p>
+	 * Setter function for the heap a replicate needs. A replicate is only started if this much heap is free.
+	 * </p>
+	 * @param memoryPerReplicate The heap in bytes, 0 to estimate it from the largest population seen so far.
+	 */
+	public void setMemoryPerReplicate(long memoryPerReplicate) {
+		this.memoryPerReplicate = memoryPerReplicate;
+	}
+
+	/**
+	 * <p>
+	 * Setter function for the seed of the ensemble.
+	 * </p>
+	 * @param seed The seed, null to draw a new one for every ensemble.
+	 */
+	public void setSeed(Long seed) {
+		this.seed = seed;
+	}
+
+	/**
+	 * <p>
+	 * Setter function for how the runs are stored, checkpointed and reported, see RunOptions. The options are shared by all runs,
+	 * the progress listener is also informed about the end of the ensemble.
+	 * </p>
+	 * @param options The options, default options if null.
+	 */
+	public void setOptions(RunOptions options) {
+		this.options = options != null ? options : new RunOptions();
+	}
+
+	/**
+	 * <p>
+	 * Getter function to get the throughput of the last ensemble.
+	 * </p>
+	 * @return The number of replicates finished per hour.
+	 */
+	public double getReplicatesPerHour() {
+		return this.replicatesPerHour;
+	}
+}
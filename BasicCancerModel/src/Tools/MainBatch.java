@@ -0,0 +1,133 @@
+package Tools;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+
+/**
+ * <p>
+ * Class MainBatch is the headless starting point of this simulation application. It reads the parameters the GUI passes to Controller.run
+ * from properties files and command line arguments and runs the simulation without a display. No AWT or Swing class is loaded.
+ * </p>
+ * <p>
+ * Usage: MainBatch [file.properties ...] [key=value ...]<br>
+ * Every properties file is one job, the jobs are run one after another. The key=value arguments override the values of every file,
+ * without a file they form a single job. The keys are those of SimulationConfig.fromProperties and RunOptions.fromProperties, in
+ * addition seed (the seed of all runs, drawn at random if missing), replicateParallelism (number of simulation runs computed at the same
+ * time) and parallelism (threads used within one run).
+ * intraSiteParallel (true to split the interactions within a site between the threads) applies to every run of the job.
+ * snapshotFormat (text, binary, delta or none) selects the format of the locations, keyframeInterval the number of stored steps from one
+ * keyframe to the next in the delta format. densityBins (0 by default) stores the number of cells per type in a grid of densityBins x
+ * densityBins bins around every site, densityExtent is the distance from the center of a site to the border of its grid and
+ * densityFormat (text or binary) the format of the densities. compression (none, gzip or lz) compresses Location.m, Distribution.m and
+ * Density.m in blocks. initialStep selects the stored step of the file given as filePath the runs start from, the last one by default.
+ * checkpointInterval (0 by default) writes a checkpoint of every run after that many stored steps, with resume=true the runs continue
+ * from their checkpoints instead of starting over. printMetrics=true prints the time of the phases of the steps (see SimulationMetrics)
+ * after a job that is run by a single Controller. progress (console or none) selects whether the progress of the runs is printed,
+ * console by default, progressInterval is the minimal time between two printed steps of a run in milliseconds (1000 by default).
+ * Every run in progress can be inspected and steered with JMX tools, see SimulationControl.
+ * If any key starts with sweep. the job is a ParameterSweep whose results go to savePath, parallelism is then the number of
+ * simulations run at the same time.
+ * </p>
+ */
+public class MainBatch {
+
+	/**
+	 * Main function to start the application without GUI
+	 * @param args Properties files and key=value arguments
+	 */
+	public static void main(String[] args) {
+		System.setProperty("java.awt.headless", "true");
+		List<String> files = new ArrayList<String>();
+		Properties overrides = new Properties();
+		for (String arg : args) {
+			int eq = arg.indexOf('=');
+			if (eq > 0) {
+				overrides.setProperty(arg.substring(0, eq).trim(), arg.substring(eq + 1).trim());
+			} else if (arg.equals("-h") || arg.equals("--help")) {
+				System.out.println("Usage: MainBatch [file.properties ...] [key=value ...]");
+				return;
+			} else {
+				files.add(arg);
+			}
+		}
+		if (files.isEmpty()) {
+			files.add(null);
+		}
+
+		int failed = 0;
+		for (String file : files) {
+			try {
+				Properties p = new Properties();
+				if (file != null) {
+					try (InputStream in = new FileInputStream(file)) {
+						p.load(in);
+					}
+				}
+				p.putAll(overrides);
+				runJob(p);
+			} catch (IOException | IllegalArgumentException e) {
+				System.err.println("Error in job " + (file != null ? file : "<command line>") + ": " + e.getMessage());
+				failed++;
+			}
+		}
+		if (failed > 0) {
+			System.exit(1);
+		}
+	}
+
+	private static void runJob(Properties p) throws IOException {
+		RunOptions options = RunOptions.fromProperties(p);
+		for (String key : p.stringPropertyNames()) {
+			if (key.startsWith("sweep.")) {
+				ParameterSweep sweep = ParameterSweep.fromProperties(p);
+				if (p.containsKey("parallelism")) {
+					sweep.setParallelism((int) parseLong(p, "parallelism"));
+				}
+				sweep.setOptions(options);
+				sweep.run(p.getProperty("savePath", "."));
+				return;
+			}
+		}
+		SimulationConfig config = SimulationConfig.fromProperties(p);
+		Long seed = p.containsKey("seed") ? Long.valueOf(parseLong(p, "seed")) : null;
+		int replicateParallelism = (int) parseLong(p, "replicateParallelism", "1");
+		if (replicateParallelism > 1) {
+			EnsembleRunner runner = new EnsembleRunner(replicateParallelism);
+			runner.setSeed(seed);
+			runner.setOptions(options);
+			if (p.containsKey("parallelism")) {
+				runner.setIntraReplicateParallelism((int) parseLong(p, "parallelism"));
+			}
+			runner.run(config);
+		} else {
+			Controller c = new Controller();
+			c.setSeed(seed);
+			c.setOptions(options);
+			if (p.containsKey("parallelism")) {
+				c.setParallelism((int) parseLong(p, "parallelism"));
+			}
+			c.run(config);
+			if (Boolean.parseBoolean(p.getProperty("printMetrics", "false").trim())) {
+				System.out.print(c.getMetrics());
+			}
+		}
+	}
+
+	private static long parseLong(Properties p, String key) {
+		return parseLong(p, key, null);
+	}
+
+	private static long parseLong(Properties p, String key, String def) {
+		String value = p.getProperty(key, def).trim();
+		try {
+			return Long.parseLong(value);
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException("Invalid value for " + key + ": " + value, e);
+		}
+	}
+}
@@ -0,0 +1,354 @@
+package Tools;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.TreeSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicInteger;
+
+
+/**
+ * <p>
+ * Class ParameterSweep expands ranges, grids and Latin hypercube samples over the parameters of a simulation into jobs and runs them
+ * on a work-stealing pool. Every parameter read by SimulationConfig.fromProperties can be swept, e.g. payoff01, probToMigrate,
+ * killingSensitive or ATstartTreatment.
+ * </p>
+ * <p>
+ * The points of the sweep are the cartesian product of all grid dimensions, times the Latin hypercube samples if there are sampled
+ * dimensions. Every point is run simulationRuns times. The results go to one directory: point k is stored in the sub directory pointk,
+ * the file index.tsv lists the parameter values of every point.
+ * </p>
+ */
+public class ParameterSweep {
+
+	private Properties base;		//parameters that are the same for all points
+	private List<String> gridKeys = new ArrayList<String>();
+	private List<String[]> gridValues = new ArrayList<String[]>();
+	private List<String> sampledKeys = new ArrayList<String>();
+	private List<double[]> sampledRanges = new ArrayList<double[]>();	//lower and upper bound of every sampled dimension
+	private int samples = 1;		//number of Latin hypercube samples
+	private int parallelism = Runtime.getRuntime().availableProcessors();
+	private Long seed;
+	private RunOptions options = new RunOptions();
+
+	/**
+	 * <p>
+	 * Constructor for the ParameterSweep class.
+	 * </p>
+	 * @param base The parameters of all points, the swept parameters override them.
+	 */
+	public ParameterSweep(Properties base) {
+		this.base = base;
+	}
+
+	/**
+	 * <p>
+	 * Reads a sweep from properties. The keys sweep.&lt;parameter&gt; define the dimensions: a comma separated list of values is a grid,
+	 * "range from to count" is a grid of count evenly spaced values and "lhs from to" is sampled. sweep.samples gives the number of
+	 * Latin hypercube samples, sweep.seed the seed of the sampling and of the simulations. All other keys are the base parameters.
+	 * </p>
+	 * @param p The properties to read.
+	 * @return The sweep.
+	 * @throws IllegalArgumentException If a dimension cannot be parsed or sweeps a parameter SimulationConfig.fromProperties does not
+	 * know, the message names the key.
+	 */
+	public static ParameterSweep fromProperties(Properties p) {
+		Properties base = new Properties();
+		for (String key : p.stringPropertyNames()) {
+			if (!key.startsWith("sweep.")) {
+				base.setProperty(key, p.getProperty(key));
+			}
+		}
+		ParameterSweep sweep = new ParameterSweep(base);
+		for (String key : new TreeSet<String>(p.stringPropertyNames())) {
+			if (!key.startsWith("sweep.")) {
+				continue;
+			}
+			String name = key.substring("sweep.".length());
+			String value = p.getProperty(key).trim();
+			if (!name.equals("samples") && !name.equals("seed") && !SimulationConfig.isKey(name)) {
+				throw new IllegalArgumentException("Unknown parameter " + key);
+			}
+			try {
+				if (name.equals("samples")) {
+					sweep.setSamples(Integer.parseInt(value));
+				} else if (name.equals("seed")) {
+					sweep.setSeed(Long.valueOf(value));
+				} else if (value.startsWith("range")) {
+					String[] v = value.substring(5).trim().split("\\s+");
+					sweep.addRange(name, Double.parseDouble(v[0]), Double.parseDouble(v[1]), Integer.parseInt(v[2]));
+				} else if (value.startsWith("lhs")) {
+					String[] v = value.substring(3).trim().split("\\s+");
+					sweep.addSampledRange(name, Double.parseDouble(v[0]), Double.parseDouble(v[1]));
+				} else {
+					String[] v = value.split(",");
+					for (int i = 0; i < v.length; i++) {
+						v[i] = v[i].trim();
+					}
+					sweep.addValues(name, v);
+				}
+			} catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+				throw new IllegalArgumentException("Invalid value for " + key + ": " + value, e);
+			}
+		}
+		return sweep;
+	}
+
+	/**
+	 * <p>
+	 * Adds a grid dimension with the given values.
+	 * </p>
+	 * @param key The parameter.
+	 * @param values The values of the parameter.
+	 */
+	public void addValues(String key, String... values) {
+		gridKeys.add(key);
+		gridValues.add(values.clone());
+	}
+
+	/**
+	 * <p>
+	 * Adds a grid dimension with evenly spaced values, including both bounds.
+	 * </p>
+	 * @param key The parameter.
+	 * @param from The first value.
+	 * @param to The last value.
+	 * @param count The number of values.
+	 */
+	public void addRange(String key, double from, double to, int count) {
+		String[] values = new String[count];
+		for (int i = 0; i < count; i++) {
+			values[i] = format(key, count == 1 ? from : from + (to - from) * i / (count - 1));
+		}
+		addValues(key, values);
+	}
+
+	/**
+	 * <p>
+	 * Adds a dimension that is sampled by the Latin hypercube, i.e. every one of the setSamples strata between the bounds is used exactly once.
+	 * </p>
+	 * @param key The parameter.
+	 * @param from The lower bound.
+	 * @param to The upper bound.
+	 */
+	public void addSampledRange(String key, double from, double to) {
+		sampledKeys.add(key);
+		sampledRanges.add(new double[] {from, to});
+	}
+
+	/**
+	 * <p>
+	 * Expands the sweep into its points. The swept parameters of every point override the base parameters.
+	 * </p>
+	 * @return The parameters of all points.
+	 */
+	public List<Properties> expand() {
+		long sweepSeed = this.seed != null ? this.seed : RandomVariable.newSeed();
+		int sampleCount = sampledKeys.isEmpty() ? 1 : samples;
+		double[][] lhs = latinHypercube(sampleCount, sampledKeys.size(), RandomVariable.stream(sweepSeed, -1, 0, 0));
+
+		List<Properties> points = new ArrayList<Properties>();
+		int[] index = new int[gridKeys.size()];
+		while (true) {
+			for (int s = 0; s < sampleCount; s++) {
+				Properties p = new Properties();
+				p.putAll(base);
+				for (int d = 0; d < gridKeys.size(); d++) {
+					p.setProperty(gridKeys.get(d), gridValues.get(d)[index[d]]);
+				}
+				for (int d = 0; d < sampledKeys.size(); d++) {
+					double[] range = sampledRanges.get(d);
+					p.setProperty(sampledKeys.get(d), format(sampledKeys.get(d), range[0] + (range[1] - range[0]) * lhs[s][d]));
+				}
+				points.add(p);
+			}
+			// next combination of the grid, the last dimension changes fastest
+			int d = gridKeys.size() - 1;
+			while (d >= 0 && ++index[d] == gridValues.get(d).length) {
+				index[d] = 0;
+				d--;
+			}
+			if (d < 0) {
+				break;
+			}
+		}
+		return points;
+	}
+
+	/**
+	 * <p>
+	 * Runs all simulation runs of all points and waits until they are finished. Failed jobs are reported and do not stop the others.
+	 * </p>
+	 * @param resultPath The directory all results are stored in.
+	 * @throws IOException If the result directory cannot be written or any job failed.
+	 */
+	public void run(String resultPath) throws IOException {
+		if (this.seed == null) {
+			this.seed = RandomVariable.newSeed();
+		}
+		List<Properties> points = expand();
+		List<SimulationConfig> configs = new ArrayList<SimulationConfig>();
+		File resultDir = new File(resultPath);
+		if (!resultDir.isDirectory() && !resultDir.mkdirs()) {
+			throw new IOException("Cannot create " + resultDir);
+		}
+
+		try (FileWriter index = new FileWriter(new File(resultDir, "index.tsv"))) {
+			index.write("point\tdirectory");
+			for (String key : swept()) {
+				index.write("\t" + key);
+			}
+			index.write("\n");
+			for (int k = 0; k < points.size(); k++) {
+				Properties p = points.get(k);
+				File dir = new File(resultDir, "point" + k);
+				if (!dir.isDirectory() && !dir.mkdirs()) {
+					throw new IOException("Cannot create " + dir);
+				}
+				p.setProperty("savePath", dir.getPath());
+				configs.add(SimulationConfig.fromProperties(p));
+				try (OutputStream out = new FileOutputStream(new File(dir, "sweep.properties"))) {
+					p.store(out, "Parameters of sweep point " + k);
+				}
+				index.write(k + "\t" + dir.getName());
+				for (String key : swept()) {
+					index.write("\t" + p.getProperty(key));
+				}
+				index.write("\n");
+			}
+		}
+
+		final long sweepSeed = this.seed;
+		final SimulationListener progress = this.options.getProgressListener();
+		final long startingNanos = System.nanoTime();
+		final AtomicInteger finished = new AtomicInteger();
+		final AtomicInteger failed = new AtomicInteger();
+		final int total = countJobs(configs);
+		List<ForkJoinTask<?>> jobs = new ArrayList<ForkJoinTask<?>>();
+		for (int k = 0; k < configs.size(); k++) {
+			for (int run = 0; run < configs.get(k).getSimulationRuns(); run++) {
+				final int point = k;
+				final int replicate = run;
+				final SimulationConfig config = configs.get(k);
+				jobs.add(ForkJoinTask.adapt(() -> {
+					Controller c = new Controller();
+					c.setParallelism(1);
+					c.setOptions(options);
+					Exception failure = null;
+					try {
+						c.runReplicate(config, replicate, RandomVariable.runSeed(sweepSeed, point));
+					} catch (IOException | RuntimeException e) {
+						failed.incrementAndGet();
+						failure = e;
+					}
+					progress.jobFinished(point, replicate, finished.incrementAndGet(), total, System.nanoTime() - startingNanos, failure);
+				}));
+			}
+		}
+		ForkJoinPool pool = new ForkJoinPool(this.parallelism);
+		try {
+			for (ForkJoinTask<?> job : jobs) {
+				pool.execute(job);
+			}
+			for (ForkJoinTask<?> job : jobs) {
+				job.join();
+			}
+		} finally {
+			pool.shutdown();
+		}
+		progress.sweepFinished(total, failed.get(), System.nanoTime() - startingNanos);
+		if (failed.get() > 0) {
+			throw new IOException(failed.get() + " of " + total + " sweep jobs failed");
+		}
+	}
+
+	private static int countJobs(List<SimulationConfig> configs) {
+		int total = 0;
+		for (SimulationConfig config : configs) {
+			total += config.getSimulationRuns();
+		}
+		return total;
+	}
+
+	private List<String> swept() {
+		List<String> keys = new ArrayList<String>(gridKeys);
+		keys.addAll(sampledKeys);
+		return keys;
+	}
+
+	// every column is a random permutation of the strata, with a random position within each stratum
+	private static double[][] latinHypercube(int samples, int dimensions, RandomVariable random) {
+		double[][] lhs = new double[samples][dimensions];
+		int[] strata = new int[samples];
+		for (int d = 0; d < dimensions; d++) {
+			for (int i = 0; i < samples; i++) {
+				strata[i] = i;
+			}
+			for (int i = samples; i > 1; i--) {
+				int j = random.getInt(i);
+				int tmp = strata[i - 1];
+				strata[i - 1] = strata[j];
+				strata[j] = tmp;
+			}
+			for (int i = 0; i < samples; i++) {
+				lhs[i][d] = (strata[i] + random.getDouble()) / samples;
+			}
+		}
+		return lhs;
+	}
+
+	private static String format(String key, double value) {
+		if (SimulationConfig.isIntegerParameter(key)) {
+			return Long.toString(Math.round(value));
+		}
+		return Double.toString(value);
+	}
+
+	/**
+	 * <p>
+	 * Setter function for the number of Latin hypercube samples.
+	 * </p>
+	 * @param samples The number of samples per combination of the grid dimensions.
+	 */
+	public void setSamples(int samples) {
+		this.samples = Math.max(1, samples);
+	}
+
+	/**
+	 * <p>
+	 * Setter function for the number of jobs that run at the same time.
+	 * </p>
+	 * @param parallelism The number of threads of the pool.
+	 */
+	public void setParallelism(int parallelism) {
+		this.parallelism = Math.max(1, parallelism);
+	}
+
+	/**
+	 * <p>
+	 * Setter function for how the runs are stored, checkpointed and reported, see RunOptions. The options are shared by all runs,
+	 * the progress listener is shared by the jobs that are computed at the same time.
+	 * </p>
+	 * @param options The options, default options if null.
+	 */
+	public void setOptions(RunOptions options) {
+		this.options = options != null ? options : new RunOptions();
+	}
+
+	/**
+	 * <p>
+	 * Setter function for the seed of the sweep, used for the sampling and, per point, for the simulation runs.
+	 * </p>
+	 * @param seed The seed, null to draw a new one.
+	 */
+	public void setSeed(Long seed) {
+		this.seed = seed;
+	}
+}
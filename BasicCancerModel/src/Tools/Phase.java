@@ -0,0 +1,45 @@
+package Tools;
+
+
+/**
+ * <p>
+ * Enum Phase names the parts of a simulation step that SimulationMetrics times. SHUFFLE and SITE_INTERACTION are measured by the
+ * SiteSteppers and summed over the sites, so together they exceed INTERACTION if the sites are stepped concurrently; all other
+ * phases are measured on the simulation thread.
+ * </p>
+ */
+public enum Phase {
+
+	/**
+	 * Death process and migration of all sites.
+	 */
+	DEATH_MIGRATION,
+	/**
+	 * Interaction phase of all sites, from the arrival of the migrants to the offspring, as it took on the simulation thread.
+	 */
+	INTERACTION,
+	/**
+	 * Random order of the surviving cells before they interact, summed over the sites.
+	 */
+	SHUFFLE,
+	/**
+	 * Neighbor search, mating and offspring of the surviving cells without the shuffle, summed over the sites.
+	 */
+	SITE_INTERACTION,
+	/**
+	 * Merging the newborn and surviving cells into the population, without the recount of the distribution.
+	 */
+	UPDATE_POPULATION,
+	/**
+	 * Recount of the number of cells per type at every site.
+	 */
+	UPDATE_DISTRIBUTION,
+	/**
+	 * Locations, densities, distribution and statistics of the step, i.e. the time the simulation thread spends on output.
+	 */
+	SAVE,
+	/**
+	 * Taking the checkpoints of the step, scheduled or requested; the simulation thread only waits for the file of the previous one.
+	 */
+	CHECKPOINT;
+}
@@ -0,0 +1,82 @@
+package Tools;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+
+/**
+ * <p>
+ * Class PhaseEvent is the Java Flight Recorder event of one phase of a simulation step, recorded by the Controller on the simulation
+ * thread. The interaction phase is recorded as a whole including the shuffle, the update of the population including the recount
+ * of the distribution; StepEvent has the single phases. A few events are recorded per step, so they can stay enabled in a
+ * continuous recording.
+ * </p>
+ */
+@Name("Migrastatics.Phase")
+@Label("Simulation Phase")
+@Category({"Migrastatics", "Simulation"})
+@Description("One phase of a step of a simulation run")
+@StackTrace(false)
+public class PhaseEvent extends Event {
+
+	@Label("Run")
+	int run;
+
+	@Label("Step")
+	int step;
+
+	@Label("Phase")
+	String phase;
+
+	private transient Phase timedPhase;
+	private transient long start;
+
+	/**
+	 * <p>
+	 * Starts timing a phase.
+	 * </p>
+	 * @param run The index of the simulation run.
+	 * @param step The index of the step.
+	 * @param phase The phase.
+	 * @return The started event.
+	 */
+	public static PhaseEvent start(int run, int step, Phase phase) {
+		PhaseEvent event = new PhaseEvent();
+		event.run = run;
+		event.step = step;
+		event.timedPhase = phase;
+		event.start = System.nanoTime();
+		event.begin();
+		return event;
+	}
+
+	/**
+	 * <p>
+	 * Stops timing the phase and commits the event if it is recorded.
+	 * </p>
+	 * @return The time since start in nanoseconds.
+	 */
+	public long stop() {
+		long nanos = System.nanoTime() - this.start;
+		end();
+		if (shouldCommit()) {
+			this.phase = this.timedPhase.name();
+			commit();
+		}
+		return nanos;
+	}
+
+	/**
+	 * <p>
+	 * Getter function to get the timed phase.
+	 * </p>
+	 * @return The phase.
+	 */
+	public Phase getPhase() {
+		return this.timedPhase;
+	}
+}
@@ -1,10 +1,10 @@
 package Tools;
 
-import java.io.BufferedReader;
-import java.io.FileReader;
 import java.io.IOException;
 import java.util.ArrayList;
 
+import UI.PopulationLoader;
+
 
 /**
  * <p>
@@ -13,7 +13,7 @@ import java.util.ArrayList;
  */
 public class PopulationStatus {
 
-	private ArrayList<Individual>[] cellsAllSites;
+	private CellStore[] cellsAllSites;
 	private double [][] distributionAtAllSites;				//and their distribution
 	private int initialPopulation;
 	private int initTumorsize;
@@ -21,6 +21,8 @@ public class PopulationStatus {
 	private int placeInds;
 	private RuleSet rs;
 	private int currentPopulationSize;
+	private long nextCellId; //ID the next newborn cell gets
+	private long distributionNanos; //time of the last recount of the distribution
 	
 	/**
 	 * <p>
@@ -55,11 +57,33 @@ public class PopulationStatus {
 	 * @param placeInds The location of the individual cells.
 	 * @param initTumorsize The initial size of the tumor that the simulation starts with.
 	 * @param fractionInvasiveCells The initial fraction of the cells that are invasive that the simulation starts with.
+	 * @param random The random stream used to place the initial cells.
 	 * @throws IOException Exception is thrown when file cannot be read from the file system.
 	 */
-	@SuppressWarnings("unchecked")
 	public PopulationStatus(int population, String filePath, double[] distribution, RuleSet rs,
-			int placeInds, int initTumorsize, double fractionInvasiveCells) throws IOException {
+			int placeInds, int initTumorsize, double fractionInvasiveCells, RandomVariable random) throws IOException {
+		this(population, filePath, PopulationLoader.LAST_STEP, 1, distribution, rs, placeInds, initTumorsize, fractionInvasiveCells, random);
+	}
+
+	/**
+	 * <p>
+	 * Constructor for the PopulationStatus class that can start from any stored step of a location file.
+	 * </p>
+	 * @param population The total size of the initial population the simulation starts with.
+	 * @param filePath Location of the file containing the initial population configuration - optional value. Text, binary and delta
+	 * location files are accepted, see PopulationLoader.
+	 * @param initialStep The stored step of the file to start from, PopulationLoader.LAST_STEP for the last one.
+	 * @param parallelism The number of threads that parse the file.
+	 * @param distribution The total size of the initial distribution the simulation starts with.
+	 * @param rs The ruleset that the simulation is started with.
+	 * @param placeInds The location of the individual cells.
+	 * @param initTumorsize The initial size of the tumor that the simulation starts with.
+	 * @param fractionInvasiveCells The initial fraction of the cells that are invasive that the simulation starts with.
+	 * @param random The random stream used to place the initial cells.
+	 * @throws IOException Exception is thrown when file cannot be read from the file system.
+	 */
+	public PopulationStatus(int population, String filePath, int initialStep, int parallelism, double[] distribution, RuleSet rs,
+			int placeInds, int initTumorsize, double fractionInvasiveCells, RandomVariable random) throws IOException {
 		int numberSites = rs.getNumberMigrationSites() + 1; //including solid tumor
 		this.initTumorsize = initTumorsize;
 		this.rs = rs;
@@ -71,15 +95,21 @@ public class PopulationStatus {
 		for (int i = 0; i < numberTypes; i++) {
 			this.distributionAtAllSites[0][i] = distributionAtAllSites[0][i];
 		}
-		this.cellsAllSites = (ArrayList<Individual>[]) new ArrayList[numberSites];
+		this.cellsAllSites = new CellStore[numberSites];
 		
 		for (int i = 0; i < numberSites; i++) {
-			cellsAllSites[i] = new ArrayList<Individual>();
+			cellsAllSites[i] = new CellStore(i == 0 ? population : 0);
 		}
 		
 		//If there is an initial population file configured in the UI use this to generate the population otherwise run the normal pre-coded population configuration.
 		if(filePath.isEmpty() == false) {
-			loadInitialPopulationFromFile(filePath);
+			this.currentPopulationSize = PopulationLoader.load(filePath, initialStep, cellsAllSites, parallelism);
+			// cells loaded with their IDs keep them, the others get IDs after the largest loaded one
+			for (int site = 0; site < numberSites; site++) {
+				for (int i = 0; i < cellsAllSites[site].size(); i++) {
+					this.nextCellId = Math.max(this.nextCellId, cellsAllSites[site].getId(i) + 1);
+				}
+			}
 
 		} else {
 		
@@ -100,21 +130,20 @@ public class PopulationStatus {
 				short maxType = 0; // type of maximum deviance
 				short forbidden = 3; // when rest is 2, don't put both in same type
 				// (exclude from finding maximum)
-				double x;
-				double y;
+				double x = 0;
+				double y = 0;
+				short type;
+				boolean invasive;
 				for (int i = 0; i < population; i++) {
 	
-					Individual ind = new Individual();
-	
 					// Set Position of individuals
 					if (placeInds == 0) {
 						// resistant and sensitive cells well-mixed in tumor
-						double r2 = initTumorsize * Math.sqrt(RandomVariable.getDouble());
-						double theta2 = 2 * Math.PI * RandomVariable.getDouble();
+						double r2 = initTumorsize * Math.sqrt(random.getDouble());
+						double theta2 = 2 * Math.PI * random.getDouble();
 	
 						x = r2 * Math.cos(theta2);
 						y = r2 * Math.sin(theta2);
-						ind.setPosition(x, y);
 					} else if (placeInds == 1) {
 						// resistant cells outside of tumor
 						// TODO: Implement
@@ -122,9 +151,9 @@ public class PopulationStatus {
 					
 	
 					if (i < total1) {
-						ind.setType((short) 1);
+						type = (short) 1;
 					} else if (i < total2) {
-						ind.setType((short) 2);
+						type = (short) 2;
 						// there may be some individuals left we have to decide which type
 						// are they also. e.g., size=19, distri=[0.2,0.5,0.3], they will have
 						// type 1 2 3: 3 9 5 respectively, there are 2 left then.We give it to
@@ -146,24 +175,75 @@ public class PopulationStatus {
 								}
 							}
 						}
-						ind.setType(maxType);
+						type = maxType;
 					}
 					
 					//Define invasiveness
-					if (RandomVariable.getDouble() < fractionInvasiveCells) {
-						ind.setInvasive(true);
+					if (random.getDouble() < fractionInvasiveCells) {
+						invasive = true;
 					} else {
-						ind.setInvasive(false);
+						invasive = false;
 					}
 					
-					cellsAllSites[0].add(ind);
+					cellsAllSites[0].add(type, invasive, x, y);
 					currentPopulationSize++;
 				}
 			}
 		}
+		for (int site = 0; site < numberSites; site++) {
+			this.nextCellId = cellsAllSites[site].assignIds(this.nextCellId);
+		}
 		updateDistribution();
 
 	}
+	/**
+	 * <p>
+	 * Constructor for the PopulationStatus class that continues a population from a checkpoint.
+	 * </p>
+	 * @param population The total size of the initial population the simulation started with.
+	 * @param rs The ruleset of the simulation.
+	 * @param placeInds The location of the individual cells.
+	 * @param initTumorsize The initial size of the tumor that the simulation started with.
+	 * @param fractionInvasiveCells The initial fraction of the cells that are invasive.
+	 * @param cellsAllSites The cells of every site, in the order of the checkpoint. The stores are used as they are.
+	 * @param nextCellId The ID the next newborn cell gets.
+	 */
+	public PopulationStatus(int population, RuleSet rs, int placeInds, int initTumorsize, double fractionInvasiveCells,
+			CellStore[] cellsAllSites, long nextCellId) {
+		this.initTumorsize = initTumorsize;
+		this.rs = rs;
+		this.initialPopulation = population;
+		this.fractionInvasiveCells = fractionInvasiveCells;
+		this.placeInds = placeInds;
+		this.distributionAtAllSites = new double[cellsAllSites.length][rs.getNumberTypes()];
+		this.cellsAllSites = cellsAllSites;
+		this.nextCellId = nextCellId;
+		for (CellStore cells : cellsAllSites) {
+			this.currentPopulationSize += cells.size();
+		}
+		updateDistribution();
+	}
+	
+	/**
+	 * <p>
+	 * Getter function to get the ID the next newborn cell gets.
+	 * </p>
+	 * @return The next free ID.
+	 */
+	public long getNextCellId() {
+		return this.nextCellId;
+	}
+	
+	/**
+	 * <p>
+	 * Getter function to get the time the last recount of the distribution took, e.g. the one at the end of updatePopulation.
+	 * </p>
+	 * @return The time in nanoseconds.
+	 */
+	public long getDistributionNanos() {
+		return this.distributionNanos;
+	}
+	
 	/**
 	 * <p>
 	 * Getter function to retrieve all the place of all individuals
@@ -183,34 +263,6 @@ public class PopulationStatus {
 		return this.initialPopulation;
 	}
 	
-
-	private void loadInitialPopulationFromFile(String filePath) throws IOException {
-		try (BufferedReader br = new BufferedReader(new FileReader(filePath))) {
-			String line;
-			while ((line = br.readLine()) != null) {
-				String[] parts = line.split("  ");
-				if (parts.length >= 5) {
-					short type = Short.parseShort(parts[0].trim());
-					boolean invasive = parts[1].trim().equals("1");
-					int site = Integer.parseInt(parts[2].trim());
-					double x = Double.parseDouble(parts[3].trim());
-					double y = Double.parseDouble(parts[4].trim());
-
-					Individual ind = new Individual();
-					ind.setType(type);
-					ind.setInvasive(invasive);
-					ind.setPosition(x, y);
-
-
-					if (site >= 0 && site < cellsAllSites.length) {
-						cellsAllSites[site].add(ind);
-						currentPopulationSize++;
-					}
-				}
-			}
-		}
-	}
-	
 	
  /**
   * <p>
@@ -220,10 +272,12 @@ public class PopulationStatus {
   * </p>
   */
 	public void updateDistribution(){
+		long start = System.nanoTime();
 		for (int site = 0; site < rs.getNumberMigrationSites()+1; site++) {
 			int[] types = new int[2];
-			for (int i = 0; i < this.cellsAllSites[site].size(); i++){
-				int type = this.cellsAllSites[site].get(i).getType();
+			CellStore cells = this.cellsAllSites[site];
+			for (int i = 0; i < cells.size(); i++){
+				int type = cells.getType(i);
 				if (type == 1){
 					types[0]++;
 				} else if (type ==2){
@@ -236,26 +290,56 @@ public class PopulationStatus {
 				this.distributionAtAllSites[site][i] = (double)(types[i]);
 			}
 		}
+		this.distributionNanos = System.nanoTime() - start;
 		
 		
 	}
 	/**
-	 * Getter function of all the individual cells of the population.
+	 * Getter function of the cells of the population at all sites.
+	 * @return The cell stores of all sites, indexed by site.
+	 */
+	public CellStore[] getCells(){
+		return this.cellsAllSites;
+	}
+	
+	/**
+	 * Getter function to get the cells of a specific site.
+	 * @param site The site for which the cells should be retrieved.
+	 * @return The cell store of the site.
+	 */
+	public CellStore getCells(int site){
+		return this.cellsAllSites[site];
+	}
+	
+	/**
+	 * Getter function of all the individual cells of the population. The individuals are created from the cell stores on every call,
+	 * use getCells() wherever possible.
 	 * @return all cells at all sites.
 	 */
+	@SuppressWarnings("unchecked")
 	public ArrayList<Individual>[] getIndividuals(){
-		return this.cellsAllSites;
+		ArrayList<Individual>[] inds = (ArrayList<Individual>[]) new ArrayList[this.cellsAllSites.length];
+		for (int site = 0; site < this.cellsAllSites.length; site++) {
+			inds[site] = getIndividuals(site);
+		}
+		return inds;
 	}
 	
 	/**
-	 * Getter function to get all individuals for a specific site.
+	 * Getter function to get all individuals for a specific site. The individuals are created from the cell store on every call,
+	 * use getCells(int) wherever possible.
 	 * @param site The site for which the individuals should be retrieved.
 	 * @return List of individual cells.
 	 */
 	public ArrayList<Individual> getIndividuals(int site){
-		ArrayList<Individual> inds = new ArrayList<Individual>(this.cellsAllSites[site].size());
-		for (int i = 0; i < this.cellsAllSites[site].size(); i++){
-			inds.add(this.cellsAllSites[site].get(i));
+		CellStore cells = this.cellsAllSites[site];
+		ArrayList<Individual> inds = new ArrayList<Individual>(cells.size());
+		for (int i = 0; i < cells.size(); i++){
+			Individual ind = new Individual();
+			ind.setType(cells.getType(i));
+			ind.setInvasive(cells.isInvasive(i));
+			ind.setPosition(cells.getX(i), cells.getY(i));
+			inds.add(ind);
 		}
 		return inds;
 	}
@@ -304,26 +388,23 @@ public class PopulationStatus {
 	
  /**
   * Updates the population of cells for all sites, given the new and surviving cells.
+  * The cells are copied, so the given stores can be cleared and reused for the next step.
+  * Newborn cells get their IDs here, in the order of the stores, so the IDs do not depend on the number of threads.
   *
-  * @param newCellsdAllSites An array of ArrayLists containing the new cells for each site.
-  * @param survivingCellsAllSites An array of ArrayLists containing the surviving cells for each site.
+  * @param newCellsdAllSites An array of cell stores containing the new cells for each site.
+  * @param survivingCellsAllSites An array of cell stores containing the surviving cells for each site.
   */
-	@SuppressWarnings("unchecked")
-	public void updatePopulation(ArrayList<Individual>[] newCellsdAllSites, ArrayList<Individual>[] survivingCellsAllSites) {
+	public void updatePopulation(CellStore[] newCellsdAllSites, CellStore[] survivingCellsAllSites) {
 		int numberSites = rs.getNumberMigrationSites()+1;
 		this.currentPopulationSize =0;
-		this.cellsAllSites = (ArrayList<Individual>[]) new ArrayList[numberSites];
 		
 		for (int site = 0; site < numberSites; site++) {
-			cellsAllSites[site] = new ArrayList<Individual>();
-			for (int i = 0; i < newCellsdAllSites[site].size(); i++) {
-				this.cellsAllSites[site].add(newCellsdAllSites[site].get(i));
-				currentPopulationSize++;
-			}
-			for (int j = 0; j < survivingCellsAllSites[site].size(); j++) {
-				this.cellsAllSites[site].add(survivingCellsAllSites[site].get(j));
-				currentPopulationSize++;
-			}
+			CellStore cells = this.cellsAllSites[site];
+			cells.clear();
+			cells.addAll(newCellsdAllSites[site]);
+			cells.addAll(survivingCellsAllSites[site]);
+			this.nextCellId = cells.assignIds(this.nextCellId);
+			currentPopulationSize += cells.size();
 		}
 		this.updateDistribution();
 	}
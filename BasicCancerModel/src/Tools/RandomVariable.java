@@ -1,19 +1,81 @@
 package Tools;
 
-import java.util.Random;
+import java.security.SecureRandom;
+import java.util.SplittableRandom;
 
 //Random number generator
-//If you want to generate a random number write: RandomVariable.getDouble() 
-//or RandomVariable.getInt()
+//Every part of the simulation that needs random numbers gets its own stream, e.g.
+//RandomVariable random = RandomVariable.stream(seed, step, site, part); random.getDouble();
+//Streams are derived from the seed of the run and their key only, so a seeded run gives the same
+//trajectory no matter how many threads are used and in which order the streams are drawn from.
 
 /**
  * <p>
- * Class to generate random variables for different inputs
+ * Class to generate random variables for different inputs. A RandomVariable is a single stream of random numbers based on a
+ * SplittableRandom; it must only be used by one thread at a time.
  * </p>
  */
 public class RandomVariable {
 	
-	private static Random rand = new Random();
+	private SplittableRandom rand;
+	
+	/**
+	 * <p>
+	 * Constructor for a stream of random numbers with a given seed.
+	 * </p>
+	 * @param seed The seed of the stream.
+	 */
+	public RandomVariable(long seed) {
+		this.rand = new SplittableRandom(seed);
+	}
+	
+	/**
+	 * <p>
+	 * Function to get the stream for one part of a step of a run. Different keys give statistically independent streams,
+	 * the same keys always give the same stream.
+	 * </p>
+	 * @param seed The seed of the run.
+	 * @param step The step of the simulation (-1 for the initialization).
+	 * @param site The site the stream is used for.
+	 * @param part The part of the step the stream is used for, e.g. the phase or the tile.
+	 * @return The stream.
+	 */
+	public static RandomVariable stream(long seed, int step, int site, int part) {
+		long key = mix(seed);
+		key = mix(key ^ step);
+		key = mix(key ^ site);
+		key = mix(key ^ part);
+		return new RandomVariable(key);
+	}
+	
+	/**
+	 * <p>
+	 * Function to derive the seed of a simulation run from the seed given for all runs.
+	 * </p>
+	 * @param seed The seed given for all runs.
+	 * @param run The index of the simulation run.
+	 * @return The seed of the run.
+	 */
+	public static long runSeed(long seed, int run) {
+		return mix(mix(seed) + run);
+	}
+	
+	/**
+	 * <p>
+	 * Function to generate a new seed for runs that have no seed configured.
+	 * </p>
+	 * @return A random seed.
+	 */
+	public static long newSeed() {
+		return new SecureRandom().nextLong();
+	}
+	
+	// MurmurHash3 finalizer with the constants of Stafford's variant 13, as used by SplittableRandom
+	private static long mix(long z) {
+		z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+		z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+		return z ^ (z >>> 31);
+	}
 	
 	/**
 	 * <p>
@@ -21,7 +83,7 @@ public class RandomVariable {
 	 * </p>
 	 * @return Random Double
 	 */
-	public static double getDouble(){
+	public double getDouble(){
 		return rand.nextDouble();
 	}
 	
@@ -32,7 +94,7 @@ public class RandomVariable {
 	 * @param endIndex Mulitplier for the randomly generated Double
 	 * @return Random generated Double.
 	 */
-	public static double getDouble(double endIndex){
+	public double getDouble(double endIndex){
 		return rand.nextDouble() *endIndex;
 	}
 	
@@ -44,7 +106,7 @@ public class RandomVariable {
 	 * @param upperLimit Upper limit of the generated random Integer.
 	 * @return Random generated integer.
 	 */
-	public static int getInt(int upperLimit){
+	public int getInt(int upperLimit){
 		return rand.nextInt(upperLimit);
 	}
 
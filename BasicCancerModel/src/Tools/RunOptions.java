@@ -0,0 +1,283 @@
+package Tools;
+
+import java.util.Properties;
+
+import UI.DeltaSnapshotWriter;
+import UI.PopulationLoader;
+
+
+/**
+ * <p>
+ * Class RunOptions holds how simulation runs are stored, checkpointed and reported, as opposed to SimulationConfig which holds the
+ * parameters of the model. The same options are passed to a Controller, an EnsembleRunner or a ParameterSweep, which hand them to
+ * every run. The options must not be changed while a simulation runs, they may be shared by runs that are computed concurrently.
+ * </p>
+ */
+public class RunOptions {
+
+	private SnapshotFormat snapshotFormat = SnapshotFormat.TEXT; //format of the locations saved at every gap'th step
+	private int keyframeInterval = DeltaSnapshotWriter.DEFAULT_KEYFRAME_INTERVAL;
+	private int densityBins;		//rows and columns of the density grid, 0 if no densities are stored
+	private double densityExtent;
+	private boolean densityBinary;
+	private Compression compression = Compression.NONE;
+	private int initialStep = PopulationLoader.LAST_STEP; //stored step of the initial population file the runs start from
+	private int checkpointInterval; //number of stored steps from one checkpoint to the next, 0 for no checkpoints
+	private boolean resume; //continue every run from its checkpoint if there is one
+	private boolean intraSiteParallel; //split large sites into tiles that interact concurrently
+	private SimulationListener progress = new ConsoleProgressLogger(); //informed about runs, steps and treatment changes
+
+	/**
+	 * <p>
+	 * Reads the options from properties. The keys are snapshotFormat (text, binary, delta or none), keyframeInterval, densityBins,
+	 * densityExtent, densityFormat (text or binary), compression (none, gzip or lz), initialStep, checkpointInterval, resume,
+	 * intraSiteParallel, progress (console or none) and progressInterval in milliseconds. Missing keys get the defaults of the setters.
+	 * </p>
+	 * @param p The properties to read.
+	 * @return The options.
+	 * @throws IllegalArgumentException If a value cannot be parsed, the message names the key.
+	 */
+	public static RunOptions fromProperties(Properties p) {
+		RunOptions options = new RunOptions();
+		options.setSnapshotFormat(SnapshotFormat.parse(choice(p, "snapshotFormat", "text", "text", "binary", "delta", "none")));
+		options.setKeyframeInterval(SimulationConfig.intValue(p, "keyframeInterval",
+				String.valueOf(DeltaSnapshotWriter.DEFAULT_KEYFRAME_INTERVAL)));
+		options.setDensityGrid(SimulationConfig.intValue(p, "densityBins", "0"), SimulationConfig.doubleValue(p, "densityExtent", "0"),
+				choice(p, "densityFormat", "text", "text", "binary").equals("binary"));
+		options.setCompression(Compression.parse(choice(p, "compression", "none", "none", "gzip", "lz")));
+		options.setInitialStep(SimulationConfig.intValue(p, "initialStep", String.valueOf(PopulationLoader.LAST_STEP)));
+		options.setCheckpointInterval(SimulationConfig.intValue(p, "checkpointInterval", "0"));
+		options.setResume(Boolean.parseBoolean(p.getProperty("resume", "false").trim()));
+		options.setIntraSiteParallel(Boolean.parseBoolean(p.getProperty("intraSiteParallel", "false").trim()));
+		if (choice(p, "progress", "console", "console", "none").equals("none")) {
+			options.setProgressListener(SimulationListener.NONE);
+		} else {
+			options.setProgressListener(new ConsoleProgressLogger(System.out, SimulationConfig.intValue(p, "progressInterval",
+					String.valueOf(ConsoleProgressLogger.DEFAULT_INTERVAL))));
+		}
+		return options;
+	}
+
+	// the value of a key in lower case, which must be one of the allowed values
+	private static String choice(Properties p, String key, String def, String... allowed) {
+		String value = p.getProperty(key, def).trim().toLowerCase();
+		for (String a : allowed) {
+			if (a.equals(value)) {
+				return value;
+			}
+		}
+		throw new IllegalArgumentException("Invalid value for " + key + ": " + p.getProperty(key));
+	}
+
+	/**
+	 * <p>
+	 * Getter function to get the format of the locations saved at every gap'th step.
+	 * </p>
+	 * @return The format.
+	 */
+	public SnapshotFormat getSnapshotFormat() {
+		return this.snapshotFormat;
+	}
+
+	/**
+	 * <p>
+	 * Setter function for the format of the locations saved at every gap'th step.
+	 * </p>
+	 * @param snapshotFormat The format, TEXT by default.
+	 */
+	public void setSnapshotFormat(SnapshotFormat snapshotFormat) {
+		this.snapshotFormat = snapshotFormat;
+	}
+
+	/**
+	 * <p>
+	 * Getter function to get the number of stored steps from one keyframe to the next in the DELTA format.
+	 * </p>
+	 * @return The keyframe interval.
+	 */
+	public int getKeyframeInterval() {
+		return this.keyframeInterval;
+	}
+
+	/**
+	 * <p>
+	 * Setter function for the number of stored steps from one keyframe to the next, used by the DELTA format.
+	 * </p>
+	 * @param keyframeInterval The keyframe interval, DeltaSnapshotWriter.DEFAULT_KEYFRAME_INTERVAL by default.
+	 */
+	public void setKeyframeInterval(int keyframeInterval) {
+		this.keyframeInterval = keyframeInterval;
+	}
+
+	/**
+	 * <p>
+	 * Getter function to get the number of rows and columns of the density grid of every site.
+	 * </p>
+	 * @return The number of bins, 0 if no densities are stored.
+	 */
+	public int getDensityBins() {
+		return this.densityBins;
+	}
+
+	/**
+	 * <p>
+	 * Getter function to get the distance from the center of a site to the border of its density grid.
+	 * </p>
+	 * @return The extent, 0 to derive it from the sites.
+	 */
+	public double getDensityExtent() {
+		return this.densityExtent;
+	}
+
+	/**
+	 * <p>
+	 * Getter function to get if the densities are stored in Density.bin instead of Density.m.
+	 * </p>
+	 * @return The value if the densities are stored binary.
+	 */
+	public boolean isDensityBinary() {
+		return this.densityBinary;
+	}
+
+	/**
+	 * <p>
+	 * Setter function for the density grid in which the cells are counted at every gap'th step.
+	 * </p>
+	 * @param bins The number of rows and columns of the grid of every site, 0 to store no densities (default).
+	 * @param extent The distance from the center of a site to the border of its grid, 0 to derive it from the sites.
+	 * @param binary Wether the densities are stored in Density.bin instead of Density.m.
+	 */
+	public void setDensityGrid(int bins, double extent, boolean binary) {
+		this.densityBins = bins;
+		this.densityExtent = extent;
+		this.densityBinary = binary;
+	}
+
+	/**
+	 * <p>
+	 * Getter function to get the compression of Location.m, Distribution.m and Density.m.
+	 * </p>
+	 * @return The compression.
+	 */
+	public Compression getCompression() {
+		return this.compression;
+	}
+
+	/**
+	 * <p>
+	 * Setter function for the compression of Location.m, Distribution.m and Density.m.
+	 * </p>
+	 * @param compression The compression, NONE by default.
+	 */
+	public void setCompression(Compression compression) {
+		this.compression = compression;
+	}
+
+	/**
+	 * <p>
+	 * Getter function to get the stored step of the initial population file the runs start from.
+	 * </p>
+	 * @return The step, PopulationLoader.LAST_STEP for the last one.
+	 */
+	public int getInitialStep() {
+		return this.initialStep;
+	}
+
+	/**
+	 * <p>
+	 * Setter function for the stored step of the initial population file the runs start from, e.g. to continue from a step of
+	 * the location file of an earlier run.
+	 * </p>
+	 * @param initialStep The step of the simulation stored in the file, PopulationLoader.LAST_STEP (default) for the last one.
+	 */
+	public void setInitialStep(int initialStep) {
+		this.initialStep = initialStep;
+	}
+
+	/**
+	 * <p>
+	 * Getter function to get the number of stored steps from one checkpoint to the next.
+	 * </p>
+	 * @return The number of stored steps, 0 for no checkpoints.
+	 */
+	public int getCheckpointInterval() {
+		return this.checkpointInterval;
+	}
+
+	/**
+	 * <p>
+	 * Setter function for the number of stored steps from one checkpoint to the next. A checkpoint is taken right after the outputs of
+	 * a stored step and written to Checkpoint&lt;run&gt;.ckpt in the background, see Checkpoint.
+	 * </p>
+	 * @param checkpointInterval The number of stored steps, 0 (default) for no checkpoints.
+	 */
+	public void setCheckpointInterval(int checkpointInterval) {
+		this.checkpointInterval = Math.max(0, checkpointInterval);
+	}
+
+	/**
+	 * <p>
+	 * Getter function to get if the runs continue from their checkpoints.
+	 * </p>
+	 * @return The value if the resume mode is on.
+	 */
+	public boolean isResume() {
+		return this.resume;
+	}
+
+	/**
+	 * <p>
+	 * Setter function for the resume mode. In resume mode every run with a checkpoint continues from it instead of starting
+	 * from the initial population, its output files are cut to their state at the checkpoint. Runs that finished are skipped,
+	 * runs without a checkpoint start from the beginning. The seed of the checkpoint is used.
+	 * </p>
+	 * @param resume Whether runs continue from their checkpoints, false by default.
+	 */
+	public void setResume(boolean resume) {
+		this.resume = resume;
+	}
+
+	/**
+	 * <p>
+	 * Getter function to get if large sites are split into tiles that interact concurrently.
+	 * </p>
+	 * @return The value if the tiled interaction phase is on.
+	 */
+	public boolean isIntraSiteParallel() {
+		return this.intraSiteParallel;
+	}
+
+	/**
+	 * <p>
+	 * Setter function to switch the tiled interaction phase on or off. With the tiled interaction, the cells of a site are split into
+	 * tiles that interact concurrently (see SiteStepper.interactTiled), so a single large tumor uses all threads. The cells then interact
+	 * in random order per tile instead of in random order over the whole site. A seeded run gives the same result with any parallelism.
+	 * Off by default.
+	 * </p>
+	 * @param intraSiteParallel Whether or not large sites are split into tiles.
+	 */
+	public void setIntraSiteParallel(boolean intraSiteParallel) {
+		this.intraSiteParallel = intraSiteParallel;
+	}
+
+	/**
+	 * <p>
+	 * Getter function to get the listener that is informed about the progress of the runs.
+	 * </p>
+	 * @return The listener, SimulationListener.NONE for none.
+	 */
+	public SimulationListener getProgressListener() {
+		return this.progress;
+	}
+
+	/**
+	 * <p>
+	 * Setter function for the listener that is informed about the start and end of every run, every step and every change of the
+	 * treatment. A ConsoleProgressLogger by default, it is shared by the runs that are computed at the same time.
+	 * </p>
+	 * @param progress The listener, null or SimulationListener.NONE for none.
+	 */
+	public void setProgressListener(SimulationListener progress) {
+		this.progress = progress != null ? progress : SimulationListener.NONE;
+	}
+}
@@ -89,6 +89,22 @@ public class SaveObject {
 		this.locationY = individual.getY();
 	}
 
+	/**
+	 * <p>
+	 * Function to store the values for a cell of a cell store.
+	 * </p>
+	 * @param cells The cell store that holds the cell.
+	 * @param i The index of the cell in the store.
+	 * @param site The site in which the cell is located (0 = solid tumor)
+	 */
+	public SaveObject(CellStore cells, int i, int site){
+		this.type = cells.getType(i);
+		this.invasive = cells.isInvasive(i) ? (short) 1 : (short) 0;
+		this.site = (short) site;
+		this.locationX = cells.getX(i);
+		this.locationY = cells.getY(i);
+	}
+
 	public String toString(){
 		return "" + this.type + "  " + this.invasive + "  " + this.site + "  " + this.locationX + "  " + this.locationY;
 	}
@@ -0,0 +1,581 @@
+package Tools;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Properties;
+import java.util.Set;
+
+
+/**
+ * <p>
+ * Class SimulationConfig holds all parameters of a simulation, i.e. everything that is passed to Controller.run.
+ * A configuration is not changed after it was created, so it can be shared by replicates that run concurrently.
+ * </p>
+ */
+public class SimulationConfig {
+
+	private static final Set<String> KEYS = new HashSet<String>(Arrays.asList("filePath", "initPopulationSize", "initDistribution",
+			"initPlaceInds", "initTumorsize", "numberTypes", "interactionRadius", "offspringRadius", "deathProbability", "carryingCapacity",
+			"numberMigrationSites", "fractionInvasiveCells", "probToMigrate", "survivalDestination", "savePath", "fileName",
+			"simulationRuns", "gap", "steps", "cancerTreatmentStep", "killingSensitive", "migrastaticsStep", "probToMigrateDuringTreatment",
+			"ATadaptiveStep", "ATstartTreatment", "ATstopTreatment"));	//keys read by fromProperties besides the payoff entries
+
+	private String filePath;
+	private int initPopulationSize;
+	private double[] initDistribution;
+	private int initPlaceInds;
+	private int initTumorsize;
+	private int numberTypes;
+	private double[][] payoffMatrix;
+	private double interactionRadius;
+	private double offspringRadius;
+	private double deathProbability;
+	private double carryingCapacity;
+	private int numberMigrationSites;
+	private double fractionInvasiveCells;
+	private double probToMigrate;
+	private double survivalDestination;
+	private String savePath;
+	private String fileName;
+	private int simulationRuns;
+	private int gap;
+	private int steps;
+	private int cancerTreatmentStep;
+	private double killingSensitive;
+	private int migrastaticsStep;
+	private double probToMigrateDuringTreatment;
+	private int ATadaptiveStep;
+	private double ATstartTreatment;
+	private double ATstopTreatment;
+
+	/**
+	 * <p>
+	 * Constructor for the SimulationConfig class.
+	 * </p>
+	 * @param filePath The file that contains the configuration for the initial population.
+	 * @param initPopulationSize the initial population size provided through the GUI, these are the number of cells the simulation starts with.
+	 * @param initDistribution The initial distribution of cells that are sensitive or resistant.
+	 * @param initPlaceInds How the initial cells are placed (0 = randomly distributed in the tumor).
+	 * @param initTumorsize The initial size of the tumor at the start of the simulation, defined as a radius.
+	 * @param numberTypes The number of cell types that are supported in the simulation. 
+	 * @param payoffMatrix The interaction between the different cell types.
+	 * @param interactionRadius How far off from the radius of a cell interactions can take place.
+	 * @param offspringRadius How far off a cell can place its offspring.
+	 * @param deathProbability Probability of cell death for every iteration
+	 * @param carryingCapacity How many neighbours one cell can have.
+	 * @param numberMigrationSites Number of sites the primary tumor can metastasise to.
+	 * @param fractionInvasiveCells Fraction of cells that can metastatise.
+	 * @param probToMigrate Probability for one cell to migrate to a metastasise.
+	 * @param survivalDestination Probability for one cell to survive at new location
+	 * @param savePath Location on file system to store output of the simulation. 
+	 * @param fileName Name of file given for storing the output of the simulation
+	 * @param simulationRuns How many times a simulation can be run chronologically
+	 * @param gap The configuration after the amount of steps that the output should be generated.
+	 * @param steps The number of steps each individual simulation should take.
+	 * @param cancerTreatmentStep At what step the cancer treatment should start in the simulation.
+	 * @param killingSensitive Percentage of sensitive cells that are killed at every step by the cancer treatment.
+	 * @param migrastaticsStep At what step the migrastatics treatment should start in the simulation
+	 * @param probToMigrateDuringTreatment The probability to migrate once migrastatics treatment is on.
+	 * @param ATadaptiveStep At what step the adaptive treatment should be started.
+	 * @param ATstartTreatment At what tumor size to start the treatment as a fraction of the initial tumor size
+	 * @param ATstopTreatment At what tumor size to stop the treatment as a fraction of the initial tumor size.
+	 */
+	public SimulationConfig(
+			String filePath,
+			int initPopulationSize,
+			double[] initDistribution,
+			int initPlaceInds,
+			int initTumorsize,
+			int numberTypes,
+			double[][] payoffMatrix,
+			double interactionRadius,
+			double offspringRadius,
+			double deathProbability,
+			double carryingCapacity,
+			int numberMigrationSites,
+			double fractionInvasiveCells,
+			double probToMigrate,
+			double survivalDestination,
+			String savePath,
+			String fileName,
+			int simulationRuns,
+			int gap,
+			int steps,
+			int cancerTreatmentStep,
+			double killingSensitive,
+			int migrastaticsStep,
+			double probToMigrateDuringTreatment,
+			int ATadaptiveStep,
+			double ATstartTreatment,
+			double ATstopTreatment) {
+		this.filePath = filePath;
+		this.initPopulationSize = initPopulationSize;
+		this.initDistribution = initDistribution.clone();
+		this.initPlaceInds = initPlaceInds;
+		this.initTumorsize = initTumorsize;
+		this.numberTypes = numberTypes;
+		this.payoffMatrix = new double[payoffMatrix.length][];
+		for (int i = 0; i < payoffMatrix.length; i++) {
+			this.payoffMatrix[i] = payoffMatrix[i].clone();
+		}
+		this.interactionRadius = interactionRadius;
+		this.offspringRadius = offspringRadius;
+		this.deathProbability = deathProbability;
+		this.carryingCapacity = carryingCapacity;
+		this.numberMigrationSites = numberMigrationSites;
+		this.fractionInvasiveCells = fractionInvasiveCells;
+		this.probToMigrate = probToMigrate;
+		this.survivalDestination = survivalDestination;
+		this.savePath = savePath;
+		this.fileName = fileName;
+		this.simulationRuns = simulationRuns;
+		this.gap = gap;
+		this.steps = steps;
+		this.cancerTreatmentStep = cancerTreatmentStep;
+		this.killingSensitive = killingSensitive;
+		this.migrastaticsStep = migrastaticsStep;
+		this.probToMigrateDuringTreatment = probToMigrateDuringTreatment;
+		this.ATadaptiveStep = ATadaptiveStep;
+		this.ATstartTreatment = ATstartTreatment;
+		this.ATstopTreatment = ATstopTreatment;
+	}
+
+	/**
+	 * <p>
+	 * Getter function for the parameter filePath.
+	 * </p>
+	 * @return The file that contains the configuration for the initial population.
+	 */
+	public String getFilePath() {
+		return this.filePath;
+	}
+
+	/**
+	 * <p>
+	 * Getter function for the parameter initPopulationSize.
+	 * </p>
+	 * @return the initial population size provided through the GUI, these are the number of cells the simulation starts with.
+	 */
+	public int getInitPopulationSize() {
+		return this.initPopulationSize;
+	}
+
+	/**
+	 * <p>
+	 * Getter function for the parameter initDistribution.
+	 * </p>
+	 * @return The initial distribution of cells that are sensitive or resistant.
+	 */
+	public double[] getInitDistribution() {
+		return this.initDistribution;
+	}
+
+	/**
+	 * <p>
+	 * Getter function for the parameter initPlaceInds.
+	 * </p>
+	 * @return How the initial cells are placed (0 = randomly distributed in the tumor).
+	 */
+	public int getInitPlaceInds() {
+		return this.initPlaceInds;
+	}
+
+	/**
+	 * <p>
+	 * Getter function for the parameter initTumorsize.
+	 * </p>
+	 * @return The initial size of the tumor at the start of the simulation, defined as a radius.
+	 */
+	public int getInitTumorsize() {
+		return this.initTumorsize;
+	}
+
+	/**
+	 * <p>
+	 * Getter function for the parameter numberTypes.
+	 * </p>
+	 * @return The number of cell types that are supported in the simulation. 
+	 */
+	public int getNumberTypes() {
+		return this.numberTypes;
+	}
+
+	/**
+	 * <p>
+	 * Getter function for the parameter payoffMatrix.
+	 * </p>
+	 * @return The interaction between the different cell types.
+	 */
+	public double[][] getPayoffMatrix() {
+		return this.payoffMatrix;
+	}
+
+	/**
+	 * <p>
+	 * Getter function for the parameter interactionRadius.
+	 * </p>
+	 * @return How far off from the radius of a cell interactions can take place.
+	 */
+	public double getInteractionRadius() {
+		return this.interactionRadius;
+	}
+
+	/**
+	 * <p>
+	 * Getter function for the parameter offspringRadius.
+	 * </p>
+	 * @return How far off a cell can place its offspring.
+	 */
+	public double getOffspringRadius() {
+		return this.offspringRadius;
+	}
+
+	/**
+	 * <p>
+	 * Getter function for the parameter deathProbability.
+	 * </p>
+	 * @return Probability of cell death for every iteration
+	 */
+	public double getDeathProbability() {
+		return this.deathProbability;
+	}
+
+	/**
+	 * <p>
+	 * Getter function for the parameter carryingCapacity.
+	 * </p>
+	 * @return How many neighbours one cell can have.
+	 */
+	public double getCarryingCapacity() {
+		return this.carryingCapacity;
+	}
+
+	/**
+	 * <p>
+	 * Getter function for the parameter numberMigrationSites.
+	 * </p>
+	 * @return Number of sites the primary tumor can metastasise to.
+	 */
+	public int getNumberMigrationSites() {
+		return this.numberMigrationSites;
+	}
+
+	/**
+	 * <p>
+	 * Getter function for the parameter fractionInvasiveCells.
+	 * </p>
+	 * @return Fraction of cells that can metastatise.
+	 */
+	public double getFractionInvasiveCells() {
+		return this.fractionInvasiveCells;
+	}
+
+	/**
+	 * <p>
+	 * Getter function for the parameter probToMigrate.
+	 * </p>
+	 * @return Probability for one cell to migrate to a metastasise.
+	 */
+	public double getProbToMigrate() {
+		return this.probToMigrate;
+	}
+
+	/**
+	 * <p>
+	 * Getter function for the parameter survivalDestination.
+	 * </p>
+	 * @return Probability for one cell to survive at new location
+	 */
+	public double getSurvivalDestination() {
+		return this.survivalDestination;
+	}
+
+	/**
+	 * <p>
+	 * Getter function for the parameter savePath.
+	 * </p>
+	 * @return Location on file system to store output of the simulation. 
+	 */
+	public String getSavePath() {
+		return this.savePath;
+	}
+
+	/**
+	 * <p>
+	 * Getter function for the parameter fileName.
+	 * </p>
+	 * @return Name of file given for storing the output of the simulation
+	 */
+	public String getFileName() {
+		return this.fileName;
+	}
+
+	/**
+	 * <p>
+	 * Getter function for the parameter simulationRuns.
+	 * </p>
+	 * @return How many times a simulation can be run chronologically
+	 */
+	public int getSimulationRuns() {
+		return this.simulationRuns;
+	}
+
+	/**
+	 * <p>
+	 * Getter function for the parameter gap.
+	 * </p>
+	 * @return The configuration after the amount of steps that the output should be generated.
+	 */
+	public int getGap() {
+		return this.gap;
+	}
+
+	/**
+	 * <p>
+	 * Getter function for the parameter steps.
+	 * </p>
+	 * @return The number of steps each individual simulation should take.
+	 */
+	public int getSteps() {
+		return this.steps;
+	}
+
+	/**
+	 * <p>
+	 * Getter function for the parameter cancerTreatmentStep.
+	 * </p>
+	 * @return At what step the cancer treatment should start in the simulation.
+	 */
+	public int getCancerTreatmentStep() {
+		return this.cancerTreatmentStep;
+	}
+
+	/**
+	 * <p>
+	 * Getter function for the parameter killingSensitive.
+	 * </p>
+	 * @return Percentage of sensitive cells that are killed at every step by the cancer treatment.
+	 */
+	public double getKillingSensitive() {
+		return this.killingSensitive;
+	}
+
+	/**
+	 * <p>
+	 * Getter function for the parameter migrastaticsStep.
+	 * </p>
+	 * @return At what step the migrastatics treatment should start in the simulation
+	 */
+	public int getMigrastaticsStep() {
+		return this.migrastaticsStep;
+	}
+
+	/**
+	 * <p>
+	 * Getter function for the parameter probToMigrateDuringTreatment.
+	 * </p>
+	 * @return The probability to migrate once migrastatics treatment is on.
+	 */
+	public double getProbToMigrateDuringTreatment() {
+		return this.probToMigrateDuringTreatment;
+	}
+
+	/**
+	 * <p>
+	 * Getter function for the parameter ATadaptiveStep.
+	 * </p>
+	 * @return At what step the adaptive treatment should be started.
+	 */
+	public int getATadaptiveStep() {
+		return this.ATadaptiveStep;
+	}
+
+	/**
+	 * <p>
+	 * Getter function for the parameter ATstartTreatment.
+	 * </p>
+	 * @return At what tumor size to start the treatment as a fraction of the initial tumor size
+	 */
+	public double getATstartTreatment() {
+		return this.ATstartTreatment;
+	}
+
+	/**
+	 * <p>
+	 * Getter function for the parameter ATstopTreatment.
+	 * </p>
+	 * @return At what tumor size to stop the treatment as a fraction of the initial tumor size.
+	 */
+	public double getATstopTreatment() {
+		return this.ATstopTreatment;
+	}
+
+	/**
+	 * <p>
+	 * Checks whether a key is read by fromProperties, e.g. to reject misspelled parameters.
+	 * </p>
+	 * @param key The key.
+	 * @return The value if the key is the name of a parameter or an entry payoff&lt;i&gt;&lt;j&gt; of the payoff matrix.
+	 */
+	public static boolean isKey(String key) {
+		return KEYS.contains(key) || key.matches("payoff\\d\\d");
+	}
+
+	/**
+	 * <p>
+	 * Reads a configuration from properties. The keys are the names of the parameters of the constructor, the payoff matrix is given
+	 * entry by entry as payoff00, payoff01, ... and the initial distribution as a comma separated list whose entries may be fractions like 3/4.
+	 * Missing keys get the defaults of the GUI.
+	 * </p>
+	 * @param p The properties to read.
+	 * @return The configuration.
+	 * @throws IllegalArgumentException If a value cannot be parsed, the message names the key.
+	 */
+	public static SimulationConfig fromProperties(Properties p) {
+		int numberTypes = intValue(p, "numberTypes", "2");
+		double[][] payoffMatrix = new double[numberTypes][numberTypes];
+		String[] defaultPayoff = {"0.7", "0.3", "0.2", "0.2"};
+		for (int i = 0; i < numberTypes; i++) {
+			for (int j = 0; j < numberTypes; j++) {
+				String def = numberTypes == 2 ? defaultPayoff[2 * i + j] : "0";
+				payoffMatrix[i][j] = doubleValue(p, "payoff" + i + j, def);
+			}
+		}
+		String[] distri = p.getProperty("initDistribution", "3/4,1/4").split(",");
+		double[] initDistribution = new double[distri.length];
+		for (int i = 0; i < distri.length; i++) {
+			initDistribution[i] = fraction("initDistribution", distri[i].trim());
+		}
+		return new SimulationConfig(
+				p.getProperty("filePath", ""),
+				intValue(p, "initPopulationSize", "2000"),
+				initDistribution,
+				intValue(p, "initPlaceInds", "0"),
+				intValue(p, "initTumorsize", "10"),
+				numberTypes,
+				payoffMatrix,
+				doubleValue(p, "interactionRadius", "1"),
+				doubleValue(p, "offspringRadius", "1"),
+				doubleValue(p, "deathProbability", "0.20"),
+				doubleValue(p, "carryingCapacity", "6"),
+				intValue(p, "numberMigrationSites", "8"),
+				doubleValue(p, "fractionInvasiveCells", "0.1"),
+				doubleValue(p, "probToMigrate", "0.1"),
+				doubleValue(p, "survivalDestination", "0.1"),
+				p.getProperty("savePath", ""),
+				p.getProperty("fileName", "Test"),
+				intValue(p, "simulationRuns", "1"),
+				intValue(p, "gap", "1"),
+				intValue(p, "steps", "100"),
+				intValue(p, "cancerTreatmentStep", "-1"),
+				doubleValue(p, "killingSensitive", "0.9"),
+				intValue(p, "migrastaticsStep", "-1"),
+				doubleValue(p, "probToMigrateDuringTreatment", "0.01"),
+				intValue(p, "ATadaptiveStep", "0"),
+				doubleValue(p, "ATstartTreatment", "1"),
+				doubleValue(p, "ATstopTreatment", "0.5"));
+	}
+
+	/**
+	 * <p>
+	 * Writes the configuration to properties with the keys read by fromProperties.
+	 * </p>
+	 * @return The properties.
+	 */
+	public Properties toProperties() {
+		Properties p = new Properties();
+		p.setProperty("filePath", filePath);
+		p.setProperty("initPopulationSize", Integer.toString(initPopulationSize));
+		StringBuilder distri = new StringBuilder();
+		for (int i = 0; i < initDistribution.length; i++) {
+			distri.append(i > 0 ? "," : "").append(initDistribution[i]);
+		}
+		p.setProperty("initDistribution", distri.toString());
+		p.setProperty("initPlaceInds", Integer.toString(initPlaceInds));
+		p.setProperty("initTumorsize", Integer.toString(initTumorsize));
+		p.setProperty("numberTypes", Integer.toString(numberTypes));
+		for (int i = 0; i < payoffMatrix.length; i++) {
+			for (int j = 0; j < payoffMatrix[i].length; j++) {
+				p.setProperty("payoff" + i + j, Double.toString(payoffMatrix[i][j]));
+			}
+		}
+		p.setProperty("interactionRadius", Double.toString(interactionRadius));
+		p.setProperty("offspringRadius", Double.toString(offspringRadius));
+		p.setProperty("deathProbability", Double.toString(deathProbability));
+		p.setProperty("carryingCapacity", Double.toString(carryingCapacity));
+		p.setProperty("numberMigrationSites", Integer.toString(numberMigrationSites));
+		p.setProperty("fractionInvasiveCells", Double.toString(fractionInvasiveCells));
+		p.setProperty("probToMigrate", Double.toString(probToMigrate));
+		p.setProperty("survivalDestination", Double.toString(survivalDestination));
+		p.setProperty("savePath", savePath);
+		p.setProperty("fileName", fileName);
+		p.setProperty("simulationRuns", Integer.toString(simulationRuns));
+		p.setProperty("gap", Integer.toString(gap));
+		p.setProperty("steps", Integer.toString(steps));
+		p.setProperty("cancerTreatmentStep", Integer.toString(cancerTreatmentStep));
+		p.setProperty("killingSensitive", Double.toString(killingSensitive));
+		p.setProperty("migrastaticsStep", Integer.toString(migrastaticsStep));
+		p.setProperty("probToMigrateDuringTreatment", Double.toString(probToMigrateDuringTreatment));
+		p.setProperty("ATadaptiveStep", Integer.toString(ATadaptiveStep));
+		p.setProperty("ATstartTreatment", Double.toString(ATstartTreatment));
+		p.setProperty("ATstopTreatment", Double.toString(ATstopTreatment));
+		return p;
+	}
+
+	/**
+	 * <p>
+	 * Getter function to get if a key of fromProperties takes an integer value.
+	 * </p>
+	 * @param key The key of the parameter.
+	 * @return The value if the parameter is an integer.
+	 */
+	public static boolean isIntegerParameter(String key) {
+		switch (key) {
+		case "initPopulationSize":
+		case "initPlaceInds":
+		case "initTumorsize":
+		case "numberTypes":
+		case "numberMigrationSites":
+		case "simulationRuns":
+		case "gap":
+		case "steps":
+		case "cancerTreatmentStep":
+		case "migrastaticsStep":
+		case "ATadaptiveStep":
+			return true;
+		default:
+			return false;
+		}
+	}
+
+	static int intValue(Properties p, String key, String def) {
+		String value = p.getProperty(key, def).trim();
+		try {
+			return Integer.parseInt(value);
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException("Invalid value for " + key + ": " + value, e);
+		}
+	}
+
+	static double doubleValue(Properties p, String key, String def) {
+		String value = p.getProperty(key, def).trim();
+		try {
+			return Double.parseDouble(value);
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException("Invalid value for " + key + ": " + value, e);
+		}
+	}
+
+	// same as GUI.DeciToDouble for fractions, plain numbers are parsed as they are
+	private static double fraction(String key, String value) {
+		try {
+			int slash = value.indexOf('/');
+			if (slash < 0) {
+				return Double.parseDouble(value);
+			}
+			return Double.parseDouble(value.substring(0, slash)) / Double.parseDouble(value.substring(slash + 1));
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException("Invalid value for " + key + ": " + value, e);
+		}
+	}
+}
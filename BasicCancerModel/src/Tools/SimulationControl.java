@@ -0,0 +1,152 @@
+package Tools;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+
+/**
+ * <p>
+ * Class SimulationControl exposes a running Controller as MXBean on the platform MBean server, so a simulation can be inspected and
+ * steered with JMX tools like jconsole or VisualVM. Every run is registered under Migrastatics:type=Simulation,controller=c,run=r
+ * while it is computed, c numbers the Controllers of the JVM.
+ * </p>
+ */
+public class SimulationControl implements SimulationControlMXBean {
+
+	private static final AtomicInteger CONTROLLERS = new AtomicInteger();
+
+	private final Controller controller;
+
+	/**
+	 * <p>
+	 * Constructor for the SimulationControl class.
+	 * </p>
+	 * @param controller The Controller that is inspected and steered.
+	 */
+	public SimulationControl(Controller controller) {
+		this.controller = controller;
+	}
+
+	/**
+	 * <p>
+	 * Registers the MXBean of a Controller for a run. A failure is reported on System.err and does not stop the simulation.
+	 * </p>
+	 * @param controller The Controller that computes the run.
+	 * @param run The index of the run.
+	 * @return The name the MXBean is registered under, null if it could not be registered.
+	 */
+	public static ObjectName register(Controller controller, int run) {
+		try {
+			ObjectName name = new ObjectName("Migrastatics:type=Simulation,controller=" + CONTROLLERS.incrementAndGet() + ",run=" + run);
+			ManagementFactory.getPlatformMBeanServer().registerMBean(new SimulationControl(controller), name);
+			return name;
+		} catch (JMException | SecurityException e) {
+			System.err.println("The simulation could not be registered for JMX: " + e);
+			return null;
+		}
+	}
+
+	/**
+	 * <p>
+	 * Removes the MXBean of a run from the platform MBean server.
+	 * </p>
+	 * @param name The name returned by register, may be null.
+	 */
+	public static void unregister(ObjectName name) {
+		if (name == null) {
+			return;
+		}
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		try {
+			if (server.isRegistered(name)) {
+				server.unregisterMBean(name);
+			}
+		} catch (JMException | SecurityException e) {
+			System.err.println("The simulation could not be unregistered from JMX: " + e);
+		}
+	}
+
+	@Override
+	public int getRun() {
+		return this.controller.getRun();
+	}
+
+	@Override
+	public int getStep() {
+		return this.controller.getStep();
+	}
+
+	@Override
+	public int getSteps() {
+		return this.controller.getSteps();
+	}
+
+	@Override
+	public int getPopulationSize() {
+		return this.controller.getCurrentPopulationSize();
+	}
+
+	@Override
+	public int[] getSitePopulations() {
+		return this.controller.getSitePopulations();
+	}
+
+	@Override
+	public double[][] getDistribution() {
+		return this.controller.getDistribution();
+	}
+
+	@Override
+	public double getStepsPerSecond() {
+		return this.controller.getStepsPerSecond();
+	}
+
+	@Override
+	public boolean isTreatmentOn() {
+		return this.controller.isTreatmentCancerOn();
+	}
+
+	@Override
+	public boolean isAdaptiveTreatmentOn() {
+		return this.controller.isATon();
+	}
+
+	@Override
+	public boolean isPaused() {
+		return this.controller.isPaused();
+	}
+
+	@Override
+	public int getGap() {
+		return this.controller.getGap();
+	}
+
+	@Override
+	public void setGap(int gap) {
+		this.controller.setGap(gap);
+	}
+
+	@Override
+	public void pause() {
+		this.controller.setPaused(true);
+	}
+
+	@Override
+	public void resume() {
+		this.controller.setPaused(false);
+	}
+
+	@Override
+	public void cancel() {
+		this.controller.cancel();
+	}
+
+	@Override
+	public void checkpoint() {
+		this.controller.requestCheckpoint();
+	}
+}
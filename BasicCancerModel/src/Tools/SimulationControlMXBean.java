@@ -0,0 +1,135 @@
+package Tools;
+
+
+/**
+ * <p>
+ * Interface SimulationControlMXBean is the JMX management interface of a running simulation, see SimulationControl. The attributes
+ * describe the last finished step, the operations steer the run in progress.
+ * </p>
+ */
+public interface SimulationControlMXBean {
+
+	/**
+	 * <p>
+	 * Getter function to get the index of the run in progress.
+	 * </p>
+	 * @return The index of the run.
+	 */
+	int getRun();
+
+	/**
+	 * <p>
+	 * Getter function to get the index of the last finished step.
+	 * </p>
+	 * @return The index of the step, -1 before the first step.
+	 */
+	int getStep();
+
+	/**
+	 * <p>
+	 * Getter function to get the number of steps of the run.
+	 * </p>
+	 * @return The number of steps.
+	 */
+	int getSteps();
+
+	/**
+	 * <p>
+	 * Getter function to get the number of cells at all sites.
+	 * </p>
+	 * @return The population size.
+	 */
+	int getPopulationSize();
+
+	/**
+	 * <p>
+	 * Getter function to get the number of cells at every site.
+	 * </p>
+	 * @return The number of cells indexed by site.
+	 */
+	int[] getSitePopulations();
+
+	/**
+	 * <p>
+	 * Getter function to get the number of cells of every type at every site.
+	 * </p>
+	 * @return The number of cells indexed by site and type.
+	 */
+	double[][] getDistribution();
+
+	/**
+	 * <p>
+	 * Getter function to get the mean number of steps per second of the run, not counting pauses.
+	 * </p>
+	 * @return The steps per second.
+	 */
+	double getStepsPerSecond();
+
+	/**
+	 * <p>
+	 * Getter function to get if the cancer treatment is on.
+	 * </p>
+	 * @return The value if the treatment is on.
+	 */
+	boolean isTreatmentOn();
+
+	/**
+	 * <p>
+	 * Getter function to get if the adaptive treatment is on.
+	 * </p>
+	 * @return The value if the adaptive treatment is on.
+	 */
+	boolean isAdaptiveTreatmentOn();
+
+	/**
+	 * <p>
+	 * Getter function to get if the simulation is paused.
+	 * </p>
+	 * @return The value if the simulation waits before the next step.
+	 */
+	boolean isPaused();
+
+	/**
+	 * <p>
+	 * Getter function to get the number of steps from one stored step to the next.
+	 * </p>
+	 * @return The number of steps.
+	 */
+	int getGap();
+
+	/**
+	 * <p>
+	 * Setter function for the number of steps from one stored step to the next in the run in progress.
+	 * </p>
+	 * @param gap The number of steps, at least 1.
+	 */
+	void setGap(int gap);
+
+	/**
+	 * <p>
+	 * Pauses the simulation before its next step.
+	 * </p>
+	 */
+	void pause();
+
+	/**
+	 * <p>
+	 * Resumes a paused simulation.
+	 * </p>
+	 */
+	void resume();
+
+	/**
+	 * <p>
+	 * Stops the simulation after the current step, the files of the run are finished.
+	 * </p>
+	 */
+	void cancel();
+
+	/**
+	 * <p>
+	 * Writes a checkpoint of the run before its next step, also while the simulation is paused.
+	 * </p>
+	 */
+	void checkpoint();
+}
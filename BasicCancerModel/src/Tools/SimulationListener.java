@@ -0,0 +1,121 @@
+package Tools;
+
+
+/**
+ * <p>
+ * Interface SimulationListener is informed by the Controller about the progress of a simulation.
+ * The functions are called on the thread that runs the simulation, so they should return quickly. All functions except stepFinished
+ * do nothing by default.
+ * </p>
+ */
+public interface SimulationListener {
+
+	/**
+	 * Listener that ignores all events, e.g. for batch runs without console output.
+	 */
+	SimulationListener NONE = (run, step, steps, populationSize) -> {};
+
+	/**
+	 * <p>
+	 * Called before the first step of a simulation run.
+	 * </p>
+	 * @param run The index of the simulation run.
+	 * @param firstStep The index of the first step, greater than 0 if the run continues from a checkpoint.
+	 * @param steps The number of steps of the run.
+	 * @param populationSize The number of cells at all sites before the first step.
+	 */
+	default void runStarted(int run, int firstStep, int steps, int populationSize) {
+	}
+
+	/**
+	 * <p>
+	 * Called after every step of a simulation run.
+	 * </p>
+	 * @param run The index of the simulation run.
+	 * @param step The index of the step that is finished.
+	 * @param steps The number of steps of the run.
+	 * @param populationSize The number of cells at all sites after the step.
+	 */
+	void stepFinished(int run, int step, int steps, int populationSize);
+
+	/**
+	 * <p>
+	 * Called after every step of a simulation run with the population of every site and the counters of the step.
+	 * </p>
+	 * @param summary The summary of the step that is finished.
+	 */
+	default void stepSummary(StepSummary summary) {
+	}
+
+	/**
+	 * <p>
+	 * Called when the cancer treatment is switched on or off.
+	 * </p>
+	 * @param run The index of the simulation run.
+	 * @param step The index of the step the treatment is switched in.
+	 * @param treatmentCancerOn Whether the treatment is on from this step.
+	 * @param adaptive Whether the switch is part of the adaptive treatment.
+	 */
+	default void treatmentChanged(int run, int step, boolean treatmentCancerOn, boolean adaptive) {
+	}
+
+	/**
+	 * <p>
+	 * Called after the last step of a simulation run once its files are finished.
+	 * </p>
+	 * @param run The index of the simulation run.
+	 * @param lastStep The index of the last step that was computed.
+	 * @param elapsedNanos The time of the run in nanoseconds.
+	 * @param cancelled Whether the run was cancelled before its last step.
+	 */
+	default void runFinished(int run, int lastStep, long elapsedNanos, boolean cancelled) {
+	}
+
+	/**
+	 * <p>
+	 * Called instead of runStarted and runFinished when a run in resume mode is not computed because its checkpoint shows it finished
+	 * before.
+	 * </p>
+	 * @param run The index of the simulation run.
+	 * @param lastStep The index of the last step of the finished run.
+	 */
+	default void runSkipped(int run, int lastStep) {
+	}
+
+	/**
+	 * <p>
+	 * Called by the EnsembleRunner once all runs of an ensemble are finished.
+	 * </p>
+	 * @param runs The number of simulation runs of the ensemble.
+	 * @param parallelism The number of runs that were computed at the same time.
+	 * @param elapsedNanos The time of the ensemble in nanoseconds.
+	 */
+	default void ensembleFinished(int runs, int parallelism, long elapsedNanos) {
+	}
+
+	/**
+	 * <p>
+	 * Called by the ParameterSweep after every simulation run of a sweep, on the thread that computed it. Runs of different points
+	 * finish concurrently.
+	 * </p>
+	 * @param point The index of the sweep point.
+	 * @param run The index of the simulation run of the point.
+	 * @param finished The number of runs of the sweep that are finished, including this one.
+	 * @param total The number of runs of the sweep.
+	 * @param elapsedNanos The time since the start of the sweep in nanoseconds.
+	 * @param failure The exception the run failed with, null if it succeeded.
+	 */
+	default void jobFinished(int point, int run, int finished, int total, long elapsedNanos, Exception failure) {
+	}
+
+	/**
+	 * <p>
+	 * Called by the ParameterSweep once all runs of a sweep are finished.
+	 * </p>
+	 * @param total The number of runs of the sweep.
+	 * @param failed The number of runs that failed.
+	 * @param elapsedNanos The time of the sweep in nanoseconds.
+	 */
+	default void sweepFinished(int total, int failed, long elapsedNanos) {
+	}
+}
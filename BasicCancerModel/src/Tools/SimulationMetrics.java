@@ -0,0 +1,207 @@
+package Tools;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+
+/**
+ * <p>
+ * Class SimulationMetrics collects the time every Phase takes per step. For every phase it keeps the time of the last step, the sum,
+ * the maximum and a histogram of the per-step times whose buckets are an eighth of a power of two wide, so percentiles are accurate
+ * to 12.5%. The Controller adds the times of a step once the step is finished; all functions may be called from other threads.
+ * </p>
+ */
+public class SimulationMetrics {
+
+	private static final int SUB_BUCKET_BITS = 3;		//eight buckets per power of two
+	private static final int BUCKETS = (64 - SUB_BUCKET_BITS + 1) << SUB_BUCKET_BITS;
+
+	private static final Phase[] PHASES = Phase.values();
+
+	private final long[] current = new long[PHASES.length];	//times of the running step, only touched by the simulation thread
+	private final long[] last = new long[PHASES.length];
+	private final long[] total = new long[PHASES.length];
+	private final long[] max = new long[PHASES.length];
+	private final long[][] histograms = new long[PHASES.length][BUCKETS];
+	private long steps;
+
+	/**
+	 * <p>
+	 * Adds time to a phase of the running step. Must only be called by the simulation thread.
+	 * </p>
+	 * @param phase The phase.
+	 * @param nanos The time in nanoseconds.
+	 */
+	public void add(Phase phase, long nanos) {
+		this.current[phase.ordinal()] += nanos;
+	}
+
+	/**
+	 * <p>
+	 * Finishes the running step: its times are added to the histograms and the next step starts from zero.
+	 * Must only be called by the simulation thread.
+	 * </p>
+	 */
+	public void stepFinished() {
+		synchronized (this) {
+			for (int p = 0; p < PHASES.length; p++) {
+				long nanos = this.current[p];
+				this.last[p] = nanos;
+				this.total[p] += nanos;
+				this.max[p] = Math.max(this.max[p], nanos);
+				this.histograms[p][bucket(nanos)]++;
+			}
+			this.steps++;
+		}
+		Arrays.fill(this.current, 0);
+	}
+
+	/**
+	 * <p>
+	 * Getter function to get the number of finished steps.
+	 * </p>
+	 * @return The number of steps.
+	 */
+	public synchronized long getSteps() {
+		return this.steps;
+	}
+
+	/**
+	 * <p>
+	 * Getter function to get the time of a phase in the last finished step.
+	 * </p>
+	 * @param phase The phase.
+	 * @return The time in nanoseconds.
+	 */
+	public synchronized long getLastNanos(Phase phase) {
+		return this.last[phase.ordinal()];
+	}
+
+	/**
+	 * <p>
+	 * Getter function to get the time of a phase summed over all finished steps.
+	 * </p>
+	 * @param phase The phase.
+	 * @return The time in nanoseconds.
+	 */
+	public synchronized long getTotalNanos(Phase phase) {
+		return this.total[phase.ordinal()];
+	}
+
+	/**
+	 * <p>
+	 * Getter function to get the longest time of a phase in a single step.
+	 * </p>
+	 * @param phase The phase.
+	 * @return The time in nanoseconds.
+	 */
+	public synchronized long getMaxNanos(Phase phase) {
+		return this.max[phase.ordinal()];
+	}
+
+	/**
+	 * <p>
+	 * Getter function to get the mean time of a phase per step.
+	 * </p>
+	 * @param phase The phase.
+	 * @return The time in nanoseconds, 0 before the first step.
+	 */
+	public synchronized double getMeanNanos(Phase phase) {
+		return this.steps > 0 ? (double) this.total[phase.ordinal()] / this.steps : 0;
+	}
+
+	/**
+	 * <p>
+	 * Getter function to get a percentile of the per-step times of a phase, as the upper bound of the histogram bucket it falls into.
+	 * </p>
+	 * @param phase The phase.
+	 * @param fraction The percentile as a fraction, e.g. 0.99.
+	 * @return The time in nanoseconds, 0 before the first step.
+	 */
+	public synchronized long getPercentileNanos(Phase phase, double fraction) {
+		long[] histogram = this.histograms[phase.ordinal()];
+		long rank = (long) Math.ceil(Math.min(1, Math.max(0, fraction)) * this.steps);
+		long seen = 0;
+		for (int b = 0; b < BUCKETS; b++) {
+			seen += histogram[b];
+			if (seen >= Math.max(1, rank)) {
+				return Math.min(upperBound(b), this.max[phase.ordinal()]);
+			}
+		}
+		return 0;
+	}
+
+	/**
+	 * <p>
+	 * Getter function to get the histogram of the per-step times of a phase. Bucket b counts the steps with a time from
+	 * getBucketLowerBound(b) up to, but not including, getBucketLowerBound(b + 1).
+	 * </p>
+	 * @param phase The phase.
+	 * @return A copy of the counts of all buckets.
+	 */
+	public synchronized long[] getHistogram(Phase phase) {
+		return this.histograms[phase.ordinal()].clone();
+	}
+
+	/**
+	 * <p>
+	 * Getter function to get the smallest time that falls into a bucket of the histograms.
+	 * </p>
+	 * @param bucket The index of the bucket.
+	 * @return The time in nanoseconds.
+	 */
+	public static long getBucketLowerBound(int bucket) {
+		if (bucket < 1 << SUB_BUCKET_BITS) {
+			return bucket;
+		}
+		int exponent = (bucket >>> SUB_BUCKET_BITS) - 1;
+		long subBucket = bucket & ((1 << SUB_BUCKET_BITS) - 1);
+		return ((1L << SUB_BUCKET_BITS) | subBucket) << exponent;
+	}
+
+	/**
+	 * <p>
+	 * Removes all finished steps.
+	 * </p>
+	 */
+	public synchronized void reset() {
+		Arrays.fill(this.last, 0);
+		Arrays.fill(this.total, 0);
+		Arrays.fill(this.max, 0);
+		for (long[] histogram : this.histograms) {
+			Arrays.fill(histogram, 0);
+		}
+		this.steps = 0;
+	}
+
+	/**
+	 * <p>
+	 * Summary of all phases, one line per phase with mean, 50th, 90th and 99th percentile and maximum in milliseconds per step.
+	 * </p>
+	 * @return The summary.
+	 */
+	@Override
+	public synchronized String toString() {
+		StringBuilder sb = new StringBuilder();
+		sb.append(String.format(Locale.ROOT, "%-20s %10s %10s %10s %10s %10s%n", "phase (ms/step)", "mean", "p50", "p90", "p99", "max"));
+		for (Phase phase : PHASES) {
+			sb.append(String.format(Locale.ROOT, "%-20s %10.3f %10.3f %10.3f %10.3f %10.3f%n", phase, getMeanNanos(phase) / 1e6,
+					getPercentileNanos(phase, 0.5) / 1e6, getPercentileNanos(phase, 0.9) / 1e6,
+					getPercentileNanos(phase, 0.99) / 1e6, getMaxNanos(phase) / 1e6));
+		}
+		return sb.toString();
+	}
+
+	// values below 2^SUB_BUCKET_BITS get a bucket each, larger ones the bucket of their leading SUB_BUCKET_BITS + 1 bits
+	private static int bucket(long nanos) {
+		if (nanos < 1L << SUB_BUCKET_BITS) {
+			return (int) Math.max(0, nanos);
+		}
+		int exponent = 63 - Long.numberOfLeadingZeros(nanos) - SUB_BUCKET_BITS;
+		return ((exponent + 1) << SUB_BUCKET_BITS) | (int) ((nanos >>> exponent) & ((1 << SUB_BUCKET_BITS) - 1));
+	}
+
+	private static long upperBound(int bucket) {
+		return bucket + 1 < BUCKETS ? getBucketLowerBound(bucket + 1) - 1 : Long.MAX_VALUE;
+	}
+}
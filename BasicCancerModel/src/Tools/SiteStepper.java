@@ -0,0 +1,483 @@
+package Tools;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+
+/**
+ * <p>
+ * Class SiteStepper executes the death/migration and the interaction phase of a step for a single site.
+ * Every site has its own SiteStepper, so the sites can be stepped concurrently. Cells that migrate are not written to the
+ * destination site directly but into the inbox slot the destination keeps for this site; the inboxes are merged after all sites
+ * finished the death/migration phase.
+ * </p>
+ */
+public class SiteStepper {
+
+	private static final int NO_OFFSPRING = 0;
+	private static final int OFFSPRING = 1;
+	private static final int ABOVE_CARRYING_CAPACITY = 2;
+	private static final int CELLS_PER_TILE = 2048;		//aimed number of cells per tile in the tiled interaction phase
+
+	private static final int DEATH_STREAM = 0;		//random streams of a step, see RandomVariable.stream
+	private static final int INTERACTION_STREAM = 1;
+	private static final int TILE_STREAM = 2;		//the tiles use TILE_STREAM + tile index
+
+	private int site;
+	private RuleSet rs;
+	private long seed;		//seed of the run, all random streams are derived from it
+	private CellStore survivingCells = new CellStore(0);	//cells that survived the death process
+	private CellStore newField = new CellStore(0);		//newborns and migrated cells
+	private CellStore[] inbox;		//migrants arriving at this site, one slot per source site
+	private SpatialGrid grid;
+	private int[] neighbors = new int[0];
+
+	private Tile[] tiles = new Tile[0];		//buffers of the tiled interaction phase, reused from step to step
+	private int[] tileStart = new int[1];
+	private int[] tileCells = new int[0];
+	private int[] tileOfCell = new int[0];
+
+	private int counterAboveCarryingCapacity;
+	private int counterOffspring;
+	private int counterMigrations;
+	private long shuffleNanos;		//time of the shuffle in the current step
+	private long interactionNanos;	//time of the interaction phase without the shuffle in the current step
+
+	/**
+	 * <p>
+	 * Constructor for the SiteStepper class.
+	 * </p>
+	 * @param site The index of the site (0 = solid tumor).
+	 * @param rs The ruleset of the simulation.
+	 * @param seed The seed of the simulation run.
+	 */
+	public SiteStepper(int site, RuleSet rs, long seed) {
+		this.site = site;
+		this.rs = rs;
+		this.seed = seed;
+		this.grid = new SpatialGrid(rs.getInteractionRadius());
+		int numberSites = rs.getNumberMigrationSites() + 1;
+		this.inbox = new CellStore[numberSites];
+		for (int i = 0; i < numberSites; i++) {
+			this.inbox[i] = new CellStore(0);
+		}
+	}
+
+	/**
+	 * <p>
+	 * Death process and migration of the cells of this site. Surviving cells are kept for the interaction phase, migrating cells
+	 * are put into the inbox of their destination site.
+	 * </p>
+	 * @param step The index of the current step.
+	 * @param cells The cells of this site at the beginning of the step.
+	 * @param allSites The steppers of all sites, indexed by site.
+	 * @param deathProb Probability of cell death.
+	 * @param treatmentCancerOn Whether or not the cancer treatment is on.
+	 * @param killingSensitive Probability that the treatment kills a sensitive cell.
+	 * @param probToMigrate Probability that an invasive cell migrates.
+	 * @param survivalAtDestination Probability that a migrating cell survives at its destination.
+	 */
+	public void deathAndMigration(int step, CellStore cells, SiteStepper[] allSites, double deathProb, boolean treatmentCancerOn,
+			double killingSensitive, double probToMigrate, double survivalAtDestination) {
+		RandomVariable random = RandomVariable.stream(this.seed, step, this.site, DEATH_STREAM);
+		int numberSites = allSites.length;
+		this.counterMigrations = 0;
+		this.survivingCells.clear();
+		for (int i = 0; i < numberSites; i++) {
+			allSites[i].inbox[this.site].clear();
+		}
+
+		for (int i = 0; i < cells.size(); i++) {
+			//natural death probability
+			if (random.getDouble() > deathProb) {
+				short type = cells.getType(i);
+				//individual survives if no cancer treatment or resistant type or sensitive, but coins says it survives
+				if (!treatmentCancerOn || type == 2 || random.getDouble() > killingSensitive) {
+					if (cells.isInvasive(i)) {
+						if (random.getDouble() < probToMigrate) {
+							if (random.getDouble() < survivalAtDestination) {
+								int newSite = random.getInt(numberSites-1) + 1;
+
+								// new position of migrating cell
+								double[] positionNewSite = this.rs.getSiteLocation(newSite);
+								double r2 = this.rs.getInteractionRadius() * Math.sqrt(random.getDouble());
+								double theta2 = 2 * Math.PI * random.getDouble();
+								allSites[newSite].inbox[this.site].add(type, true, positionNewSite[0] + r2 * Math.cos(theta2),
+										positionNewSite[1] + r2 * Math.sin(theta2), cells.getId(i));
+
+								counterMigrations += 1;
+							}
+						} else {
+							this.survivingCells.add(cells, i);
+						}
+					} else {
+						this.survivingCells.add(cells, i);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * <p>
+	 * Moves the migrants of all source sites from the inbox into the newborn field, in the order of the source sites.
+	 * Must only be called after all sites finished the death/migration phase.
+	 * </p>
+	 */
+	public void receiveMigrants() {
+		this.newField.clear();
+		for (int source = 0; source < this.inbox.length; source++) {
+			this.newField.addAll(this.inbox[source]);
+		}
+	}
+
+	/**
+	 * <p>
+	 * Interaction phase: the surviving cells interact in random order and may place offspring into the newborn field.
+	 * </p>
+	 * @param step The index of the current step.
+	 */
+	public void interact(int step) {
+		long start = System.nanoTime();
+		RandomVariable random = RandomVariable.stream(this.seed, step, this.site, INTERACTION_STREAM);
+		prepareInteraction(random);
+		for (int ind = 0; ind < this.survivingCells.size(); ind++) {
+			int outcome = interactCell(ind, random, this.neighbors, null, this.newField);
+			if (outcome == ABOVE_CARRYING_CAPACITY) {
+				counterAboveCarryingCapacity++;
+			} else if (outcome == OFFSPRING) {
+				counterOffspring++;
+			}
+		}
+		this.interactionNanos = System.nanoTime() - start - this.shuffleNanos;
+	}
+
+	/**
+	 * <p>
+	 * Interaction phase with the site split into square tiles that are processed concurrently. A tile is at least as wide as the
+	 * interaction radius plus the offspring radius, so in a 2x2 coloring of the tiles no cell can see the offspring of another tile of
+	 * the same color. The four colors are processed one after another; within a color all tiles run concurrently and collect their
+	 * offspring in their own buffer, which is merged into the newborn field before the next color starts.
+	 * The cells of a tile interact in random order. Every tile draws from its own random stream, so the result does not depend on
+	 * the number of threads.
+	 * </p>
+	 * @param step The index of the current step.
+	 * @param pool The pool the tiles are processed on, null to process them one after another on the calling thread.
+	 */
+	public void interactTiled(int step, ForkJoinPool pool) {
+		double minTileSize = this.rs.getInteractionRadius() + this.rs.getOffspringRadius();
+		if (!(minTileSize > 0)) {
+			interact(step);
+			return;
+		}
+		long start = System.nanoTime();
+		prepareInteraction(RandomVariable.stream(this.seed, step, this.site, INTERACTION_STREAM));
+		int numberSurvivors = this.survivingCells.size();
+		if (numberSurvivors == 0) {
+			this.interactionNanos = System.nanoTime() - start - this.shuffleNanos;
+			return;
+		}
+		double[] x = this.survivingCells.getXArray();
+		double[] y = this.survivingCells.getYArray();
+		double minX = x[0], maxX = x[0], minY = y[0], maxY = y[0];
+		for (int i = 1; i < numberSurvivors; i++) {
+			minX = Math.min(minX, x[i]);
+			maxX = Math.max(maxX, x[i]);
+			minY = Math.min(minY, y[i]);
+			maxY = Math.max(maxY, y[i]);
+		}
+		// the tile size only depends on the cells, not on the number of threads
+		double tileSize = Math.max(minTileSize, Math.sqrt((maxX - minX) * (maxY - minY) * CELLS_PER_TILE / numberSurvivors));
+		int columns = (int) ((maxX - minX) / tileSize) + 1;
+		int rows = (int) ((maxY - minY) / tileSize) + 1;
+		int numberTiles = columns * rows;
+
+		// counting sort of the cells by tile, keeps the random order within each tile
+		if (this.tiles.length < numberTiles) {
+			Tile[] grown = new Tile[numberTiles];
+			System.arraycopy(this.tiles, 0, grown, 0, this.tiles.length);
+			for (int t = this.tiles.length; t < numberTiles; t++) {
+				grown[t] = new Tile(this.rs.getInteractionRadius());
+			}
+			this.tiles = grown;
+			this.tileStart = new int[numberTiles + 1];
+		}
+		if (this.tileCells.length < numberSurvivors) {
+			this.tileCells = new int[numberSurvivors];
+			this.tileOfCell = new int[numberSurvivors];
+		}
+		Arrays.fill(this.tileStart, 0, numberTiles + 1, 0);
+		for (int i = 0; i < numberSurvivors; i++) {
+			int column = Math.min((int) ((x[i] - minX) / tileSize), columns - 1);
+			int row = Math.min((int) ((y[i] - minY) / tileSize), rows - 1);
+			this.tileOfCell[i] = row * columns + column;
+			this.tileStart[this.tileOfCell[i] + 1]++;
+		}
+		for (int t = 0; t < numberTiles; t++) {
+			this.tileStart[t + 1] += this.tileStart[t];
+		}
+		for (int i = 0; i < numberSurvivors; i++) {
+			this.tileCells[this.tileStart[this.tileOfCell[i]]++] = i;
+		}
+		for (int t = numberTiles; t > 0; t--) {
+			this.tileStart[t] = this.tileStart[t - 1];
+		}
+		this.tileStart[0] = 0;
+
+		double offspringRadius = this.rs.getOffspringRadius();
+		int neighborCapacity = this.grid.getNeighborCapacity();
+		ArrayList<ForkJoinTask<?>> running = new ArrayList<ForkJoinTask<?>>();
+		for (int color = 0; color < 4; color++) {
+			running.clear();
+			for (int row = color / 2; row < rows; row += 2) {
+				for (int column = color % 2; column < columns; column += 2) {
+					int t = row * columns + column;
+					if (this.tileStart[t] == this.tileStart[t + 1]) {
+						continue;
+					}
+					Tile tile = this.tiles[t];
+					tile.from = this.tileStart[t];
+					tile.to = this.tileStart[t + 1];
+					tile.newborns.reset(minX + column * tileSize - offspringRadius, minY + row * tileSize - offspringRadius,
+							minX + (column + 1) * tileSize + offspringRadius, minY + (row + 1) * tileSize + offspringRadius);
+					if (tile.neighbors.length < neighborCapacity) {
+						tile.neighbors = new int[neighborCapacity];
+					}
+					tile.random = RandomVariable.stream(this.seed, step, this.site, TILE_STREAM + t);
+					tile.reinitialize();
+					if (pool == null) {
+						tile.invoke();
+					} else {
+						running.add(pool.submit(tile));
+					}
+				}
+			}
+			for (ForkJoinTask<?> task : running) {
+				task.join();
+			}
+			// merge the offspring of this color in tile order before the next color can see it
+			for (int row = color / 2; row < rows; row += 2) {
+				for (int column = color % 2; column < columns; column += 2) {
+					int t = row * columns + column;
+					if (this.tileStart[t] == this.tileStart[t + 1]) {
+						continue;
+					}
+					Tile tile = this.tiles[t];
+					for (int i = 0; i < tile.offspring.size(); i++) {
+						this.grid.insert(tile.offspring.getX(i), tile.offspring.getY(i));
+					}
+					this.newField.addAll(tile.offspring);
+					this.counterAboveCarryingCapacity += tile.counterAboveCarryingCapacity;
+					this.counterOffspring += tile.counterOffspring;
+				}
+			}
+		}
+		this.interactionNanos = System.nanoTime() - start - this.shuffleNanos;
+	}
+
+	/**
+	 * <p>
+	 * Shuffles the surviving cells and builds the bucket grid over them and the cells that migrated to this site.
+	 * </p>
+	 * @param random The random stream used for the shuffle.
+	 */
+	private void prepareInteraction(RandomVariable random) {
+		this.counterAboveCarryingCapacity = 0;
+		this.counterOffspring = 0;
+
+		// Individuals need to interact in random order:
+		long start = System.nanoTime();
+		this.survivingCells.shuffle(random);
+		this.shuffleNanos = System.nanoTime() - start;
+
+		// surviving cells will not be touched anymore. From this store, we get the adults that interact
+		// newField contains the newborns only -> will be used for density check together with surviving cells
+
+		// bucket grid over the surviving individuals: neighbor lookups only visit the buckets around an individual
+		this.grid.build(this.survivingCells.getXArray(), this.survivingCells.getYArray(), this.survivingCells.size());
+		if (this.neighbors.length < this.grid.getNeighborCapacity()) {
+			this.neighbors = new int[this.grid.getNeighborCapacity()];
+		}
+		// the newborn field already holds the cells that migrated to this site, offspring is added as it is born
+		for (int i = 0; i < this.newField.size(); i++) {
+			this.grid.insert(this.newField.getX(i), this.newField.getY(i));
+		}
+	}
+
+	/**
+	 * <p>
+	 * Lets one surviving cell interact with its neighborhood.
+	 * </p>
+	 * @param ind The index of the surviving cell.
+	 * @param random The random stream of the cell's tile or site.
+	 * @param neighbors Buffer for the neighbor search.
+	 * @param localNewborns Offspring of the current tile that is not yet part of the grid, null if offspring goes to the grid directly.
+	 * @param offspringOut The store the offspring is added to.
+	 * @return ABOVE_CARRYING_CAPACITY, OFFSPRING or NO_OFFSPRING.
+	 */
+	private int interactCell(int ind, RandomVariable random, int[] neighbors, SpatialGrid localNewborns, CellStore offspringOut) {
+		double interactionRadius = rs.getInteractionRadius();
+		double offspringRadius = this.rs.getOffspringRadius();
+		short typeInd = this.survivingCells.getType(ind);
+		double xInd = this.survivingCells.getX(ind);
+		double yInd = this.survivingCells.getY(ind);
+
+		// neighbors are found in store order, so the mating partner is drawn exactly as with a full scan
+		int numberNeighbors = this.grid.collectNeighbors(xInd, yInd, interactionRadius, neighbors);
+		int density = numberNeighbors + this.grid.countInserted(xInd, yInd, interactionRadius);
+		if (localNewborns != null) {
+			density += localNewborns.countInserted(xInd, yInd, interactionRadius);
+		}
+
+		// check if density is smaller carrying capacity
+		if (density / (Math.PI * offspringRadius * offspringRadius) >= this.rs.getCarryingCapacity()) {
+			return ABOVE_CARRYING_CAPACITY;
+		}
+		int matingPartner;
+		if (numberNeighbors > 1) {
+			// make sure that individual does not interact with itself
+			while (true) {
+				matingPartner = neighbors[random.getInt(numberNeighbors)];
+				if (this.survivingCells.getType(matingPartner) != typeInd
+						|| Math.abs(this.survivingCells.getX(matingPartner) - xInd) > 0.000000001
+						|| Math.abs(this.survivingCells.getY(matingPartner) - yInd) > 0.000000001) {
+					break;
+				}
+			}
+			if (rs.getPayoffMatrixEntry(typeInd, this.survivingCells.getType(matingPartner)) > random.getDouble()) {
+				// place offspring in offspring radius
+				boolean invasive;
+				if (random.getDouble() < this.rs.getFractionInvasiveCells()) {
+					invasive = true;
+				} else {
+					invasive = false;
+				}
+
+				double r2 = offspringRadius * Math.sqrt(random.getDouble());
+				double theta2 = 2 * Math.PI * random.getDouble();
+				double xOffspring = xInd + r2 * Math.cos(theta2);
+				double yOffspring = yInd + r2 * Math.sin(theta2);
+
+				offspringOut.add(typeInd, invasive, xOffspring, yOffspring);
+				if (localNewborns != null) {
+					localNewborns.insert(xOffspring, yOffspring);
+				} else {
+					this.grid.insert(xOffspring, yOffspring);
+				}
+				return OFFSPRING;
+			}
+		}
+		return NO_OFFSPRING;
+	}
+
+	/**
+	 * <p>
+	 * A tile of the site in the tiled interaction phase, with its own buffers for offspring and the neighbor search.
+	 * </p>
+	 */
+	private class Tile extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private int from;		//the cells of the tile are tileCells[from] until tileCells[to-1]
+		private int to;
+		private RandomVariable random;
+		private CellStore offspring = new CellStore(0);
+		private SpatialGrid newborns;
+		private int[] neighbors = new int[0];
+		private int counterAboveCarryingCapacity;
+		private int counterOffspring;
+
+		private Tile(double interactionRadius) {
+			this.newborns = new SpatialGrid(interactionRadius);
+		}
+
+		@Override
+		protected void compute() {
+			this.offspring.clear();
+			this.counterAboveCarryingCapacity = 0;
+			this.counterOffspring = 0;
+			for (int k = this.from; k < this.to; k++) {
+				int outcome = interactCell(tileCells[k], this.random, this.neighbors, this.newborns, this.offspring);
+				if (outcome == ABOVE_CARRYING_CAPACITY) {
+					this.counterAboveCarryingCapacity++;
+				} else if (outcome == OFFSPRING) {
+					this.counterOffspring++;
+				}
+			}
+		}
+	}
+
+	/**
+	 * <p>
+	 * Getter function to get the cells that survived the death process of the current step.
+	 * </p>
+	 * @return The surviving cells.
+	 */
+	public CellStore getSurvivingCells() {
+		return this.survivingCells;
+	}
+
+	/**
+	 * <p>
+	 * Getter function to get the newborns and migrated cells of the current step.
+	 * </p>
+	 * @return The newborn field.
+	 */
+	public CellStore getNewField() {
+		return this.newField;
+	}
+
+	/**
+	 * <p>
+	 * Getter function to get the number of cells that could not interact because of the carrying capacity in the current step.
+	 * </p>
+	 * @return The number of cells above carrying capacity.
+	 */
+	public int getCounterAboveCarryingCapacity() {
+		return this.counterAboveCarryingCapacity;
+	}
+
+	/**
+	 * <p>
+	 * Getter function to get the number of offspring placed in the current step.
+	 * </p>
+	 * @return The number of offspring.
+	 */
+	public int getCounterOffspring() {
+		return this.counterOffspring;
+	}
+
+	/**
+	 * <p>
+	 * Getter function to get the number of cells that left this site in the current step.
+	 * </p>
+	 * @return The number of successful migrations.
+	 */
+	public int getCounterMigrations() {
+		return this.counterMigrations;
+	}
+
+	/**
+	 * <p>
+	 * Getter function to get the time the shuffle of the surviving cells took in the current step.
+	 * </p>
+	 * @return The time in nanoseconds.
+	 */
+	public long getShuffleNanos() {
+		return this.shuffleNanos;
+	}
+
+	/**
+	 * <p>
+	 * Getter function to get the time the interaction phase took in the current step, without the shuffle.
+	 * </p>
+	 * @return The time in nanoseconds.
+	 */
+	public long getInteractionNanos() {
+		return this.interactionNanos;
+	}
+}
@@ -0,0 +1,39 @@
+package Tools;
+
+
+/**
+ * <p>
+ * Enum SnapshotFormat selects how the locations of the cells are stored at every gap'th step.
+ * </p>
+ */
+public enum SnapshotFormat {
+
+	/**
+	 * One line of text per cell in Location&lt;run&gt;.m, readable by the MATLAB scripts.
+	 */
+	TEXT,
+	/**
+	 * Binary columns per step in Location&lt;run&gt;.bin with an index of the steps, see UI.BinarySnapshotWriter.
+	 */
+	BINARY,
+	/**
+	 * Keyframes with all cells and in between only the births, deaths and migrations in Location&lt;run&gt;.delta, see UI.DeltaSnapshotWriter.
+	 */
+	DELTA,
+	/**
+	 * No locations are stored, e.g. when the densities of a DensityGrid are enough.
+	 */
+	NONE;
+
+	/**
+	 * <p>
+	 * Function to get a format from its name, ignoring the case.
+	 * </p>
+	 * @param name The name of the format, e.g. text, binary, delta or none.
+	 * @return The format.
+	 * @throws IllegalArgumentException If there is no format with that name.
+	 */
+	public static SnapshotFormat parse(String name) {
+		return valueOf(name.trim().toUpperCase());
+	}
+}
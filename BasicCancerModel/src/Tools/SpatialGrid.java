@@ -0,0 +1,261 @@
+package Tools;
+
+import java.util.Arrays;
+
+
+/**
+ * <p>
+ * Class SpatialGrid is a uniform bucket grid over the cells of one site. The buckets are at least as wide as the interaction radius,
+ * so all cells within the interaction radius of a position are found in the 3x3 buckets around it instead of scanning the whole site.
+ * The grid is built once per step over the surviving cells, which are read-only afterwards. Newborn cells can be inserted into the same
+ * buckets one by one while the step goes on.
+ * </p>
+ */
+public class SpatialGrid {
+
+	private double minCellSize;		//the interaction radius
+	private double cellSize;		//width of one bucket, never smaller than the interaction radius
+	private double originX;			//lower left corner of the grid
+	private double originY;
+	private int columns;
+	private int rows;
+	private int[] bucketStart = new int[1];		//bucket b holds bucketItems[bucketStart[b]] until bucketItems[bucketStart[b+1]-1]
+	private int[] bucketItems = new int[0];		//indices of the cells, ascending within every bucket
+	private int[] bucketOfItem = new int[0];
+	private int maxBucketSize;		//number of cells in the fullest bucket
+	private double[] x;
+	private double[] y;
+
+	private int[] insertedHead = new int[1];		//first inserted cell of every bucket, -1 if there is none
+	private int[] insertedNext = new int[0];		//next inserted cell in the same bucket, -1 at the end of the chain
+	private double[] insertedX = new double[0];
+	private double[] insertedY = new double[0];
+	private int insertedSize;
+
+	/**
+	 * <p>
+	 * Constructor for the SpatialGrid class.
+	 * </p>
+	 * @param interactionRadius The interaction radius, used as the minimal width of a bucket.
+	 */
+	public SpatialGrid(double interactionRadius) {
+		this.minCellSize = interactionRadius > 0 ? interactionRadius : 1;
+	}
+
+	/**
+	 * <p>
+	 * Sorts the given cells into the buckets. The coordinate arrays are kept by reference and must not be changed until the next build.
+	 * All previously inserted cells are removed.
+	 * </p>
+	 * @param x The X axis locations of the cells.
+	 * @param y The Y axis locations of the cells.
+	 * @param size The number of cells to use from the arrays.
+	 */
+	public void build(double[] x, double[] y, int size) {
+		this.x = x;
+		this.y = y;
+
+		double minX = 0, minY = 0, maxX = 0, maxY = 0;
+		if (size > 0) {
+			minX = maxX = x[0];
+			minY = maxY = y[0];
+			for (int i = 1; i < size; i++) {
+				minX = Math.min(minX, x[i]);
+				maxX = Math.max(maxX, x[i]);
+				minY = Math.min(minY, y[i]);
+				maxY = Math.max(maxY, y[i]);
+			}
+		}
+		this.originX = minX;
+		this.originY = minY;
+
+		// a few far away cells must not blow up the grid: keep at most about two buckets per cell
+		double width = this.minCellSize;
+		double area = (maxX - minX + width) * (maxY - minY + width);
+		if (area / (width * width) > 2.0 * size + 16) {
+			width = Math.sqrt(area / (2.0 * size + 16));
+		}
+		this.columns = (int) ((maxX - minX) / width) + 1;
+		this.rows = (int) ((maxY - minY) / width) + 1;
+		this.cellSize = width;
+
+		int buckets = columns * rows;
+		if (bucketStart.length < buckets + 1) {
+			bucketStart = new int[buckets + 1];
+		} else {
+			Arrays.fill(bucketStart, 0, buckets + 1, 0);
+		}
+		if (bucketItems.length < size) {
+			bucketItems = new int[size];
+			bucketOfItem = new int[size];
+		}
+
+		// counting sort of the cells by bucket, keeps the original order within each bucket
+		for (int i = 0; i < size; i++) {
+			int bucket = bucketOf(x[i], y[i]);
+			bucketOfItem[i] = bucket;
+			bucketStart[bucket + 1]++;
+		}
+		maxBucketSize = 0;
+		for (int b = 0; b < buckets; b++) {
+			maxBucketSize = Math.max(maxBucketSize, bucketStart[b + 1]);
+			bucketStart[b + 1] += bucketStart[b];
+		}
+		for (int i = 0; i < size; i++) {
+			int bucket = bucketOfItem[i];
+			bucketItems[bucketStart[bucket]++] = i;
+		}
+		for (int b = buckets; b > 0; b--) {
+			bucketStart[b] = bucketStart[b - 1];
+		}
+		bucketStart[0] = 0;
+
+		if (insertedHead.length < buckets) {
+			insertedHead = new int[buckets];
+		}
+		Arrays.fill(insertedHead, 0, buckets, -1);
+		insertedSize = 0;
+	}
+
+	/**
+	 * <p>
+	 * Sets up an empty grid over the given rectangle, to which cells can only be inserted one by one.
+	 * </p>
+	 * @param minX Smallest X axis location of the rectangle.
+	 * @param minY Smallest Y axis location of the rectangle.
+	 * @param maxX Largest X axis location of the rectangle.
+	 * @param maxY Largest Y axis location of the rectangle.
+	 */
+	public void reset(double minX, double minY, double maxX, double maxY) {
+		this.originX = minX;
+		this.originY = minY;
+		this.cellSize = this.minCellSize;
+		this.columns = (int) ((maxX - minX) / cellSize) + 1;
+		this.rows = (int) ((maxY - minY) / cellSize) + 1;
+		int buckets = columns * rows;
+		if (bucketStart.length < buckets + 1) {
+			bucketStart = new int[buckets + 1];
+		} else {
+			Arrays.fill(bucketStart, 0, buckets + 1, 0);
+		}
+		this.maxBucketSize = 0;
+		if (insertedHead.length < buckets) {
+			insertedHead = new int[buckets];
+		}
+		Arrays.fill(insertedHead, 0, buckets, -1);
+		insertedSize = 0;
+	}
+
+	/**
+	 * <p>
+	 * Getter function to get the number of indices collectNeighbors can return at most for the cells of the last build.
+	 * </p>
+	 * @return The maximal number of neighbors.
+	 */
+	public int getNeighborCapacity() {
+		return 9 * maxBucketSize;
+	}
+
+	/**
+	 * <p>
+	 * Inserts a single cell, e.g. a newborn, into the grid. Positions outside of the grid built from the surviving cells are allowed.
+	 * </p>
+	 * @param xPos X axis location of the cell.
+	 * @param yPos Y axis location of the cell.
+	 */
+	public void insert(double xPos, double yPos) {
+		if (insertedSize == insertedX.length) {
+			int capacity = Math.max(16, insertedSize * 2);
+			insertedNext = Arrays.copyOf(insertedNext, capacity);
+			insertedX = Arrays.copyOf(insertedX, capacity);
+			insertedY = Arrays.copyOf(insertedY, capacity);
+		}
+		int bucket = bucketOf(xPos, yPos);
+		insertedX[insertedSize] = xPos;
+		insertedY[insertedSize] = yPos;
+		insertedNext[insertedSize] = insertedHead[bucket];
+		insertedHead[bucket] = insertedSize;
+		insertedSize++;
+	}
+
+	/**
+	 * <p>
+	 * Counts the inserted cells with a distance smaller than the radius to the given position.
+	 * </p>
+	 * @param xPos X axis location of the position.
+	 * @param yPos Y axis location of the position.
+	 * @param radius The radius around the position, not larger than the interaction radius the grid was made for.
+	 * @return The number of inserted cells within the radius.
+	 */
+	public int countInserted(double xPos, double yPos, double radius) {
+		int found = 0;
+		int colFrom = column(xPos - radius);
+		int colTo = column(xPos + radius);
+		int rowFrom = row(yPos - radius);
+		int rowTo = row(yPos + radius);
+		for (int r = rowFrom; r <= rowTo; r++) {
+			for (int c = colFrom; c <= colTo; c++) {
+				for (int i = insertedHead[r * columns + c]; i != -1; i = insertedNext[i]) {
+					double distance = Math.sqrt((xPos - insertedX[i]) * (xPos - insertedX[i]) + (yPos - insertedY[i]) * (yPos - insertedY[i]));
+					if (distance < radius) {
+						found++;
+					}
+				}
+			}
+		}
+		return found;
+	}
+
+	/**
+	 * <p>
+	 * Collects all cells with a distance smaller than the radius to the given position.
+	 * The indices are returned in ascending order, i.e. in the same order as a linear scan over the cells would find them.
+	 * </p>
+	 * @param xPos X axis location of the position.
+	 * @param yPos Y axis location of the position.
+	 * @param radius The radius around the position, not larger than the interaction radius the grid was made for.
+	 * @param neighbors Array the indices are written to, must be able to hold getNeighborCapacity() indices.
+	 * @return The number of cells found.
+	 */
+	public int collectNeighbors(double xPos, double yPos, double radius, int[] neighbors) {
+		int found = 0;
+		int colFrom = column(xPos - radius);
+		int colTo = column(xPos + radius);
+		int rowFrom = row(yPos - radius);
+		int rowTo = row(yPos + radius);
+		for (int r = rowFrom; r <= rowTo; r++) {
+			for (int c = colFrom; c <= colTo; c++) {
+				int bucket = r * columns + c;
+				for (int k = bucketStart[bucket]; k < bucketStart[bucket + 1]; k++) {
+					int i = bucketItems[k];
+					double distance = Math.sqrt((xPos - x[i]) * (xPos - x[i]) + (yPos - y[i]) * (yPos - y[i]));
+					if (distance < radius) {
+						// insertion sort, every bucket is already ascending so this stays short
+						int j = found++;
+						while (j > 0 && neighbors[j - 1] > i) {
+							neighbors[j] = neighbors[j - 1];
+							j--;
+						}
+						neighbors[j] = i;
+					}
+				}
+			}
+		}
+		return found;
+	}
+
+	private int bucketOf(double xPos, double yPos) {
+		return row(yPos) * columns + column(xPos);
+	}
+
+	// positions outside of the grid are clamped to the border buckets, which keeps the 3x3 lookup correct for them
+	private int column(double xPos) {
+		int c = (int) ((xPos - originX) / cellSize);
+		return c < 0 ? 0 : (c >= columns ? columns - 1 : c);
+	}
+
+	private int row(double yPos) {
+		int r = (int) ((yPos - originY) / cellSize);
+		return r < 0 ? 0 : (r >= rows ? rows - 1 : r);
+	}
+}
@@ -0,0 +1,123 @@
+package Tools;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+
+/**
+ * <p>
+ * Class StepEvent is the Java Flight Recorder event of one simulation step, from the start of its output to the end of the update
+ * of the population, with the time of every Phase as in SimulationMetrics and the counters of the step. It is enabled by default
+ * and recorded once per step, so a continuous recording of a production run shows where the time of every step went.
+ * </p>
+ */
+@Name("Migrastatics.Step")
+@Label("Simulation Step")
+@Category({"Migrastatics", "Simulation"})
+@Description("One step of a simulation run with the time of its phases")
+@StackTrace(false)
+public class StepEvent extends Event {
+
+	@Label("Run")
+	int run;
+
+	@Label("Step")
+	int step;
+
+	@Label("Population Size")
+	@Description("Number of cells at all sites after the step")
+	int populationSize;
+
+	@Label("Offspring")
+	int offspring;
+
+	@Label("Migrations")
+	int migrations;
+
+	@Label("Above Carrying Capacity")
+	@Description("Cells that could not interact because their neighborhood was full")
+	int aboveCarryingCapacity;
+
+	@Label("Death and Migration")
+	@Timespan(Timespan.NANOSECONDS)
+	long deathMigration;
+
+	@Label("Interaction")
+	@Description("Interaction phase of all sites on the simulation thread")
+	@Timespan(Timespan.NANOSECONDS)
+	long interaction;
+
+	@Label("Shuffle")
+	@Description("Summed over the sites")
+	@Timespan(Timespan.NANOSECONDS)
+	long shuffle;
+
+	@Label("Site Interaction")
+	@Description("Without the shuffle, summed over the sites")
+	@Timespan(Timespan.NANOSECONDS)
+	long siteInteraction;
+
+	@Label("Update Population")
+	@Timespan(Timespan.NANOSECONDS)
+	long updatePopulation;
+
+	@Label("Update Distribution")
+	@Timespan(Timespan.NANOSECONDS)
+	long updateDistribution;
+
+	@Label("Save")
+	@Timespan(Timespan.NANOSECONDS)
+	long save;
+
+	@Label("Checkpoint")
+	@Timespan(Timespan.NANOSECONDS)
+	long checkpoint;
+
+	/**
+	 * <p>
+	 * Constructor for a StepEvent that starts now.
+	 * </p>
+	 * @param run The index of the simulation run.
+	 * @param step The index of the step.
+	 */
+	public StepEvent(int run, int step) {
+		this.run = run;
+		this.step = step;
+		begin();
+	}
+
+	/**
+	 * <p>
+	 * Ends the step and commits the event with the times of the last finished step of the metrics, if it is recorded.
+	 * </p>
+	 * @param metrics The metrics the step was just added to.
+	 * @param populationSize The number of cells at all sites after the step.
+	 * @param offspring The number of newborn cells of the step.
+	 * @param migrations The number of cells that migrated in the step.
+	 * @param aboveCarryingCapacity The number of cells that could not interact in the step.
+	 */
+	public void finish(SimulationMetrics metrics, int populationSize, int offspring, int migrations, int aboveCarryingCapacity) {
+		end();
+		if (!shouldCommit()) {
+			return;
+		}
+		this.populationSize = populationSize;
+		this.offspring = offspring;
+		this.migrations = migrations;
+		this.aboveCarryingCapacity = aboveCarryingCapacity;
+		this.deathMigration = metrics.getLastNanos(Phase.DEATH_MIGRATION);
+		this.interaction = metrics.getLastNanos(Phase.INTERACTION);
+		this.shuffle = metrics.getLastNanos(Phase.SHUFFLE);
+		this.siteInteraction = metrics.getLastNanos(Phase.SITE_INTERACTION);
+		this.updatePopulation = metrics.getLastNanos(Phase.UPDATE_POPULATION);
+		this.updateDistribution = metrics.getLastNanos(Phase.UPDATE_DISTRIBUTION);
+		this.save = metrics.getLastNanos(Phase.SAVE);
+		this.checkpoint = metrics.getLastNanos(Phase.CHECKPOINT);
+		commit();
+	}
+}
@@ -0,0 +1,178 @@
+package Tools;
+
+
+/**
+ * <p>
+ * Class StepSummary describes a finished step of a simulation run for a SimulationListener: the population, the counters of the step
+ * and the state of the treatment.
+ * </p>
+ */
+public class StepSummary {
+
+	private final int run;
+	private final int step;
+	private final int steps;
+	private final int[] sitePopulations;
+	private final int populationSize;
+	private final int offspring;
+	private final int migrations;
+	private final int aboveCarryingCapacity;
+	private final boolean treatmentCancerOn;
+	private final boolean ATon;
+	private final long elapsedNanos;
+
+	/**
+	 * <p>
+	 * Constructor for the StepSummary class.
+	 * </p>
+	 * @param run The index of the simulation run.
+	 * @param step The index of the step that is finished.
+	 * @param steps The number of steps of the run.
+	 * @param sitePopulations The number of cells at every site after the step, indexed by site.
+	 * @param offspring The number of newborn cells of the step.
+	 * @param migrations The number of cells that migrated in the step.
+	 * @param aboveCarryingCapacity The number of cells that could not interact because of the carrying capacity.
+	 * @param treatmentCancerOn Whether the cancer treatment was on in the step.
+	 * @param ATon Whether the adaptive treatment was on in the step.
+	 * @param elapsedNanos The time since the start of the run in nanoseconds.
+	 */
+	public StepSummary(int run, int step, int steps, int[] sitePopulations, int offspring, int migrations, int aboveCarryingCapacity,
+			boolean treatmentCancerOn, boolean ATon, long elapsedNanos) {
+		this.run = run;
+		this.step = step;
+		this.steps = steps;
+		this.sitePopulations = sitePopulations;
+		int populationSize = 0;
+		for (int size : sitePopulations) {
+			populationSize += size;
+		}
+		this.populationSize = populationSize;
+		this.offspring = offspring;
+		this.migrations = migrations;
+		this.aboveCarryingCapacity = aboveCarryingCapacity;
+		this.treatmentCancerOn = treatmentCancerOn;
+		this.ATon = ATon;
+		this.elapsedNanos = elapsedNanos;
+	}
+
+	/**
+	 * <p>
+	 * Getter function to get the index of the simulation run.
+	 * </p>
+	 * @return The index of the run.
+	 */
+	public int getRun() {
+		return this.run;
+	}
+
+	/**
+	 * <p>
+	 * Getter function to get the index of the step that is finished.
+	 * </p>
+	 * @return The index of the step.
+	 */
+	public int getStep() {
+		return this.step;
+	}
+
+	/**
+	 * <p>
+	 * Getter function to get the number of steps of the run.
+	 * </p>
+	 * @return The number of steps.
+	 */
+	public int getSteps() {
+		return this.steps;
+	}
+
+	/**
+	 * <p>
+	 * Getter function to get the number of cells at all sites after the step.
+	 * </p>
+	 * @return The population size.
+	 */
+	public int getPopulationSize() {
+		return this.populationSize;
+	}
+
+	/**
+	 * <p>
+	 * Getter function to get the number of cells at a site after the step.
+	 * </p>
+	 * @param site The index of the site (0 = solid tumor).
+	 * @return The number of cells at the site.
+	 */
+	public int getSitePopulation(int site) {
+		return this.sitePopulations[site];
+	}
+
+	/**
+	 * <p>
+	 * Getter function to get the number of sites including the solid tumor.
+	 * </p>
+	 * @return The number of sites.
+	 */
+	public int getNumberSites() {
+		return this.sitePopulations.length;
+	}
+
+	/**
+	 * <p>
+	 * Getter function to get the number of newborn cells of the step.
+	 * </p>
+	 * @return The number of offspring.
+	 */
+	public int getOffspring() {
+		return this.offspring;
+	}
+
+	/**
+	 * <p>
+	 * Getter function to get the number of cells that migrated to another site in the step.
+	 * </p>
+	 * @return The number of successful migrations.
+	 */
+	public int getMigrations() {
+		return this.migrations;
+	}
+
+	/**
+	 * <p>
+	 * Getter function to get the number of cells that could not interact because their neighborhood was above the carrying capacity.
+	 * </p>
+	 * @return The number of blocked interactions.
+	 */
+	public int getAboveCarryingCapacity() {
+		return this.aboveCarryingCapacity;
+	}
+
+	/**
+	 * <p>
+	 * Getter function to get if the cancer treatment was on in the step.
+	 * </p>
+	 * @return The value if the treatment was on.
+	 */
+	public boolean isTreatmentCancerOn() {
+		return this.treatmentCancerOn;
+	}
+
+	/**
+	 * <p>
+	 * Getter function to get if the adaptive treatment was on in the step.
+	 * </p>
+	 * @return The value if the adaptive treatment was on.
+	 */
+	public boolean isATon() {
+		return this.ATon;
+	}
+
+	/**
+	 * <p>
+	 * Getter function to get the time since the start of the run.
+	 * </p>
+	 * @return The time in nanoseconds.
+	 */
+	public long getElapsedNanos() {
+		return this.elapsedNanos;
+	}
+}
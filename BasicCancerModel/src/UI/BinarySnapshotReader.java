@@ -0,0 +1,257 @@
+package UI;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+
+/**
+ * <p>
+ * Class BinarySnapshotReader reads the files written by BinarySnapshotWriter. Any step can be read directly through the index.
+ * If the index is missing because the run was aborted, the complete blocks are found by reading the file from the start.
+ * </p>
+ */
+public class BinarySnapshotReader implements SnapshotReader {
+
+	private FileChannel file;
+	private int run;
+	private int sites;
+	private long seed;
+	private int[] steps = new int[16];
+	private int[] cells = new int[16];
+	private long[] offsets = new long[16];
+	private int stepCount;
+
+	/**
+	 * <p>
+	 * Constructor for the BinarySnapshotReader class, reads the header and the index.
+	 * </p>
+	 * @param path The path of the file.
+	 * @throws IOException Exception thrown if the file cannot be read or is no snapshot file.
+	 */
+	public BinarySnapshotReader(String path) throws IOException {
+		this.file = FileChannel.open(Paths.get(path), StandardOpenOption.READ);
+		try {
+			ByteBuffer header = read(0, BinarySnapshotWriter.HEADER_SIZE);
+			if (header.getLong() != BinarySnapshotWriter.FILE_MAGIC) {
+				throw new IOException(path + " is no binary snapshot file");
+			}
+			int version = header.getInt();
+			if (version != BinarySnapshotWriter.VERSION) {
+				throw new IOException("Unsupported snapshot version " + version + " in " + path);
+			}
+			header.getInt();
+			this.run = header.getInt();
+			this.sites = header.getInt();
+			this.seed = header.getLong();
+			if (!readIndex()) {
+				scanBlocks();
+			}
+		} catch (IOException e) {
+			file.close();
+			throw e;
+		}
+	}
+
+	// reads the index through the trailer, false if there is no valid trailer
+	private boolean readIndex() throws IOException {
+		long size = file.size();
+		if (size < BinarySnapshotWriter.HEADER_SIZE + 16) {
+			return false;
+		}
+		ByteBuffer trailer = read(size - 16, 16);
+		long indexPosition = trailer.getLong();
+		int count = trailer.getInt();
+		if (trailer.getInt() != BinarySnapshotWriter.INDEX_MAGIC || count < 0 || indexPosition + 16L * count != size - 16) {
+			return false;
+		}
+		ByteBuffer index = read(indexPosition, 16L * count);
+		for (int k = 0; k < count; k++) {
+			int step = index.getInt();
+			int n = index.getInt();
+			long offset = index.getLong();
+			if (n < 0 || offset < BinarySnapshotWriter.HEADER_SIZE || offset + BinarySnapshotWriter.blockSize(n) > indexPosition) {
+				stepCount = 0;
+				return false;
+			}
+			add(step, n, offset);
+		}
+		return true;
+	}
+
+	// finds the complete blocks of a file without index
+	private void scanBlocks() throws IOException {
+		long size = file.size();
+		long position = BinarySnapshotWriter.HEADER_SIZE;
+		while (position + 16 <= size) {
+			ByteBuffer block = read(position, 16);
+			if (block.getInt() != BinarySnapshotWriter.STEP_MAGIC) {
+				break;
+			}
+			int step = block.getInt();
+			int n = block.getInt();
+			long end = position + BinarySnapshotWriter.blockSize(n);
+			if (n < 0 || end > size) {
+				break;
+			}
+			add(step, n, position);
+			position = end;
+		}
+	}
+
+	private void add(int step, int n, long offset) {
+		if (stepCount == steps.length) {
+			steps = Arrays.copyOf(steps, stepCount * 2);
+			cells = Arrays.copyOf(cells, stepCount * 2);
+			offsets = Arrays.copyOf(offsets, stepCount * 2);
+		}
+		steps[stepCount] = step;
+		cells[stepCount] = n;
+		offsets[stepCount] = offset;
+		stepCount++;
+	}
+
+	/**
+	 * <p>
+	 * Reads all cells of a stored step.
+	 * </p>
+	 * @param k The index of the stored step, between 0 and getStepCount()-1.
+	 * @return The cells of the step.
+	 * @throws IOException Exception thrown if the file cannot be read or the block is corrupt.
+	 * @throws IndexOutOfBoundsException Exception thrown if k is no index of a stored step.
+	 */
+	public SnapshotStep readStep(int k) throws IOException {
+		if (k < 0 || k >= stepCount) {
+			throw new IndexOutOfBoundsException("Stored step " + k + " of " + stepCount);
+		}
+		long position = offsets[k];
+		ByteBuffer head = read(position, 16);
+		if (head.getInt() != BinarySnapshotWriter.STEP_MAGIC) {
+			throw new IOException("Corrupt snapshot block at offset " + position);
+		}
+		int step = head.getInt();
+		int n = head.getInt();
+		boolean separator = head.getInt() != 0;
+		if (n < 0 || position + BinarySnapshotWriter.blockSize(n) > file.size()) {
+			throw new IOException("Corrupt snapshot block at offset " + position);
+		}
+		position += 16;
+
+		short[] type = new short[n];
+		read(position, 2L * n).asShortBuffer().get(type);
+		position += 2L * n;
+		byte[] invasive = new byte[n];
+		read(position, n).get(invasive);
+		position += n;
+		short[] site = new short[n];
+		read(position, 2L * n).asShortBuffer().get(site);
+		position += 2L * n + BinarySnapshotWriter.padding(n);
+		double[] x = new double[n];
+		read(position, 8L * n).asDoubleBuffer().get(x);
+		position += 8L * n;
+		double[] y = new double[n];
+		read(position, 8L * n).asDoubleBuffer().get(y);
+		return new SnapshotStep(step, separator, type, invasive, site, x, y);
+	}
+
+	// a column of more than Integer.MAX_VALUE bytes does not fit into a buffer
+	private ByteBuffer read(long position, long length) throws IOException {
+		if (length > Integer.MAX_VALUE) {
+			throw new IOException("Snapshot block at offset " + position + " is too large to read");
+		}
+		ByteBuffer buffer = ByteBuffer.allocate((int) length).order(ByteOrder.LITTLE_ENDIAN);
+		while (buffer.hasRemaining()) {
+			if (file.read(buffer, position + buffer.position()) < 0) {
+				throw new IOException("Unexpected end of snapshot file");
+			}
+		}
+		buffer.flip();
+		return buffer;
+	}
+
+	/**
+	 * <p>
+	 * Getter function to get if readStep can be called by several threads at the same time.
+	 * </p>
+	 * @return Always true, the blocks are read with positional reads.
+	 */
+	public boolean isConcurrent() {
+		return true;
+	}
+
+	/**
+	 * <p>
+	 * Getter function to get the number of stored steps.
+	 * </p>
+	 * @return The number of steps in the file.
+	 */
+	public int getStepCount() {
+		return stepCount;
+	}
+
+	/**
+	 * <p>
+	 * Getter function to get the step of the simulation of a stored step.
+	 * </p>
+	 * @param k The index of the stored step.
+	 * @return The step of the simulation.
+	 */
+	public int getStep(int k) {
+		return steps[k];
+	}
+
+	/**
+	 * <p>
+	 * Getter function to get the number of cells of a stored step.
+	 * </p>
+	 * @param k The index of the stored step.
+	 * @return The number of cells at all sites.
+	 */
+	public int getCellCount(int k) {
+		return cells[k];
+	}
+
+	/**
+	 * <p>
+	 * Getter function to get the index of the simulation run.
+	 * </p>
+	 * @return The run stored in the header.
+	 */
+	public int getRun() {
+		return run;
+	}
+
+	/**
+	 * <p>
+	 * Getter function to get the number of sites.
+	 * </p>
+	 * @return The number of sites, including the primary tumor.
+	 */
+	public int getSites() {
+		return sites;
+	}
+
+	/**
+	 * <p>
+	 * Getter function to get the seed of the simulation.
+	 * </p>
+	 * @return The seed given for all runs.
+	 */
+	public long getSeed() {
+		return seed;
+	}
+
+	/**
+	 * <p>
+	 * Closes the file.
+	 * </p>
+	 * @throws IOException Exception thrown if the file cannot be closed.
+	 */
+	public void close() throws IOException {
+		file.close();
+	}
+}
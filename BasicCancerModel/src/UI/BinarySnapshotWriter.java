@@ -0,0 +1,231 @@
+package UI;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+import Tools.CellStore;
+
+
+/**
+ * <p>
+ * Class BinarySnapshotWriter stores the cells of every gap'th step in a compact binary file instead of Location&lt;run&gt;.m.
+ * All numbers are little-endian, every block starts at a multiple of 8 bytes:
+ * </p>
+ * <ul>
+ * <li>Header (32 bytes): magic "MIGSNAP1", int version, int header size, int run, int number of sites, long seed.</li>
+ * <li>One block per step: int magic "STEP", int step, int number of cells n, byte separator (1 if the text format has a separator
+ * line after the step), 3 bytes padding, then the columns short type[n], byte invasive[n], short site[n], padding to a multiple of 8,
+ * double x[n], double y[n].</li>
+ * <li>Index: per step int step, int number of cells, long offset of the block in the file.</li>
+ * <li>Trailer (16 bytes): long offset of the index, int number of steps, int magic "INDX".</li>
+ * </ul>
+ * <p>
+ * The index allows to seek to any step directly. If a run was aborted before the index was written, the blocks can still be read
+ * one after another. See BinarySnapshotReader and SnapshotConverter.
+ * </p>
+ */
+public class BinarySnapshotWriter {
+
+	/**
+	 * "MIGSNAP1" as little-endian long.
+	 */
+	public static final long FILE_MAGIC = 0x3150414e5347494dL;
+	/**
+	 * Version of the file layout.
+	 */
+	public static final int VERSION = 1;
+	/**
+	 * Size of the header in bytes.
+	 */
+	public static final int HEADER_SIZE = 32;
+	/**
+	 * "STEP" as little-endian int, starts every block.
+	 */
+	public static final int STEP_MAGIC = 0x50455453;
+	/**
+	 * "INDX" as little-endian int, ends the file.
+	 */
+	public static final int INDEX_MAGIC = 0x58444e49;
+
+	private OutputChannel out;
+	private int run;
+	private boolean headerWritten;
+	private int[] indexStep = new int[16];
+	private int[] indexCells = new int[16];
+	private long[] indexOffset = new long[16];
+	private int steps;	//number of steps in the index
+
+	/**
+	 * <p>
+	 * Constructor for the BinarySnapshotWriter class.
+	 * </p>
+	 * @param out The channel of the file.
+	 * @param run The index of the simulation run.
+	 */
+	public BinarySnapshotWriter(OutputChannel out, int run) {
+		this.out = out;
+		this.run = run;
+	}
+
+	/**
+	 * <p>
+	 * Writes the header. Has to be called before the first step, or the header is written without the seed.
+	 * </p>
+	 * @param sites The number of sites, including the primary tumor.
+	 * @param seed The seed given for all runs.
+	 * @throws IOException Exception that is thrown if the file cannot be stored.
+	 */
+	public void writeHeader(int sites, long seed) throws IOException {
+		if (headerWritten) {
+			return;
+		}
+		headerWritten = true;
+		out.writeLong(FILE_MAGIC);
+		out.writeInt(VERSION);
+		out.writeInt(HEADER_SIZE);
+		out.writeInt(run);
+		out.writeInt(sites);
+		out.writeLong(seed);
+	}
+
+	/**
+	 * <p>
+	 * Writes the cells of all sites of one step as one block.
+	 * </p>
+	 * @param cellsAllSites The cells of every site.
+	 * @param step The step of the simulation.
+	 * @param separator The value if the text format would write a separator line after the step.
+	 * @throws IOException Exception that is thrown if the file cannot be stored.
+	 */
+	public void writeStep(CellStore[] cellsAllSites, int step, boolean separator) throws IOException {
+		writeHeader(cellsAllSites.length, 0);
+		int n = 0;
+		for (CellStore cells : cellsAllSites) {
+			n += cells.size();
+		}
+		if (steps == indexStep.length) {
+			indexStep = Arrays.copyOf(indexStep, steps * 2);
+			indexCells = Arrays.copyOf(indexCells, steps * 2);
+			indexOffset = Arrays.copyOf(indexOffset, steps * 2);
+		}
+		indexStep[steps] = step;
+		indexCells[steps] = n;
+		indexOffset[steps] = out.getPosition();
+		steps++;
+
+		out.writeInt(STEP_MAGIC);
+		out.writeInt(step);
+		out.writeInt(n);
+		out.writeInt(separator ? 1 : 0);
+		for (CellStore cells : cellsAllSites) {
+			for (int i = 0; i < cells.size(); i++) {
+				out.writeShort(cells.getType(i));
+			}
+		}
+		for (CellStore cells : cellsAllSites) {
+			for (int i = 0; i < cells.size(); i++) {
+				out.writeByte(cells.isInvasive(i) ? 1 : 0);
+			}
+		}
+		for (int site = 0; site < cellsAllSites.length; site++) {
+			for (int i = 0; i < cellsAllSites[site].size(); i++) {
+				out.writeShort(site);
+			}
+		}
+		for (int pad = padding(n); pad > 0; pad--) {
+			out.writeByte(0);
+		}
+		for (CellStore cells : cellsAllSites) {
+			double[] x = cells.getXArray();
+			for (int i = 0; i < cells.size(); i++) {
+				out.writeDouble(x[i]);
+			}
+		}
+		for (CellStore cells : cellsAllSites) {
+			double[] y = cells.getYArray();
+			for (int i = 0; i < cells.size(); i++) {
+				out.writeDouble(y[i]);
+			}
+		}
+	}
+
+	/**
+	 * <p>
+	 * Writes the index of the steps written so far, for a checkpoint.
+	 * </p>
+	 * @param state The state of the checkpoint.
+	 * @throws IOException Exception that is thrown if the state cannot be written.
+	 */
+	public void writeState(DataOutput state) throws IOException {
+		state.writeInt(steps);
+		for (int k = 0; k < steps; k++) {
+			state.writeInt(indexStep[k]);
+			state.writeInt(indexCells[k]);
+			state.writeLong(indexOffset[k]);
+		}
+	}
+
+	/**
+	 * <p>
+	 * Continues a file from a checkpoint, the channel has to be cut to the size of the file at the checkpoint.
+	 * </p>
+	 * @param state The state written by writeState.
+	 * @throws IOException Exception that is thrown if the state cannot be read.
+	 */
+	public void resume(DataInput state) throws IOException {
+		headerWritten = true;
+		steps = state.readInt();
+		indexStep = new int[Math.max(16, steps)];
+		indexCells = new int[indexStep.length];
+		indexOffset = new long[indexStep.length];
+		for (int k = 0; k < steps; k++) {
+			indexStep[k] = state.readInt();
+			indexCells[k] = state.readInt();
+			indexOffset[k] = state.readLong();
+		}
+	}
+
+	/**
+	 * <p>
+	 * Writes the index and the trailer and closes the file.
+	 * </p>
+	 * @throws IOException Exception that is thrown if the file cannot be stored.
+	 */
+	public void close() throws IOException {
+		writeHeader(0, 0);
+		long indexPosition = out.getPosition();
+		for (int k = 0; k < steps; k++) {
+			out.writeInt(indexStep[k]);
+			out.writeInt(indexCells[k]);
+			out.writeLong(indexOffset[k]);
+		}
+		out.writeLong(indexPosition);
+		out.writeInt(steps);
+		out.writeInt(INDEX_MAGIC);
+		out.close();
+	}
+
+	/**
+	 * <p>
+	 * Function to get the number of padding bytes between the site column and the x column of a block.
+	 * </p>
+	 * @param n The number of cells of the block.
+	 * @return The number of padding bytes.
+	 */
+	static int padding(int n) {
+		return (int) (-(16L + 5L * n) & 7);
+	}
+
+	/**
+	 * <p>
+	 * Function to get the size of a block in bytes.
+	 * </p>
+	 * @param n The number of cells of the block.
+	 * @return The size of the block.
+	 */
+	static long blockSize(int n) {
+		return 16L + 5L * n + padding(n) + 16L * n;
+	}
+}
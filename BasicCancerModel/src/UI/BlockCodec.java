@@ -0,0 +1,239 @@
+package UI;
+
+import java.io.IOException;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import Tools.Compression;
+
+
+/**
+ * <p>
+ * Class BlockCodec packs the chunks of an OutputChannel into independently compressed blocks and unpacks them again. A compressed
+ * file is a sequence of blocks, so the blocks can be compressed on several threads and written in order, and a reader can find all
+ * blocks from their headers and decompress them in parallel.
+ * </p>
+ * <ul>
+ * <li>GZIP: every block is a gzip member (RFC 1952) with an extra field "MB" that holds the size of the member, like the BGZF
+ * format. Concatenated gzip members form a valid gzip file.</li>
+ * <li>LZ: the file starts with the magic "MIGLZBK1", every block is int packed size, int uncompressed size and the data compressed
+ * with LZCodec. If the highest bit of the packed size is set, the data is stored uncompressed.</li>
+ * </ul>
+ * <p>
+ * An instance holds the Deflater, CRC32 and hash table of one thread.
+ * </p>
+ */
+final class BlockCodec {
+
+	/**
+	 * "MIGLZBK1" as little-endian long, starts an LZ file.
+	 */
+	static final long LZ_MAGIC = 0x314b425a4c47494dL;
+	/**
+	 * Size of the gzip header of a block, including the extra field with the size of the member.
+	 */
+	static final int GZIP_HEADER_SIZE = 20;
+	/**
+	 * Size of the header of an LZ block.
+	 */
+	static final int LZ_HEADER_SIZE = 8;
+	/**
+	 * Bit of the packed size of an LZ block that marks uncompressed data.
+	 */
+	static final int STORED = 0x80000000;
+
+	private static final ThreadLocal<BlockCodec> GZIP_CODEC = ThreadLocal.withInitial(() -> new BlockCodec(Compression.GZIP));
+	private static final ThreadLocal<BlockCodec> LZ_CODEC = ThreadLocal.withInitial(() -> new BlockCodec(Compression.LZ));
+
+	private final Compression compression;
+	private Deflater deflater;
+	private Inflater inflater;
+	private CRC32 crc;
+	private LZCodec lz;
+
+	/**
+	 * <p>
+	 * Constructor for the BlockCodec class.
+	 * </p>
+	 * @param compression The compression of the blocks, not NONE.
+	 */
+	BlockCodec(Compression compression) {
+		this.compression = compression;
+		if (compression == Compression.GZIP) {
+			this.deflater = new Deflater(Deflater.BEST_SPEED, true);
+			this.inflater = new Inflater(true);
+			this.crc = new CRC32();
+		} else {
+			this.lz = new LZCodec();
+		}
+	}
+
+	/**
+	 * <p>
+	 * Function to get the codec of the current thread.
+	 * </p>
+	 * @param compression The compression of the blocks, not NONE.
+	 * @return The codec, reused by all later calls of the thread.
+	 */
+	static BlockCodec forThread(Compression compression) {
+		return compression == Compression.GZIP ? GZIP_CODEC.get() : LZ_CODEC.get();
+	}
+
+	/**
+	 * <p>
+	 * Function to get the largest possible size of a packed block.
+	 * </p>
+	 * @param length The size of the uncompressed block.
+	 * @return The size of the buffer pack needs.
+	 */
+	static int maxPackedLength(int length) {
+		return Math.max(LZCodec.maxCompressedLength(length), length + (length >> 3) + 64) + GZIP_HEADER_SIZE + 8;
+	}
+
+	/**
+	 * <p>
+	 * Packs a block.
+	 * </p>
+	 * @param src The uncompressed bytes.
+	 * @param length The number of bytes to pack from the start of src.
+	 * @param dst The buffer for the block, at least maxPackedLength(length) bytes.
+	 * @return The size of the block.
+	 */
+	int pack(byte[] src, int length, byte[] dst) {
+		if (compression == Compression.GZIP) {
+			return packGzip(src, length, dst);
+		}
+		int packed = lz.compress(src, length, dst, LZ_HEADER_SIZE);
+		if (packed >= length) {
+			System.arraycopy(src, 0, dst, LZ_HEADER_SIZE, length);
+			packed = length | STORED;
+		}
+		writeInt(dst, 0, packed);
+		writeInt(dst, 4, length);
+		return LZ_HEADER_SIZE + (packed & ~STORED);
+	}
+
+	private int packGzip(byte[] src, int length, byte[] dst) {
+		int room = dst.length - GZIP_HEADER_SIZE - 8;
+		deflater.reset();
+		deflater.setLevel(Deflater.BEST_SPEED);
+		deflater.setInput(src, 0, length);
+		deflater.finish();
+		int deflated = deflater.deflate(dst, GZIP_HEADER_SIZE, room);
+		if (!deflater.finished()) {
+			// incompressible data, stored deflate blocks only add a few bytes
+			deflater.reset();
+			deflater.setLevel(Deflater.NO_COMPRESSION);
+			deflater.setInput(src, 0, length);
+			deflater.finish();
+			deflated = deflater.deflate(dst, GZIP_HEADER_SIZE, room);
+		}
+		int size = GZIP_HEADER_SIZE + deflated + 8;
+		dst[0] = 0x1f;
+		dst[1] = (byte) 0x8b;
+		dst[2] = 8;			//deflate
+		dst[3] = 4;			//FEXTRA
+		writeInt(dst, 4, 0);	//no modification time
+		dst[8] = 0;
+		dst[9] = (byte) 255;	//unknown operating system
+		dst[10] = 8;		//length of the extra field
+		dst[11] = 0;
+		dst[12] = 'M';
+		dst[13] = 'B';
+		dst[14] = 4;
+		dst[15] = 0;
+		writeInt(dst, 16, size);
+		crc.reset();
+		crc.update(src, 0, length);
+		writeInt(dst, GZIP_HEADER_SIZE + deflated, (int) crc.getValue());
+		writeInt(dst, GZIP_HEADER_SIZE + deflated + 4, length);
+		return size;
+	}
+
+	/**
+	 * <p>
+	 * Function to get the size of a block from its header.
+	 * </p>
+	 * @param compression The compression of the file.
+	 * @param header The first GZIP_HEADER_SIZE or LZ_HEADER_SIZE bytes of the block.
+	 * @return The size of the block, -1 if the header is no header of this codec.
+	 */
+	static int blockSize(Compression compression, byte[] header) {
+		if (compression == Compression.GZIP) {
+			if ((header[0] & 0xff) != 0x1f || (header[1] & 0xff) != 0x8b || header[3] != 4 || header[10] != 8
+					|| header[12] != 'M' || header[13] != 'B' || header[14] != 4) {
+				return -1;
+			}
+			return readInt(header, 16);
+		}
+		int packed = readInt(header, 0) & ~STORED;
+		return packed >= 0 ? LZ_HEADER_SIZE + packed : -1;
+	}
+
+	/**
+	 * <p>
+	 * Function to get the uncompressed size of a complete block.
+	 * </p>
+	 * @param compression The compression of the file.
+	 * @param block The block.
+	 * @param length The size of the block.
+	 * @return The number of uncompressed bytes.
+	 */
+	static int uncompressedSize(Compression compression, byte[] block, int length) {
+		if (compression == Compression.GZIP) {
+			return readInt(block, length - 4);
+		}
+		return readInt(block, 4);
+	}
+
+	/**
+	 * <p>
+	 * Unpacks a block.
+	 * </p>
+	 * @param block The block.
+	 * @param length The size of the block.
+	 * @param dst The buffer for the uncompressed bytes, at least uncompressedSize bytes.
+	 * @return The number of uncompressed bytes.
+	 * @throws IOException Exception thrown if the block is corrupt.
+	 */
+	int unpack(byte[] block, int length, byte[] dst) throws IOException {
+		int size = uncompressedSize(compression, block, length);
+		if (compression == Compression.GZIP) {
+			inflater.reset();
+			try {
+				inflater.setInput(block, GZIP_HEADER_SIZE, length - GZIP_HEADER_SIZE - 8);
+				if (inflater.inflate(dst, 0, size) != size || !inflater.finished()) {
+					throw new IOException("Corrupt gzip block");
+				}
+			} catch (DataFormatException e) {
+				throw new IOException("Corrupt gzip block", e);
+			}
+			crc.reset();
+			crc.update(dst, 0, size);
+			if ((int) crc.getValue() != readInt(block, length - 8)) {
+				throw new IOException("Checksum error in gzip block");
+			}
+			return size;
+		}
+		int packed = readInt(block, 0);
+		if ((packed & STORED) != 0) {
+			System.arraycopy(block, LZ_HEADER_SIZE, dst, 0, size);
+		} else {
+			LZCodec.decompress(block, LZ_HEADER_SIZE, packed, dst, size);
+		}
+		return size;
+	}
+
+	static void writeInt(byte[] b, int p, int v) {
+		b[p] = (byte) v;
+		b[p + 1] = (byte) (v >>> 8);
+		b[p + 2] = (byte) (v >>> 16);
+		b[p + 3] = (byte) (v >>> 24);
+	}
+
+	static int readInt(byte[] b, int p) {
+		return (b[p] & 0xff) | (b[p + 1] & 0xff) << 8 | (b[p + 2] & 0xff) << 16 | (b[p + 3] & 0xff) << 24;
+	}
+}
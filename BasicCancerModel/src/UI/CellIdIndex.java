@@ -0,0 +1,139 @@
+package UI;
+
+import java.util.Arrays;
+
+
+/**
+ * <p>
+ * Class CellIdIndex maps cell IDs to positions in arrays, with open addressing on primitive arrays so that no object is created per cell.
+ * IDs must not be negative.
+ * </p>
+ */
+class CellIdIndex {
+
+	private static final long EMPTY = -1;
+
+	private long[] keys = new long[16];
+	private int[] values = new int[16];
+	private int size;
+
+	/**
+	 * <p>
+	 * Constructor for an empty CellIdIndex.
+	 * </p>
+	 */
+	CellIdIndex() {
+		Arrays.fill(keys, EMPTY);
+	}
+
+	/**
+	 * <p>
+	 * Removes all entries and makes room for the given number of entries.
+	 * </p>
+	 * @param expected The number of entries that will be added.
+	 */
+	void clear(int expected) {
+		int capacity = 16;
+		while (capacity < 2L * expected) {
+			capacity <<= 1;
+		}
+		if (keys.length < capacity) {
+			keys = new long[capacity];
+			values = new int[capacity];
+		}
+		Arrays.fill(keys, EMPTY);
+		size = 0;
+	}
+
+	/**
+	 * <p>
+	 * Sets the position of an ID.
+	 * </p>
+	 * @param id The ID.
+	 * @param value The position.
+	 */
+	void put(long id, int value) {
+		if (2 * (size + 1) > keys.length) {
+			rehash(keys.length * 2);
+		}
+		int mask = keys.length - 1;
+		int slot = hash(id) & mask;
+		while (keys[slot] != EMPTY && keys[slot] != id) {
+			slot = (slot + 1) & mask;
+		}
+		if (keys[slot] == EMPTY) {
+			keys[slot] = id;
+			size++;
+		}
+		values[slot] = value;
+	}
+
+	/**
+	 * <p>
+	 * Getter function to get the position of an ID.
+	 * </p>
+	 * @param id The ID.
+	 * @return The position, -1 if the ID is not in the index.
+	 */
+	int get(long id) {
+		int mask = keys.length - 1;
+		int slot = hash(id) & mask;
+		while (keys[slot] != EMPTY) {
+			if (keys[slot] == id) {
+				return values[slot];
+			}
+			slot = (slot + 1) & mask;
+		}
+		return -1;
+	}
+
+	/**
+	 * <p>
+	 * Removes an ID from the index.
+	 * </p>
+	 * @param id The ID.
+	 */
+	void remove(long id) {
+		int mask = keys.length - 1;
+		int slot = hash(id) & mask;
+		while (keys[slot] != id) {
+			if (keys[slot] == EMPTY) {
+				return;
+			}
+			slot = (slot + 1) & mask;
+		}
+		// backward shift deletion keeps the probe sequences of the following entries intact
+		int gap = slot;
+		slot = (slot + 1) & mask;
+		while (keys[slot] != EMPTY) {
+			int home = hash(keys[slot]) & mask;
+			if (((slot - home) & mask) >= ((slot - gap) & mask)) {
+				keys[gap] = keys[slot];
+				values[gap] = values[slot];
+				gap = slot;
+			}
+			slot = (slot + 1) & mask;
+		}
+		keys[gap] = EMPTY;
+		size--;
+	}
+
+	private void rehash(int capacity) {
+		long[] oldKeys = keys;
+		int[] oldValues = values;
+		keys = new long[capacity];
+		values = new int[capacity];
+		Arrays.fill(keys, EMPTY);
+		size = 0;
+		for (int i = 0; i < oldKeys.length; i++) {
+			if (oldKeys[i] != EMPTY) {
+				put(oldKeys[i], oldValues[i]);
+			}
+		}
+	}
+
+	private static int hash(long id) {
+		long h = id * 0x9e3779b97f4a7c15L;
+		return (int) (h ^ (h >>> 32));
+	}
+}
@@ -0,0 +1,312 @@
+package UI;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.GZIPInputStream;
+
+import Tools.Compression;
+
+
+/**
+ * <p>
+ * Class CompressedFileReader reads the block compressed files of an OutputPipeline. The blocks are found from their headers when
+ * the file is opened, afterwards any block can be decompressed on its own and by any thread. openStream reads the whole file with
+ * several blocks decompressed in parallel ahead of the reader.
+ * </p>
+ */
+public class CompressedFileReader implements Closeable {
+
+	private FileChannel file;
+	private Compression compression;
+	private long[] offsets = new long[16];		//position of every block in the file
+	private int[] sizes = new int[16];			//size of every block in the file
+	private long[] starts = new long[17];		//position of the uncompressed bytes of every block, starts[blocks] is the total size
+	private int blocks;
+
+	/**
+	 * <p>
+	 * Constructor for the CompressedFileReader class, finds all blocks of the file.
+	 * </p>
+	 * @param path The path of the file.
+	 * @throws IOException Exception thrown if the file cannot be read or is no block compressed file.
+	 */
+	public CompressedFileReader(String path) throws IOException {
+		this.file = FileChannel.open(Paths.get(path), StandardOpenOption.READ);
+		try {
+			this.compression = detect(file);
+			if (compression == Compression.NONE) {
+				throw new IOException(path + " is no block compressed file");
+			}
+			scanBlocks();
+		} catch (IOException e) {
+			file.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * <p>
+	 * Opens any output file for reading: block compressed files are decompressed with the given number of threads, other gzip files
+	 * with GZIPInputStream and uncompressed files are read as they are.
+	 * </p>
+	 * @param path The path of the file.
+	 * @param parallelism The number of threads that decompress blocks.
+	 * @return The stream of the uncompressed bytes.
+	 * @throws IOException Exception thrown if the file cannot be read.
+	 */
+	public static InputStream open(String path, int parallelism) throws IOException {
+		Compression compression;
+		boolean blocks;
+		try (FileChannel f = FileChannel.open(Paths.get(path), StandardOpenOption.READ)) {
+			compression = detect(f);
+			blocks = compression == Compression.LZ || (compression == Compression.GZIP && hasBlockHeader(f));
+		}
+		if (blocks) {
+			CompressedFileReader reader = new CompressedFileReader(path);
+			return reader.openStream(parallelism, true);
+		}
+		InputStream in = new FileInputStream(path);
+		if (compression == Compression.GZIP) {
+			return new GZIPInputStream(in, 1 << 16);
+		}
+		return new BufferedInputStream(in, 1 << 16);
+	}
+
+	// the compression of a file from its first bytes
+	private static Compression detect(FileChannel f) throws IOException {
+		ByteBuffer head = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN);
+		while (head.hasRemaining() && f.read(head, head.position()) >= 0) {
+		}
+		head.flip();
+		if (head.remaining() == 8 && head.getLong(0) == BlockCodec.LZ_MAGIC) {
+			return Compression.LZ;
+		}
+		if (head.remaining() >= 2 && (head.get(0) & 0xff) == 0x1f && (head.get(1) & 0xff) == 0x8b) {
+			return Compression.GZIP;
+		}
+		return Compression.NONE;
+	}
+
+	private static boolean hasBlockHeader(FileChannel f) throws IOException {
+		byte[] header = new byte[BlockCodec.GZIP_HEADER_SIZE];
+		ByteBuffer b = ByteBuffer.wrap(header);
+		while (b.hasRemaining() && f.read(b, b.position()) >= 0) {
+		}
+		return !b.hasRemaining() && BlockCodec.blockSize(Compression.GZIP, header) > 0;
+	}
+
+	private void scanBlocks() throws IOException {
+		long size = file.size();
+		long position = compression == Compression.LZ ? 8 : 0;
+		int headerSize = compression == Compression.LZ ? BlockCodec.LZ_HEADER_SIZE : BlockCodec.GZIP_HEADER_SIZE;
+		byte[] header = new byte[headerSize];
+		while (position < size) {
+			read(position, header, headerSize);
+			int blockSize = BlockCodec.blockSize(compression, header);
+			if (blockSize < headerSize || position + blockSize > size) {
+				throw new IOException("Corrupt compressed block at offset " + position);
+			}
+			int uncompressed;
+			if (compression == Compression.LZ) {
+				uncompressed = BlockCodec.readInt(header, 4);
+			} else {
+				byte[] trailer = new byte[4];
+				read(position + blockSize - 4, trailer, 4);
+				uncompressed = BlockCodec.readInt(trailer, 0);
+			}
+			if (blocks == offsets.length) {
+				offsets = Arrays.copyOf(offsets, blocks * 2);
+				sizes = Arrays.copyOf(sizes, blocks * 2);
+				starts = Arrays.copyOf(starts, blocks * 2 + 1);
+			}
+			offsets[blocks] = position;
+			sizes[blocks] = blockSize;
+			starts[blocks + 1] = starts[blocks] + uncompressed;
+			blocks++;
+			position += blockSize;
+		}
+	}
+
+	private void read(long position, byte[] dst, int length) throws IOException {
+		ByteBuffer b = ByteBuffer.wrap(dst, 0, length);
+		while (b.hasRemaining()) {
+			if (file.read(b, position + b.position()) < 0) {
+				throw new IOException("Unexpected end of compressed file");
+			}
+		}
+	}
+
+	/**
+	 * <p>
+	 * Decompresses one block. Can be called by several threads at the same time.
+	 * </p>
+	 * @param k The index of the block, between 0 and getBlockCount()-1.
+	 * @return The uncompressed bytes of the block.
+	 * @throws IOException Exception thrown if the file cannot be read or the block is corrupt.
+	 */
+	public byte[] readBlock(int k) throws IOException {
+		byte[] block = new byte[sizes[k]];
+		read(offsets[k], block, block.length);
+		byte[] data = new byte[(int) (starts[k + 1] - starts[k])];
+		BlockCodec.forThread(compression).unpack(block, block.length, data);
+		return data;
+	}
+
+	/**
+	 * <p>
+	 * Opens a stream over the uncompressed bytes of all blocks.
+	 * </p>
+	 * @param parallelism The number of threads that decompress blocks ahead of the reader, 1 to decompress in the reading thread.
+	 * @return The stream, closing it does not close the reader.
+	 */
+	public InputStream openStream(int parallelism) {
+		return openStream(parallelism, false);
+	}
+
+	private InputStream openStream(int parallelism, boolean closeReader) {
+		return new BlockStream(parallelism, closeReader);
+	}
+
+	/**
+	 * <p>
+	 * Getter function to get the compression of the file.
+	 * </p>
+	 * @return GZIP or LZ.
+	 */
+	public Compression getCompression() {
+		return compression;
+	}
+
+	/**
+	 * <p>
+	 * Getter function to get the number of blocks.
+	 * </p>
+	 * @return The number of blocks in the file.
+	 */
+	public int getBlockCount() {
+		return blocks;
+	}
+
+	/**
+	 * <p>
+	 * Getter function to get the position of the first uncompressed byte of a block.
+	 * </p>
+	 * @param k The index of the block, getBlockCount() for the size of the uncompressed file.
+	 * @return The position in the uncompressed file.
+	 */
+	public long getBlockStart(int k) {
+		return starts[k];
+	}
+
+	/**
+	 * <p>
+	 * Closes the file.
+	 * </p>
+	 * @throws IOException Exception thrown if the file cannot be closed.
+	 */
+	public void close() throws IOException {
+		file.close();
+	}
+
+	/**
+	 * <p>
+	 * Stream over the uncompressed bytes, keeps up to twice as many blocks in flight as it has threads.
+	 * </p>
+	 */
+	private class BlockStream extends InputStream {
+
+		private final ExecutorService executor;
+		private final ArrayDeque<Future<byte[]>> pending = new ArrayDeque<Future<byte[]>>();
+		private final int window;
+		private final boolean closeReader;
+		private int next;		//next block to decompress
+		private byte[] current = new byte[0];
+		private int position;
+
+		BlockStream(int parallelism, boolean closeReader) {
+			this.closeReader = closeReader;
+			this.window = 2 * parallelism;
+			this.executor = parallelism > 1 ? Executors.newFixedThreadPool(parallelism, r -> {
+				Thread t = new Thread(r, "Block decompressor");
+				t.setDaemon(true);
+				return t;
+			}) : null;
+		}
+
+		@Override
+		public int read() throws IOException {
+			if (!fill()) {
+				return -1;
+			}
+			return current[position++] & 0xff;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			if (len == 0) {
+				return 0;
+			}
+			if (!fill()) {
+				return -1;
+			}
+			int n = Math.min(len, current.length - position);
+			System.arraycopy(current, position, b, off, n);
+			position += n;
+			return n;
+		}
+
+		// makes sure there are bytes left in the current block, false at the end of the file
+		private boolean fill() throws IOException {
+			while (position == current.length) {
+				if (executor == null) {
+					if (next == blocks) {
+						return false;
+					}
+					current = readBlock(next++);
+				} else {
+					while (pending.size() < window && next < blocks) {
+						final int k = next++;
+						pending.add(executor.submit(() -> readBlock(k)));
+					}
+					if (pending.isEmpty()) {
+						return false;
+					}
+					try {
+						current = pending.poll().get();
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+						throw new IOException("Interrupted while decompressing", e);
+					} catch (ExecutionException e) {
+						throw new IOException("Decompressing failed: " + e.getCause().getMessage(), e.getCause());
+					}
+				}
+				position = 0;
+			}
+			return true;
+		}
+
+		@Override
+		public void close() throws IOException {
+			if (executor != null) {
+				executor.shutdownNow();
+			}
+			if (closeReader) {
+				CompressedFileReader.this.close();
+			}
+		}
+	}
+}
@@ -0,0 +1,377 @@
+package UI;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+
+/**
+ * <p>
+ * Class DeltaSnapshotReader reads the files written by DeltaSnapshotWriter. A step is rebuilt from the nearest keyframe before it by
+ * applying the following deltas, reading the steps in ascending order only applies one delta per step. The cells of a rebuilt step
+ * are ordered by site and ID, because the order of the cells within a site changes in every step of the simulation.
+ * If the index is missing because the run was aborted, the complete blocks are found by reading the file from the start.
+ * </p>
+ */
+public class DeltaSnapshotReader implements SnapshotReader {
+
+	private FileChannel file;
+	private int run;
+	private int sites;
+	private long seed;
+	private int keyframeInterval;
+	private int[] steps = new int[16];
+	private boolean[] keyframes = new boolean[16];
+	private long[] offsets = new long[16];
+	private int stepCount;
+
+	// cells of the stored step with index current
+	private int current = -1;
+	private boolean currentSeparator;
+	private CellIdIndex index = new CellIdIndex();
+	private long[] id = new long[0];
+	private short[] type = new short[0];
+	private byte[] invasive = new byte[0];
+	private short[] site = new short[0];
+	private double[] x = new double[0];
+	private double[] y = new double[0];
+	private int size;
+
+	/**
+	 * <p>
+	 * Constructor for the DeltaSnapshotReader class, reads the header and the index.
+	 * </p>
+	 * @param path The path of the file.
+	 * @throws IOException Exception thrown if the file cannot be read or is no delta snapshot file.
+	 */
+	public DeltaSnapshotReader(String path) throws IOException {
+		this.file = FileChannel.open(Paths.get(path), StandardOpenOption.READ);
+		try {
+			ByteBuffer header = read(0, DeltaSnapshotWriter.HEADER_SIZE);
+			if (header.getLong() != DeltaSnapshotWriter.FILE_MAGIC) {
+				throw new IOException(path + " is no delta snapshot file");
+			}
+			int version = header.getInt();
+			if (version != DeltaSnapshotWriter.VERSION) {
+				throw new IOException("Unsupported snapshot version " + version + " in " + path);
+			}
+			header.getInt();
+			this.run = header.getInt();
+			this.sites = header.getInt();
+			this.seed = header.getLong();
+			this.keyframeInterval = header.getInt();
+			if (!readIndex()) {
+				scanBlocks();
+			}
+		} catch (IOException e) {
+			file.close();
+			throw e;
+		}
+	}
+
+	// reads the index through the trailer, false if there is no valid trailer
+	private boolean readIndex() throws IOException {
+		long size = file.size();
+		if (size < DeltaSnapshotWriter.HEADER_SIZE + 16) {
+			return false;
+		}
+		ByteBuffer trailer = read(size - 16, 16);
+		long indexPosition = trailer.getLong();
+		int count = trailer.getInt();
+		if (trailer.getInt() != BinarySnapshotWriter.INDEX_MAGIC || count < 0 || indexPosition + 16L * count != size - 16) {
+			return false;
+		}
+		ByteBuffer index = read(indexPosition, 16L * count);
+		for (int k = 0; k < count; k++) {
+			int step = index.getInt();
+			boolean keyframe = index.getInt() == 0;
+			long offset = index.getLong();
+			if (offset < DeltaSnapshotWriter.HEADER_SIZE || offset + 24 > indexPosition) {
+				stepCount = 0;
+				return false;
+			}
+			add(step, keyframe, offset);
+		}
+		return true;
+	}
+
+	// finds the complete blocks of a file without index
+	private void scanBlocks() throws IOException {
+		long size = file.size();
+		long position = DeltaSnapshotWriter.HEADER_SIZE;
+		while (position + 24 <= size) {
+			ByteBuffer block = read(position, 24);
+			int magic = block.getInt();
+			if (magic != DeltaSnapshotWriter.KEYFRAME_MAGIC && magic != DeltaSnapshotWriter.DELTA_MAGIC) {
+				break;
+			}
+			int step = block.getInt();
+			block.getInt();
+			int n = block.getInt();
+			int deaths = block.getInt();
+			long end = position + DeltaSnapshotWriter.blockSize(n, deaths);
+			if (n < 0 || deaths < 0 || end > size) {
+				break;
+			}
+			add(step, magic == DeltaSnapshotWriter.KEYFRAME_MAGIC, position);
+			position = end;
+		}
+	}
+
+	private void add(int step, boolean keyframe, long offset) {
+		if (stepCount == steps.length) {
+			steps = Arrays.copyOf(steps, stepCount * 2);
+			keyframes = Arrays.copyOf(keyframes, stepCount * 2);
+			offsets = Arrays.copyOf(offsets, stepCount * 2);
+		}
+		steps[stepCount] = step;
+		keyframes[stepCount] = keyframe;
+		offsets[stepCount] = offset;
+		stepCount++;
+	}
+
+	/**
+	 * <p>
+	 * Reads all cells of a stored step, ordered by site and ID.
+	 * </p>
+	 * @param k The index of the stored step, between 0 and getStepCount()-1.
+	 * @return The cells of the step, with their IDs.
+	 * @throws IOException Exception thrown if the file cannot be read or a block is corrupt.
+	 * @throws IndexOutOfBoundsException Exception thrown if k is no index of a stored step.
+	 */
+	public SnapshotStep readStep(int k) throws IOException {
+		if (k < 0 || k >= stepCount) {
+			throw new IndexOutOfBoundsException("Stored step " + k + " of " + stepCount);
+		}
+		if (current == k) {
+			return sortedStep(steps[k], currentSeparator);
+		}
+		// go back to the nearest keyframe, or to the step after the one that is already rebuilt
+		int start = k;
+		boolean continued = current >= 0 && current < k;
+		while (!keyframes[start] && !(continued && start == current + 1)) {
+			if (start == 0) {
+				throw new IOException("No keyframe before step " + steps[k]);
+			}
+			start--;
+		}
+		for (int j = start; j <= k; j++) {
+			apply(j);
+		}
+		return sortedStep(steps[k], currentSeparator);
+	}
+
+	// applies the block of stored step j to the current cells
+	private void apply(int j) throws IOException {
+		long position = offsets[j];
+		ByteBuffer head = read(position, 24);
+		int magic = head.getInt();
+		if (magic != DeltaSnapshotWriter.KEYFRAME_MAGIC && magic != DeltaSnapshotWriter.DELTA_MAGIC) {
+			throw new IOException("Corrupt snapshot block at offset " + position);
+		}
+		head.getInt();
+		boolean separator = head.getInt() != 0;
+		int n = head.getInt();
+		int deaths = head.getInt();
+		if (n < 0 || deaths < 0 || position + DeltaSnapshotWriter.blockSize(n, deaths) > file.size()) {
+			throw new IOException("Corrupt snapshot block at offset " + position);
+		}
+		position += 24;
+		if (magic == DeltaSnapshotWriter.KEYFRAME_MAGIC) {
+			size = 0;
+			index.clear(n);
+		}
+
+		ByteBuffer dead = read(position, 8L * deaths);
+		position += 8L * deaths;
+		for (int d = 0; d < deaths; d++) {
+			remove(dead.getLong());
+		}
+
+		ByteBuffer ids = read(position, 8L * n);
+		position += 8L * n;
+		ByteBuffer xs = read(position, 8L * n);
+		position += 8L * n;
+		ByteBuffer ys = read(position, 8L * n);
+		position += 8L * n;
+		ByteBuffer types = read(position, 2L * n);
+		position += 2L * n;
+		ByteBuffer siteColumn = read(position, 2L * n);
+		position += 2L * n;
+		ByteBuffer invasiveColumn = read(position, n);
+		for (int c = 0; c < n; c++) {
+			long cellId = ids.getLong();
+			int p = index.get(cellId);
+			if (p < 0) {
+				if (size == id.length) {
+					grow(size + 1);
+				}
+				p = size++;
+				id[p] = cellId;
+				index.put(cellId, p);
+			}
+			x[p] = xs.getDouble();
+			y[p] = ys.getDouble();
+			type[p] = types.getShort();
+			site[p] = siteColumn.getShort();
+			invasive[p] = invasiveColumn.get();
+		}
+		current = j;
+		currentSeparator = separator;
+	}
+
+	// removes a cell by moving the last cell into its place
+	private void remove(long cellId) throws IOException {
+		int p = index.get(cellId);
+		if (p < 0) {
+			throw new IOException("Unknown cell " + cellId + " in delta snapshot");
+		}
+		index.remove(cellId);
+		int last = --size;
+		if (p != last) {
+			id[p] = id[last];
+			type[p] = type[last];
+			invasive[p] = invasive[last];
+			site[p] = site[last];
+			x[p] = x[last];
+			y[p] = y[last];
+			index.put(id[p], p);
+		}
+	}
+
+	private void grow(int minCapacity) {
+		int capacity = Math.max(Math.max(minCapacity, 16), id.length + (id.length >> 1));
+		id = Arrays.copyOf(id, capacity);
+		type = Arrays.copyOf(type, capacity);
+		invasive = Arrays.copyOf(invasive, capacity);
+		site = Arrays.copyOf(site, capacity);
+		x = Arrays.copyOf(x, capacity);
+		y = Arrays.copyOf(y, capacity);
+	}
+
+	// copies the current cells, ordered by site and ID
+	private SnapshotStep sortedStep(int step, boolean separator) {
+		long[] keys = new long[size];
+		for (int p = 0; p < size; p++) {
+			keys[p] = ((long) site[p] << 48) | id[p];
+		}
+		Arrays.sort(keys);
+		long[] outId = new long[size];
+		short[] outType = new short[size];
+		byte[] outInvasive = new byte[size];
+		short[] outSite = new short[size];
+		double[] outX = new double[size];
+		double[] outY = new double[size];
+		for (int i = 0; i < size; i++) {
+			int p = index.get(keys[i] & 0xffffffffffffL);
+			outId[i] = id[p];
+			outType[i] = type[p];
+			outInvasive[i] = invasive[p];
+			outSite[i] = site[p];
+			outX[i] = x[p];
+			outY[i] = y[p];
+		}
+		return new SnapshotStep(step, separator, outId, outType, outInvasive, outSite, outX, outY);
+	}
+
+	// a column of more than Integer.MAX_VALUE bytes does not fit into a buffer
+	private ByteBuffer read(long position, long length) throws IOException {
+		if (length > Integer.MAX_VALUE) {
+			throw new IOException("Snapshot block at offset " + position + " is too large to read");
+		}
+		ByteBuffer buffer = ByteBuffer.allocate((int) length).order(ByteOrder.LITTLE_ENDIAN);
+		while (buffer.hasRemaining()) {
+			if (file.read(buffer, position + buffer.position()) < 0) {
+				throw new IOException("Unexpected end of snapshot file");
+			}
+		}
+		buffer.flip();
+		return buffer;
+	}
+
+	/**
+	 * <p>
+	 * Getter function to get the number of stored steps.
+	 * </p>
+	 * @return The number of steps in the file.
+	 */
+	public int getStepCount() {
+		return stepCount;
+	}
+
+	/**
+	 * <p>
+	 * Getter function to get the step of the simulation of a stored step.
+	 * </p>
+	 * @param k The index of the stored step.
+	 * @return The step of the simulation.
+	 */
+	public int getStep(int k) {
+		return steps[k];
+	}
+
+	/**
+	 * <p>
+	 * Getter function to get if a stored step is a keyframe.
+	 * </p>
+	 * @param k The index of the stored step.
+	 * @return The value if the step is stored completely.
+	 */
+	public boolean isKeyframe(int k) {
+		return keyframes[k];
+	}
+
+	/**
+	 * <p>
+	 * Getter function to get the index of the simulation run.
+	 * </p>
+	 * @return The run stored in the header.
+	 */
+	public int getRun() {
+		return run;
+	}
+
+	/**
+	 * <p>
+	 * Getter function to get the number of sites.
+	 * </p>
+	 * @return The number of sites, including the primary tumor.
+	 */
+	public int getSites() {
+		return sites;
+	}
+
+	/**
+	 * <p>
+	 * Getter function to get the seed of the simulation.
+	 * </p>
+	 * @return The seed given for all runs.
+	 */
+	public long getSeed() {
+		return seed;
+	}
+
+	/**
+	 * <p>
+	 * Getter function to get the number of stored steps from one keyframe to the next.
+	 * </p>
+	 * @return The keyframe interval.
+	 */
+	public int getKeyframeInterval() {
+		return keyframeInterval;
+	}
+
+	/**
+	 * <p>
+	 * Closes the file.
+	 * </p>
+	 * @throws IOException Exception thrown if the file cannot be closed.
+	 */
+	public void close() throws IOException {
+		file.close();
+	}
+}
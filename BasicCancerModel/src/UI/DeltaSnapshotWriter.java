@@ -0,0 +1,352 @@
+package UI;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+import Tools.CellStore;
+
+
+/**
+ * <p>
+ * Class DeltaSnapshotWriter stores the cells of every gap'th step as the changes since the previous stored step. Cells do not move
+ * unless they migrate, so between two stored steps only the births, deaths and migrations have to be written. Every keyframeInterval'th
+ * stored step is written completely, so a reader never has to apply more than keyframeInterval-1 deltas. Cells are identified by
+ * their stable IDs (see CellStore.getId). All numbers are little-endian, every block starts at a multiple of 8 bytes:
+ * </p>
+ * <ul>
+ * <li>Header (40 bytes): magic "MIGDELT1", int version, int header size, int run, int number of sites, long seed,
+ * int keyframe interval, int padding.</li>
+ * <li>One block per step: int magic "KEYF" for a keyframe or "DELT" for a delta, int step, int separator (1 if the text format has a
+ * separator line after the step), int number of written cells n, int number of deaths d, int padding, then long id[d] of the cells
+ * that died, and the columns of the written cells long id[n], double x[n], double y[n], short type[n], short site[n], byte invasive[n],
+ * padding to a multiple of 8. A keyframe writes all cells, a delta the cells that are new or changed since the previous step.</li>
+ * <li>Index: per step int step, int kind (0 keyframe, 1 delta), long offset of the block in the file.</li>
+ * <li>Trailer (16 bytes): long offset of the index, int number of steps, int magic "INDX".</li>
+ * </ul>
+ * <p>
+ * See DeltaSnapshotReader.
+ * </p>
+ */
+public class DeltaSnapshotWriter {
+
+	/**
+	 * "MIGDELT1" as little-endian long.
+	 */
+	public static final long FILE_MAGIC = 0x31544c454447494dL;
+	/**
+	 * Version of the file layout.
+	 */
+	public static final int VERSION = 1;
+	/**
+	 * Size of the header in bytes.
+	 */
+	public static final int HEADER_SIZE = 40;
+	/**
+	 * "KEYF" as little-endian int, starts a keyframe block.
+	 */
+	public static final int KEYFRAME_MAGIC = 0x4659454b;
+	/**
+	 * "DELT" as little-endian int, starts a delta block.
+	 */
+	public static final int DELTA_MAGIC = 0x544c4544;
+	/**
+	 * Default number of stored steps from one keyframe to the next.
+	 */
+	public static final int DEFAULT_KEYFRAME_INTERVAL = 16;
+
+	private OutputChannel out;
+	private int run;
+	private int keyframeInterval;
+	private boolean headerWritten;
+
+	// cells of the previously stored step
+	private CellIdIndex previous = new CellIdIndex();
+	private long[] prevId = new long[0];
+	private short[] prevType = new short[0];
+	private byte[] prevInvasive = new byte[0];
+	private short[] prevSite = new short[0];
+	private double[] prevX = new double[0];
+	private double[] prevY = new double[0];
+	private boolean[] prevSeen = new boolean[0];
+	private int prevSize;
+
+	// cells written in the current block, as site and index in the store of the site
+	private int[] changedSite = new int[0];
+	private int[] changedIndex = new int[0];
+
+	private int[] indexStep = new int[16];
+	private int[] indexKind = new int[16];
+	private long[] indexOffset = new long[16];
+	private int steps;
+
+	/**
+	 * <p>
+	 * Constructor for the DeltaSnapshotWriter class.
+	 * </p>
+	 * @param out The channel of the file.
+	 * @param run The index of the simulation run.
+	 * @param keyframeInterval The number of stored steps from one keyframe to the next, 1 to write every step completely.
+	 */
+	public DeltaSnapshotWriter(OutputChannel out, int run, int keyframeInterval) {
+		this.out = out;
+		this.run = run;
+		this.keyframeInterval = Math.max(1, keyframeInterval);
+	}
+
+	/**
+	 * <p>
+	 * Writes the header. Has to be called before the first step, or the header is written without the seed.
+	 * </p>
+	 * @param sites The number of sites, including the primary tumor.
+	 * @param seed The seed given for all runs.
+	 * @throws IOException Exception that is thrown if the file cannot be stored.
+	 */
+	public void writeHeader(int sites, long seed) throws IOException {
+		if (headerWritten) {
+			return;
+		}
+		headerWritten = true;
+		out.writeLong(FILE_MAGIC);
+		out.writeInt(VERSION);
+		out.writeInt(HEADER_SIZE);
+		out.writeInt(run);
+		out.writeInt(sites);
+		out.writeLong(seed);
+		out.writeInt(keyframeInterval);
+		out.writeInt(0);
+	}
+
+	/**
+	 * <p>
+	 * Writes the cells of all sites of one step, as keyframe or as the changes since the previous call.
+	 * </p>
+	 * @param cellsAllSites The cells of every site, all with an ID.
+	 * @param step The step of the simulation.
+	 * @param separator The value if the text format would write a separator line after the step.
+	 * @throws IOException Exception that is thrown if the file cannot be stored.
+	 */
+	public void writeStep(CellStore[] cellsAllSites, int step, boolean separator) throws IOException {
+		writeHeader(cellsAllSites.length, 0);
+		boolean keyframe = steps % keyframeInterval == 0;
+		int total = 0;
+		for (CellStore cells : cellsAllSites) {
+			total += cells.size();
+		}
+		if (changedSite.length < total) {
+			changedSite = new int[total];
+			changedIndex = new int[total];
+		}
+
+		// cells that are new or differ from the previous step, and cells of the previous step that are gone
+		int changed = 0;
+		Arrays.fill(prevSeen, 0, prevSize, false);
+		for (int site = 0; site < cellsAllSites.length; site++) {
+			CellStore cells = cellsAllSites[site];
+			for (int i = 0; i < cells.size(); i++) {
+				int p = previous.get(cells.getId(i));
+				if (p >= 0) {
+					prevSeen[p] = true;
+				}
+				if (keyframe || p < 0 || prevSite[p] != site || prevX[p] != cells.getX(i) || prevY[p] != cells.getY(i)
+						|| prevType[p] != cells.getType(i) || (prevInvasive[p] != 0) != cells.isInvasive(i)) {
+					changedSite[changed] = site;
+					changedIndex[changed] = i;
+					changed++;
+				}
+			}
+		}
+		int deaths = 0;
+		if (!keyframe) {
+			for (int p = 0; p < prevSize; p++) {
+				if (!prevSeen[p]) {
+					deaths++;
+				}
+			}
+		}
+
+		if (steps == indexStep.length) {
+			indexStep = Arrays.copyOf(indexStep, steps * 2);
+			indexKind = Arrays.copyOf(indexKind, steps * 2);
+			indexOffset = Arrays.copyOf(indexOffset, steps * 2);
+		}
+		indexStep[steps] = step;
+		indexKind[steps] = keyframe ? 0 : 1;
+		indexOffset[steps] = out.getPosition();
+		steps++;
+
+		out.writeInt(keyframe ? KEYFRAME_MAGIC : DELTA_MAGIC);
+		out.writeInt(step);
+		out.writeInt(separator ? 1 : 0);
+		out.writeInt(changed);
+		out.writeInt(deaths);
+		out.writeInt(0);
+		if (deaths > 0) {
+			for (int p = 0; p < prevSize; p++) {
+				if (!prevSeen[p]) {
+					out.writeLong(prevId[p]);
+				}
+			}
+		}
+		for (int k = 0; k < changed; k++) {
+			out.writeLong(cellsAllSites[changedSite[k]].getId(changedIndex[k]));
+		}
+		for (int k = 0; k < changed; k++) {
+			out.writeDouble(cellsAllSites[changedSite[k]].getX(changedIndex[k]));
+		}
+		for (int k = 0; k < changed; k++) {
+			out.writeDouble(cellsAllSites[changedSite[k]].getY(changedIndex[k]));
+		}
+		for (int k = 0; k < changed; k++) {
+			out.writeShort(cellsAllSites[changedSite[k]].getType(changedIndex[k]));
+		}
+		for (int k = 0; k < changed; k++) {
+			out.writeShort(changedSite[k]);
+		}
+		for (int k = 0; k < changed; k++) {
+			out.writeByte(cellsAllSites[changedSite[k]].isInvasive(changedIndex[k]) ? 1 : 0);
+		}
+		for (int pad = padding(changed); pad > 0; pad--) {
+			out.writeByte(0);
+		}
+
+		remember(cellsAllSites, total);
+	}
+
+	// the current step becomes the previous step of the next call
+	private void remember(CellStore[] cellsAllSites, int total) {
+		ensurePrevious(total);
+		previous.clear(total);
+		int p = 0;
+		for (int site = 0; site < cellsAllSites.length; site++) {
+			CellStore cells = cellsAllSites[site];
+			for (int i = 0; i < cells.size(); i++) {
+				prevId[p] = cells.getId(i);
+				prevType[p] = cells.getType(i);
+				prevInvasive[p] = (byte) (cells.isInvasive(i) ? 1 : 0);
+				prevSite[p] = (short) site;
+				prevX[p] = cells.getX(i);
+				prevY[p] = cells.getY(i);
+				previous.put(prevId[p], p);
+				p++;
+			}
+		}
+		prevSize = total;
+	}
+
+	private void ensurePrevious(int total) {
+		if (prevId.length < total) {
+			int capacity = Math.max(total, prevId.length + (prevId.length >> 1));
+			prevId = new long[capacity];
+			prevType = new short[capacity];
+			prevInvasive = new byte[capacity];
+			prevSite = new short[capacity];
+			prevX = new double[capacity];
+			prevY = new double[capacity];
+			prevSeen = new boolean[capacity];
+		}
+	}
+
+	/**
+	 * <p>
+	 * Writes the index of the steps written so far and the cells of the previously stored step, for a checkpoint. A checkpoint may be
+	 * taken at a step that is not stored, the next delta then still refers to the previously stored step.
+	 * </p>
+	 * @param state The state of the checkpoint.
+	 * @throws IOException Exception that is thrown if the state cannot be written.
+	 */
+	public void writeState(DataOutput state) throws IOException {
+		state.writeInt(steps);
+		for (int k = 0; k < steps; k++) {
+			state.writeInt(indexStep[k]);
+			state.writeInt(indexKind[k]);
+			state.writeLong(indexOffset[k]);
+		}
+		state.writeInt(prevSize);
+		for (int p = 0; p < prevSize; p++) {
+			state.writeLong(prevId[p]);
+			state.writeShort(prevType[p]);
+			state.writeByte(prevInvasive[p]);
+			state.writeShort(prevSite[p]);
+			state.writeDouble(prevX[p]);
+			state.writeDouble(prevY[p]);
+		}
+	}
+
+	/**
+	 * <p>
+	 * Continues a file from a checkpoint, the channel has to be cut to the size of the file at the checkpoint.
+	 * </p>
+	 * @param state The state written by writeState, the next step is written as the changes since the stored step in it.
+	 * @throws IOException Exception that is thrown if the state cannot be read.
+	 */
+	public void resume(DataInput state) throws IOException {
+		headerWritten = true;
+		steps = state.readInt();
+		indexStep = new int[Math.max(16, steps)];
+		indexKind = new int[indexStep.length];
+		indexOffset = new long[indexStep.length];
+		for (int k = 0; k < steps; k++) {
+			indexStep[k] = state.readInt();
+			indexKind[k] = state.readInt();
+			indexOffset[k] = state.readLong();
+		}
+		int total = state.readInt();
+		ensurePrevious(total);
+		previous.clear(total);
+		for (int p = 0; p < total; p++) {
+			prevId[p] = state.readLong();
+			prevType[p] = state.readShort();
+			prevInvasive[p] = state.readByte();
+			prevSite[p] = state.readShort();
+			prevX[p] = state.readDouble();
+			prevY[p] = state.readDouble();
+			previous.put(prevId[p], p);
+		}
+		prevSize = total;
+	}
+
+	/**
+	 * <p>
+	 * Writes the index and the trailer and closes the file.
+	 * </p>
+	 * @throws IOException Exception that is thrown if the file cannot be stored.
+	 */
+	public void close() throws IOException {
+		writeHeader(0, 0);
+		long indexPosition = out.getPosition();
+		for (int k = 0; k < steps; k++) {
+			out.writeInt(indexStep[k]);
+			out.writeInt(indexKind[k]);
+			out.writeLong(indexOffset[k]);
+		}
+		out.writeLong(indexPosition);
+		out.writeInt(steps);
+		out.writeInt(BinarySnapshotWriter.INDEX_MAGIC);
+		out.close();
+	}
+
+	/**
+	 * <p>
+	 * Function to get the number of padding bytes at the end of a block.
+	 * </p>
+	 * @param n The number of written cells of the block.
+	 * @return The number of padding bytes.
+	 */
+	static int padding(int n) {
+		return (int) (-(5L * n) & 7);
+	}
+
+	/**
+	 * <p>
+	 * Function to get the size of a block in bytes.
+	 * </p>
+	 * @param n The number of written cells of the block.
+	 * @param deaths The number of deaths of the block.
+	 * @return The size of the block.
+	 */
+	static long blockSize(int n, int deaths) {
+		return 24L + 8L * deaths + 29L * n + padding(n);
+	}
+}
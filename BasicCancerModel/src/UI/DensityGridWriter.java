@@ -0,0 +1,147 @@
+package UI;
+
+import java.io.IOException;
+
+import Tools.DensityGrid;
+
+
+/**
+ * <p>
+ * Class DensityGridWriter stores the counts of a DensityGrid at every gap'th step in a compact binary file instead of
+ * Density&lt;run&gt;.m. All numbers are little-endian, every block starts at a multiple of 8 bytes:
+ * </p>
+ * <ul>
+ * <li>Header: magic "MIGDENS1", int version, int header size, int run, int number of sites, int number of layers, int number of bins
+ * per side, double extent, long seed, then double center X and double center Y of every site.</li>
+ * <li>One block per step: int magic "DENS", int step, then the counts int[site][layer][row][column], padding to a multiple of 8.</li>
+ * </ul>
+ * <p>
+ * All blocks have the same size, so block k starts at header size + k * block size and no index is needed.
+ * </p>
+ */
+public class DensityGridWriter {
+
+	/**
+	 * "MIGDENS1" as little-endian long.
+	 */
+	public static final long FILE_MAGIC = 0x31534e454447494dL;
+	/**
+	 * Version of the file layout.
+	 */
+	public static final int VERSION = 1;
+	/**
+	 * "DENS" as little-endian int, starts every block.
+	 */
+	public static final int STEP_MAGIC = 0x534e4544;
+
+	private OutputChannel out;
+	private DensityGrid grid;
+	private int run;
+	private boolean headerWritten;
+
+	/**
+	 * <p>
+	 * Constructor for the DensityGridWriter class.
+	 * </p>
+	 * @param out The channel of the file.
+	 * @param grid The grid whose counts are written.
+	 * @param run The index of the simulation run.
+	 */
+	public DensityGridWriter(OutputChannel out, DensityGrid grid, int run) {
+		this.out = out;
+		this.grid = grid;
+		this.run = run;
+	}
+
+	/**
+	 * <p>
+	 * Writes the header. Has to be called before the first step, or the header is written without the seed.
+	 * </p>
+	 * @param seed The seed given for all runs.
+	 * @throws IOException Exception that is thrown if the file cannot be stored.
+	 */
+	public void writeHeader(long seed) throws IOException {
+		if (headerWritten) {
+			return;
+		}
+		headerWritten = true;
+		out.writeLong(FILE_MAGIC);
+		out.writeInt(VERSION);
+		out.writeInt(headerSize(grid.getSites()));
+		out.writeInt(run);
+		out.writeInt(grid.getSites());
+		out.writeInt(grid.getLayers());
+		out.writeInt(grid.getBins());
+		out.writeDouble(grid.getExtent());
+		out.writeLong(seed);
+		for (int site = 0; site < grid.getSites(); site++) {
+			out.writeDouble(grid.getCenter(site)[0]);
+			out.writeDouble(grid.getCenter(site)[1]);
+		}
+	}
+
+	/**
+	 * <p>
+	 * Writes the current counts of the grid.
+	 * </p>
+	 * @param step The step of the simulation.
+	 * @throws IOException Exception that is thrown if the file cannot be stored.
+	 */
+	public void writeStep(int step) throws IOException {
+		writeHeader(0);
+		int[] counts = grid.getCounts();
+		out.writeInt(STEP_MAGIC);
+		out.writeInt(step);
+		for (int i = 0; i < counts.length; i++) {
+			out.writeInt(counts[i]);
+		}
+		if ((counts.length & 1) != 0) {
+			out.writeInt(0);
+		}
+	}
+
+	/**
+	 * <p>
+	 * Continues a file from a checkpoint, the channel has to be cut to the size of the file at the checkpoint.
+	 * </p>
+	 */
+	public void resume() {
+		headerWritten = true;
+	}
+
+	/**
+	 * <p>
+	 * Closes the file.
+	 * </p>
+	 * @throws IOException Exception that is thrown if the file cannot be stored.
+	 */
+	public void close() throws IOException {
+		writeHeader(0);
+		out.close();
+	}
+
+	/**
+	 * <p>
+	 * Function to get the size of the header in bytes.
+	 * </p>
+	 * @param sites The number of sites.
+	 * @return The size of the header.
+	 */
+	public static int headerSize(int sites) {
+		return 48 + 16 * sites;
+	}
+
+	/**
+	 * <p>
+	 * Function to get the size of a block in bytes.
+	 * </p>
+	 * @param sites The number of sites.
+	 * @param layers The number of layers.
+	 * @param bins The number of bins per side.
+	 * @return The size of a block.
+	 */
+	public static long blockSize(int sites, int layers, int bins) {
+		long counts = (long) sites * layers * bins * bins;
+		return 8 + 4 * (counts + (counts & 1));
+	}
+}
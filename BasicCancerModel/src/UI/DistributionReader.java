@@ -0,0 +1,183 @@
+package UI;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+
+/**
+ * <p>
+ * Class DistributionReader reads Distribution&lt;run&gt;.m line by line, also when the file is compressed. Every line holds the
+ * number of cells of type 1 and type 2 of every site, separated by semicolons, and the total number of cells.
+ * </p>
+ */
+public class DistributionReader implements Closeable {
+
+	private InputStream in;
+	private byte[] buf = new byte[1 << 16];
+	private int pos;
+	private int limit;
+	private boolean eof;
+	private double[] counts = new double[16];		//counts[2*site+j] is the number of cells of type j+1 at the site
+	private int sites;
+	private long total;
+	private int line;
+
+	/**
+	 * <p>
+	 * Constructor for the DistributionReader class.
+	 * </p>
+	 * @param path The path of the file, uncompressed, gzip or LZ compressed.
+	 * @param parallelism The number of threads that decompress blocks of a compressed file.
+	 * @throws IOException Exception thrown if the file cannot be read.
+	 */
+	public DistributionReader(String path, int parallelism) throws IOException {
+		this.in = CompressedFileReader.open(path, parallelism);
+	}
+
+	/**
+	 * <p>
+	 * Reads the next line.
+	 * </p>
+	 * @return True if a line was read, false at the end of the file.
+	 * @throws IOException Exception thrown if the file cannot be read or the line is malformed.
+	 */
+	public boolean next() throws IOException {
+		while (true) {
+			int lineEnd = pos;
+			while (lineEnd < limit && buf[lineEnd] != '\n') {
+				lineEnd++;
+			}
+			if (lineEnd == limit && !eof) {
+				fill();
+				continue;
+			}
+			if (lineEnd == limit) {
+				// an incomplete last line of an aborted run is left out
+				return false;
+			}
+			int start = pos;
+			pos = lineEnd + 1;
+			if (parseLine(start, lineEnd)) {
+				line++;
+				return true;
+			}
+		}
+	}
+
+	// reads "a b  ; c d  ; ... ; total", returns false for an empty line
+	private boolean parseLine(int start, int end) throws IOException {
+		int n = 0;
+		boolean any = false;
+		int i = start;
+		try {
+			while (true) {
+				while (i < end && (buf[i] == ' ' || buf[i] == '\t' || buf[i] == '\r')) {
+					i++;
+				}
+				if (i == end) {
+					break;
+				}
+				if (buf[i] == ';') {
+					i++;
+					continue;
+				}
+				int fieldStart = i;
+				while (i < end && buf[i] != ' ' && buf[i] != '\t' && buf[i] != '\r' && buf[i] != ';') {
+					i++;
+				}
+				if (n == counts.length) {
+					counts = Arrays.copyOf(counts, n * 2);
+				}
+				counts[n++] = NumberParser.parseDouble(buf, fieldStart, i);
+				any = true;
+			}
+		} catch (NumberFormatException e) {
+			throw malformed(start, end);
+		}
+		if (!any) {
+			return false;
+		}
+		if (n % 2 != 1) {
+			throw malformed(start, end);
+		}
+		sites = n / 2;
+		total = (long) counts[n - 1];
+		return true;
+	}
+
+	private IOException malformed(int start, int end) {
+		return new IOException("Malformed line " + (line + 1) + " in distribution file: " + new String(buf, start, Math.min(end - start, 200)));
+	}
+
+	// keeps the incomplete line at the start of the buffer and reads more bytes behind it
+	private void fill() throws IOException {
+		if (pos > 0) {
+			System.arraycopy(buf, pos, buf, 0, limit - pos);
+			limit -= pos;
+			pos = 0;
+		}
+		if (limit == buf.length) {
+			buf = Arrays.copyOf(buf, buf.length * 2);
+		}
+		int n = in.read(buf, limit, buf.length - limit);
+		if (n < 0) {
+			eof = true;
+		} else {
+			limit += n;
+		}
+	}
+
+	/**
+	 * <p>
+	 * Getter function to get the number of sites of the current line.
+	 * </p>
+	 * @return The number of sites, the primary tumor included.
+	 */
+	public int getSites() {
+		return sites;
+	}
+
+	/**
+	 * <p>
+	 * Getter function to get the number of cells of a type at a site in the current line.
+	 * </p>
+	 * @param site The index of the site.
+	 * @param type The type of the cells, 1 or 2.
+	 * @return The number of cells.
+	 */
+	public long getCount(int site, int type) {
+		return (long) counts[2 * site + type - 1];
+	}
+
+	/**
+	 * <p>
+	 * Getter function to get the total number of cells in the current line.
+	 * </p>
+	 * @return The number of cells of all sites.
+	 */
+	public long getTotal() {
+		return total;
+	}
+
+	/**
+	 * <p>
+	 * Getter function to get the number of lines read so far.
+	 * </p>
+	 * @return The number of lines returned by next.
+	 */
+	public int getLineCount() {
+		return line;
+	}
+
+	/**
+	 * <p>
+	 * Closes the file.
+	 * </p>
+	 * @throws IOException Exception thrown if the file cannot be closed.
+	 */
+	public void close() throws IOException {
+		in.close();
+	}
+}
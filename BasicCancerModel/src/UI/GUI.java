@@ -5,16 +5,26 @@ import java.awt.Font;
 import java.awt.GridLayout;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
 import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 import javax.swing.JButton;
 import javax.swing.JFrame;
 import javax.swing.JLabel;
 import javax.swing.JOptionPane;
 import javax.swing.JPanel;
+import javax.swing.JProgressBar;
 import javax.swing.JTextField;
+import javax.swing.SwingUtilities;
 
+import Tools.ConsoleProgressLogger;
 import Tools.Controller;
+import Tools.RunOptions;
+import Tools.SimulationConfig;
 
 /**
  * <p>
@@ -30,9 +40,30 @@ public class GUI extends JFrame implements ActionListener{
 	private static final long serialVersionUID = 9036858918060403958L;
 
 	/**
-	 * New instance of the Controller class to start a simulation.
+	 * The Controller of the running simulation, null if no simulation is running.
 	 */
-	private Controller controller = new Controller();
+	private volatile Controller controller;
+	/**
+	 * Runs the queued simulations one after another, off the event dispatch thread. The thread is no daemon, so the files of a
+	 * running simulation are finished before the application exits.
+	 */
+	private ExecutorService simulationExecutor = Executors.newSingleThreadExecutor(r -> new Thread(r, "Simulation"));
+	/**
+	 * Set once the window is closed, queued simulations are not started any more.
+	 */
+	private volatile boolean closing;
+	/**
+	 * Number of simulations that are queued or running, only used on the event dispatch thread.
+	 */
+	private int queuedSimulations;
+	/**
+	 * Progress of the running simulation over all its runs.
+	 */
+	private JProgressBar progressBar = new JProgressBar();
+	/**
+	 * Step, population size, speed and remaining time of the running simulation.
+	 */
+	private JLabel progressLabel = new JLabel("    No simulation running");
 	
 	/**
 	 * Input field to input the number of simulation runs.
@@ -161,7 +192,7 @@ public class GUI extends JFrame implements ActionListener{
 	/**
 	 * Adding the buttons to the UI to start exit and browse
 	 */
-	private JButton start, exit, browse, browseFp;
+	private JButton start, cancel, exit, browse, browseFp;
 	/**
 	 * Input field for the folder where all output files should be stored in.
 	 */
@@ -380,17 +411,24 @@ public class GUI extends JFrame implements ActionListener{
 
 		
 		subpanel4 = new JPanel();
-		subpanel4.setLayout(new GridLayout(1, 1));
+		subpanel4.setLayout(new GridLayout(1, 2));
 		subpanel5 = new JPanel();
 		subpanel5.setLayout(new GridLayout(1, 2));
 		start = new JButton("Start&Save");
+		cancel = new JButton("Cancel");
+		cancel.setEnabled(false);
 		exit = new JButton("Exit");
 		subpanel4.add(start);
+		subpanel4.add(cancel);
 		subpanel5.add(exit);
 		mainpanel.add(subpanel4);
 		mainpanel.add(subpanel5);
+		progressBar.setStringPainted(true);
+		mainpanel.add(progressLabel);
+		mainpanel.add(progressBar);
 
 		start.addActionListener(this);
+		cancel.addActionListener(this);
 		exit.addActionListener(this);
 		browse.addActionListener(this);
 		browseFp.addActionListener(this);
@@ -399,7 +437,13 @@ public class GUI extends JFrame implements ActionListener{
 		this.setPreferredSize(new Dimension(900,650));
 		this.pack();
 		this.setVisible(true);
-		this.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+		this.setDefaultCloseOperation(JFrame.DO_NOTHING_ON_CLOSE);
+		this.addWindowListener(new WindowAdapter() {
+			@Override
+			public void windowClosing(WindowEvent e) {
+				close();
+			}
+		});
 
 	}
 
@@ -426,7 +470,7 @@ public class GUI extends JFrame implements ActionListener{
 				
 				int placeInds = 0;//0 = randomly distributed
 
-				controller.run(
+				SimulationConfig config = new SimulationConfig(
 						this.filePath.getText(),
 						Integer.parseInt(this.population.getText()),  //population size
 						distribution, //initial type distribution
@@ -458,20 +502,23 @@ public class GUI extends JFrame implements ActionListener{
 						
 
 				);
+				queue(config);
 			} catch (NumberFormatException e1) {
 				JOptionPane.showMessageDialog(this, String.format("Error while starting simulation: %s \n %s", e1.getMessage(), e1.getStackTrace()));
 				e1.printStackTrace();
-			} catch (IOException e1) {
-				JOptionPane.showMessageDialog(this, String.format("Error while starting simulation: %s \n %s", e1.getMessage(), e1.getStackTrace()));
-				e1.printStackTrace();
-			} finally {
-				JOptionPane.showMessageDialog(this, "Simulation run succesfully");
 			}
 
 		}
+		if (e.getSource() == cancel) {
+			Controller c = this.controller;
+			if (c != null) {
+				c.cancel();
+				progressLabel.setText("    Cancelling after the current step...");
+			}
+		}
 		if (e.getSource() == exit) {
 
-			System.exit(0);
+			close();
 		}
 
 		if(e.getSource() == browse){
@@ -487,6 +534,130 @@ public class GUI extends JFrame implements ActionListener{
 	}
 	
 	
+	/**
+	 * <p>Adds a simulation to the queue. The simulations of the queue are run one after another on a background thread, so the UI stays responsive.</p>
+	 * @param config The parameters of the simulation.
+	 */
+	private void queue(final SimulationConfig config) {
+		queuedSimulations++;
+		updateQueueState();
+		simulationExecutor.submit(() -> runSimulation(config));
+	}
+	
+	/**
+	 * <p>Exits the application. A running simulation is cancelled after the current step and its files are finished first, queued
+	 * simulations are dropped.</p>
+	 */
+	private void close() {
+		if (closing) {
+			return;
+		}
+		closing = true;
+		Controller c = this.controller;
+		if (c != null) {
+			c.cancel();
+			progressLabel.setText("    Finishing the files of the running simulation...");
+		}
+		simulationExecutor.shutdown();
+		Thread shutdown = new Thread(() -> {
+			try {
+				simulationExecutor.awaitTermination(Long.MAX_VALUE, TimeUnit.DAYS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			System.exit(0);
+		}, "Shutdown");
+		shutdown.start();
+	}
+	
+	/**
+	 * <p>Runs a simulation on the background thread and reports the progress to the UI.</p>
+	 * @param config The parameters of the simulation.
+	 */
+	private void runSimulation(SimulationConfig config) {
+		if (closing) {
+			return;
+		}
+		final Controller c = new Controller();
+		final long startingTime = System.nanoTime();
+		final long totalSteps = (long) config.getSimulationRuns() * config.getSteps();
+		final long[] lastUpdate = {0};
+		RunOptions options = new RunOptions();
+		// the progress is still logged to the console, and shown in the UI
+		options.setProgressListener(new ConsoleProgressLogger() {
+			@Override
+			public void stepFinished(int run, int step, int steps, int populationSize) {
+				super.stepFinished(run, step, steps, populationSize);
+				long now = System.nanoTime();
+				long done = (long) run * steps + step + 1;
+				// at most ten updates per second, the UI does not need more
+				if (now - lastUpdate[0] < 100000000L && done < totalSteps) {
+					return;
+				}
+				lastUpdate[0] = now;
+				double stepsPerSecond = done / Math.max(1e-9, (now - startingTime) / 1e9);
+				long eta = (long) ((totalSteps - done) / stepsPerSecond);
+				SwingUtilities.invokeLater(() -> showProgress(run, config.getSimulationRuns(), step, steps, populationSize, stepsPerSecond, eta, done, totalSteps));
+			}
+		});
+		c.setOptions(options);
+		this.controller = c;
+		if (closing) {
+			c.cancel();
+		}
+		String message;
+		try {
+			c.run(config);
+			message = c.isCancelled() ? "Simulation cancelled, the files of the current run were saved" : "Simulation run succesfully";
+		} catch (IOException | RuntimeException e1) {
+			message = String.format("Error while running simulation: %s", e1.getMessage());
+			e1.printStackTrace();
+		} finally {
+			this.controller = null;
+		}
+		if (closing) {
+			return;
+		}
+		final String result = message;
+		SwingUtilities.invokeLater(() -> {
+			queuedSimulations--;
+			updateQueueState();
+			JOptionPane.showMessageDialog(this, result);
+		});
+	}
+	
+	/**
+	 * <p>Shows the progress of the running simulation, must be called on the event dispatch thread.</p>
+	 * @param run The index of the current run.
+	 * @param runs The number of runs of the simulation.
+	 * @param step The index of the finished step.
+	 * @param steps The number of steps of a run.
+	 * @param populationSize The number of cells at all sites.
+	 * @param stepsPerSecond The steps computed per second since the simulation started.
+	 * @param eta The estimated remaining time in seconds.
+	 * @param done The number of steps computed over all runs.
+	 * @param totalSteps The number of steps of all runs.
+	 */
+	private void showProgress(int run, int runs, int step, int steps, int populationSize, double stepsPerSecond, long eta, long done, long totalSteps) {
+		progressBar.setMaximum((int) Math.min(Integer.MAX_VALUE, totalSteps));
+		progressBar.setValue((int) Math.min(Integer.MAX_VALUE, done));
+		progressLabel.setText(String.format("    Run %d/%d, step %d/%d, population %d, %.1f steps/s, ETA %d:%02d:%02d",
+				run + 1, runs, step + 1, steps, populationSize, stepsPerSecond, eta / 3600, (eta / 60) % 60, eta % 60));
+	}
+	
+	/**
+	 * <p>Updates the buttons and the progress bar to the number of queued simulations, must be called on the event dispatch thread.</p>
+	 */
+	private void updateQueueState() {
+		cancel.setEnabled(queuedSimulations > 0);
+		progressBar.setString(queuedSimulations > 1 ? (queuedSimulations - 1) + " queued" : null);
+		if (queuedSimulations == 0) {
+			progressBar.setValue(0);
+			progressLabel.setText("    No simulation running");
+		}
+	}
+	
+	
 		/**
 		 * <p>to form distribution from ()/() to double</p>
 		 * @param s1 string value to change into double.
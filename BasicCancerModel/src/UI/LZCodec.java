@@ -0,0 +1,188 @@
+package UI;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+
+/**
+ * <p>
+ * Class LZCodec compresses blocks with a byte-oriented LZ77 codec in the block layout of LZ4: every sequence is a
+ * token (4 bits literal length, 4 bits match length - 4), the extra literal length bytes, the literals, a 2 byte little-endian
+ * offset of the match and the extra match length bytes. The last sequence has literals only. Matches are found through a hash table
+ * of 4 byte sequences, which is faster than the search of Deflater at a lower ratio.
+ * </p>
+ */
+final class LZCodec {
+
+	private static final int MIN_MATCH = 4;
+	private static final int LAST_LITERALS = 5;	//the last bytes of a block are always literals
+	private static final int MATCH_LIMIT = 12;		//no match starts in the last bytes of a block
+	private static final int MAX_OFFSET = 0xffff;
+	private static final int HASH_BITS = 14;
+	private static final VarHandle INT = MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN);
+
+	private final int[] table = new int[1 << HASH_BITS];	//last position of every hashed 4 byte sequence
+
+	/**
+	 * <p>
+	 * Function to get the largest possible size of a compressed block.
+	 * </p>
+	 * @param length The size of the uncompressed block.
+	 * @return The size of the buffer compress needs.
+	 */
+	static int maxCompressedLength(int length) {
+		return length + length / 255 + 16;
+	}
+
+	/**
+	 * <p>
+	 * Compresses a block.
+	 * </p>
+	 * @param src The uncompressed bytes.
+	 * @param length The number of bytes to compress from the start of src, matches reach back at most 64 KiB.
+	 * @param dst The buffer for the compressed bytes, at least maxCompressedLength(length) bytes after offset.
+	 * @param offset The position of the first compressed byte in dst.
+	 * @return The number of compressed bytes.
+	 */
+	int compress(byte[] src, int length, byte[] dst, int offset) {
+		Arrays.fill(table, -1);
+		int anchor = 0;
+		int op = offset;
+		int limit = length - MATCH_LIMIT;
+		int matchLimit = length - LAST_LITERALS;
+		int ip = 0;
+		while (ip < limit) {
+			int sequence = readInt(src, ip);
+			int h = hash(sequence);
+			int ref = table[h];
+			table[h] = ip;
+			if (ref < 0 || ip - ref > MAX_OFFSET || readInt(src, ref) != sequence) {
+				// skip faster through data without matches
+				ip += 1 + ((ip - anchor) >>> 6);
+				continue;
+			}
+			while (ip > anchor && ref > 0 && src[ip - 1] == src[ref - 1]) {
+				ip--;
+				ref--;
+			}
+			int end = ip + MIN_MATCH;
+			int r = ref + MIN_MATCH;
+			while (end < matchLimit && src[end] == src[r]) {
+				end++;
+				r++;
+			}
+			op = writeSequence(src, anchor, ip - anchor, ip - ref, end - ip - MIN_MATCH, dst, op);
+			ip = end;
+			anchor = ip;
+			if (ip - 2 < limit) {
+				table[hash(readInt(src, ip - 2))] = ip - 2;
+			}
+		}
+		int literals = length - anchor;
+		int token = op++;
+		dst[token] = (byte) (Math.min(literals, 15) << 4);
+		op = writeLength(literals, dst, op);
+		System.arraycopy(src, anchor, dst, op, literals);
+		return op + literals - offset;
+	}
+
+	/**
+	 * <p>
+	 * Decompresses a block.
+	 * </p>
+	 * @param src The compressed bytes.
+	 * @param offset The position of the first compressed byte in src.
+	 * @param length The number of compressed bytes.
+	 * @param dst The buffer for the uncompressed bytes.
+	 * @param expected The number of uncompressed bytes.
+	 * @throws IOException Exception thrown if the block is corrupt.
+	 */
+	static void decompress(byte[] src, int offset, int length, byte[] dst, int expected) throws IOException {
+		int ip = offset;
+		int end = offset + length;
+		int op = 0;
+		try {
+			while (true) {
+				int token = src[ip++] & 0xff;
+				int literals = token >>> 4;
+				if (literals == 15) {
+					int b;
+					do {
+						b = src[ip++] & 0xff;
+						literals += b;
+					} while (b == 255);
+				}
+				System.arraycopy(src, ip, dst, op, literals);
+				ip += literals;
+				op += literals;
+				if (ip >= end) {
+					break;
+				}
+				int distance = (src[ip] & 0xff) | (src[ip + 1] & 0xff) << 8;
+				ip += 2;
+				int match = token & 15;
+				if (match == 15) {
+					int b;
+					do {
+						b = src[ip++] & 0xff;
+						match += b;
+					} while (b == 255);
+				}
+				match += MIN_MATCH;
+				int ref = op - distance;
+				if (distance == 0 || ref < 0) {
+					throw new IOException("Corrupt LZ block");
+				}
+				if (distance >= match) {
+					System.arraycopy(dst, ref, dst, op, match);
+				} else {
+					// overlapping match repeats the last distance bytes
+					for (int k = 0; k < match; k++) {
+						dst[op + k] = dst[ref + k];
+					}
+				}
+				op += match;
+			}
+		} catch (IndexOutOfBoundsException e) {
+			throw new IOException("Corrupt LZ block", e);
+		}
+		if (op != expected || ip != end) {
+			throw new IOException("Corrupt LZ block");
+		}
+	}
+
+	private static int writeSequence(byte[] src, int anchor, int literals, int distance, int match, byte[] dst, int op) {
+		int token = op++;
+		dst[token] = (byte) ((Math.min(literals, 15) << 4) | Math.min(match, 15));
+		op = writeLength(literals, dst, op);
+		System.arraycopy(src, anchor, dst, op, literals);
+		op += literals;
+		dst[op++] = (byte) distance;
+		dst[op++] = (byte) (distance >>> 8);
+		return writeLength(match, dst, op);
+	}
+
+	// extra length bytes of a length that does not fit into the 4 bits of the token
+	private static int writeLength(int length, byte[] dst, int op) {
+		if (length >= 15) {
+			length -= 15;
+			while (length >= 255) {
+				dst[op++] = (byte) 255;
+				length -= 255;
+			}
+			dst[op++] = (byte) length;
+		}
+		return op;
+	}
+
+	private static int readInt(byte[] b, int p) {
+		return (int) INT.get(b, p);
+	}
+
+	private static int hash(int sequence) {
+		return (sequence * -1640531535) >>> (32 - HASH_BITS);
+	}
+}
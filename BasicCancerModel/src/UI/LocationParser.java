@@ -0,0 +1,182 @@
+package UI;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import Tools.CellStore;
+
+
+/**
+ * <p>
+ * Class LocationParser reads the lines of Location&lt;run&gt;.m ("type  invasive  site  x  y") from a byte array into columns,
+ * without creating a String per line. A line of type 0 separates two steps, a line of type -10 ends the file.
+ * An instance must only be used by one thread.
+ * </p>
+ */
+final class LocationParser {
+
+	/**
+	 * Kind of a line with a cell.
+	 */
+	static final int CELL = 0;
+	/**
+	 * Kind of the line between two steps.
+	 */
+	static final int SEPARATOR = 1;
+	/**
+	 * Kind of the last line of the file.
+	 */
+	static final int END = 2;
+	/**
+	 * Kind of an empty line.
+	 */
+	static final int EMPTY = 3;
+
+	private short[] type = new short[1024];
+	private byte[] invasive = new byte[1024];
+	private short[] site = new short[1024];
+	private double[] x = new double[1024];
+	private double[] y = new double[1024];
+	private int size;
+	private final int[] fieldStart = new int[5];
+	private final int[] fieldEnd = new int[5];
+
+	/**
+	 * <p>
+	 * Removes all parsed cells.
+	 * </p>
+	 */
+	void clear() {
+		size = 0;
+	}
+
+	/**
+	 * <p>
+	 * Parses all lines of a part of the array. The part must end with a complete line.
+	 * </p>
+	 * @param buf The text.
+	 * @param start The position of the first line.
+	 * @param end The position after the last line.
+	 * @throws IOException Exception thrown if a line is malformed or not a cell.
+	 */
+	void parseCells(byte[] buf, int start, int end) throws IOException {
+		int lineStart = start;
+		while (lineStart < end) {
+			int lineEnd = lineStart;
+			while (lineEnd < end && buf[lineEnd] != '\n') {
+				lineEnd++;
+			}
+			int kind = parseLine(buf, lineStart, lineEnd);
+			if (kind != CELL && kind != EMPTY) {
+				throw new IOException("Unexpected separator within a step");
+			}
+			lineStart = lineEnd + 1;
+		}
+	}
+
+	/**
+	 * <p>
+	 * Parses one line, a cell is added to the columns.
+	 * </p>
+	 * @param buf The text.
+	 * @param start The position of the first character of the line.
+	 * @param end The position of the new line character or after the last character.
+	 * @return CELL, SEPARATOR, END or EMPTY.
+	 * @throws IOException Exception thrown if the line is malformed.
+	 */
+	int parseLine(byte[] buf, int start, int end) throws IOException {
+		int fields = 0;
+		int i = start;
+		while (true) {
+			while (i < end && isSpace(buf[i])) {
+				i++;
+			}
+			if (i == end) {
+				break;
+			}
+			if (fields == 5) {
+				throw malformed(buf, start, end);
+			}
+			fieldStart[fields] = i;
+			while (i < end && !isSpace(buf[i])) {
+				i++;
+			}
+			fieldEnd[fields++] = i;
+		}
+		if (fields == 0) {
+			return EMPTY;
+		}
+		if (fields != 5) {
+			throw malformed(buf, start, end);
+		}
+		try {
+			int t = NumberParser.parseInt(buf, fieldStart[0], fieldEnd[0]);
+			if (t == 0) {
+				return SEPARATOR;
+			}
+			if (t == -10) {
+				return END;
+			}
+			if (size == type.length) {
+				grow();
+			}
+			type[size] = (short) t;
+			invasive[size] = (byte) NumberParser.parseInt(buf, fieldStart[1], fieldEnd[1]);
+			site[size] = (short) NumberParser.parseInt(buf, fieldStart[2], fieldEnd[2]);
+			x[size] = NumberParser.parseDouble(buf, fieldStart[3], fieldEnd[3]);
+			y[size] = NumberParser.parseDouble(buf, fieldStart[4], fieldEnd[4]);
+			size++;
+			return CELL;
+		} catch (NumberFormatException e) {
+			throw malformed(buf, start, end);
+		}
+	}
+
+	/**
+	 * <p>
+	 * Function to get the cells parsed since the last clear as a step.
+	 * </p>
+	 * @param step The step of the simulation.
+	 * @param separator Wether the step is followed by a separator line.
+	 * @return The cells, in their own arrays.
+	 */
+	SnapshotStep toStep(int step, boolean separator) {
+		return new SnapshotStep(step, separator, Arrays.copyOf(type, size), Arrays.copyOf(invasive, size), Arrays.copyOf(site, size),
+				Arrays.copyOf(x, size), Arrays.copyOf(y, size));
+	}
+
+	/**
+	 * <p>
+	 * Adds the cells parsed since the last clear to the stores of their sites, cells of other sites are left out.
+	 * </p>
+	 * @param cells The stores of all sites.
+	 * @return The number of cells added.
+	 */
+	int appendTo(CellStore[] cells) {
+		int added = 0;
+		for (int i = 0; i < size; i++) {
+			if (site[i] >= 0 && site[i] < cells.length) {
+				cells[site[i]].add(type[i], invasive[i] == 1, x[i], y[i]);
+				added++;
+			}
+		}
+		return added;
+	}
+
+	private void grow() {
+		int capacity = type.length * 2;
+		type = Arrays.copyOf(type, capacity);
+		invasive = Arrays.copyOf(invasive, capacity);
+		site = Arrays.copyOf(site, capacity);
+		x = Arrays.copyOf(x, capacity);
+		y = Arrays.copyOf(y, capacity);
+	}
+
+	private static boolean isSpace(byte b) {
+		return b == ' ' || b == '\t' || b == '\r';
+	}
+
+	private static IOException malformed(byte[] buf, int start, int end) {
+		return new IOException("Malformed line in location file: " + new String(buf, start, Math.min(end - start, 200)));
+	}
+}
@@ -0,0 +1,129 @@
+package UI;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+
+/**
+ * <p>
+ * Class LocationStream reads the steps of Location&lt;run&gt;.m one after the other, also when the file is compressed. Only the
+ * current step is held in memory, so files larger than the memory can be analysed. The steps are separated by the lines of type 0
+ * and the file ends with the line of type -10 or, if the run was aborted, with its last separator.
+ * </p>
+ */
+public class LocationStream implements Closeable {
+
+	private InputStream in;
+	private LocationParser parser = new LocationParser();
+	private byte[] buf = new byte[1 << 16];
+	private int pos;
+	private int limit;
+	private boolean eof;
+	private boolean ended;
+	private int[] steps;		//step of the simulation of every stored step, null if unknown
+	private int count;
+
+	/**
+	 * <p>
+	 * Constructor for the LocationStream class.
+	 * </p>
+	 * @param path The path of the file, uncompressed, gzip or LZ compressed.
+	 * @param parallelism The number of threads that decompress blocks of a compressed file.
+	 * @throws IOException Exception thrown if the file cannot be read.
+	 */
+	public LocationStream(String path, int parallelism) throws IOException {
+		this.in = CompressedFileReader.open(path, parallelism);
+		try {
+			this.steps = LocationTextReader.readPlottedSteps(path);
+		} catch (IOException e) {
+			in.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * <p>
+	 * Reads the next step.
+	 * </p>
+	 * @return The cells of the step, in the order of the file, null after the last step.
+	 * @throws IOException Exception thrown if the file cannot be read or a line is malformed.
+	 */
+	public SnapshotStep next() throws IOException {
+		if (ended) {
+			return null;
+		}
+		parser.clear();
+		int cells = 0;
+		while (true) {
+			int lineEnd = pos;
+			while (lineEnd < limit && buf[lineEnd] != '\n') {
+				lineEnd++;
+			}
+			if (lineEnd == limit && !eof) {
+				fill();
+				continue;
+			}
+			if (lineEnd == limit) {
+				// end of the file without the end line, e.g. of an aborted run: the step after the last separator may be incomplete
+				// and is left out, only a file without separators keeps its complete lines as its only step
+				ended = true;
+				return cells > 0 && count == 0 ? toStep(false) : null;
+			}
+			int kind = parser.parseLine(buf, pos, lineEnd);
+			pos = lineEnd + 1;
+			if (kind == LocationParser.CELL) {
+				cells++;
+			} else if (kind == LocationParser.SEPARATOR) {
+				return toStep(true);
+			} else if (kind == LocationParser.END) {
+				ended = true;
+				return cells > 0 ? toStep(false) : null;
+			}
+		}
+	}
+
+	private SnapshotStep toStep(boolean separator) {
+		int k = count++;
+		return parser.toStep(steps != null && k < steps.length ? steps[k] : k, separator);
+	}
+
+	// keeps the incomplete line at the start of the buffer and reads more bytes behind it
+	private void fill() throws IOException {
+		if (pos > 0) {
+			System.arraycopy(buf, pos, buf, 0, limit - pos);
+			limit -= pos;
+			pos = 0;
+		}
+		if (limit == buf.length) {
+			buf = Arrays.copyOf(buf, buf.length * 2);
+		}
+		int n = in.read(buf, limit, buf.length - limit);
+		if (n < 0) {
+			eof = true;
+		} else {
+			limit += n;
+		}
+	}
+
+	/**
+	 * <p>
+	 * Getter function to get the number of steps read so far.
+	 * </p>
+	 * @return The number of steps returned by next.
+	 */
+	public int getStepCount() {
+		return count;
+	}
+
+	/**
+	 * <p>
+	 * Closes the file.
+	 * </p>
+	 * @throws IOException Exception thrown if the file cannot be closed.
+	 */
+	public void close() throws IOException {
+		in.close();
+	}
+}
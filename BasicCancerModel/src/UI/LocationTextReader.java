@@ -0,0 +1,392 @@
+package UI;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+
+/**
+ * <p>
+ * Class LocationTextReader reads the steps of an uncompressed Location&lt;run&gt;.m through memory mapping. When the file is opened
+ * only the first characters of the lines are looked at, in parallel parts of the file, to find the separator lines between the steps.
+ * Afterwards any step can be read on its own and by several threads at the same time, only the pages of that step are loaded.
+ * The numbers of the steps are taken from PlottedSteps&lt;run&gt;.m next to the file if it exists.
+ * </p>
+ * <p>
+ * The file does not tell if a run ended with an empty step, so a separator directly followed by the last line is read as the end
+ * of the file, as SnapshotConverter writes it. A file without end line, e.g. of an aborted run, ends with its last separator, the
+ * lines after it may be an incomplete step.
+ * </p>
+ */
+public class LocationTextReader implements SnapshotReader {
+
+	private static final long PART = 1L << 28;		//largest part of the file that is mapped at once
+	private static final int WINDOW = 1 << 20;		//bytes copied from the mapping at once
+
+	private FileChannel file;
+	private long[] starts = new long[16];		//position of the first line of every step
+	private long[] ends = new long[16];			//position after the last line of every step
+	private boolean[] separators = new boolean[16];
+	private int stepCount;
+	private int[] steps;		//step of the simulation of every stored step, null if unknown
+
+	/**
+	 * <p>
+	 * Constructor for the LocationTextReader class, finds the steps with one thread per available processor.
+	 * </p>
+	 * @param path The path of the file.
+	 * @throws IOException Exception thrown if the file cannot be read.
+	 */
+	public LocationTextReader(String path) throws IOException {
+		this(path, Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * <p>
+	 * Constructor for the LocationTextReader class, finds the steps.
+	 * </p>
+	 * @param path The path of the file.
+	 * @param parallelism The number of threads that look for the separator lines.
+	 * @throws IOException Exception thrown if the file cannot be read.
+	 */
+	public LocationTextReader(String path, int parallelism) throws IOException {
+		this.file = FileChannel.open(Paths.get(path), StandardOpenOption.READ);
+		try {
+			indexSteps(Math.max(1, parallelism));
+			this.steps = readPlottedSteps(path);
+		} catch (IOException e) {
+			file.close();
+			throw e;
+		}
+	}
+
+	// finds the separator and end lines, every marker is position * 2 + 1 for the end line and position * 2 for a separator
+	private void indexSteps(int parallelism) throws IOException {
+		long size = file.size();
+		long partSize = Math.max(1 << 20, Math.min(PART, (size + parallelism - 1) / parallelism));
+		List<Callable<long[]>> parts = new ArrayList<Callable<long[]>>();
+		for (long from = 0; from < size; from += partSize) {
+			final long a = from;
+			final long b = Math.min(size, from + partSize);
+			parts.add(() -> findMarkers(a, b));
+		}
+		List<long[]> markers = invokeAll(parts, parallelism);
+
+		long start = 0;
+		scan:
+		for (long[] part : markers) {
+			for (int k = 1; k <= part[0]; k++) {
+				long position = part[k] >>> 1;
+				boolean end = (part[k] & 1) != 0;
+				long next = lineEnd(position, size);
+				if (next == size && readByte(size - 1) != '\n') {
+					// the file was cut within the separator or end line
+					break scan;
+				}
+				if (end) {
+					if (position > start || stepCount == 0 || !separators[stepCount - 1]) {
+						addStep(start, position, false);
+					}
+					return;
+				}
+				addStep(start, position, true);
+				start = next;
+			}
+		}
+		// run without end line, e.g. because it was aborted: the step after the last separator may be incomplete and is dropped, as
+		// BinarySnapshotReader drops an incomplete block. A file without separators keeps its complete lines as its only step
+		if (stepCount > 0) {
+			return;
+		}
+		long end = size;
+		while (end > start && readByte(end - 1) != '\n') {
+			end--;
+		}
+		if (end > start) {
+			addStep(start, end, false);
+		}
+	}
+
+	// runs the tasks on a pool of the given size and returns their results in order
+	private static <T> List<T> invokeAll(List<Callable<T>> tasks, int parallelism) throws IOException {
+		List<T> results = new ArrayList<T>(tasks.size());
+		if (parallelism == 1 || tasks.size() == 1) {
+			for (Callable<T> task : tasks) {
+				try {
+					results.add(task.call());
+				} catch (IOException e) {
+					throw e;
+				} catch (Exception e) {
+					throw new IOException(e);
+				}
+			}
+			return results;
+		}
+		ForkJoinPool pool = new ForkJoinPool(parallelism);
+		try {
+			for (Future<T> f : pool.invokeAll(tasks)) {
+				results.add(f.get());
+			}
+			return results;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while reading the location file", e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof IOException) {
+				throw (IOException) e.getCause();
+			}
+			throw new IOException("Reading the location file failed: " + e.getCause().getMessage(), e.getCause());
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	// markers of the lines that start in [a, b), the first entry is the number of markers
+	private long[] findMarkers(long a, long b) throws IOException {
+		long from = Math.max(0, a - 1);
+		long to = Math.min(file.size(), b + 3);
+		MappedByteBuffer map = file.map(FileChannel.MapMode.READ_ONLY, from, to - from);
+		long[] markers = new long[17];
+		int count = 0;
+		int length = (int) (to - from);
+		int first = (int) (a - from);
+		int last = (int) (b - from);
+		for (int i = first; i < last; i++) {
+			if (i > 0 && map.get(i - 1) != '\n') {
+				continue;
+			}
+			byte c = map.get(i);
+			long marker = -1;
+			if (c == '0' && i + 1 < length && (map.get(i + 1) == ' ' || map.get(i + 1) == '\t')) {
+				marker = (from + i) << 1;
+			} else if (c == '-' && i + 2 < length && map.get(i + 1) == '1' && map.get(i + 2) == '0') {
+				marker = ((from + i) << 1) | 1;
+			}
+			if (marker >= 0) {
+				if (count + 1 == markers.length) {
+					markers = Arrays.copyOf(markers, markers.length * 2);
+				}
+				markers[++count] = marker;
+			}
+		}
+		markers[0] = count;
+		return markers;
+	}
+
+	// position after the line that starts at the given position
+	private long lineEnd(long position, long size) throws IOException {
+		ByteBuffer b = ByteBuffer.allocate(256);
+		while (position < size) {
+			b.clear();
+			int n = file.read(b, position);
+			for (int i = 0; i < n; i++) {
+				if (b.get(i) == '\n') {
+					return position + i + 1;
+				}
+			}
+			position += Math.max(n, 0);
+		}
+		return size;
+	}
+
+	private byte readByte(long position) throws IOException {
+		ByteBuffer b = ByteBuffer.allocate(1);
+		file.read(b, position);
+		return b.get(0);
+	}
+
+	private void addStep(long start, long end, boolean separator) {
+		if (stepCount == starts.length) {
+			starts = Arrays.copyOf(starts, stepCount * 2);
+			ends = Arrays.copyOf(ends, stepCount * 2);
+			separators = Arrays.copyOf(separators, stepCount * 2);
+		}
+		starts[stepCount] = start;
+		ends[stepCount] = end;
+		separators[stepCount] = separator;
+		stepCount++;
+	}
+
+	/**
+	 * <p>
+	 * Function to read the steps of PlottedSteps&lt;run&gt;.m next to a location file. Every step is in the file once per site,
+	 * repetitions are removed.
+	 * </p>
+	 * @param locationPath The path of the location file, Location&lt;run&gt;.m possibly with the extension of a compression.
+	 * @return The steps, null if there is no such file.
+	 * @throws IOException Exception thrown if the file cannot be read.
+	 */
+	static int[] readPlottedSteps(String locationPath) throws IOException {
+		File location = new File(locationPath);
+		Matcher m = Pattern.compile("Location(\\d+)\\.m(\\.gz|\\.lzb)?").matcher(location.getName());
+		if (!m.matches()) {
+			return null;
+		}
+		File plotted = new File(location.getParentFile(), "PlottedSteps" + m.group(1) + ".m");
+		if (!plotted.isFile()) {
+			return null;
+		}
+		int[] result = new int[16];
+		int n = 0;
+		try (BufferedReader in = new BufferedReader(new FileReader(plotted))) {
+			String line;
+			while ((line = in.readLine()) != null) {
+				line = line.trim();
+				if (line.isEmpty()) {
+					continue;
+				}
+				int step = Integer.parseInt(line);
+				if (n > 0 && result[n - 1] == step) {
+					continue;
+				}
+				if (n == result.length) {
+					result = Arrays.copyOf(result, n * 2);
+				}
+				result[n++] = step;
+			}
+		} catch (NumberFormatException e) {
+			return null;
+		}
+		return Arrays.copyOf(result, n);
+	}
+
+	/**
+	 * <p>
+	 * Reads all cells of a stored step.
+	 * </p>
+	 * @param k The index of the stored step, between 0 and getStepCount()-1.
+	 * @return The cells of the step, in the order of the file.
+	 * @throws IOException Exception thrown if the file cannot be read or a line is malformed.
+	 */
+	public SnapshotStep readStep(int k) throws IOException {
+		LocationParser parser = new LocationParser();
+		parseRange(starts[k], ends[k], parser);
+		return parser.toStep(getStep(k), separators[k]);
+	}
+
+	/**
+	 * <p>
+	 * Parses the cells of a stored step in parts of about equal size with several threads. Every part ends with a complete line.
+	 * </p>
+	 * @param k The index of the stored step.
+	 * @param parallelism The number of threads.
+	 * @return The cells of every part, in the order of the file.
+	 * @throws IOException Exception thrown if the file cannot be read or a line is malformed.
+	 */
+	List<LocationParser> parseStep(int k, int parallelism) throws IOException {
+		long size = ends[k] - starts[k];
+		int parts = (int) Math.max(1, Math.min(4L * parallelism, size / (1 << 20)));
+		List<Callable<LocationParser>> tasks = new ArrayList<Callable<LocationParser>>();
+		long from = starts[k];
+		for (int j = 1; j <= parts; j++) {
+			long to = j == parts ? ends[k] : Math.max(from, lineEnd(starts[k] + size * j / parts - 1, ends[k]));
+			final long a = from;
+			final long b = to;
+			tasks.add(() -> {
+				LocationParser parser = new LocationParser();
+				parseRange(a, b, parser);
+				return parser;
+			});
+			from = to;
+		}
+		return invokeAll(tasks, Math.max(1, parallelism));
+	}
+
+	// parses the lines in [from, to) through windows copied from the mapping, so no step has to fit into a single array
+	private void parseRange(long from, long to, LocationParser parser) throws IOException {
+		byte[] window = new byte[(int) Math.min(WINDOW, Math.max(16, to - from))];
+		int carry = 0;
+		for (long pieceStart = from; pieceStart < to; pieceStart += PART) {
+			MappedByteBuffer map = file.map(FileChannel.MapMode.READ_ONLY, pieceStart, Math.min(PART, to - pieceStart));
+			while (map.hasRemaining()) {
+				if (carry == window.length) {
+					window = Arrays.copyOf(window, window.length * 2);
+				}
+				int n = Math.min(map.remaining(), window.length - carry);
+				map.get(window, carry, n);
+				int filled = carry + n;
+				int last = filled - 1;
+				while (last >= 0 && window[last] != '\n') {
+					last--;
+				}
+				if (last >= 0) {
+					parser.parseCells(window, 0, last + 1);
+					carry = filled - last - 1;
+					System.arraycopy(window, last + 1, window, 0, carry);
+				} else {
+					carry = filled;
+				}
+			}
+		}
+		if (carry > 0) {
+			parser.parseCells(window, 0, carry);
+		}
+	}
+
+	/**
+	 * <p>
+	 * Getter function to get if readStep can be called by several threads at the same time.
+	 * </p>
+	 * @return Always true.
+	 */
+	public boolean isConcurrent() {
+		return true;
+	}
+
+	/**
+	 * <p>
+	 * Getter function to get the number of stored steps.
+	 * </p>
+	 * @return The number of steps in the file.
+	 */
+	public int getStepCount() {
+		return stepCount;
+	}
+
+	/**
+	 * <p>
+	 * Getter function to get the step of the simulation of a stored step.
+	 * </p>
+	 * @param k The index of the stored step.
+	 * @return The step of the simulation, k if PlottedSteps.m is missing.
+	 */
+	public int getStep(int k) {
+		return steps != null && k < steps.length ? steps[k] : k;
+	}
+
+	/**
+	 * <p>
+	 * Getter function to get the size of the text of a stored step.
+	 * </p>
+	 * @param k The index of the stored step.
+	 * @return The number of bytes of the lines of the step.
+	 */
+	public long getTextSize(int k) {
+		return ends[k] - starts[k];
+	}
+
+	/**
+	 * <p>
+	 * Closes the file.
+	 * </p>
+	 * @throws IOException Exception thrown if the file cannot be closed.
+	 */
+	public void close() throws IOException {
+		file.close();
+	}
+}
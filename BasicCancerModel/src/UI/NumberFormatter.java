@@ -0,0 +1,272 @@
+package UI;
+
+import java.math.BigInteger;
+
+
+/**
+ * <p>
+ * Class NumberFormatter writes numbers as ASCII text directly into a byte array, with exactly the characters of Integer.toString
+ * and Double.toString but without creating Strings.
+ * </p>
+ * <p>
+ * Doubles between 10^-3 and 10^7, the plain notation of Double.toString, are formatted with the shortest decimal that rounds back
+ * to the same double (the Schubfach algorithm by R. Giulietti). In that range this is the output of Double.toString. Outside of it
+ * Double.toString sometimes prints more digits than needed, so those values are appended to a reused StringBuilder by the JDK and copied.
+ * An instance must only be used by one thread.
+ * </p>
+ */
+public class NumberFormatter {
+
+	/**
+	 * The maximal number of bytes a number takes.
+	 */
+	public static final int MAX_LENGTH = 32;
+
+	private static final long C_MIN = 1L << 52;
+	private static final long MASK_63 = (1L << 63) - 1;
+	private static final int K_MIN = -24;	//range of the decimal exponents of the table, enough for the fast range
+	private static final int K_MAX = 8;
+	private static final long[] G1 = new long[K_MAX - K_MIN + 1];	//upper 63 bits of floor(10^-k * 2^(125 - flog2pow10(-k))) + 1
+	private static final long[] G0 = new long[K_MAX - K_MIN + 1];	//lower 63 bits
+
+	static {
+		for (int k = K_MIN; k <= K_MAX; k++) {
+			int shift = 125 - flog2pow10(-k);
+			BigInteger g;
+			if (k <= 0) {
+				g = BigInteger.TEN.pow(-k).shiftLeft(shift);
+			} else {
+				g = BigInteger.ONE.shiftLeft(shift).divide(BigInteger.TEN.pow(k));
+			}
+			g = g.add(BigInteger.ONE);
+			G1[k - K_MIN] = g.shiftRight(63).longValue();
+			G0[k - K_MIN] = g.longValue() & MASK_63;
+		}
+	}
+
+	private static final int[] INT_POW10 = {1, 10, 100, 1_000, 10_000, 100_000, 1_000_000, 10_000_000, 100_000_000, 1_000_000_000};
+	private static final byte[] DIGIT_TENS = new byte[100];	//tens digit of 0..99
+	private static final byte[] DIGIT_ONES = new byte[100];	//ones digit of 0..99
+
+	static {
+		for (int i = 0; i < 100; i++) {
+			DIGIT_TENS[i] = (byte) ('0' + i / 10);
+			DIGIT_ONES[i] = (byte) ('0' + i % 10);
+		}
+	}
+
+	private final byte[] digits = new byte[20];
+	private final StringBuilder fallback = new StringBuilder(MAX_LENGTH);
+
+	/**
+	 * <p>
+	 * Writes an int like Integer.toString.
+	 * </p>
+	 * @param buf The array to write to, must have room for 11 bytes.
+	 * @param pos The position of the first byte.
+	 * @param v The value.
+	 * @return The position after the last byte written.
+	 */
+	public int appendInt(byte[] buf, int pos, int v) {
+		// digits are generated from the negative value, which also covers Integer.MIN_VALUE
+		if (v >= 0) {
+			v = -v;
+		} else {
+			buf[pos++] = '-';
+		}
+		int n = 0;
+		do {
+			digits[n++] = (byte) ('0' - v % 10);
+			v /= 10;
+		} while (v != 0);
+		while (n > 0) {
+			buf[pos++] = digits[--n];
+		}
+		return pos;
+	}
+
+	/**
+	 * <p>
+	 * Writes a double like Double.toString.
+	 * </p>
+	 * @param buf The array to write to, must have room for MAX_LENGTH bytes.
+	 * @param pos The position of the first byte.
+	 * @param v The value.
+	 * @return The position after the last byte written.
+	 */
+	public int appendDouble(byte[] buf, int pos, double v) {
+		long bits = Double.doubleToRawLongBits(v);
+		double a = Math.abs(v);
+		if (a == 0) {
+			if (bits < 0) {
+				buf[pos++] = '-';
+			}
+			buf[pos++] = '0';
+			buf[pos++] = '.';
+			buf[pos++] = '0';
+			return pos;
+		}
+		if (!(a >= 1e-3 && a < 1e7)) {
+			return appendFallback(buf, pos, v);
+		}
+		if (bits < 0) {
+			buf[pos++] = '-';
+		}
+
+		// v = c * 2^-mq, in this range the double is normal and 29 <= mq <= 62
+		long c = C_MIN | (bits & (C_MIN - 1));
+		int mq = 1075 - (int) ((bits >>> 52) & 0x7ff);
+		long f = c >> mq;
+		int e = 0;
+		if (f << mq != c) {
+			f = toDecimal(-mq, c);
+			e = exponent;
+		}
+
+		// all digits of f from left to right, at most 17: the lower 8 are split off to work with ints
+		int n;
+		if (f >= 100_000_000L) {
+			int high = (int) (f / 100_000_000L);
+			int low = (int) (f - high * 100_000_000L);
+			int nh = length(high);
+			writeDigits(digits, nh, high, nh);
+			writeDigits(digits, nh + 8, low, 8);
+			n = nh + 8;
+		} else {
+			n = length((int) f);
+			writeDigits(digits, n, (int) f, n);
+		}
+		while (digits[n - 1] == '0') {
+			n--;
+			e++;
+		}
+
+		// v = 0.d1d2...dn * 10^point
+		int point = e + n;
+		if (point <= 0) {
+			buf[pos++] = '0';
+			buf[pos++] = '.';
+			for (int i = point; i < 0; i++) {
+				buf[pos++] = '0';
+			}
+			System.arraycopy(digits, 0, buf, pos, n);
+			pos += n;
+		} else if (point < n) {
+			System.arraycopy(digits, 0, buf, pos, point);
+			pos += point;
+			buf[pos++] = '.';
+			System.arraycopy(digits, point, buf, pos, n - point);
+			pos += n - point;
+		} else {
+			System.arraycopy(digits, 0, buf, pos, n);
+			pos += n;
+			for (int i = n; i < point; i++) {
+				buf[pos++] = '0';
+			}
+			buf[pos++] = '.';
+			buf[pos++] = '0';
+		}
+		return pos;
+	}
+
+	// number of decimal digits of a positive int
+	private static int length(int v) {
+		int n = 1;
+		while (n < 10 && v >= INT_POW10[n]) {
+			n++;
+		}
+		return n;
+	}
+
+	// writes the lowest count digits of v, with leading zeros, so that the last one is at end-1
+	private static void writeDigits(byte[] d, int end, int v, int count) {
+		while (count >= 2) {
+			int q = v / 100;
+			int r = v - q * 100;
+			d[--end] = DIGIT_ONES[r];
+			d[--end] = DIGIT_TENS[r];
+			v = q;
+			count -= 2;
+		}
+		if (count == 1) {
+			d[--end] = (byte) ('0' + v);
+		}
+	}
+
+	private int exponent;	//decimal exponent of the last result of toDecimal
+
+	// shortest decimal f * 10^exponent that rounds to c * 2^q, the closest one if there are several
+	private long toDecimal(int q, long c) {
+		int out = (int) c & 1;
+		long cb = c << 2;
+		long cbr = cb + 2;
+		long cbl;
+		int k;
+		if (c != C_MIN) {
+			cbl = cb - 2;
+			k = flog10pow2(q);
+		} else {
+			// the gap to the next smaller double is only half as large
+			cbl = cb - 1;
+			k = flog10threeQuartersPow2(q);
+		}
+		int h = q + flog2pow10(-k) + 2;
+		long g1 = G1[k - K_MIN];
+		long g0 = G0[k - K_MIN];
+		long vb = rop(g1, g0, cb << h);
+		long vbl = rop(g1, g0, cbl << h);
+		long vbr = rop(g1, g0, cbr << h);
+		long s = vb >> 2;
+		if (s >= 100) {
+			// try one digit less first
+			long sp10 = 10 * Math.multiplyHigh(s, 115_292_150_460_684_698L << 4);
+			long tp10 = sp10 + 10;
+			boolean upin = vbl + out <= sp10 << 2;
+			boolean wpin = (tp10 << 2) + out <= vbr;
+			if (upin != wpin) {
+				exponent = k;
+				return upin ? sp10 : tp10;
+			}
+		}
+		long t = s + 1;
+		boolean uin = vbl + out <= s << 2;
+		boolean win = (t << 2) + out <= vbr;
+		exponent = k;
+		if (uin != win) {
+			return uin ? s : t;
+		}
+		long cmp = vb - (s + t << 1);
+		return cmp < 0 || cmp == 0 && (s & 1) == 0 ? s : t;
+	}
+
+	// round to odd of the 126 bit product g * cp, shifted right by 128 bits
+	private static long rop(long g1, long g0, long cp) {
+		long x1 = Math.multiplyHigh(g0, cp);
+		long y0 = g1 * cp;
+		long y1 = Math.multiplyHigh(g1, cp);
+		long z = (y0 >>> 1) + x1;
+		long vbp = y1 + (z >>> 63);
+		return vbp | (z & MASK_63) + MASK_63 >>> 63;
+	}
+
+	private static int flog10pow2(int e) {
+		return (int) (e * 661_971_961_083L >> 41);
+	}
+
+	private static int flog10threeQuartersPow2(int e) {
+		return (int) (e * 661_971_961_083L + (-274_743_187_321L) >> 41);
+	}
+
+	private static int flog2pow10(int e) {
+		return (int) (e * 913_124_641_741L >> 38);
+	}
+
+	private int appendFallback(byte[] buf, int pos, double v) {
+		fallback.setLength(0);
+		fallback.append(v);
+		for (int i = 0; i < fallback.length(); i++) {
+			buf[pos++] = (byte) fallback.charAt(i);
+		}
+		return pos;
+	}
+}
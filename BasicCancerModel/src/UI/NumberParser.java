@@ -0,0 +1,238 @@
+package UI;
+
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+
+
+/**
+ * <p>
+ * Class NumberParser reads numbers from ASCII text in a byte array without creating Strings, with the results of Integer.parseInt
+ * and Double.parseDouble.
+ * </p>
+ * <p>
+ * Decimals with up to 19 significant digits are converted with the algorithm of Clinger if the digits and the power of ten are both
+ * exact doubles, otherwise with the algorithm of Eisel and Lemire (D. Lemire, "Number Parsing at a Gigabyte per Second", 2021), which
+ * multiplies the digits with a 128 bit approximation of the power of five and is correctly rounded. Longer decimals and special values
+ * such as NaN are passed to Double.parseDouble. All methods can be used by several threads at the same time.
+ * </p>
+ */
+public final class NumberParser {
+
+	private static final int Q_MIN = -342;	//range of the powers of ten of the table, smaller ones give 0, larger ones infinity
+	private static final int Q_MAX = 308;
+	private static final long[] POW5 = new long[2 * (Q_MAX - Q_MIN + 1)];	//high and low 64 bits of the normalized 5^q
+
+	static {
+		BigInteger two128 = BigInteger.ONE.shiftLeft(128);
+		for (int q = Q_MIN; q <= Q_MAX; q++) {
+			BigInteger c;
+			if (q >= 0) {
+				c = BigInteger.valueOf(5).pow(q);
+				int bits = c.bitLength();
+				c = bits <= 128 ? c.shiftLeft(128 - bits) : c.shiftRight(bits - 128);
+			} else {
+				BigInteger power5 = BigInteger.valueOf(5).pow(-q);
+				int z = power5.bitLength();		//smallest z with 2^z >= 5^-q, 5^-q is never a power of two
+				int b = q >= -27 ? z + 127 : 2 * z + 128;
+				c = BigInteger.ONE.shiftLeft(b).divide(power5).add(BigInteger.ONE);
+				while (c.compareTo(two128) >= 0) {
+					c = c.shiftRight(1);
+				}
+			}
+			POW5[2 * (q - Q_MIN)] = c.shiftRight(64).longValue();
+			POW5[2 * (q - Q_MIN) + 1] = c.longValue();
+		}
+	}
+
+	private static final double[] EXACT_POW10 = {1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15,
+			1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22};
+
+	private NumberParser() {
+	}
+
+	/**
+	 * <p>
+	 * Reads an int like Integer.parseInt.
+	 * </p>
+	 * @param buf The text.
+	 * @param start The position of the first character.
+	 * @param end The position after the last character.
+	 * @return The value.
+	 * @throws NumberFormatException If the text is no int.
+	 */
+	public static int parseInt(byte[] buf, int start, int end) {
+		int i = start;
+		boolean negative = i < end && buf[i] == '-';
+		if (i < end && (buf[i] == '-' || buf[i] == '+')) {
+			i++;
+		}
+		if (i == end || end - i > 10) {
+			return Integer.parseInt(text(buf, start, end));
+		}
+		long v = 0;
+		for (; i < end; i++) {
+			int d = buf[i] - '0';
+			if (d < 0 || d > 9) {
+				return Integer.parseInt(text(buf, start, end));
+			}
+			v = 10 * v + d;
+		}
+		v = negative ? -v : v;
+		if (v != (int) v) {
+			return Integer.parseInt(text(buf, start, end));
+		}
+		return (int) v;
+	}
+
+	/**
+	 * <p>
+	 * Reads a double like Double.parseDouble.
+	 * </p>
+	 * @param buf The text.
+	 * @param start The position of the first character.
+	 * @param end The position after the last character.
+	 * @return The value.
+	 * @throws NumberFormatException If the text is no double.
+	 */
+	public static double parseDouble(byte[] buf, int start, int end) {
+		int i = start;
+		boolean negative = false;
+		if (i < end && (buf[i] == '-' || buf[i] == '+')) {
+			negative = buf[i] == '-';
+			i++;
+		}
+		long w = 0;				//the first 19 significant digits
+		int digits = 0;
+		int exponent = 0;		//value = w * 10^exponent
+		boolean any = false;
+		boolean truncated = false;
+		for (; i < end; i++) {
+			int d = buf[i] - '0';
+			if (d < 0 || d > 9) {
+				break;
+			}
+			any = true;
+			if (digits < 19) {
+				if (w != 0 || d != 0) {
+					w = 10 * w + d;
+					digits++;
+				}
+			} else {
+				exponent++;
+				truncated |= d != 0;
+			}
+		}
+		if (i < end && buf[i] == '.') {
+			for (i++; i < end; i++) {
+				int d = buf[i] - '0';
+				if (d < 0 || d > 9) {
+					break;
+				}
+				any = true;
+				if (digits < 19) {
+					if (w != 0 || d != 0) {
+						w = 10 * w + d;
+						digits++;
+					}
+					exponent--;
+				} else {
+					truncated |= d != 0;
+				}
+			}
+		}
+		if (any && i < end && (buf[i] == 'e' || buf[i] == 'E')) {
+			i++;
+			boolean negativeExponent = false;
+			if (i < end && (buf[i] == '-' || buf[i] == '+')) {
+				negativeExponent = buf[i] == '-';
+				i++;
+			}
+			int e = 0;
+			boolean anyExponent = false;
+			for (; i < end; i++) {
+				int d = buf[i] - '0';
+				if (d < 0 || d > 9) {
+					break;
+				}
+				anyExponent = true;
+				e = Math.min(10 * e + d, 100_000);
+			}
+			if (!anyExponent) {
+				return Double.parseDouble(text(buf, start, end));
+			}
+			exponent += negativeExponent ? -e : e;
+		}
+		if (!any || i != end || truncated) {
+			// special values, suffixes such as d and more than 19 digits
+			return Double.parseDouble(text(buf, start, end));
+		}
+		double v = toDouble(w, exponent);
+		return negative ? -v : v;
+	}
+
+	// the double nearest to w * 10^q
+	private static double toDouble(long w, int q) {
+		if (w == 0 || q < Q_MIN) {
+			return 0.0;
+		}
+		if (q > Q_MAX) {
+			return Double.POSITIVE_INFINITY;
+		}
+		if (w >= 0 && w <= (1L << 53) && q >= -22 && q <= 22) {
+			// both factors are exact, so the one rounding of the division or multiplication is correct
+			return q < 0 ? w / EXACT_POW10[-q] : w * EXACT_POW10[q];
+		}
+		int lz = Long.numberOfLeadingZeros(w);
+		w <<= lz;
+		int index = 2 * (q - Q_MIN);
+		long high = unsignedMultiplyHigh(w, POW5[index]);
+		long low = w * POW5[index];
+		if ((high & 0x1ff) == 0x1ff) {
+			// the truncated product may be too small, add the product with the lower half of the power
+			long secondHigh = unsignedMultiplyHigh(w, POW5[index + 1]);
+			long sum = low + secondHigh;
+			if (Long.compareUnsigned(sum, low) < 0) {
+				high++;
+			}
+			low = sum;
+		}
+		int upperBit = (int) (high >>> 63);
+		int shift = upperBit + 9;
+		long mantissa = high >>> shift;
+		int power2 = (((152170 + 65536) * q) >> 16) + 63 + upperBit - lz + 1023;
+		if (power2 <= 0) {
+			// subnormal
+			if (-power2 + 1 >= 64) {
+				return 0.0;
+			}
+			mantissa >>>= -power2 + 1;
+			mantissa += mantissa & 1;
+			mantissa >>>= 1;
+			power2 = mantissa < (1L << 52) ? 0 : 1;
+			return Double.longBitsToDouble((long) power2 << 52 | (mantissa & ((1L << 52) - 1)));
+		}
+		if (Long.compareUnsigned(low, 1) <= 0 && q >= -4 && q <= 23 && (mantissa & 3) == 1 && (mantissa << shift) == high) {
+			// exactly halfway between two doubles: round to even
+			mantissa &= ~1L;
+		}
+		mantissa += mantissa & 1;
+		mantissa >>>= 1;
+		if (mantissa >= (2L << 52)) {
+			mantissa = 1L << 52;
+			power2++;
+		}
+		if (power2 >= 0x7ff) {
+			return Double.POSITIVE_INFINITY;
+		}
+		return Double.longBitsToDouble((long) power2 << 52 | (mantissa & ((1L << 52) - 1)));
+	}
+
+	// high 64 bits of the unsigned 128 bit product
+	private static long unsignedMultiplyHigh(long a, long b) {
+		return Math.multiplyHigh(a, b) + ((a >> 63) & b) + ((b >> 63) & a);
+	}
+
+	private static String text(byte[] buf, int start, int end) {
+		return new String(buf, start, end - start, StandardCharsets.ISO_8859_1);
+	}
+}
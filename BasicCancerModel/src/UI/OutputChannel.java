@@ -0,0 +1,309 @@
+package UI;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+
+
+/**
+ * <p>
+ * Class OutputChannel collects the output of one file in a chunk and hands full chunks to the writer thread of its OutputPipeline.
+ * It must only be used by one thread.
+ * </p>
+ */
+public class OutputChannel {
+
+	private final OutputPipeline pipeline;
+	private final FileChannel file;
+	private final String name;		//name of the file without its directory
+	private final boolean compress;	//the chunks are written as compressed blocks
+	private OutputPipeline.Chunk chunk;	//chunk being filled, null until the first write
+	private long position;		//number of bytes written to the channel so far
+	private NumberFormatter formatter;	//formats numbers as text, created on first use
+	private boolean closed;
+
+	/**
+	 * <p>
+	 * Constructor for the OutputChannel class, see OutputPipeline.open.
+	 * </p>
+	 * @param pipeline The pipeline that writes the chunks.
+	 * @param file The file the chunks are written to.
+	 * @param name The name of the file without its directory.
+	 * @param compress Wether the chunks are written as compressed blocks.
+	 * @param position The number of bytes that were written to the file before, when an output is continued.
+	 */
+	OutputChannel(OutputPipeline pipeline, FileChannel file, String name, boolean compress, long position) {
+		this.pipeline = pipeline;
+		this.file = file;
+		this.name = name;
+		this.compress = compress;
+		this.position = position;
+	}
+
+	/**
+	 * <p>
+	 * Writes a string. The output of the simulation is ASCII, other characters are encoded with the default charset like FileWriter does.
+	 * </p>
+	 * @param s The string to write.
+	 * @throws IOException Exception thrown if the writer thread failed.
+	 */
+	public void write(String s) throws IOException {
+		write((CharSequence) s);
+	}
+
+	/**
+	 * <p>
+	 * Writes the characters of a char sequence, e.g. of a reused StringBuilder, without creating a String.
+	 * The output of the simulation is ASCII, other characters are encoded with the default charset like FileWriter does.
+	 * </p>
+	 * @param s The characters to write.
+	 * @throws IOException Exception thrown if the writer thread failed.
+	 */
+	public void write(CharSequence s) throws IOException {
+		int n = s.length();
+		for (int i = 0; i < n; i++) {
+			char c = s.charAt(i);
+			if (c >= 0x80) {
+				position += i;
+				write(s.subSequence(i, n).toString().getBytes(Charset.defaultCharset()));
+				return;
+			}
+			if (chunk == null || chunk.length == chunk.data.length) {
+				next();
+			}
+			chunk.data[chunk.length++] = (byte) c;
+		}
+		position += n;
+	}
+
+	/**
+	 * <p>
+	 * Writes bytes.
+	 * </p>
+	 * @param b The bytes to write.
+	 * @throws IOException Exception thrown if the writer thread failed.
+	 */
+	public void write(byte[] b) throws IOException {
+		int offset = 0;
+		while (offset < b.length) {
+			if (chunk == null || chunk.length == chunk.data.length) {
+				next();
+			}
+			int n = Math.min(b.length - offset, chunk.data.length - chunk.length);
+			System.arraycopy(b, offset, chunk.data, chunk.length, n);
+			chunk.length += n;
+			offset += n;
+		}
+		position += b.length;
+	}
+
+	/**
+	 * <p>
+	 * Writes a byte.
+	 * </p>
+	 * @param v The value to write.
+	 * @throws IOException Exception thrown if the writer thread failed.
+	 */
+	public void writeByte(int v) throws IOException {
+		ensure(1);
+		chunk.data[chunk.length++] = (byte) v;
+		position++;
+	}
+
+	/**
+	 * <p>
+	 * Writes a short in little-endian byte order.
+	 * </p>
+	 * @param v The value to write.
+	 * @throws IOException Exception thrown if the writer thread failed.
+	 */
+	public void writeShort(int v) throws IOException {
+		ensure(2);
+		byte[] d = chunk.data;
+		int p = chunk.length;
+		d[p] = (byte) v;
+		d[p + 1] = (byte) (v >>> 8);
+		chunk.length = p + 2;
+		position += 2;
+	}
+
+	/**
+	 * <p>
+	 * Writes an int in little-endian byte order.
+	 * </p>
+	 * @param v The value to write.
+	 * @throws IOException Exception thrown if the writer thread failed.
+	 */
+	public void writeInt(int v) throws IOException {
+		ensure(4);
+		byte[] d = chunk.data;
+		int p = chunk.length;
+		d[p] = (byte) v;
+		d[p + 1] = (byte) (v >>> 8);
+		d[p + 2] = (byte) (v >>> 16);
+		d[p + 3] = (byte) (v >>> 24);
+		chunk.length = p + 4;
+		position += 4;
+	}
+
+	/**
+	 * <p>
+	 * Writes a long in little-endian byte order.
+	 * </p>
+	 * @param v The value to write.
+	 * @throws IOException Exception thrown if the writer thread failed.
+	 */
+	public void writeLong(long v) throws IOException {
+		ensure(8);
+		byte[] d = chunk.data;
+		int p = chunk.length;
+		for (int k = 0; k < 8; k++) {
+			d[p + k] = (byte) (v >>> (8 * k));
+		}
+		chunk.length = p + 8;
+		position += 8;
+	}
+
+	/**
+	 * <p>
+	 * Writes a double as its IEEE 754 bits in little-endian byte order.
+	 * </p>
+	 * @param v The value to write.
+	 * @throws IOException Exception thrown if the writer thread failed.
+	 */
+	public void writeDouble(double v) throws IOException {
+		writeLong(Double.doubleToRawLongBits(v));
+	}
+
+	/**
+	 * <p>
+	 * Writes an int as text, like Integer.toString.
+	 * </p>
+	 * @param v The value to write.
+	 * @throws IOException Exception thrown if the writer thread failed.
+	 */
+	public void writeDecimal(int v) throws IOException {
+		ensure(NumberFormatter.MAX_LENGTH);
+		if (formatter == null) {
+			formatter = new NumberFormatter();
+		}
+		int end = formatter.appendInt(chunk.data, chunk.length, v);
+		position += end - chunk.length;
+		chunk.length = end;
+	}
+
+	/**
+	 * <p>
+	 * Writes a double as text, like Double.toString but without creating a String.
+	 * </p>
+	 * @param v The value to write.
+	 * @throws IOException Exception thrown if the writer thread failed.
+	 */
+	public void writeDecimal(double v) throws IOException {
+		ensure(NumberFormatter.MAX_LENGTH);
+		if (formatter == null) {
+			formatter = new NumberFormatter();
+		}
+		int end = formatter.appendDouble(chunk.data, chunk.length, v);
+		position += end - chunk.length;
+		chunk.length = end;
+	}
+
+	/**
+	 * <p>
+	 * Getter function to get the number of bytes written to the channel, i.e. the offset in the file of the next byte if the file is
+	 * not compressed.
+	 * </p>
+	 * @return The number of bytes written.
+	 */
+	public long getPosition() {
+		return position;
+	}
+
+	/**
+	 * <p>
+	 * Getter function to get the name of the file.
+	 * </p>
+	 * @return The name of the file without its directory.
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * <p>
+	 * Getter function to get if the channel is closed.
+	 * </p>
+	 * @return True after close was called.
+	 */
+	public boolean isClosed() {
+		return closed;
+	}
+
+	/**
+	 * <p>
+	 * Hands the bytes collected so far to the writer thread, so the file can be cut after them. A compressed file ends a block here.
+	 * </p>
+	 * @throws IOException Exception thrown if the writer thread failed.
+	 */
+	void flush() throws IOException {
+		if (closed || chunk == null || chunk.length == 0) {
+			return;
+		}
+		chunk.target = file;
+		chunk.compress = compress;
+		pipeline.publish(chunk);
+		chunk = null;
+	}
+
+	/**
+	 * <p>
+	 * Getter function to get the file of the channel, only to be used by the writer thread.
+	 * </p>
+	 * @return The file.
+	 */
+	FileChannel getFile() {
+		return file;
+	}
+
+	/**
+	 * <p>
+	 * Hands the remaining output to the writer thread, which closes the file after writing it.
+	 * </p>
+	 * @throws IOException Exception thrown if the writer thread failed.
+	 */
+	public void close() throws IOException {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		if (chunk == null) {
+			chunk = pipeline.take();
+		}
+		chunk.target = file;
+		chunk.close = true;
+		chunk.compress = compress;
+		pipeline.publish(chunk);
+		chunk = null;
+	}
+
+	// makes room for n bytes in the current chunk
+	private void ensure(int n) throws IOException {
+		if (chunk == null || chunk.data.length - chunk.length < n) {
+			next();
+		}
+	}
+
+	// publishes the full chunk and continues in an empty one
+	private void next() throws IOException {
+		if (closed) {
+			throw new IOException("Output channel is closed");
+		}
+		if (chunk != null) {
+			chunk.target = file;
+			chunk.compress = compress;
+			pipeline.publish(chunk);
+		}
+		chunk = pipeline.take();
+	}
+}
@@ -0,0 +1,395 @@
+package UI;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import Tools.Compression;
+
+
+/**
+ * <p>
+ * Class OutputPipeline moves the writing of output files off the simulation thread. The simulation fills chunks of bytes per file
+ * (see OutputChannel) and publishes them to a bounded queue, a dedicated writer thread drains the queue into the files.
+ * All chunks are allocated up front and recycled: if the writer falls behind, the simulation waits for a free chunk instead of
+ * using more memory.
+ * </p>
+ * <p>
+ * Files opened with compression are written as independently compressed blocks, one per chunk (see BlockCodec). The chunks are
+ * compressed on a small pool of threads shared by all pipelines as soon as they are published, the writer thread writes the blocks
+ * in the order the chunks were published.
+ * </p>
+ * <p>
+ * For checkpoints, barrier tells the sizes of the files once everything written before it is on the disk, and a pipeline can continue
+ * files from such sizes after resumeFrom.
+ * </p>
+ */
+public class OutputPipeline {
+
+	/**
+	 * Default size of a chunk in bytes.
+	 */
+	public static final int DEFAULT_CHUNK_SIZE = 1 << 16;
+	/**
+	 * Default number of chunks, which bounds the memory of the pipeline to chunks * chunk size.
+	 */
+	public static final int DEFAULT_CHUNKS = 32;
+
+	private static final Chunk END = new Chunk(0);	//tells the writer thread to stop
+	private static ExecutorService packers;		//compresses the chunks of all pipelines, created on first use
+
+	private final BlockingQueue<Chunk> filled;
+	private final BlockingQueue<Chunk> free;
+	private final List<OutputChannel> channels = new ArrayList<OutputChannel>();
+	private final Thread writer;
+	private final Compression compression;
+	private volatile IOException error;	//first error of the writer thread
+	private boolean closed;
+	private Map<String, long[]> resume;	//position and size of every continued file by name, null if all files are new
+
+	/**
+	 * <p>
+	 * Constructor for a pipeline with the default chunk size and number of chunks.
+	 * </p>
+	 */
+	public OutputPipeline() {
+		this(DEFAULT_CHUNK_SIZE, DEFAULT_CHUNKS, Compression.NONE);
+	}
+
+	/**
+	 * <p>
+	 * Constructor for a pipeline with the default chunk size and number of chunks that compresses the files opened with compression.
+	 * </p>
+	 * @param compression The compression of these files.
+	 */
+	public OutputPipeline(Compression compression) {
+		this(DEFAULT_CHUNK_SIZE, DEFAULT_CHUNKS, compression);
+	}
+
+	/**
+	 * <p>
+	 * Constructor for the OutputPipeline class. Starts the writer thread.
+	 * </p>
+	 * @param chunkSize The size of a chunk in bytes.
+	 * @param chunks The number of chunks, at least 2.
+	 * @param compression The compression of the files opened with compression.
+	 */
+	public OutputPipeline(int chunkSize, int chunks, Compression compression) {
+		this.compression = compression;
+		chunks = Math.max(2, chunks);
+		this.filled = new ArrayBlockingQueue<Chunk>(chunks + 1);
+		this.free = new ArrayBlockingQueue<Chunk>(chunks);
+		for (int i = 0; i < chunks; i++) {
+			this.free.add(new Chunk(chunkSize));
+		}
+		this.writer = new Thread(this::drain, "Output writer");
+		this.writer.setDaemon(true);
+		this.writer.start();
+	}
+
+	/**
+	 * <p>
+	 * Opens a file for writing. The file is created right away, so errors in the path are reported to the caller.
+	 * </p>
+	 * @param fileName The path of the file.
+	 * @return The channel to write the file.
+	 * @throws IOException Exception thrown if the file cannot be created.
+	 */
+	public OutputChannel open(String fileName) throws IOException {
+		return open(fileName, false);
+	}
+
+	/**
+	 * <p>
+	 * Opens a file for writing, compressed with the compression of the pipeline. The extension of the compression is appended to the
+	 * name of a compressed file.
+	 * </p>
+	 * @param fileName The path of the file, without the extension of the compression.
+	 * @param compress Wether the file is compressed, if the pipeline has a compression.
+	 * @return The channel to write the file.
+	 * @throws IOException Exception thrown if the file cannot be created.
+	 */
+	public OutputChannel open(String fileName, boolean compress) throws IOException {
+		compress = compress && compression != Compression.NONE;
+		String path = compress ? fileName + compression.getExtension() : fileName;
+		String name = new File(path).getName();
+		OutputChannel channel;
+		if (resume != null) {
+			long[] state = resume.get(name);
+			if (state == null) {
+				throw new IOException("The checkpoint holds no state of " + name);
+			}
+			// everything behind the checkpoint is written again
+			FileChannel file = FileChannel.open(Paths.get(path), StandardOpenOption.WRITE);
+			if (file.size() < state[1]) {
+				file.close();
+				throw new IOException(name + " is shorter than at the checkpoint");
+			}
+			file.truncate(state[1]);
+			file.position(state[1]);
+			channel = new OutputChannel(this, file, name, compress, state[0]);
+		} else {
+			FileChannel file = new FileOutputStream(path).getChannel();
+			if (compress && compression == Compression.LZ) {
+				ByteBuffer magic = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN).putLong(0, BlockCodec.LZ_MAGIC);
+				while (magic.hasRemaining()) {
+					file.write(magic);
+				}
+			}
+			channel = new OutputChannel(this, file, name, compress, 0);
+		}
+		channels.add(channel);
+		return channel;
+	}
+
+	/**
+	 * <p>
+	 * Continues files from a checkpoint: from now on open cuts every file to its size at the checkpoint and appends to it.
+	 * </p>
+	 * @param files The number of bytes written to the channel and the size of the file at the checkpoint, by name of the file.
+	 */
+	public void resumeFrom(Map<String, long[]> files) {
+		this.resume = files;
+	}
+
+	/**
+	 * <p>
+	 * Hands everything written so far to the writer thread and finds out the sizes of the files once it is written and forced to
+	 * the disk. Does not wait for the writer thread.
+	 * </p>
+	 * @param files The channels whose sizes are needed, all must be open.
+	 * @return The sizes of the files in the order of the channels, completed by the writer thread.
+	 * @throws IOException The first error of the writer thread.
+	 */
+	public CompletableFuture<long[]> barrier(List<OutputChannel> files) throws IOException {
+		for (OutputChannel channel : channels) {
+			channel.flush();
+		}
+		Chunk chunk = take();
+		chunk.barrier = new CompletableFuture<long[]>();
+		chunk.barrierFiles = new ArrayList<OutputChannel>(files);
+		CompletableFuture<long[]> sizes = chunk.barrier;
+		publish(chunk);
+		return sizes;
+	}
+
+	/**
+	 * <p>
+	 * Closes all channels that are still open, waits until the writer thread has written everything and stops it.
+	 * </p>
+	 * @throws IOException The first error of the writer thread.
+	 */
+	public void close() throws IOException {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		for (OutputChannel channel : channels) {
+			channel.close();
+		}
+		try {
+			filled.put(END);
+			writer.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while writing output", e);
+		}
+		checkError();
+	}
+
+	/**
+	 * <p>
+	 * Stops the writer thread without writing the chunks that are still queued and closes all files, errors are ignored. Used after
+	 * close failed or instead of it when the output is given up.
+	 * </p>
+	 */
+	public void abort() {
+		closed = true;
+		writer.interrupt();
+		try {
+			writer.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		for (OutputChannel channel : channels) {
+			try {
+				channel.getFile().close();
+			} catch (IOException e) {
+				// nothing more can be done with the file
+			}
+		}
+	}
+
+	/**
+	 * <p>
+	 * Takes an empty chunk, waits if all chunks are queued for writing.
+	 * </p>
+	 * @return The chunk.
+	 * @throws IOException The first error of the writer thread.
+	 */
+	Chunk take() throws IOException {
+		checkError();
+		try {
+			Chunk chunk = free.take();
+			chunk.length = 0;
+			chunk.target = null;
+			chunk.close = false;
+			chunk.compress = false;
+			chunk.packing = null;
+			chunk.barrier = null;
+			chunk.barrierFiles = null;
+			return chunk;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while writing output", e);
+		}
+	}
+
+	/**
+	 * <p>
+	 * Queues a chunk for the writer thread. A chunk of a compressed file is compressed in the background.
+	 * </p>
+	 * @param chunk The chunk, with its target file set.
+	 * @throws IOException The first error of the writer thread.
+	 */
+	void publish(Chunk chunk) throws IOException {
+		checkError();
+		if (chunk.compress && chunk.length > 0) {
+			if (chunk.packed == null) {
+				chunk.packed = new byte[BlockCodec.maxPackedLength(chunk.data.length)];
+			}
+			chunk.packing = packers().submit(() -> {
+				chunk.packedLength = BlockCodec.forThread(compression).pack(chunk.data, chunk.length, chunk.packed);
+			});
+		}
+		try {
+			filled.put(chunk);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while writing output", e);
+		}
+	}
+
+	private static synchronized ExecutorService packers() {
+		if (packers == null) {
+			int threads = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors()));
+			packers = Executors.newFixedThreadPool(threads, r -> {
+				Thread t = new Thread(r, "Output compressor");
+				t.setDaemon(true);
+				return t;
+			});
+		}
+		return packers;
+	}
+
+	private void checkError() throws IOException {
+		IOException e = this.error;
+		if (e != null) {
+			throw new IOException("Writing output failed: " + e.getMessage(), e);
+		}
+	}
+
+	// writer thread: after an error the chunks are still recycled, so the simulation does not wait forever
+	private void drain() {
+		while (true) {
+			Chunk chunk;
+			try {
+				chunk = filled.take();
+			} catch (InterruptedException e) {
+				return;
+			}
+			if (chunk == END) {
+				return;
+			}
+			if (chunk.barrier != null) {
+				reachBarrier(chunk);
+				free.add(chunk);
+				continue;
+			}
+			try {
+				if (error == null) {
+					ByteBuffer buffer = ByteBuffer.wrap(chunk.data, 0, chunk.length);
+					if (chunk.packing != null) {
+						chunk.packing.get();
+						buffer = ByteBuffer.wrap(chunk.packed, 0, chunk.packedLength);
+					} else if (chunk.compress) {
+						buffer.limit(0);
+					}
+					while (buffer.hasRemaining()) {
+						chunk.target.write(buffer);
+					}
+				}
+				if (chunk.close) {
+					chunk.target.close();
+				}
+			} catch (IOException e) {
+				if (error == null) {
+					error = e;
+				}
+			} catch (ExecutionException e) {
+				if (error == null) {
+					error = new IOException("Compressing output failed", e.getCause());
+				}
+			} catch (InterruptedException e) {
+				return;
+			}
+			free.add(chunk);
+		}
+	}
+
+	// writer thread: all chunks published before the barrier are written
+	private void reachBarrier(Chunk chunk) {
+		if (error != null) {
+			chunk.barrier.completeExceptionally(error);
+			return;
+		}
+		try {
+			long[] sizes = new long[chunk.barrierFiles.size()];
+			for (int i = 0; i < sizes.length; i++) {
+				FileChannel file = chunk.barrierFiles.get(i).getFile();
+				file.force(false);
+				sizes[i] = file.size();
+			}
+			chunk.barrier.complete(sizes);
+		} catch (IOException e) {
+			chunk.barrier.completeExceptionally(e);
+		}
+	}
+
+	/**
+	 * <p>
+	 * A block of bytes for one file.
+	 * </p>
+	 */
+	static final class Chunk {
+		final byte[] data;
+		int length;
+		FileChannel target;
+		boolean close;	//close the file after writing the chunk
+		boolean compress;	//write the chunk as a compressed block
+		byte[] packed;	//the compressed block, allocated on first use
+		int packedLength;
+		Future<?> packing;	//compression of the chunk, null if it is written as it is
+		CompletableFuture<long[]> barrier;	//completed with the sizes of barrierFiles when the chunk is reached, null for data
+		List<OutputChannel> barrierFiles;
+
+		Chunk(int size) {
+			this.data = new byte[size];
+		}
+	}
+}
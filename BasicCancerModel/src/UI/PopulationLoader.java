@@ -0,0 +1,98 @@
+package UI;
+
+import java.io.IOException;
+
+import Tools.CellStore;
+
+
+/**
+ * <p>
+ * Class PopulationLoader fills the cell stores of all sites from a file, either an initial population in the layout of
+ * Location&lt;run&gt;.m or any stored step of a location file of an earlier run, so a simulation can start where another one was
+ * stored. Uncompressed text files are memory-mapped and parsed in parts with several threads, compressed text files are read
+ * one step after the other and binary and delta snapshot files are read block by block.
+ * </p>
+ */
+public class PopulationLoader {
+
+	/**
+	 * Step that selects the last stored step of the file.
+	 */
+	public static final int LAST_STEP = -1;
+
+	/**
+	 * <p>
+	 * Adds the cells of a stored step to the stores of their sites. Cells of sites that have no store are left out. The cells of
+	 * a delta file keep their IDs, all other cells are added without ID.
+	 * </p>
+	 * @param path The path of the file.
+	 * @param step The step of the simulation to load, LAST_STEP for the last stored step. A file without separator lines holds
+	 * a single step.
+	 * @param cells The stores of all sites.
+	 * @param parallelism The number of threads that parse an uncompressed text file.
+	 * @return The number of cells added.
+	 * @throws IOException Exception thrown if the file cannot be read, is malformed or does not hold the step.
+	 */
+	public static int load(String path, int step, CellStore[] cells, int parallelism) throws IOException {
+		if (path.endsWith(".gz") || path.endsWith(".lzb")) {
+			return loadStream(path, step, cells, parallelism);
+		}
+		try (SnapshotReader reader = SnapshotReader.open(path)) {
+			int k = find(reader, step, path);
+			if (k < 0) {
+				return 0;
+			}
+			if (reader instanceof LocationTextReader) {
+				int added = 0;
+				for (LocationParser part : ((LocationTextReader) reader).parseStep(k, parallelism)) {
+					added += part.appendTo(cells);
+				}
+				return added;
+			}
+			return append(reader.readStep(k), cells);
+		}
+	}
+
+	// index of the stored step, -1 for LAST_STEP of an empty file
+	private static int find(SnapshotReader reader, int step, String path) throws IOException {
+		if (step == LAST_STEP) {
+			return reader.getStepCount() - 1;
+		}
+		for (int k = 0; k < reader.getStepCount(); k++) {
+			if (reader.getStep(k) == step) {
+				return k;
+			}
+		}
+		throw new IOException("Step " + step + " is not stored in " + path);
+	}
+
+	private static int loadStream(String path, int step, CellStore[] cells, int parallelism) throws IOException {
+		try (LocationStream stream = new LocationStream(path, parallelism)) {
+			SnapshotStep last = null;
+			SnapshotStep current;
+			while ((current = stream.next()) != null) {
+				if (current.getStep() == step) {
+					return append(current, cells);
+				}
+				last = current;
+			}
+			if (step != LAST_STEP) {
+				throw new IOException("Step " + step + " is not stored in " + path);
+			}
+			return last == null ? 0 : append(last, cells);
+		}
+	}
+
+	private static int append(SnapshotStep step, CellStore[] cells) {
+		int added = 0;
+		for (int i = 0; i < step.size(); i++) {
+			int site = step.getSite(i);
+			if (site >= 0 && site < cells.length) {
+				cells[site].add(step.getType(i), step.isInvasive(i), step.getX(i), step.getY(i),
+						step.hasIds() ? step.getId(i) : CellStore.NO_ID);
+				added++;
+			}
+		}
+		return added;
+	}
+}
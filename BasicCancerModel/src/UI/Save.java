@@ -1,24 +1,50 @@
 package UI;
 
-import java.io.FileWriter;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.List;
+import Tools.CellStore;
+import Tools.Compression;
+import Tools.DensityGrid;
 import Tools.PopulationStatus;
 import Tools.RuleSet;
 import Tools.SaveObject;
+import Tools.SnapshotFormat;
 
 /**
  * 	Class Save stores the output of all the different calculations to the, in the UI configured, output locations
  */
 public class Save {
 	
+	/**
+	 * Line of Location.m between two steps, as written for SaveObject(0, 0, 0, 0, 0).
+	 */
+	static final String SEPARATOR_LINE = "0  0  0  0.0  0.0\n";
+	/**
+	 * Last line of Location.m, as written for SaveObject(-10, -10, -10, -10, -10).
+	 */
+	static final String END_LINE = "-10  -10  -10  -10.0  -10.0\n";
+	
 	private String path; 
-	private FileWriter f;
-	private FileWriter g;
-	private FileWriter statistics;
-	private FileWriter steps;
-	private FileWriter settings;
+	private int run;
+	private OutputPipeline pipeline; //writes the files on its own thread
+	private OutputChannel f;
+	private OutputChannel g;
+	private OutputChannel statistics;
+	private OutputChannel steps;
+	private OutputChannel settings;
+	private BinarySnapshotWriter binary; //locations in the binary format, null if they are stored as text in f
+	private DeltaSnapshotWriter delta; //locations in the delta format, null if they are stored otherwise
+	private DensityGrid densityGrid; //counts of the cells per bin, null if no densities are stored
+	private OutputChannel density; //densities as text, null if they are not stored or stored in the binary format
+	private DensityGridWriter densityBinary; //densities in the binary format, null if they are not stored or stored as text
 	private ArrayList<SaveObject> history; //comes from SaveObject 
+	private List<OutputChannel> resumable = new ArrayList<OutputChannel>(); //files that are written step by step, part of a checkpoint
+	private boolean resumed; //the files are continued from a checkpoint
 	
 	
 	/**
@@ -30,12 +56,129 @@ public class Save {
 	 * @throws IOException When files cannot be stored this exception is thrown.
 	 */
 	public Save(String savePath, String fileName, boolean hybrid, int run) throws IOException{
+		this(savePath, fileName, hybrid, run, SnapshotFormat.TEXT);
+	}
+	
+	/**
+	 * Constructor for the Save class that stores the locations in the given format.
+	 * @param savePath The path to which the files should be stored
+	 * @param fileName The name given to the files stored.
+	 * @param hybrid Not in use at the moment
+	 * @param run The index of the current simulation run.
+	 * @param format The format of the locations, Location.m for text and Location.bin for binary.
+	 * @throws IOException When files cannot be stored this exception is thrown.
+	 */
+	public Save(String savePath, String fileName, boolean hybrid, int run, SnapshotFormat format) throws IOException{
+		this(savePath, fileName, hybrid, run, format, DeltaSnapshotWriter.DEFAULT_KEYFRAME_INTERVAL);
+	}
+	
+	/**
+	 * Constructor for the Save class that stores the locations in the given format.
+	 * @param savePath The path to which the files should be stored
+	 * @param fileName The name given to the files stored.
+	 * @param hybrid Not in use at the moment
+	 * @param run The index of the current simulation run.
+	 * @param format The format of the locations, Location.m for text, Location.bin for binary, Location.delta for delta, none for NONE.
+	 * @param keyframeInterval The number of stored steps from one keyframe to the next in the delta format.
+	 * @throws IOException When files cannot be stored this exception is thrown.
+	 */
+	public Save(String savePath, String fileName, boolean hybrid, int run, SnapshotFormat format, int keyframeInterval) throws IOException{
+		this(savePath, fileName, hybrid, run, format, keyframeInterval, Compression.NONE);
+	}
+	
+	/**
+	 * Constructor for the Save class that stores the locations in the given format and compresses the large text files.
+	 * @param savePath The path to which the files should be stored
+	 * @param fileName The name given to the files stored.
+	 * @param hybrid Not in use at the moment
+	 * @param run The index of the current simulation run.
+	 * @param format The format of the locations, Location.m for text, Location.bin for binary, Location.delta for delta, none for NONE.
+	 * @param keyframeInterval The number of stored steps from one keyframe to the next in the delta format.
+	 * @param compression The compression of Location.m, Distribution.m and Density.m, whose names get the extension of the compression.
+	 * @throws IOException When files cannot be stored this exception is thrown.
+	 */
+	public Save(String savePath, String fileName, boolean hybrid, int run, SnapshotFormat format, int keyframeInterval,
+			Compression compression) throws IOException{
+		this(savePath, run, format, keyframeInterval, compression, null);
+	}
+	
+	// opens the files, as continuation of a checkpoint if there is a state
+	private Save(String savePath, int run, SnapshotFormat format, int keyframeInterval, Compression compression, SaveState state)
+			throws IOException{
 		this.path = savePath; 
-		f = new FileWriter(path + "/Location" +run+ ".m");
-		g = new FileWriter(path + "/Distribution"+run + ".m");
-		steps = new FileWriter(path + "/PlottedSteps"+run+ ".m"); 
-		statistics = new FileWriter(path + "/Statistics"+run+ ".m"); 
-		settings = new FileWriter(path + "/Settings"+run+ ".txt"); 
+		this.run = run;
+		pipeline = new OutputPipeline(compression);
+		if (state != null) {
+			pipeline.resumeFrom(state.getFiles());
+			resumed = true;
+		}
+		if (format == SnapshotFormat.BINARY) {
+			OutputChannel channel = pipeline.open(path + "/Location" + run + ".bin");
+			binary = new BinarySnapshotWriter(channel, run);
+			resumable.add(channel);
+		} else if (format == SnapshotFormat.DELTA) {
+			OutputChannel channel = pipeline.open(path + "/Location" + run + ".delta");
+			delta = new DeltaSnapshotWriter(channel, run, keyframeInterval);
+			resumable.add(channel);
+		} else if (format == SnapshotFormat.TEXT) {
+			f = pipeline.open(path + "/Location" +run+ ".m", true);
+			resumable.add(f);
+		}
+		g = pipeline.open(path + "/Distribution"+run + ".m", true);
+		steps = pipeline.open(path + "/PlottedSteps"+run+ ".m"); 
+		statistics = pipeline.open(path + "/Statistics"+run+ ".m"); 
+		resumable.add(g);
+		resumable.add(steps);
+		resumable.add(statistics);
+		if (state == null) {
+			settings = pipeline.open(path + "/Settings"+run+ ".txt"); 
+		}
+	}
+	
+	/**
+	 * Function to continue the files of a run from a checkpoint. Everything written after the checkpoint is cut off, the Settings file
+	 * is kept as it is. The density grid has to be set again with setDensityGrid, saveSettings must not be called.
+	 * @param savePath The path to which the files are stored.
+	 * @param run The index of the simulation run.
+	 * @param format The format of the locations, the same as before the checkpoint.
+	 * @param keyframeInterval The number of stored steps from one keyframe to the next in the delta format.
+	 * @param compression The compression, the same as before the checkpoint.
+	 * @param state The state of the files at the checkpoint.
+	 * @return The Save that continues the files.
+	 * @throws IOException When the files cannot be continued this exception is thrown.
+	 */
+	public static Save resume(String savePath, int run, SnapshotFormat format, int keyframeInterval, Compression compression,
+			SaveState state) throws IOException{
+		Save s = new Save(savePath, run, format, keyframeInterval, compression, state);
+		DataInputStream writerState = new DataInputStream(new ByteArrayInputStream(state.getWriterState()));
+		if (s.binary != null) {
+			s.binary.resume(writerState);
+		} else if (s.delta != null) {
+			s.delta.resume(writerState);
+		}
+		return s;
+	}
+	
+	/**
+	 * Function to take the state of the files for a checkpoint. Everything written so far is handed to the writer thread, the sizes
+	 * of the files are known once it is written, see SaveState.await.
+	 * @return The state of the files.
+	 * @throws IOException Exception that is thrown if writing the output failed.
+	 */
+	public SaveState checkpoint() throws IOException{
+		String[] names = new String[resumable.size()];
+		long[] positions = new long[resumable.size()];
+		for (int i = 0; i < names.length; i++) {
+			names[i] = resumable.get(i).getName();
+			positions[i] = resumable.get(i).getPosition();
+		}
+		ByteArrayOutputStream writerState = new ByteArrayOutputStream();
+		if (binary != null) {
+			binary.writeState(new DataOutputStream(writerState));
+		} else if (delta != null) {
+			delta.writeState(new DataOutputStream(writerState));
+		}
+		return new SaveState(names, positions, pipeline.barrier(resumable), writerState.toByteArray());
 	}
 	/**
 	 * Function to save the statistics of a run.
@@ -45,16 +188,20 @@ public class Save {
 	 * @throws IOException Exception is thrown when file cannot be written.
 	 */
 	public void saveStatistics(int counterAboveCarryingCapacity, int counterOffspring, boolean ATon) throws IOException {
-		statistics.write(counterAboveCarryingCapacity + "  " + counterOffspring + "  " + ATon +"\n" );
+		statistics.writeDecimal(counterAboveCarryingCapacity);
+		statistics.write("  ");
+		statistics.writeDecimal(counterOffspring);
+		statistics.write(ATon ? "  true\n" : "  false\n");
 	}
 	
 	/**
 	 * Function to save the settings of the simultion using the ruleset and the status of the population.
 	 * @param rs The ruleset configured for the simulation.
 	 * @param ps The population status for the simulation.
+	 * @param seed The seed given for all runs, the seed of a run is derived from it and the index of the run.
 	 * @throws IOException Exception is thrown when file cannot be written.
 	 */
-	public void saveSettings(RuleSet rs, PopulationStatus ps) throws IOException {;
+	public void saveSettings(RuleSet rs, PopulationStatus ps, long seed) throws IOException {;
 		String payoffString = "[";
 		for (int i = 0; i < rs.getNumberTypes(); i++) {
 			for (int j = 0; j < rs.getNumberTypes(); j++) {
@@ -110,7 +257,26 @@ public class Save {
 		settings.write(rs.getMigrastaticStep() + "\n");
 		settings.write("Probability to migrate when migrastatics on:		");
 		settings.write(rs.getProbToMigrateDuringTreatment() + "\n");
+		settings.write("Random seed:		");
+		settings.write(seed + "\n");
+		settings.write("Simulation run:		");
+		settings.write(run + "\n");
+		if (densityGrid != null) {
+			settings.write("Density grid bins:		");
+			settings.write(densityGrid.getBins() + "\n");
+			settings.write("Density grid extent:		");
+			settings.write(densityGrid.getExtent() + "\n");
+		}
 		settings.close();
+		if (binary != null) {
+			binary.writeHeader(rs.getNumberMigrationSites() + 1, seed);
+		}
+		if (delta != null) {
+			delta.writeHeader(rs.getNumberMigrationSites() + 1, seed);
+		}
+		if (densityBinary != null) {
+			densityBinary.writeHeader(seed);
+		}
 		
 	}
 	
@@ -121,7 +287,8 @@ public class Save {
 	 * @throws IOException Exception that is thrown if the file cannot be stored.
 	 */
 	public void saveStepNo(int step) throws IOException{
-		steps.write(step + "\n");
+		steps.writeDecimal(step);
+		steps.writeByte('\n');
 	}
 	
 	//Save distribution into Distribution.m
@@ -134,11 +301,13 @@ public class Save {
 	public void saveDistri(double [][] distri, int total) throws IOException{
 		for (int i = 0; i < distri.length; i++) {
 			for (int j = 0; j < 2; j++) {
-				g.write(distri[i][j] + " ");
+				g.writeDecimal(distri[i][j]);
+				g.writeByte(' ');
 			}
 			g.write(" ; ");
 		}
-		g.write(total + "\n");
+		g.writeDecimal(total);
+		g.writeByte('\n');
 	}
 
 	
@@ -149,8 +318,143 @@ public class Save {
 	 * @throws IOException Exception that is thrown if the file cannot be stored.
 	 */
 	public void save(SaveObject so) throws IOException{
+		checkText();
 		f.write(so.toString() + "\n");	
 	}
+	/**
+	 * Function to save the locations of all cells of one site into the Location.m file.
+	 * @param cells The cells of the site.
+	 * @param site The index of the site.
+	 * @throws IOException Exception that is thrown if the file cannot be stored.
+	 */
+	public void save(CellStore cells, int site) throws IOException{
+		checkText();
+		// the numbers are formatted straight into the output chunks, no SaveObject or String per cell
+		for (int i = 0; i < cells.size(); i++) {
+			writeLocation(f, cells.getType(i), cells.isInvasive(i) ? 1 : 0, site, cells.getX(i), cells.getY(i));
+		}
+	}
+	
+	/**
+	 * Function to write one line of Location.m, in the same layout as SaveObject.toString, followed by a new line.
+	 * @param out The channel to write to.
+	 * @param type The type of the cell.
+	 * @param invasive 1 if the cell is invasive, 0 otherwise.
+	 * @param site The site of the cell.
+	 * @param x The X axis location of the cell.
+	 * @param y The Y axis location of the cell.
+	 * @throws IOException Exception that is thrown if the file cannot be stored.
+	 */
+	static void writeLocation(OutputChannel out, int type, int invasive, int site, double x, double y) throws IOException {
+		out.writeDecimal(type);
+		out.writeByte(' ');
+		out.writeByte(' ');
+		out.writeDecimal(invasive);
+		out.writeByte(' ');
+		out.writeByte(' ');
+		out.writeDecimal(site);
+		out.writeByte(' ');
+		out.writeByte(' ');
+		out.writeDecimal(x);
+		out.writeByte(' ');
+		out.writeByte(' ');
+		out.writeDecimal(y);
+		out.writeByte('\n');
+	}
+	/**
+	 * Function to save the locations of the cells of all sites at one step, in the format the Save was created with.
+	 * The step is added to PlottedSteps.m once per site.
+	 * @param cellsAllSites The cells of every site.
+	 * @param step The step of the simulation.
+	 * @param separator Wether a separator line follows the step, which is the case for all but the last step of a run.
+	 * @throws IOException Exception that is thrown if the file cannot be stored.
+	 */
+	public void saveSnapshot(CellStore[] cellsAllSites, int step, boolean separator) throws IOException{
+		if (f == null) {
+			if (binary != null) {
+				binary.writeStep(cellsAllSites, step, separator);
+			} else if (delta != null) {
+				delta.writeStep(cellsAllSites, step, separator);
+			}
+			for (int site = 0; site < cellsAllSites.length; site++) {
+				saveStepNo(step);
+			}
+			return;
+		}
+		for (int site = 0; site < cellsAllSites.length; site++) {
+			save(cellsAllSites[site], site);
+			saveStepNo(step);
+		}
+		if (separator){
+			f.write(SEPARATOR_LINE);
+		}
+	}
+	
+	private void checkText() {
+		if (f == null) {
+			throw new IllegalStateException("The locations are not stored in the text format");
+		}
+	}
+	
+	/**
+	 * Function to store the cell densities of a grid at every gap'th step, in Density.m as text or in Density.bin in the binary format
+	 * of DensityGridWriter. Has to be called before saveSettings.
+	 * @param grid The grid the cells are counted in.
+	 * @param binary Wether the densities are stored in the binary format.
+	 * @throws IOException When the file cannot be created this exception is thrown.
+	 */
+	public void setDensityGrid(DensityGrid grid, boolean binary) throws IOException{
+		this.densityGrid = grid;
+		if (binary) {
+			OutputChannel channel = pipeline.open(path + "/Density" + run + ".bin");
+			densityBinary = new DensityGridWriter(channel, grid, run);
+			resumable.add(channel);
+			if (resumed) {
+				densityBinary.resume();
+			}
+		} else {
+			density = pipeline.open(path + "/Density" + run + ".m", true);
+			resumable.add(density);
+		}
+	}
+	
+	/**
+	 * Function to count the cells of all sites in the density grid and save the counts of one step.
+	 * In Density.m every row of a grid is one line: step, site, layer (0 for the invasive cells, otherwise the type), row and the
+	 * counts of all columns.
+	 * @param cellsAllSites The cells of every site.
+	 * @param step The step of the simulation.
+	 * @throws IOException Exception that is thrown if the file cannot be stored.
+	 */
+	public void saveDensity(CellStore[] cellsAllSites, int step) throws IOException{
+		densityGrid.count(cellsAllSites);
+		if (densityBinary != null) {
+			densityBinary.writeStep(step);
+			return;
+		}
+		int[] counts = densityGrid.getCounts();
+		int bins = densityGrid.getBins();
+		int i = 0;
+		for (int site = 0; site < densityGrid.getSites(); site++) {
+			for (int layer = 0; layer < densityGrid.getLayers(); layer++) {
+				for (int row = 0; row < bins; row++) {
+					density.writeDecimal(step);
+					density.writeByte(' ');
+					density.writeDecimal(site);
+					density.writeByte(' ');
+					density.writeDecimal(layer);
+					density.writeByte(' ');
+					density.writeDecimal(row);
+					for (int column = 0; column < bins; column++) {
+						density.writeByte(' ');
+						density.writeDecimal(counts[i++]);
+					}
+					density.writeByte('\n');
+				}
+			}
+		}
+	}
+	
 	/**
 	 * Function to store the history of the simulation.
 	 * @throws IOException Exception that is thrown if the file cannot be stored.
@@ -166,16 +470,41 @@ public class Save {
 	
 
 	/**
-	 * For all files generate a new line and close the file writer.
+	 * For all files generate a new line and close the file writer. Waits until all output is written.
 	 * @throws IOException Exception that is thrown if the file cannot be stored.
 	 */
 	public void finish() throws IOException{
-		SaveObject so = new SaveObject((short)-10,(short)-10,(short)-10,-10,-10) ;
-		f.write(so.toString() + "\n");
-		f.close();
+		if (binary != null) {
+			binary.close();
+		} else if (delta != null) {
+			delta.close();
+		} else if (f != null) {
+			f.write(END_LINE);
+			f.close();
+		}
+		if (densityBinary != null) {
+			densityBinary.close();
+		} else if (density != null) {
+			density.close();
+		}
 		g.close();
 		steps.close();
 		statistics.close();
+		pipeline.close();
+	}
+	
+	/**
+	 * Closes the files of a run that failed, without the end of the location file. The output written so far is written to the files
+	 * if possible, errors are ignored. Afterwards the files are closed and the writer thread is stopped in any case.
+	 */
+	public void abort() {
+		try {
+			pipeline.close();
+		} catch (IOException | RuntimeException e) {
+			// the run failed already, its output is incomplete anyway
+		} finally {
+			pipeline.abort();
+		}
 	}
 	
 	
@@ -0,0 +1,127 @@
+package UI;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+
+/**
+ * <p>
+ * Class SaveState is the part of a checkpoint that belongs to the output files of a Save: for every open file the number of bytes
+ * written to its channel and the size of the file on the disk, and the index of the snapshot writer. The sizes are known once the
+ * writer thread has written everything before the checkpoint, so a SaveState can be taken without waiting for the disk.
+ * See Save.checkpoint and Save.resume.
+ * </p>
+ */
+public class SaveState {
+
+	private String[] names;		//names of the files without their directory
+	private long[] positions;	//bytes written to the channel of every file
+	private CompletableFuture<long[]> sizes;	//sizes of the files on the disk
+	private byte[] writerState;	//state of the snapshot writer, empty for the text format
+
+	/**
+	 * <p>
+	 * Constructor for the SaveState class.
+	 * </p>
+	 * @param names The names of the files.
+	 * @param positions The number of bytes written to the channel of every file.
+	 * @param sizes The sizes of the files, completed by the writer thread.
+	 * @param writerState The state of the snapshot writer.
+	 */
+	SaveState(String[] names, long[] positions, CompletableFuture<long[]> sizes, byte[] writerState) {
+		this.names = names;
+		this.positions = positions;
+		this.sizes = sizes;
+		this.writerState = writerState;
+	}
+
+	/**
+	 * <p>
+	 * Waits until the sizes of the files are known, i.e. everything before the checkpoint is on the disk.
+	 * </p>
+	 * @throws IOException Exception thrown if writing the output failed.
+	 */
+	public void await() throws IOException {
+		try {
+			sizes.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while waiting for the output", e);
+		} catch (ExecutionException e) {
+			throw new IOException("Writing output failed: " + e.getCause().getMessage(), e.getCause());
+		}
+	}
+
+	/**
+	 * <p>
+	 * Writes the state, waits until the sizes of the files are known.
+	 * </p>
+	 * @param out The checkpoint.
+	 * @throws IOException Exception thrown if writing the output or the checkpoint failed.
+	 */
+	public void write(DataOutput out) throws IOException {
+		await();
+		long[] size = sizes.getNow(null);
+		out.writeInt(names.length);
+		for (int i = 0; i < names.length; i++) {
+			out.writeUTF(names[i]);
+			out.writeLong(positions[i]);
+			out.writeLong(size[i]);
+		}
+		out.writeInt(writerState.length);
+		out.write(writerState);
+	}
+
+	/**
+	 * <p>
+	 * Reads a state written by write.
+	 * </p>
+	 * @param in The checkpoint.
+	 * @return The state.
+	 * @throws IOException Exception thrown if the checkpoint cannot be read.
+	 */
+	public static SaveState read(DataInput in) throws IOException {
+		int files = in.readInt();
+		String[] names = new String[files];
+		long[] positions = new long[files];
+		long[] size = new long[files];
+		for (int i = 0; i < files; i++) {
+			names[i] = in.readUTF();
+			positions[i] = in.readLong();
+			size[i] = in.readLong();
+		}
+		byte[] writerState = new byte[in.readInt()];
+		in.readFully(writerState);
+		return new SaveState(names, positions, CompletableFuture.completedFuture(size), writerState);
+	}
+
+	/**
+	 * <p>
+	 * Getter function to get the position and size of every file.
+	 * </p>
+	 * @return The number of bytes written to the channel and the size on the disk, by name of the file.
+	 */
+	Map<String, long[]> getFiles() {
+		long[] size = sizes.getNow(null);
+		Map<String, long[]> files = new HashMap<String, long[]>();
+		for (int i = 0; i < names.length; i++) {
+			files.put(names[i], new long[] {positions[i], size[i]});
+		}
+		return files;
+	}
+
+	/**
+	 * <p>
+	 * Getter function to get the state of the snapshot writer.
+	 * </p>
+	 * @return The state written by BinarySnapshotWriter.writeState or DeltaSnapshotWriter.writeState, empty for the text format.
+	 */
+	byte[] getWriterState() {
+		return writerState;
+	}
+}
@@ -0,0 +1,289 @@
+package UI;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+
+
+/**
+ * <p>
+ * Class SnapshotAnalysis computes summaries of the stored steps of a location file, e.g. the number of cells of every type per site,
+ * the fraction of invasive cells or the radial profile around the center of a site. map applies such a summary to all steps with
+ * several threads, so the location file does not have to be loaded into MATLAB for them.
+ * </p>
+ */
+public class SnapshotAnalysis {
+
+	/**
+	 * Main function to print the number of cells per step and site as tab separated table
+	 * @param args The location file, optionally the number of types and the number of threads
+	 */
+	public static void main(String[] args) {
+		if (args.length < 1) {
+			System.err.println("Usage: SnapshotAnalysis Location0.m|Location0.m.gz|Location0.bin|Location0.delta [numberTypes] [threads]");
+			System.exit(2);
+		}
+		int numberTypes = args.length > 1 ? Integer.parseInt(args[1]) : 2;
+		int parallelism = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+		Function<SnapshotStep, String> summary = step -> {
+			long[][] counts = typeCounts(step, sites(step), numberTypes);
+			StringBuilder sb = new StringBuilder();
+			for (int site = 0; site < counts.length; site++) {
+				long cells = 0;
+				for (int t = 1; t <= numberTypes; t++) {
+					cells += counts[site][t];
+				}
+				sb.append(step.getStep()).append('\t').append(site).append('\t').append(cells).append('\t').append(counts[site][0]);
+				for (int t = 1; t <= numberTypes; t++) {
+					sb.append('\t').append(counts[site][t]);
+				}
+				sb.append('\n');
+			}
+			return sb.toString();
+		};
+		StringBuilder header = new StringBuilder("step\tsite\tcells\tinvasive");
+		for (int t = 1; t <= numberTypes; t++) {
+			header.append("\ttype").append(t);
+		}
+		System.out.println(header);
+		try {
+			List<String> lines;
+			if (args[0].endsWith(".gz") || args[0].endsWith(".lzb")) {
+				try (LocationStream stream = new LocationStream(args[0], parallelism)) {
+					lines = map(stream, parallelism, summary);
+				}
+			} else {
+				try (SnapshotReader reader = SnapshotReader.open(args[0])) {
+					lines = map(reader, parallelism, summary);
+				}
+			}
+			for (String line : lines) {
+				System.out.print(line);
+			}
+		} catch (IOException e) {
+			System.err.println("Error while reading " + args[0] + ": " + e.getMessage());
+			System.exit(1);
+		}
+	}
+
+	/**
+	 * <p>
+	 * Function to get the number of sites that have cells in a step.
+	 * </p>
+	 * @param step The cells of the step.
+	 * @return The largest site of a cell plus one.
+	 */
+	public static int sites(SnapshotStep step) {
+		int sites = 0;
+		for (int i = 0; i < step.size(); i++) {
+			sites = Math.max(sites, step.getSite(i) + 1);
+		}
+		return sites;
+	}
+
+	/**
+	 * <p>
+	 * Counts the cells of every type and the invasive cells at every site.
+	 * </p>
+	 * @param step The cells of the step.
+	 * @param sites The number of sites, cells of larger sites are ignored.
+	 * @param numberTypes The number of types, cells of larger types are ignored.
+	 * @return counts[site][type] for the types 1 to numberTypes, counts[site][0] is the number of invasive cells.
+	 */
+	public static long[][] typeCounts(SnapshotStep step, int sites, int numberTypes) {
+		long[][] counts = new long[sites][numberTypes + 1];
+		for (int i = 0; i < step.size(); i++) {
+			int site = step.getSite(i);
+			int type = step.getType(i);
+			if (site < 0 || site >= sites) {
+				continue;
+			}
+			if (type >= 1 && type <= numberTypes) {
+				counts[site][type]++;
+			}
+			if (step.isInvasive(i)) {
+				counts[site][0]++;
+			}
+		}
+		return counts;
+	}
+
+	/**
+	 * <p>
+	 * Function to get the fraction of invasive cells at every site.
+	 * </p>
+	 * @param step The cells of the step.
+	 * @param sites The number of sites, cells of larger sites are ignored.
+	 * @return The fraction of invasive cells of every site, 0 for a site without cells.
+	 */
+	public static double[] invasiveFractions(SnapshotStep step, int sites) {
+		long[] cells = new long[sites];
+		long[] invasive = new long[sites];
+		for (int i = 0; i < step.size(); i++) {
+			int site = step.getSite(i);
+			if (site < 0 || site >= sites) {
+				continue;
+			}
+			cells[site]++;
+			if (step.isInvasive(i)) {
+				invasive[site]++;
+			}
+		}
+		double[] fractions = new double[sites];
+		for (int site = 0; site < sites; site++) {
+			fractions[site] = cells[site] > 0 ? (double) invasive[site] / cells[site] : 0;
+		}
+		return fractions;
+	}
+
+	/**
+	 * <p>
+	 * Counts the cells of every site in rings of equal width around the center of the site.
+	 * </p>
+	 * @param step The cells of the step.
+	 * @param centers The X and Y axis location of the center of every site, e.g. from RuleSet.getSiteLocation.
+	 * @param binWidth The width of a ring.
+	 * @param bins The number of rings, cells further away are ignored.
+	 * @return profile[site][bin] is the number of cells whose distance to the center is in [bin*binWidth, (bin+1)*binWidth).
+	 */
+	public static long[][] radialProfile(SnapshotStep step, double[][] centers, double binWidth, int bins) {
+		long[][] profile = new long[centers.length][bins];
+		for (int i = 0; i < step.size(); i++) {
+			int site = step.getSite(i);
+			if (site < 0 || site >= centers.length) {
+				continue;
+			}
+			double dx = step.getX(i) - centers[site][0];
+			double dy = step.getY(i) - centers[site][1];
+			int bin = (int) (Math.sqrt(dx * dx + dy * dy) / binWidth);
+			if (bin < bins) {
+				profile[site][bin]++;
+			}
+		}
+		return profile;
+	}
+
+	/**
+	 * <p>
+	 * Applies a function to all stored steps with several threads. If the reader allows it the steps are also read in parallel,
+	 * otherwise they are read one after the other and only the function runs in parallel.
+	 * </p>
+	 * @param <R> The type of the result of a step.
+	 * @param reader The location file.
+	 * @param parallelism The number of threads.
+	 * @param f The function, called by several threads at the same time.
+	 * @return The results of all steps, in the order of the steps.
+	 * @throws IOException Exception thrown if a step cannot be read.
+	 */
+	public static <R> List<R> map(SnapshotReader reader, int parallelism, Function<SnapshotStep, R> f) throws IOException {
+		ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, parallelism));
+		try {
+			if (reader.isConcurrent()) {
+				List<Future<R>> futures = new ArrayList<Future<R>>();
+				for (int k = 0; k < reader.getStepCount(); k++) {
+					final int index = k;
+					futures.add(pool.submit(() -> {
+						try {
+							return f.apply(reader.readStep(index));
+						} catch (IOException e) {
+							throw new UncheckedIOException(e);
+						}
+					}));
+				}
+				List<R> results = new ArrayList<R>(futures.size());
+				for (Future<R> future : futures) {
+					results.add(get(future));
+				}
+				return results;
+			}
+			Window<R> window = new Window<R>(pool, 2 * Math.max(1, parallelism), f);
+			for (int k = 0; k < reader.getStepCount(); k++) {
+				window.submit(reader.readStep(k));
+			}
+			return window.finish();
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+
+	/**
+	 * <p>
+	 * Applies a function to all remaining steps of a stream with several threads. The steps are read one after the other and at
+	 * most twice as many steps as threads are held in memory.
+	 * </p>
+	 * @param <R> The type of the result of a step.
+	 * @param stream The location file.
+	 * @param parallelism The number of threads.
+	 * @param f The function, called by several threads at the same time.
+	 * @return The results of all steps, in the order of the steps.
+	 * @throws IOException Exception thrown if a step cannot be read.
+	 */
+	public static <R> List<R> map(LocationStream stream, int parallelism, Function<SnapshotStep, R> f) throws IOException {
+		ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, parallelism));
+		try {
+			Window<R> window = new Window<R>(pool, 2 * Math.max(1, parallelism), f);
+			SnapshotStep step;
+			while ((step = stream.next()) != null) {
+				window.submit(step);
+			}
+			return window.finish();
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+
+	private static <R> R get(Future<R> future) throws IOException {
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while analysing the steps", e);
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof UncheckedIOException) {
+				throw ((UncheckedIOException) cause).getCause();
+			}
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			throw new IOException(cause);
+		}
+	}
+
+	// keeps a bounded number of steps in flight and collects the results in order
+	private static class Window<R> {
+
+		private ExecutorService pool;
+		private int capacity;
+		private Function<SnapshotStep, R> f;
+		private ArrayDeque<Future<R>> pending = new ArrayDeque<Future<R>>();
+		private List<R> results = new ArrayList<R>();
+
+		Window(ExecutorService pool, int capacity, Function<SnapshotStep, R> f) {
+			this.pool = pool;
+			this.capacity = capacity;
+			this.f = f;
+		}
+
+		void submit(SnapshotStep step) throws IOException {
+			if (pending.size() == capacity) {
+				results.add(get(pending.poll()));
+			}
+			pending.add(pool.submit(() -> f.apply(step)));
+		}
+
+		List<R> finish() throws IOException {
+			while (!pending.isEmpty()) {
+				results.add(get(pending.poll()));
+			}
+			return results;
+		}
+	}
+}
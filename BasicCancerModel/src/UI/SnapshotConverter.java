@@ -0,0 +1,59 @@
+package UI;
+
+import java.io.IOException;
+
+
+/**
+ * <p>
+ * Class SnapshotConverter converts a binary snapshot file back to the text layout of Location&lt;run&gt;.m, so the MATLAB scripts
+ * can read it. For files of the binary format the text is the same as if the run had been stored in the text format. Files of the
+ * delta format give the same cells per step, ordered by site and cell ID.
+ * </p>
+ */
+public class SnapshotConverter {
+
+	/**
+	 * Main function to convert a file from the command line
+	 * @param args The binary file and optionally the text file, which defaults to the binary file with the ending .m
+	 */
+	public static void main(String[] args) {
+		if (args.length < 1) {
+			System.err.println("Usage: SnapshotConverter Location0.bin|Location0.delta [Location0.m]");
+			System.exit(2);
+		}
+		String target = args.length > 1 ? args[1] : args[0].replaceAll("\\.(bin|delta)$", "") + ".m";
+		try {
+			toText(args[0], target);
+		} catch (IOException e) {
+			System.err.println("Error while converting " + args[0] + ": " + e.getMessage());
+			System.exit(1);
+		}
+	}
+
+	/**
+	 * <p>
+	 * Converts a binary snapshot file to the text layout.
+	 * </p>
+	 * @param binaryPath The binary file.
+	 * @param textPath The text file to write.
+	 * @throws IOException Exception thrown if a file cannot be read or written.
+	 */
+	public static void toText(String binaryPath, String textPath) throws IOException {
+		OutputPipeline pipeline = new OutputPipeline();
+		try (SnapshotReader reader = SnapshotReader.open(binaryPath)) {
+			OutputChannel out = pipeline.open(textPath);
+			for (int k = 0; k < reader.getStepCount(); k++) {
+				SnapshotStep step = reader.readStep(k);
+				for (int i = 0; i < step.size(); i++) {
+					Save.writeLocation(out, step.getType(i), step.isInvasive(i) ? 1 : 0, step.getSite(i), step.getX(i), step.getY(i));
+				}
+				if (step.hasSeparator()) {
+					out.write(Save.SEPARATOR_LINE);
+				}
+			}
+			out.write(Save.END_LINE);
+		} finally {
+			pipeline.close();
+		}
+	}
+}
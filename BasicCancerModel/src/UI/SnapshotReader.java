@@ -0,0 +1,84 @@
+package UI;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+
+/**
+ * <p>
+ * Interface SnapshotReader reads the stored steps of a location file, see BinarySnapshotReader, DeltaSnapshotReader and
+ * LocationTextReader.
+ * </p>
+ */
+public interface SnapshotReader extends Closeable {
+
+	/**
+	 * <p>
+	 * Opens a location file with the reader that fits its format, uncompressed text files are read by LocationTextReader.
+	 * </p>
+	 * @param path The path of the file.
+	 * @return The reader.
+	 * @throws IOException Exception thrown if the file cannot be read or has an unknown format.
+	 */
+	static SnapshotReader open(String path) throws IOException {
+		long magic;
+		int first;
+		try (FileChannel file = FileChannel.open(Paths.get(path), StandardOpenOption.READ)) {
+			ByteBuffer b = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN);
+			while (b.hasRemaining() && file.read(b) >= 0) {
+			}
+			b.flip();
+			magic = b.remaining() == 8 ? b.getLong() : 0;
+			first = b.limit() > 0 ? b.get(0) : -1;
+		}
+		if (magic == DeltaSnapshotWriter.FILE_MAGIC) {
+			return new DeltaSnapshotReader(path);
+		}
+		if ((first >= '0' && first <= '9') || first == '-') {
+			return new LocationTextReader(path);
+		}
+		return new BinarySnapshotReader(path);
+	}
+
+	/**
+	 * <p>
+	 * Getter function to get the number of stored steps.
+	 * </p>
+	 * @return The number of steps in the file.
+	 */
+	int getStepCount();
+
+	/**
+	 * <p>
+	 * Getter function to get the step of the simulation of a stored step.
+	 * </p>
+	 * @param k The index of the stored step.
+	 * @return The step of the simulation.
+	 */
+	int getStep(int k);
+
+	/**
+	 * <p>
+	 * Reads all cells of a stored step.
+	 * </p>
+	 * @param k The index of the stored step, between 0 and getStepCount()-1.
+	 * @return The cells of the step.
+	 * @throws IOException Exception thrown if the file cannot be read.
+	 */
+	SnapshotStep readStep(int k) throws IOException;
+
+	/**
+	 * <p>
+	 * Getter function to get if readStep can be called by several threads at the same time.
+	 * </p>
+	 * @return True if the steps can be read in parallel.
+	 */
+	default boolean isConcurrent() {
+		return false;
+	}
+}
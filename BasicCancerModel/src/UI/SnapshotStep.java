@@ -0,0 +1,165 @@
+package UI;
+
+
+/**
+ * <p>
+ * Class SnapshotStep holds the cells of all sites of one step as read from a binary snapshot file.
+ * </p>
+ */
+public class SnapshotStep {
+
+	private int step;
+	private boolean separator;
+	private short[] type;
+	private byte[] invasive;
+	private short[] site;
+	private double[] x;
+	private double[] y;
+	private long[] id;	//IDs of the cells, null if the file has none
+
+	/**
+	 * <p>
+	 * Constructor for the SnapshotStep class.
+	 * </p>
+	 * @param step The step of the simulation.
+	 * @param separator The value if the text format has a separator line after the step.
+	 * @param type The types of the cells.
+	 * @param invasive 1 for invasive cells, 0 otherwise.
+	 * @param site The sites of the cells.
+	 * @param x The X axis locations of the cells.
+	 * @param y The Y axis locations of the cells.
+	 */
+	public SnapshotStep(int step, boolean separator, short[] type, byte[] invasive, short[] site, double[] x, double[] y) {
+		this.step = step;
+		this.separator = separator;
+		this.type = type;
+		this.invasive = invasive;
+		this.site = site;
+		this.x = x;
+		this.y = y;
+	}
+
+	/**
+	 * <p>
+	 * Constructor for a SnapshotStep with the IDs of the cells.
+	 * </p>
+	 * @param step The step of the simulation.
+	 * @param separator The value if the text format has a separator line after the step.
+	 * @param id The IDs of the cells.
+	 * @param type The types of the cells.
+	 * @param invasive 1 for invasive cells, 0 otherwise.
+	 * @param site The sites of the cells.
+	 * @param x The X axis locations of the cells.
+	 * @param y The Y axis locations of the cells.
+	 */
+	public SnapshotStep(int step, boolean separator, long[] id, short[] type, byte[] invasive, short[] site, double[] x, double[] y) {
+		this(step, separator, type, invasive, site, x, y);
+		this.id = id;
+	}
+
+	/**
+	 * <p>
+	 * Getter function to get the step of the simulation.
+	 * </p>
+	 * @return The step.
+	 */
+	public int getStep() {
+		return step;
+	}
+
+	/**
+	 * <p>
+	 * Getter function to get if the text format has a separator line after the step.
+	 * </p>
+	 * @return The value if there is a separator.
+	 */
+	public boolean hasSeparator() {
+		return separator;
+	}
+
+	/**
+	 * <p>
+	 * Getter function to get the number of cells at all sites.
+	 * </p>
+	 * @return The number of cells.
+	 */
+	public int size() {
+		return type.length;
+	}
+
+	/**
+	 * <p>
+	 * Getter function to get if the IDs of the cells are known.
+	 * </p>
+	 * @return The value if getId can be used.
+	 */
+	public boolean hasIds() {
+		return id != null;
+	}
+
+	/**
+	 * <p>
+	 * Getter function to get the ID of a cell.
+	 * </p>
+	 * @param i The index of the cell.
+	 * @return The stable ID of the cell.
+	 */
+	public long getId(int i) {
+		return id[i];
+	}
+
+	/**
+	 * <p>
+	 * Getter function to get the type of a cell.
+	 * </p>
+	 * @param i The index of the cell.
+	 * @return The type of the cell.
+	 */
+	public short getType(int i) {
+		return type[i];
+	}
+
+	/**
+	 * <p>
+	 * Getter function to get if a cell is invasive.
+	 * </p>
+	 * @param i The index of the cell.
+	 * @return The value if the cell is invasive.
+	 */
+	public boolean isInvasive(int i) {
+		return invasive[i] != 0;
+	}
+
+	/**
+	 * <p>
+	 * Getter function to get the site of a cell.
+	 * </p>
+	 * @param i The index of the cell.
+	 * @return The site of the cell (0 = solid tumor).
+	 */
+	public short getSite(int i) {
+		return site[i];
+	}
+
+	/**
+	 * <p>
+	 * Getter function to get the X axis location of a cell.
+	 * </p>
+	 * @param i The index of the cell.
+	 * @return The X axis location of the cell.
+	 */
+	public double getX(int i) {
+		return x[i];
+	}
+
+	/**
+	 * <p>
+	 * Getter function to get the Y axis location of a cell.
+	 * </p>
+	 * @param i The index of the cell.
+	 * @return The Y axis location of the cell.
+	 */
+	public double getY(int i) {
+		return y[i];
+	}
+}